@@ -0,0 +1,105 @@
+package javax.comm.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.comm.SerialPortEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Measures {@linkplain SerialPortEvent} dispatch cost through the {@linkplain javax.comm.SerialPortEventListener}. Every operation
+ * toggles RTS of the port A and waits until the listener of the port B receives {@linkplain SerialPortEvent#CTS} event, or writes
+ * one byte to the port A and waits for {@linkplain SerialPortEvent#DATA_AVAILABLE} event on the port B. Both the default and the
+ * coalescing (see {@linkplain javax.comm.SerialPort#setEventCoalescing(boolean)}) dispatch modes are measured.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djavax.comm.loopback.pairs=1")
+public class EventDispatchBenchmark {
+	@Param({PortPair.DEFAULT_PORT_A})
+	public String	portA;
+
+	@Param({PortPair.DEFAULT_PORT_B})
+	public String	portB;
+
+	@Param({"false", "true"})
+	public boolean	coalescing;
+
+	private final AtomicLong	lineEvents = new AtomicLong();
+	private final AtomicLong	dataEvents = new AtomicLong();
+	private PortPair	pair;
+	private boolean		rts = true;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		pair = new PortPair(portA, portB);
+		pair.b.setEventCoalescing(coalescing);
+		pair.b.addEventListener((event)->{
+			switch (event.getEventType()) {
+				case SerialPortEvent.CTS			:
+					lineEvents.incrementAndGet();
+					break;
+				case SerialPortEvent.DATA_AVAILABLE	:
+					try {
+						while (pair.inB.available() > 0) {
+							pair.inB.read();
+						}
+					} catch (IOException e) {
+					}
+					dataEvents.incrementAndGet();
+					break;
+				default :
+			}
+		});
+		pair.b.notifyOnCTS(true);
+		pair.b.notifyOnDataAvailable(true);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pair.close();
+	}
+
+	@Benchmark
+	public long lineStateEvent() {
+		final long	expected = lineEvents.get() + 1;
+
+		rts = !rts;
+		pair.a.setRTS(rts);
+		return awaitCounter(lineEvents, expected);
+	}
+
+	@Benchmark
+	public long dataAvailableEvent() throws IOException {
+		final long	expected = dataEvents.get() + 1;
+
+		pair.outA.write(0x55);
+		return awaitCounter(dataEvents, expected);
+	}
+
+	private static long awaitCounter(final AtomicLong counter, final long expected) {
+		long	current;
+
+		while ((current = counter.get()) < expected) {
+			Thread.onSpinWait();
+		}
+		return current;
+	}
+}
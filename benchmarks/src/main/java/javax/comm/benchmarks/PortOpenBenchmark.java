@@ -0,0 +1,45 @@
+package javax.comm.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.CommPort;
+import javax.comm.CommPortIdentifier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Measures {@linkplain CommPortIdentifier#getPortIdentifier(String)} lookup and {@linkplain CommPortIdentifier#open(String, int)}/{@linkplain CommPort#close()}
+ * latency.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djavax.comm.loopback.pairs=1")
+public class PortOpenBenchmark {
+	@Param({PortPair.DEFAULT_PORT_A})
+	public String	portA;
+
+	@Benchmark
+	public CommPortIdentifier getPortIdentifier() throws Exception {
+		return CommPortIdentifier.getPortIdentifier(portA);
+	}
+
+	@Benchmark
+	public CommPort openClose() throws Exception {
+		final CommPort	port = CommPortIdentifier.getPortIdentifier(portA).open("benchmarks", 1000);
+
+		port.close();
+		return port;
+	}
+}
@@ -0,0 +1,85 @@
+package javax.comm.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.comm.CommPortIdentifier;
+import javax.comm.NoSuchPortException;
+import javax.comm.PortInUseException;
+import javax.comm.SerialPort;
+import javax.comm.UnsupportedCommOperationException;
+
+/**
+ * <p>Two connected serial ports used by benchmarks. By default benchmarks use the loopback pair <b>LOOP0A</b>/<b>LOOP0B</b>
+ * registered by the <b>javax.comm.loopback.pairs</b> property. To run benchmarks against pseudo-terminals, connect two ptys
+ * (for example {@code socat pty,raw,echo=0,link=/tmp/ttyA pty,raw,echo=0,link=/tmp/ttyB}) and run benchmarks with
+ * {@code -p portA=/tmp/ttyA -p portB=/tmp/ttyB -jvmArgsAppend -Djavax.comm.linux.ports=/tmp/ttyA,/tmp/ttyB}.</p>
+ */
+class PortPair implements AutoCloseable {
+	static final String		DEFAULT_PORT_A = "LOOP0A";
+	static final String		DEFAULT_PORT_B = "LOOP0B";
+	static final int		BAUD_RATE = 921600;
+
+	final SerialPort	a;
+	final SerialPort	b;
+	final InputStream	inA;
+	final OutputStream	outA;
+	final InputStream	inB;
+	final OutputStream	outB;
+
+	PortPair(final String portA, final String portB) throws NoSuchPortException, PortInUseException, UnsupportedCommOperationException, IOException {
+		this.a = open(portA);
+		try {
+			this.b = open(portB);
+		} catch (NoSuchPortException | PortInUseException | UnsupportedCommOperationException exc) {
+			a.close();
+			throw exc;
+		}
+		this.inA = a.getInputStream();
+		this.outA = a.getOutputStream();
+		this.inB = b.getInputStream();
+		this.outB = b.getOutputStream();
+	}
+
+	void enableLowLatency(final int spinBudget) throws UnsupportedCommOperationException {
+		a.enableLowLatency(spinBudget);
+		b.enableLowLatency(spinBudget);
+	}
+
+	@Override
+	public void close() {
+		a.close();
+		b.close();
+	}
+
+	static void readFully(final InputStream is, final byte[] buffer, final int length) throws IOException {
+		int	total = 0, read;
+
+		while (total < length) {
+			if ((read = is.read(buffer, total, length - total)) < 0) {
+				throw new IOException("Port closed");
+			}
+			total += read;
+		}
+	}
+
+	private static SerialPort open(final String portName) throws NoSuchPortException, PortInUseException, UnsupportedCommOperationException {
+		final CommPortIdentifier	id = CommPortIdentifier.getPortIdentifier(portName);
+
+		if (id == null) {
+			throw new NoSuchPortException(portName);
+		}
+		else {
+			final SerialPort	port = (SerialPort)id.open("benchmarks", 1000);
+
+			if (port == null) {
+				throw new PortInUseException(portName);
+			}
+			else {
+				port.setSerialPortParams(BAUD_RATE, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
+				return port;
+			}
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package javax.comm.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Measures request/response round-trip latency. The echo thread reads messages from the port B and writes them back, benchmark
+ * thread writes message to the port A and waits for the echo. Sample time mode reports latency percentiles. Non-zero spin budget
+ * turns on low-latency mode of both ports (see {@linkplain javax.comm.SerialPort#enableLowLatency(int)}).</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djavax.comm.loopback.pairs=1")
+public class RoundTripLatencyBenchmark {
+	@Param({PortPair.DEFAULT_PORT_A})
+	public String	portA;
+
+	@Param({PortPair.DEFAULT_PORT_B})
+	public String	portB;
+
+	@Param({"1", "16", "256"})
+	public int		messageSize;
+
+	@Param({"0", "50"})
+	public int		spinBudget;
+
+	private PortPair	pair;
+	private byte[]		message;
+	private byte[]		response;
+	private Thread		echo;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		pair = new PortPair(portA, portB);
+		if (spinBudget > 0) {
+			pair.enableLowLatency(spinBudget);
+		}
+		message = new byte[messageSize];
+		response = new byte[messageSize];
+		echo = new Thread(this::echo, "echo");
+		echo.setDaemon(true);
+		echo.start();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException {
+		echo.interrupt();
+		pair.close();
+		echo.join(1000);
+	}
+
+	@Benchmark
+	public byte[] roundTrip() throws Exception {
+		pair.outA.write(message, 0, messageSize);
+		PortPair.readFully(pair.inA, response, messageSize);
+		return response;
+	}
+
+	private void echo() {
+		final byte[]	buffer = new byte[messageSize];
+
+		try {
+			for (;;) {
+				PortPair.readFully(pair.inB, buffer, messageSize);
+				pair.outB.write(buffer, 0, messageSize);
+			}
+		} catch (IOException | IllegalStateException exc) {
+			// port closed, stop echo
+		}
+	}
+}
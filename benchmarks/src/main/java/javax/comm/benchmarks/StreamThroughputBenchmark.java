@@ -0,0 +1,68 @@
+package javax.comm.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Measures {@linkplain javax.comm.CommPort#getInputStream()}/{@linkplain javax.comm.CommPort#getOutputStream()} throughput. Every
+ * operation writes chunk to the port A and reads it from the port B. Chunk size must not exceed driver buffer size.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djavax.comm.loopback.pairs=1")
+public class StreamThroughputBenchmark {
+	@Param({PortPair.DEFAULT_PORT_A})
+	public String	portA;
+
+	@Param({PortPair.DEFAULT_PORT_B})
+	public String	portB;
+
+	@Param({"64", "1024", "4096"})
+	public int		chunkSize;
+
+	private PortPair	pair;
+	private byte[]		chunk;
+	private byte[]		buffer;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		pair = new PortPair(portA, portB);
+		chunk = new byte[chunkSize];
+		buffer = new byte[chunkSize];
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pair.close();
+	}
+
+	@Benchmark
+	public byte[] bulk() throws Exception {
+		pair.outA.write(chunk, 0, chunkSize);
+		PortPair.readFully(pair.inB, buffer, chunkSize);
+		return buffer;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public int singleByte() throws Exception {
+		pair.outA.write(0x55);
+		return pair.inB.read();
+	}
+}
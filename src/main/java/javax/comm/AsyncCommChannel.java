@@ -0,0 +1,183 @@
+package javax.comm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadPendingException;
+import java.nio.channels.WritePendingException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.spi.TimerWheel;
+
+/**
+ * <p>An asynchronous channel to read and write data of the serial port.</p>
+ *
+ * <p>Channel is obtained by the {@linkplain SerialPort#getAsyncChannel()} method. Like {@linkplain java.nio.channels.AsynchronousByteChannel},
+ * it allows one outstanding read and one outstanding write at a time. All the operations of all the asynchronous channels are
+ * performed by one shared I/O thread, and the returned futures are completed in this thread. Dependent actions with long processing
+ * should use async methods of the {@linkplain CompletableFuture} to avoid stalling the shared I/O thread.</p>
+ *
+ * <p>Read operation is completed with the same conditions as the blocking read described in {@linkplain CommPort#getInputStream()}:</p>
+ * <ul>
+ * <li>when receive threshold is enabled, read completes when min(threshold, buffer remaining) bytes are available;</li>
+ * <li>when receive threshold is disabled, read completes when any data is available;</li>
+ * <li>when receive timeout is enabled, read completes after timeout with all the data available (possibly 0 bytes);</li>
+ * <li>zero receive threshold or zero receive timeout means polling: read completes immediately with all the data available.</li>
+ * </ul>
+ * <p>Write operation is completed when all the buffer content is written to the port. When the port or the channel is closed, all
+ * the outstanding operations are completed exceptionally with {@linkplain AsynchronousCloseException}.</p>
+ *
+ * <p>Blocking reads and writes of the same port must not be mixed with the asynchronous ones: they share the locks of the driver,
+ * so a blocked stream or channel operation stalls the shared I/O thread of all the asynchronous channels.</p>
+ *
+ * @see SerialPort#getAsyncChannel()
+ * @since 0.0.1
+ */
+public final class AsyncCommChannel implements Closeable {
+	private final SerialPort	port;
+	private final CommChannel	channel;
+	private volatile boolean	closed = false;
+	volatile PendingRead	pendingRead = null;
+	volatile PendingWrite	pendingWrite = null;
+
+	AsyncCommChannel(final SerialPort port) throws IOException {
+		this.port = port;
+		this.channel = port.getChannel();
+	}
+
+	/**
+	 * <p>Gets port of the channel</p>
+	 * @return port. Can't be null
+	 */
+	public SerialPort getPort() {
+		return port;
+	}
+
+	/**
+	 * <p>Reads a sequence of bytes from the port into the given buffer.</p>
+	 * @param dst buffer to read data to. Can't be null and must not be modified until the operation completes
+	 * @return future with the number of bytes read. Can't be null
+	 * @throws ReadPendingException if previous read operation is not completed yet
+	 * @throws IllegalArgumentException if buffer is null or read-only
+	 */
+	public CompletableFuture<Integer> read(final ByteBuffer dst) throws ReadPendingException, IllegalArgumentException {
+		if (dst == null || dst.isReadOnly()) {
+			throw new IllegalArgumentException("Buffer can't be null or read-only");
+		}
+		else {
+			final CompletableFuture<Integer>	result = new CompletableFuture<>();
+
+			if (closed) {
+				result.completeExceptionally(new ClosedChannelException());
+			}
+			else {
+				final boolean	thresholdEnabled = port.isReceiveThresholdEnabled(), timeoutEnabled = port.isReceiveTimeoutEnabled();
+				final boolean	polling = thresholdEnabled && port.getReceiveThreshold() == 0 || timeoutEnabled && port.getReceiveTimeout() == 0;
+				final int		minBytes = polling ? 0 : Math.max(1, Math.min(thresholdEnabled ? port.getReceiveThreshold() : 1, dst.remaining()));
+				final long		deadline = timeoutEnabled && !polling ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(port.getReceiveTimeout()) : 0;
+
+				synchronized (this) {
+					if (pendingRead != null) {
+						throw new ReadPendingException();
+					}
+					else {
+						pendingRead = new PendingRead(this, dst, result, minBytes, timeoutEnabled && !polling, deadline);
+					}
+				}
+				AsyncCommEngine.INSTANCE.submit(this);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * <p>Writes a sequence of bytes to the port from the given buffer.</p>
+	 * @param src buffer to write data from. Can't be null and must not be modified until the operation completes
+	 * @return future with the number of bytes written. Can't be null
+	 * @throws WritePendingException if previous write operation is not completed yet
+	 * @throws IllegalArgumentException if buffer is null
+	 */
+	public CompletableFuture<Integer> write(final ByteBuffer src) throws WritePendingException, IllegalArgumentException {
+		if (src == null) {
+			throw new IllegalArgumentException("Buffer can't be null");
+		}
+		else {
+			final CompletableFuture<Integer>	result = new CompletableFuture<>();
+
+			if (closed) {
+				result.completeExceptionally(new ClosedChannelException());
+			}
+			else {
+				synchronized (this) {
+					if (pendingWrite != null) {
+						throw new WritePendingException();
+					}
+					else {
+						pendingWrite = new PendingWrite(src, result);
+					}
+				}
+				AsyncCommEngine.INSTANCE.submit(this);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * <p>Is the channel open</p>
+	 * @return true if neither channel nor its port was closed
+	 */
+	public boolean isOpen() {
+		return !closed && channel.isOpen();
+	}
+
+	/**
+	 * <p>Closes the channel. Outstanding operations are completed exceptionally with {@linkplain AsynchronousCloseException}. Closing
+	 * the channel doesn't close the port.</p>
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			AsyncCommEngine.INSTANCE.submit(this);
+		}
+	}
+
+	CommChannel getChannel() {
+		return channel;
+	}
+
+	static class PendingRead {
+		final AsyncCommChannel				owner;
+		final ByteBuffer					buffer;
+		final CompletableFuture<Integer>	result;
+		final int							minBytes;
+		final boolean						timed;
+		final long							deadline;
+		boolean								scheduled = false;
+		TimerWheel.Timeout					timeout = null;
+
+		PendingRead(final AsyncCommChannel owner, final ByteBuffer buffer, final CompletableFuture<Integer> result, final int minBytes, final boolean timed, final long deadline) {
+			this.owner = owner;
+			this.buffer = buffer;
+			this.result = result;
+			this.minBytes = minBytes;
+			this.timed = timed;
+			this.deadline = deadline;
+		}
+	}
+
+	static class PendingWrite {
+		final ByteBuffer					buffer;
+		final CompletableFuture<Integer>	result;
+		final int							total;
+
+		PendingWrite(final ByteBuffer buffer, final CompletableFuture<Integer> result) {
+			this.buffer = buffer;
+			this.result = result;
+			this.total = buffer.remaining();
+		}
+	}
+}
@@ -0,0 +1,273 @@
+package javax.comm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.spi.TimerWheel;
+
+/**
+ * <p>Shared I/O thread of all the {@linkplain AsyncCommChannel} objects. Thread waits for port readiness with the private
+ * {@linkplain CommPortSelector}, and read deadlines are armed in the shared {@linkplain TimerWheel}, which wakes the selector up on expiration.
+ * So the engine adds no thread per port or per operation, and arming and cancelling of the read deadline take constant time. Drivers
+ * may still have threads of their own signalling the readiness (see {@linkplain CommPortSelector}).</p>
+ *
+ * <p>Thread makes only the I/O that can't block: reads never request more than {@linkplain java.io.InputStream#available()} bytes,
+ * and writes never offer more than {@linkplain SerialPort#getOutputReadyCount()} bytes. Write waiting for the output space is resumed
+ * by the driver signal about the space freed (see {@linkplain SerialPort#isOutputReady()}).</p>
+ */
+final class AsyncCommEngine implements Runnable {
+	static final AsyncCommEngine	INSTANCE = new AsyncCommEngine();
+
+	private static final int		WRITE_SLICE_MS = 10;
+
+	private final CommPortSelector	selector = new CommPortSelector();
+	private final ConcurrentLinkedQueue<AsyncCommChannel>	submitted = new ConcurrentLinkedQueue<>();
+	private final Map<AsyncCommChannel, CommPortSelectionKey>	registered = new HashMap<>();
+	private final ConcurrentLinkedQueue<AsyncCommChannel.PendingRead>	expired = new ConcurrentLinkedQueue<>();
+	private AsyncCommChannel		processing = null;		// channel processed now by the I/O thread
+
+	private AsyncCommEngine() {
+		final Thread	t = new Thread(this, "CommPortAsyncIO");
+
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/**
+	 * <p>Notifies I/O thread about new operation or closing of the channel</p>
+	 * @param channel channel changed
+	 */
+	void submit(final AsyncCommChannel channel) {
+		submitted.add(channel);
+		selector.wakeup();
+	}
+
+	@Override
+	public void run() {
+		for (;;) {
+			try {
+				processSubmitted();
+				processExpired();
+				processing = null;
+				selector.select();
+				for (CommPortSelectionKey key : selector.selectedKeys()) {
+					final AsyncCommChannel	channel = (AsyncCommChannel)key.attachment();
+
+					processing = channel;
+					if (key.isReadable() && channel.pendingRead != null) {
+						tryRead(channel, channel.pendingRead, false);
+					}
+					if (key.isWritable() && channel.pendingWrite != null) {
+						tryWrite(channel, channel.pendingWrite);
+					}
+					updateInterest(channel);
+				}
+				processing = null;
+				selector.selectedKeys().clear();
+				processCancelled();
+			} catch (RuntimeException exc) {	// keep the shared thread alive, failure belongs to the operations of the channel only
+				if (processing != null) {
+					failAll(processing, exc);
+					updateInterest(processing);
+				}
+			}
+		}
+	}
+
+	private void processSubmitted() {
+		AsyncCommChannel	channel;
+
+		while ((channel = submitted.poll()) != null) {
+			processing = channel;
+			if (!channel.isOpen()) {
+				unregister(channel);
+			}
+			else {
+				if (!registered.containsKey(channel)) {
+					final CommPortSelectionKey	key = selector.register(channel.getPort(), 0);
+
+					key.attach(channel);
+					registered.put(channel, key);
+					if (!channel.isOpen()) {	// port was closed while registering
+						unregister(channel);
+						continue;
+					}
+				}
+				final AsyncCommChannel.PendingRead	pr = channel.pendingRead;
+
+				if (pr != null && !pr.scheduled) {
+					pr.scheduled = true;
+					if (tryRead(channel, pr, pr.minBytes == 0) && pr.timed) {
+						pr.timeout = TimerWheel.getDefault().schedule(()->{
+											expired.add(pr);
+											selector.wakeup();
+										}, pr.deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+					}
+				}
+				updateInterest(channel);
+			}
+		}
+	}
+
+	private void processExpired() {
+		AsyncCommChannel.PendingRead	pr;
+
+		while ((pr = expired.poll()) != null) {
+			processing = pr.owner;
+			if (pr.owner.pendingRead == pr) {
+				tryRead(pr.owner, pr, true);
+				updateInterest(pr.owner);
+			}
+		}
+	}
+
+	private void processCancelled() {
+		if (selector.keys().size() != registered.size()) {
+			final Iterator<Map.Entry<AsyncCommChannel, CommPortSelectionKey>>	it = registered.entrySet().iterator();
+
+			while (it.hasNext()) {
+				final Map.Entry<AsyncCommChannel, CommPortSelectionKey>	entry = it.next();
+
+				if (!entry.getValue().isValid()) {	// port was closed
+					it.remove();
+					failAll(entry.getKey());
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Tries to complete read operation</p>
+	 * @param channel channel to read from
+	 * @param pr pending read operation
+	 * @param force complete operation with any data available, including no data
+	 * @return true if operation is still pending
+	 */
+	private boolean tryRead(final AsyncCommChannel channel, final AsyncCommChannel.PendingRead pr, final boolean force) {
+		try {
+			final int	available = channel.getPort().getInputStream().available();
+
+			if (available < pr.minBytes && !force) {
+				return true;
+			}
+			else {
+				final ByteBuffer	buffer = pr.buffer;
+				final int			limit = buffer.limit(), toRead = Math.min(available, buffer.remaining());
+				int					total = 0;
+
+				buffer.limit(buffer.position() + toRead);
+				try {
+					while (total < toRead) {
+						final int	read = channel.getChannel().read(buffer);
+
+						if (read < 0) {
+							throw new AsynchronousCloseException();
+						}
+						total += read;
+					}
+				} finally {
+					buffer.limit(limit);
+				}
+				synchronized (channel) {
+					channel.pendingRead = null;
+				}
+				cancelTimeout(pr);
+				pr.result.complete(total);
+				return false;
+			}
+		} catch (IOException | IllegalStateException exc) {
+			synchronized (channel) {
+				channel.pendingRead = null;
+			}
+			cancelTimeout(pr);
+			pr.result.completeExceptionally(exc instanceof IllegalStateException ? new AsynchronousCloseException() : exc);
+			return false;
+		}
+	}
+
+	private void tryWrite(final AsyncCommChannel channel, final AsyncCommChannel.PendingWrite pw) {
+		try {
+			final SerialPort	port = channel.getPort();
+			final ByteBuffer	buffer = pw.buffer;
+			final int			limit = buffer.limit();
+			// never more than the port accepts without blocking, and by slices to avoid stalling other ports on the long paced output
+			final int			slice = Math.min(Math.min(buffer.remaining(), port.getOutputReadyCount()), Math.max(1, port.getBaudRate() / 10 * WRITE_SLICE_MS / 1000));
+
+			if (slice > 0) {
+				buffer.limit(buffer.position() + slice);
+				try {
+					channel.getChannel().write(buffer);
+				} finally {
+					buffer.limit(limit);
+				}
+			}
+			if (!buffer.hasRemaining()) {
+				synchronized (channel) {
+					channel.pendingWrite = null;
+				}
+				pw.result.complete(pw.total);
+			}
+		} catch (IOException | IllegalStateException exc) {
+			synchronized (channel) {
+				channel.pendingWrite = null;
+			}
+			pw.result.completeExceptionally(exc instanceof IllegalStateException ? new AsynchronousCloseException() : exc);
+		}
+	}
+
+	private void updateInterest(final AsyncCommChannel channel) {
+		final CommPortSelectionKey	key = registered.get(channel);
+
+		if (key != null && key.isValid()) {
+			final int	ops = (channel.pendingRead != null ? CommPortSelector.OP_READ : 0) | (channel.pendingWrite != null ? CommPortSelector.OP_WRITE : 0);
+
+			if (key.interestOps() != ops) {
+				key.interestOps(ops);
+			}
+		}
+	}
+
+	private void unregister(final AsyncCommChannel channel) {
+		final CommPortSelectionKey	key = registered.remove(channel);
+
+		if (key != null) {
+			key.cancel();
+		}
+		failAll(channel);
+	}
+
+	private static void failAll(final AsyncCommChannel channel) {
+		failAll(channel, null);
+	}
+
+	private static void failAll(final AsyncCommChannel channel, final Throwable cause) {
+		final AsyncCommChannel.PendingRead	pr;
+		final AsyncCommChannel.PendingWrite	pw;
+
+		synchronized (channel) {
+			pr = channel.pendingRead;
+			pw = channel.pendingWrite;
+			channel.pendingRead = null;
+			channel.pendingWrite = null;
+		}
+		if (pr != null) {
+			cancelTimeout(pr);
+			pr.result.completeExceptionally(cause == null ? new AsynchronousCloseException() : cause);
+		}
+		if (pw != null) {
+			pw.result.completeExceptionally(cause == null ? new AsynchronousCloseException() : cause);
+		}
+	}
+
+	private static void cancelTimeout(final AsyncCommChannel.PendingRead pr) {
+		if (pr.timeout != null) {
+			pr.timeout.cancel();
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package javax.comm;
+
+import java.nio.channels.ByteChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+
+/**
+ * <p>A channel to read and write data of the communications port.</p>
+ *
+ * <p>Channel is obtained by the {@linkplain CommPort#getChannel()} method. Read behaviour of the channel is the same as the read behaviour
+ * of the {@linkplain CommPort#getInputStream()} stream, and depends on receive threshold and receive timeout of the port. When timeout
+ * elapsed and no data was received, read methods return 0. When the port is closed, read methods return -1.</p>
+ * 
+ * <p>Channel reads and writes the caller-supplied {@linkplain java.nio.ByteBuffer} buffers without the intermediate heap arrays of the streams,
+ * so using direct buffers with the channel avoids heap copies. Whether data are copied between the caller's buffer and the device directly or
+ * through the driver buffers depends on the driver. Closing the channel closes the port.</p>
+ *
+ * @see CommPort#getChannel()
+ * @since 0.0.1
+ */
+public interface CommChannel extends ByteChannel, ScatteringByteChannel, GatheringByteChannel {
+}
@@ -10,12 +10,15 @@ public interface CommDriver {
      * {@linkplain SerialPort} or {@linkplain ParallelPort}.</p>
      * @param portName port name to get. Can't be null or empty
      * @param portType port type to get (can be {@linkplain CommPortIdentifier#PORT_PARALLEL} and {@linkplain CommPortIdentifier#PORT_SERIAL}}
-     * @return communication port
+     * @return communication port, or null if the port type is not supported by the driver
+     * @throws RuntimeException when the port can't be opened. Exception should keep the original failure (for example, {@linkplain java.io.IOException})
+     * as its cause, {@linkplain CommPortIdentifier#open(String, int)} reports it as the cause of the {@linkplain PortInUseException} thrown
      */
     CommPort getCommPort( String portName, int portType );
 
     /**
-     * <p>This method will be called by the CommPortIdentifier's static initializer.</p>
+     * <p>This method will be called by the CommPortIdentifier on the first lookup of the ports. Drivers are initialized in parallel, every
+     * driver by its own thread.</p>
      * </p>The responsibility of this method is:</p>
      * <ol>
      * <li>Ensure that the hardware required is present</li>
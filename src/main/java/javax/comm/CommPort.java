@@ -4,6 +4,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * <p>A communications port.</p>
@@ -22,6 +23,9 @@ import java.io.OutputStream;
  */
 public abstract class CommPort implements Closeable {
     protected String name;
+    private CommChannel channel = null;
+    private volatile CommPortIdentifier identifier = null;
+    private volatile CommPortMetrics metrics = null;
 
     /**
      * <p>Enables receive framing, if this feature is supported by the driver.</p>
@@ -200,6 +204,104 @@ public abstract class CommPort implements Closeable {
      */
     public abstract OutputStream getOutputStream() throws IOException;
 
+    /**
+     * <p>Returns a channel.</p>
+     * <p>Channel is an alternative way to send and receive data with the {@linkplain java.nio.ByteBuffer} buffers. Read behaviour of the
+     * channel is the same as described in the {@linkplain #getInputStream()}. All the calls to getChannel return the same channel
+     * object until the port is closed. Closing the channel closes the port.</p>
+     * <p>Default implementation wraps {@linkplain #getInputStream()} and {@linkplain #getOutputStream()} streams and copies data through
+     * the heap arrays. Drivers should override it to pass caller-supplied buffers to their I/O without these copies.</p>
+     * @return channel object that can be used to read from and write to the port. Can't be null
+     * @throws java.io.IOException - if an I/O error occurred
+     * @since 0.0.1
+     */
+    public CommChannel getChannel() throws IOException {
+        synchronized (this) {
+            if (channel == null) {
+                channel = new StreamCommChannel(this);
+            }
+            return channel;
+        }
+    }
+
+    /**
+     * <p>Reads data from the port together with their arrival time.</p>
+     * <p>Read behaviour is the same as the behaviour of the {@linkplain #getChannel()} channel read. On every successful read, arrival time
+     * of the first byte read and the read time are stored into the caller-owned holder, so reading with timestamps doesn't allocate any objects.
+     * Drivers keep arrival times of the data received from the moment they took the data from the hardware, so the application can know when
+     * the data arrived, not when it had read them.</p>
+     * <p>Default implementation reads data from the channel and reports read time as arrival time. Drivers should override it.</p>
+     * @param dst buffer to read data to. Can't be null
+     * @param timestamp holder to store arrival time to. Can't be null. Is not changed when nothing was read
+     * @return number of bytes read, or -1 on end of stream
+     * @throws IOException - if an I/O error occurred
+     * @since 0.0.1
+     */
+    public int readTimestamped( ByteBuffer dst, ReceiveTimestamp timestamp ) throws IOException {
+        if (dst == null) {
+            throw new NullPointerException("Buffer can't be null");
+        }
+        else if (timestamp == null) {
+            throw new NullPointerException("Timestamp holder can't be null");
+        }
+        else {
+            final int read = getChannel().read(dst);
+
+            if (read > 0) {
+                final long now = System.nanoTime();
+
+                timestamp.set(now, now);
+            }
+            return read;
+        }
+    }
+
+    /**
+     * <p>Releases ownership of the port, obtained by {@linkplain CommPortIdentifier#open(String, int)}. Drivers must call this method
+     * once on port close, after the device is released.</p>
+     * @since 0.0.1
+     */
+    protected final void releaseOwnership() {
+        final CommPortIdentifier cpi = identifier;
+
+        if (cpi != null) {
+            identifier = null;
+            cpi.portClosed(this);
+        }
+    }
+
+    /**
+     * <p>Gets metrics of the port. Drivers record their I/O operations in the metrics returned. Metrics are kept by the {@linkplain CommPortIdentifier}
+     * and are available only while they are enabled (see {@linkplain CommPortIdentifier#setMetricsEnabled(boolean)}), so drivers must
+     * get them on every operation and must not make any measurements when null is returned.</p>
+     * @return metrics of the port or null if metrics are disabled
+     * @since 0.0.1
+     */
+    protected final CommPortMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * <p>Gets number of bytes in the input buffer of the port. Used by the {@linkplain CommPortMetrics}. Default implementation returns -1.</p>
+     * @return number of bytes in the input buffer or -1 if not supported by the driver
+     * @since 0.0.1
+     */
+    protected int getInputBufferOccupancy() {
+        return -1;
+    }
+
+    CommPortIdentifier getIdentifier() {
+        return identifier;
+    }
+
+    void setIdentifier( CommPortIdentifier identifier ) {
+        this.identifier = identifier;
+    }
+
+    void setMetrics( CommPortMetrics metrics ) {
+        this.metrics = metrics;
+    }
+
     /**
      * <p>Gets the name of the communications port.</p>
      * <p>This name should correspond to something the user can identify, like the label on the hardware.</p>
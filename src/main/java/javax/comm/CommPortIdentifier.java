@@ -1,10 +1,23 @@
 package javax.comm;
 
 import java.io.FileDescriptor;
+import java.io.IOException;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import javax.comm.jfr.FlightRecorderEvents;
+import javax.comm.jfr.PortOpenEvent;
 
 /**
  * <p>Communications port management.</p>
@@ -22,6 +35,27 @@ import java.util.concurrent.ConcurrentHashMap;
  * communication ports are available and then select a port for opening. It then uses methods in other
  * classes like {@linkplain CommPort}, {@linkplain ParallelPort} and {@linkplain SerialPort} to communicate through the port.</p>
  *
+ * <p>Communication drivers are discovered by the {@linkplain ServiceLoader} on the first lookup of the ports, not on the class loading.
+ * All the drivers are initialized in parallel, and {@linkplain #getPortIdentifier(String)} returns as soon as any driver registers the
+ * port required. Initialization time of every driver is available by the {@linkplain #getDriverStartupTimes()} method.</p>
+ *
+ * <p>Drivers supporting hot plug add and remove ports while the application is running. Every change of the port registry is
+ * atomic and is propagated to the {@linkplain CommPortRegistryListener} listeners.</p>
+ *
+ * <p>Port ownership is arbitrated both inside the JVM and between processes. Inside the JVM, every identifier has a lock-free ownership state
+ * machine, and contenders wait for the port release without polling. Between processes, ports named by the absolute device path are
+ * protected by the UUCP-style lock files <b>LCK..&lt;device name&gt;</b> in the directory from the <b>javax.comm.lockDir</b> system property
+ * (<b>/var/lock</b> by default). Lock files are locked by the {@linkplain java.nio.channels.FileChannel#lock()} too, so the port
+ * is released by the operating system when the owner process dies.</p>
+ *
+ * <p>Every identifier can keep {@linkplain CommPortMetrics metrics} of its port. Metrics are disabled by default and can be enabled by the
+ * {@linkplain #setMetricsEnabled(boolean)} method or by the <b>javax.comm.metrics</b> system property. Metrics of all the ports are
+ * published by the {@linkplain CommPortMetricsRegistry} (JMX MBeans by default).</p>
+ *
+ * <p>Every identifier remembers the last {@linkplain SerialConfig} applied to its serial port by the {@linkplain SerialPort#applyConfig(SerialConfig)}
+ * method and restores it on the next open, so applications reopening ports after failures don't reconfigure them, and drivers can configure
+ * the port by the same call that prepares it to open.</p>
+ *
  * @see CommPort, CommPortOwnershipListener, ParallelPort, SerialPort
  */
 public class CommPortIdentifier {
@@ -35,17 +69,39 @@ public class CommPortIdentifier {
 	 */
     public static final int PORT_PARALLEL = 2;
 
+    /**
+     * <p>System property with the directory of the port lock files.</p>
+     * @since 0.0.1
+     */
+    public static final String LOCK_DIR_PROPERTY = "javax.comm.lockDir";
+
+    /**
+     * <p>System property to enable port metrics on startup (see {@linkplain #setMetricsEnabled(boolean)}).</p>
+     * @since 0.0.1
+     */
+    public static final String METRICS_PROPERTY = "javax.comm.metrics";
+
+    private static final Ownership UNOWNED = new Ownership(null, null, null);
+    private static final Ownership OPENING = new Ownership(null, null, null);
+
     private static ConcurrentHashMap<String,CommPortIdentifier> ports = new ConcurrentHashMap<String, CommPortIdentifier>();
+    private static final Object discoveryLock = new Object();
+    private static final Map<String,Long> startupTimes = new LinkedHashMap<>();
+    private static final CopyOnWriteArrayList<CommPortRegistryListener> registryListeners = new CopyOnWriteArrayList<>();
+    private static boolean discoveryStarted = false;
+    private static int pendingDrivers = 0;
+    private static final Object registryLock = new Object();     // guards port list changes and metrics of the ports listed
+    private static volatile boolean metricsEnabled = Boolean.getBoolean(METRICS_PROPERTY);
+    private static volatile CommPortMetricsRegistry metricsRegistry = new JmxMetricsRegistry();
 
     private String name;
     private final int portType;
-    private final CommDriver driver;
-
-    static {
-    	for (CommDriver drv : ServiceLoader.load(CommDriver.class)) {
-    		drv.initialize();
-    	}
-    }
+    private volatile CommDriver driver;
+    private final AtomicReference<Ownership> ownership = new AtomicReference<>(UNOWNED);
+    private final CopyOnWriteArrayList<CommPortOwnershipListener> ownershipListeners = new CopyOnWriteArrayList<>();
+    private final Object releaseLock = new Object();
+    private volatile CommPortMetrics metrics = null;
+    private volatile SerialConfig lastSerialConfig = null;
 
     /**
      * <p>COnstrictyor of the class</p>
@@ -61,13 +117,187 @@ public class CommPortIdentifier {
 
     /**
      * <p>Adds portName to the list of ports.</p>
-     * @param portName the name of the port being added. Can't be null orempty
+     * <p>When the port with the same name and type is already in the list, its identifier is kept and only its driver is replaced, so
+     * the current owner, ownership listeners, metrics and the last config of the port are not lost. Port already opened is not affected,
+     * the new driver is used on the next open.</p>
+     * @param portName the name of the port being added. Can't be null or empty
      * @param portType the type of the port being added (see {@linkplain #PORT_SERIAL} and {@linkplain #PORT_PARALLEL})
      * @param driver   the driver representing the port being added. Can't be null
      */
     public static void addPortName( final String portName, final int portType, final CommDriver driver ) {
-        CommPortIdentifier cpi = new CommPortIdentifier(portName, portType, driver);
-        ports.put(portName, cpi);
+        CommPortIdentifier cpi;
+
+        synchronized (registryLock) {
+            final CommPortIdentifier old = ports.get(portName);
+
+            if (old != null && old.portType == portType) {
+                old.driver = driver;
+                cpi = old;
+            }
+            else {
+                cpi = new CommPortIdentifier(portName, portType, driver);
+                ports.put(portName, cpi);
+                if (old != null) {
+                    old.disableMetrics();
+                }
+                if (metricsEnabled) {
+                    cpi.enableMetrics();
+                }
+            }
+        }
+        synchronized (discoveryLock) {
+            discoveryLock.notifyAll();
+        }
+        fireRegistryChange(CommPortRegistryListener.PORT_ADDED, cpi);
+    }
+
+    /**
+     * <p>Removes portName from the list of ports. Drivers call this method when the port disappears (for example, when USB serial
+     * adapter is unplugged). Ports already opened are not affected.</p>
+     * @param portName the name of the port being removed. Can't be null or empty
+     * @return true if the port was removed, false if the port is not in the list
+     * @since 0.0.1
+     */
+    public static boolean removePortName( final String portName ) {
+        if (portName == null) {
+            return false;
+        }
+        else {
+            final CommPortIdentifier cpi;
+
+            synchronized (registryLock) {      // removal can't interleave with addPortName() for the same name
+                cpi = ports.remove(portName);
+                if (cpi != null) {
+                    cpi.disableMetrics();
+                }
+            }
+            if (cpi != null) {
+                fireRegistryChange(CommPortRegistryListener.PORT_REMOVED, cpi);
+                return true;
+            }
+            else {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * <p>Registers listener to receive port registry changes. Starts drivers discovery, if it was not started yet.</p>
+     * @param listener listener to register. Can't be null
+     * @since 0.0.1
+     */
+    public static void addPortRegistryListener( final CommPortRegistryListener listener ) {
+        if (listener == null) {
+            throw new NullPointerException("Listener can't be null");
+        }
+        else {
+            registryListeners.addIfAbsent(listener);
+            startDiscovery();
+        }
+    }
+
+    /**
+     * <p>Deregisters listener registered using {@linkplain #addPortRegistryListener(CommPortRegistryListener)}</p>
+     * @param listener listener to deregister. Can't be null
+     * @since 0.0.1
+     */
+    public static void removePortRegistryListener( final CommPortRegistryListener listener ) {
+        registryListeners.remove(listener);
+    }
+
+    /**
+     * <p>Gets initialization time of every communication driver discovered. Starts drivers discovery, if it was not started yet, and
+     * doesn't wait for its completion.</p>
+     * @return map of driver class name to initialization time in nanoseconds. Only drivers completed initialization are included. Can't be null
+     * @since 0.0.1
+     */
+    public static Map<String,Long> getDriverStartupTimes() {
+        startDiscovery();
+        synchronized (discoveryLock) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(startupTimes));
+        }
+    }
+
+    /**
+     * <p>Enables or disables metrics of all the ports. Metrics of every port are registered in the current {@linkplain CommPortMetricsRegistry}
+     * when enabled and are unregistered when disabled. Disabling metrics discards all the values collected.</p>
+     * @param enable true to enable metrics
+     * @see CommPortMetrics
+     * @since 0.0.1
+     */
+    public static void setMetricsEnabled( final boolean enable ) {
+        synchronized (registryLock) {
+            metricsEnabled = enable;
+            for (CommPortIdentifier cpi : ports.values()) {
+                if (enable) {
+                    cpi.enableMetrics();
+                }
+                else {
+                    cpi.disableMetrics();
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Are metrics enabled</p>
+     * @return true if enabled
+     * @since 0.0.1
+     */
+    public static boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * <p>Replaces registry of the port metrics. Metrics already registered are moved from the old registry to the new one.</p>
+     * @param registry new registry. Null disables publishing of the metrics, but metrics are still available by {@linkplain #getMetrics()}
+     * @since 0.0.1
+     */
+    public static void setMetricsRegistry( final CommPortMetricsRegistry registry ) {
+        synchronized (registryLock) {
+            final CommPortMetricsRegistry old = metricsRegistry;
+
+            for (CommPortIdentifier cpi : ports.values()) {
+                final CommPortMetrics current = cpi.metrics;
+
+                if (current != null) {
+                    if (old != null) {
+                        old.unregister(current);
+                    }
+                    if (registry != null) {
+                        registry.register(current);
+                    }
+                }
+            }
+            metricsRegistry = registry;
+        }
+    }
+
+    /**
+     * <p>Gets registry of the port metrics</p>
+     * @return registry of the port metrics or null if metrics are not published
+     * @since 0.0.1
+     */
+    public static CommPortMetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    /**
+     * <p>Gets metrics of the port</p>
+     * @return metrics of the port or null if metrics are disabled
+     * @since 0.0.1
+     */
+    public CommPortMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * <p>Gets the last config applied to the serial port of the identifier. This config is restored on every open of the port.</p>
+     * @return last config applied or null if port was never configured by the {@linkplain SerialPort#applyConfig(SerialConfig)}
+     * @since 0.0.1
+     */
+    public SerialConfig getLastSerialConfig() {
+        return lastSerialConfig;
     }
 
     /**
@@ -86,7 +316,24 @@ public class CommPortIdentifier {
      * @throws NoSuchPortException if the port does not exist
      */
     public static CommPortIdentifier getPortIdentifier( String portName ) throws NoSuchPortException {
-        return ports.get( portName );
+        CommPortIdentifier cpi = ports.get( portName );
+
+        if (cpi == null) {
+            startDiscovery();
+            synchronized (discoveryLock) {
+                try {
+                    while ((cpi = ports.get( portName )) == null && pendingDrivers > 0) {
+                        discoveryLock.wait();
+                    }
+                } catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (cpi == null) {
+                throw new NoSuchPortException(portName);
+            }
+        }
+        return cpi;
     }
 
     /**
@@ -97,7 +344,9 @@ public class CommPortIdentifier {
      * @throws NoSuchPortException if the port object is invalid
      */
     public static CommPortIdentifier getPortIdentifier( CommPort port ) throws NoSuchPortException {
-        return ports.get( port.getName() );
+        final CommPortIdentifier cpi = port.getIdentifier();
+
+        return cpi != null ? cpi : getPortIdentifier( port.getName() );
     }
 
     /**
@@ -105,6 +354,7 @@ public class CommPortIdentifier {
      * @return Enumeration that can be used to enumerate all the ports known to the system. Can't be null
      */
     public static Enumeration<CommPortIdentifier> getPortIdentifiers() {
+        awaitDiscovery();
         final Iterator<CommPortIdentifier> it = ports.values().iterator();
         
         return new Enumeration<CommPortIdentifier>() {
@@ -136,10 +386,17 @@ public class CommPortIdentifier {
      * then it should call close now.</li>
      * </ol>
      * <p>The ownershipChange method of the listener registered using addPortOwnershipListener will be called with one
-     * of the above events.</p>
+     * of the above events. PORT_UNOWNED is delivered to all the listeners, even when the port is closed inside the PORT_OWNERSHIP_REQUESTED
+     * callback. In this case listeners after the closing one receive PORT_UNOWNED before PORT_OWNERSHIP_REQUESTED.</p>
      * @param listener CommPortOwnershipListener callback object. Can't be null
      */
     public void addPortOwnershipListener( CommPortOwnershipListener listener ) {
+        if (listener == null) {
+            throw new NullPointerException("Listener can't be null");
+        }
+        else {
+            ownershipListeners.addIfAbsent(listener);
+        }
     }
 
     /**
@@ -147,22 +404,24 @@ public class CommPortIdentifier {
      * @param listener The {@linkplain CommPortOwnershipListener} object that was previously registered using {@linkplain #addPortOwnershipListener(CommPortOwnershipListener)}. Can't be null
      */
     public void removePortOwnershipListener( CommPortOwnershipListener listener ) {
+        ownershipListeners.remove(listener);
     }
 
     /**
      * <p>Returns the owner of the port.</p>
-     * @return current owner of the port. Can't be null or empty
+     * @return current owner of the port: application name passed to the {@linkplain #open(String, int)}, or process description
+     * when the port is owned by other process, or "&lt;unknown&gt;" when the port is not owned. Can't be null or empty
      */
     public String getCurrentOwner() {
-        return "<unknown>";
+        return ownerOf(ownership.get());
     }
 
     /**
      * <p>Checks whether the port is owned.</p>
      * @return true if port is owned by an application, false if port is not owned.
      */
-    public synchronized boolean isCurrentlyOwned() {
-        return false;
+    public boolean isCurrentlyOwned() {
+        return ownership.get() != UNOWNED || PortLockFile.getForeignOwner(name) != null;
     }
 
     /**
@@ -191,8 +450,278 @@ public class CommPortIdentifier {
      * @throws PortInUseException if the port is in use by some other application that is not willing to relinquish ownership
      */
     public CommPort open( String appname, int timeout ) throws PortInUseException {
-        CommPort port = driver.getCommPort( name, portType );
-        return port;
+        if (appname == null || appname.isEmpty()) {
+            throw new IllegalArgumentException("Application name can't be null or empty");
+        }
+        else {
+            final PortOpenEvent event = FlightRecorderEvents.beginOpen();
+            CommPort port = null;
+
+            try {
+                port = acquire(appname, timeout);
+                return port;
+            } finally {
+                FlightRecorderEvents.endOpen(event, name, appname, port != null);
+            }
+        }
     }
-}
 
+    private CommPort acquire( String appname, int timeout ) throws PortInUseException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeout));
+        boolean requested = false;
+
+        for (;;) {
+            final Ownership current = ownership.get();
+
+            if (current == UNOWNED && ownership.compareAndSet(UNOWNED, OPENING)) {
+                break;
+            }
+            else if (!requested) {   // owner can close port in the callback
+                requested = true;
+                fireOwnershipChange(CommPortOwnershipListener.PORT_OWNERSHIP_REQUESTED);
+            }
+            else if (!awaitRelease(deadline)) {
+                throw new PortInUseException(ownerOf(current));
+            }
+        }
+        PortLockFile lockFile = null;
+        boolean opened = false;
+
+        try {
+            lockFile = PortLockFile.forPort(name);
+            if (lockFile != null && !lockFile.acquire(Math.max(0, deadline - System.nanoTime()))) {
+                lockFile = null;
+                throw new PortInUseException(String.valueOf(PortLockFile.getForeignOwner(name)));
+            }
+            final CommPort port = openByDriver();
+
+            if (port == null) {
+                throw new PortInUseException("Port ["+name+"] can't be opened by the driver");
+            }
+            else {
+                port.setIdentifier(this);
+                restoreSerialConfig(port);
+                ownership.set(new Ownership(appname, port, lockFile));
+                attachMetrics(port, metrics);
+                opened = true;
+                fireOwnershipChange(CommPortOwnershipListener.PORT_OWNED);
+                return port;
+            }
+        } catch (OverlappingFileLockException exc) {  // lock file is held by this JVM, for example, for other name of the same device
+            lockFile = null;
+            throw new PortInUseException("Port ["+name+"] lock file is already locked by this application");
+        } catch (IOException exc) {
+            throw new PortInUseException("Port ["+name+"] lock file error: "+exc.getMessage());
+        } finally {
+            if (!opened) {
+                if (lockFile != null) {
+                    lockFile.release();
+                }
+                release();
+            }
+        }
+    }
+
+    private CommPort openByDriver() throws PortInUseException {
+        try {
+            return driver.getCommPort( name, portType );
+        } catch (RuntimeException exc) {    // keep the reason (permissions, missing device and so on) for the caller
+            final PortInUseException piue = new PortInUseException("Port ["+name+"] can't be opened by the driver: "+exc.getMessage());
+
+            piue.initCause(exc.getCause() != null ? exc.getCause() : exc);
+            throw piue;
+        }
+    }
+
+    void setLastSerialConfig( SerialConfig config ) {
+        lastSerialConfig = config;
+    }
+
+    private void restoreSerialConfig( CommPort port ) {
+        final SerialConfig config = lastSerialConfig;
+
+        if (config != null && port instanceof SerialPort) {
+            try {
+                ((SerialPort)port).configure(config);
+            } catch (UnsupportedCommOperationException | RuntimeException exc) {
+                lastSerialConfig = null;    // device doesn't accept config any more, keep driver defaults
+            }
+        }
+    }
+
+    void portClosed( CommPort port ) {
+        final Ownership current = ownership.get();
+
+        if (current.port == port) {
+            final CommPortMetrics currentMetrics = metrics;
+
+            if (currentMetrics != null) {
+                currentMetrics.detach(port);
+            }
+            if (current.lockFile != null) {     // release lock file first, next local owner will lock it
+                current.lockFile.release();
+            }
+            release();
+            fireOwnershipChange(CommPortOwnershipListener.PORT_UNOWNED);
+        }
+    }
+
+    private void enableMetrics() {     // called under registryLock
+        if (metrics == null) {
+            final CommPortMetrics newMetrics = new CommPortMetrics(name);
+            final CommPortMetricsRegistry registry = metricsRegistry;
+
+            metrics = newMetrics;
+            attachMetrics(ownership.get().port, newMetrics);
+            if (registry != null) {
+                registry.register(newMetrics);
+            }
+        }
+    }
+
+    private void disableMetrics() {    // called under registryLock
+        final CommPortMetrics oldMetrics = metrics;
+
+        if (oldMetrics != null) {
+            final CommPortMetricsRegistry registry = metricsRegistry;
+            final CommPort port = ownership.get().port;
+
+            metrics = null;
+            if (port != null) {
+                port.setMetrics(null);
+                oldMetrics.detach(port);
+            }
+            if (registry != null) {
+                registry.unregister(oldMetrics);
+            }
+        }
+    }
+
+    private static void attachMetrics( final CommPort port, final CommPortMetrics metrics ) {
+        if (port != null && metrics != null) {
+            port.setMetrics(metrics);
+            metrics.attach(port);
+        }
+    }
+
+    private void release() {
+        ownership.set(UNOWNED);
+        synchronized (releaseLock) {
+            releaseLock.notifyAll();
+        }
+    }
+
+    private String ownerOf( Ownership current ) {
+        if (current == UNOWNED) {
+            final String foreign = PortLockFile.getForeignOwner(name);
+
+            return foreign == null ? "<unknown>" : foreign;
+        }
+        else {
+            return current == OPENING ? "<opening>" : current.owner;
+        }
+    }
+
+    private boolean awaitRelease( long deadline ) {
+        synchronized (releaseLock) {
+            try {
+                long delay;
+
+                while (ownership.get() != UNOWNED) {
+                    if ((delay = deadline - System.nanoTime()) <= 0) {
+                        return false;
+                    }
+                    else {
+                        TimeUnit.NANOSECONDS.timedWait(releaseLock, delay);
+                    }
+                }
+                return true;
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    private void fireOwnershipChange( int type ) {
+        for (CommPortOwnershipListener listener : ownershipListeners) {
+            try {
+                listener.ownershipChange(type);
+            } catch (RuntimeException exc) {
+                // listener failure must not break ownership
+            }
+        }
+    }
+
+    private static void startDiscovery() {
+        final List<ServiceLoader.Provider<CommDriver>> providers;
+
+        synchronized (discoveryLock) {
+            if (discoveryStarted) {
+                return;
+            }
+            else {
+                discoveryStarted = true;
+                providers = ServiceLoader.load(CommDriver.class).stream().collect(Collectors.toList());
+                pendingDrivers = providers.size();
+            }
+        }
+        for (ServiceLoader.Provider<CommDriver> provider : providers) {
+            final Thread t = new Thread(() -> initializeDriver(provider), "CommDriverInit-" + provider.type().getSimpleName());
+
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    private static void initializeDriver( ServiceLoader.Provider<CommDriver> provider ) {
+        final long startTime = System.nanoTime();
+
+        try {
+            provider.get().initialize();
+        } catch (RuntimeException | Error exc) {
+            // broken driver must not prevent other drivers from working
+        } finally {
+            synchronized (discoveryLock) {
+                startupTimes.put(provider.type().getName(), System.nanoTime() - startTime);
+                pendingDrivers--;
+                discoveryLock.notifyAll();
+            }
+        }
+    }
+
+    private static void fireRegistryChange( int type, CommPortIdentifier cpi ) {
+        for (CommPortRegistryListener listener : registryListeners) {
+            try {
+                listener.registryChange(type, cpi);
+            } catch (RuntimeException exc) {
+                // listener failure must not break the registry
+            }
+        }
+    }
+
+    private static void awaitDiscovery() {
+        startDiscovery();
+        synchronized (discoveryLock) {
+            try {
+                while (pendingDrivers > 0) {
+                    discoveryLock.wait();
+                }
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class Ownership {
+        private final String owner;
+        private final CommPort port;
+        private final PortLockFile lockFile;
+
+        private Ownership( String owner, CommPort port, PortLockFile lockFile ) {
+            this.owner = owner;
+            this.port = port;
+            this.lockFile = lockFile;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package javax.comm;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Metrics of the communications port.</p>
+ *
+ * <p>Metrics are kept by the {@linkplain CommPortIdentifier} and survive port reopening. Metrics count bytes and operations of reading
+ * and writing, line errors reported by the {@linkplain SerialPortEvent} ({@linkplain SerialPortEvent#OE}, {@linkplain SerialPortEvent#PE},
+ * {@linkplain SerialPortEvent#FE} and {@linkplain SerialPortEvent#BI}), and keep read and write latency histograms (see {@linkplain LatencyHistogram}).
+ * Input buffer occupancy is requested from the opened port on demand. All the recording methods are lock-free and don't allocate memory.</p>
+ *
+ * <p>Metrics are disabled by default. They can be enabled by the {@linkplain CommPortIdentifier#setMetricsEnabled(boolean)} method or
+ * by the <b>javax.comm.metrics</b> system property. While metrics are disabled, ports don't make any measurements, and the only cost
+ * of the metrics is a check of one field on every I/O operation.</p>
+ *
+ * <p>Drivers record operations by the recordXXX methods of the metrics available by the {@linkplain CommPort#getMetrics()} method.</p>
+ *
+ * @see CommPortIdentifier#getMetrics()
+ * @see CommPortMetricsRegistry
+ * @since 0.0.1
+ */
+public final class CommPortMetrics implements CommPortMetricsMBean {
+	private final String			portName;
+	private final LongAdder			bytesRead = new LongAdder();
+	private final LongAdder			bytesWritten = new LongAdder();
+	private final LongAdder			overrunErrors = new LongAdder();
+	private final LongAdder			parityErrors = new LongAdder();
+	private final LongAdder			framingErrors = new LongAdder();
+	private final LongAdder			breakInterrupts = new LongAdder();
+	private final LongAdder			spinTime = new LongAdder();
+	private final LongAdder			spinHits = new LongAdder();
+	private final LongAdder			spinMisses = new LongAdder();
+	private final LatencyHistogram	readLatency = new LatencyHistogram();
+	private final LatencyHistogram	writeLatency = new LatencyHistogram();
+	private volatile CommPort		port = null;
+
+	CommPortMetrics(final String portName) {
+		this.portName = portName;
+	}
+
+	/**
+	 * <p>Records read operation</p>
+	 * @param bytes number of bytes read
+	 * @param latency duration of the read operation in nanoseconds
+	 */
+	public void recordRead(final int bytes, final long latency) {
+		bytesRead.add(bytes);
+		readLatency.record(latency);
+	}
+
+	/**
+	 * <p>Records write operation</p>
+	 * @param bytes number of bytes written
+	 * @param latency duration of the write operation in nanoseconds
+	 */
+	public void recordWrite(final long bytes, final long latency) {
+		bytesWritten.add(bytes);
+		writeLatency.record(latency);
+	}
+
+	/**
+	 * <p>Records line error. Event types other than line errors are ignored.</p>
+	 * @param eventType event type (see {@linkplain SerialPortEvent#OE}, {@linkplain SerialPortEvent#PE}, {@linkplain SerialPortEvent#FE}
+	 * and {@linkplain SerialPortEvent#BI})
+	 */
+	public void recordError(final int eventType) {
+		switch (eventType) {
+			case SerialPortEvent.OE	: overrunErrors.increment(); break;
+			case SerialPortEvent.PE	: parityErrors.increment(); break;
+			case SerialPortEvent.FE	: framingErrors.increment(); break;
+			case SerialPortEvent.BI	: breakInterrupts.increment(); break;
+			default :
+		}
+	}
+
+	/**
+	 * <p>Records busy-poll spin of the low-latency receive mode (see {@linkplain SerialPort#enableLowLatency(int)})</p>
+	 * @param duration duration of the spin in nanoseconds
+	 * @param succeeded true if data arrived during the spin, false if spin budget was exhausted
+	 */
+	public void recordSpin(final long duration, final boolean succeeded) {
+		spinTime.add(duration);
+		if (succeeded) {
+			spinHits.increment();
+		}
+		else {
+			spinMisses.increment();
+		}
+	}
+
+	/**
+	 * <p>Gets read latency histogram</p>
+	 * @return read latency histogram in nanoseconds. Can't be null
+	 */
+	public LatencyHistogram getReadLatency() {
+		return readLatency;
+	}
+
+	/**
+	 * <p>Gets write latency histogram</p>
+	 * @return write latency histogram in nanoseconds. Can't be null
+	 */
+	public LatencyHistogram getWriteLatency() {
+		return writeLatency;
+	}
+
+	@Override
+	public String getPortName() {
+		return portName;
+	}
+
+	@Override
+	public boolean isOpened() {
+		return port != null;
+	}
+
+	@Override
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+
+	@Override
+	public long getReadCount() {
+		return readLatency.getCount();
+	}
+
+	@Override
+	public long getWriteCount() {
+		return writeLatency.getCount();
+	}
+
+	@Override
+	public long getOverrunErrors() {
+		return overrunErrors.sum();
+	}
+
+	@Override
+	public long getParityErrors() {
+		return parityErrors.sum();
+	}
+
+	@Override
+	public long getFramingErrors() {
+		return framingErrors.sum();
+	}
+
+	@Override
+	public long getBreakInterrupts() {
+		return breakInterrupts.sum();
+	}
+
+	@Override
+	public long getSpinTime() {
+		return spinTime.sum();
+	}
+
+	@Override
+	public long getSpinHits() {
+		return spinHits.sum();
+	}
+
+	@Override
+	public long getSpinMisses() {
+		return spinMisses.sum();
+	}
+
+	@Override
+	public int getInputBufferOccupancy() {
+		final CommPort	current = port;
+
+		return current != null ? current.getInputBufferOccupancy() : -1;
+	}
+
+	@Override
+	public int getInputBufferSize() {
+		final CommPort	current = port;
+
+		return current != null ? current.getInputBufferSize() : -1;
+	}
+
+	@Override
+	public double getReadLatencyMean() {
+		return readLatency.getMean();
+	}
+
+	@Override
+	public long getReadLatencyP50() {
+		return readLatency.getValueAtPercentile(50);
+	}
+
+	@Override
+	public long getReadLatencyP99() {
+		return readLatency.getValueAtPercentile(99);
+	}
+
+	@Override
+	public long getReadLatencyP999() {
+		return readLatency.getValueAtPercentile(99.9);
+	}
+
+	@Override
+	public long getReadLatencyMax() {
+		return readLatency.getMax();
+	}
+
+	@Override
+	public double getWriteLatencyMean() {
+		return writeLatency.getMean();
+	}
+
+	@Override
+	public long getWriteLatencyP50() {
+		return writeLatency.getValueAtPercentile(50);
+	}
+
+	@Override
+	public long getWriteLatencyP99() {
+		return writeLatency.getValueAtPercentile(99);
+	}
+
+	@Override
+	public long getWriteLatencyP999() {
+		return writeLatency.getValueAtPercentile(99.9);
+	}
+
+	@Override
+	public long getWriteLatencyMax() {
+		return writeLatency.getMax();
+	}
+
+	@Override
+	public void reset() {
+		bytesRead.reset();
+		bytesWritten.reset();
+		overrunErrors.reset();
+		parityErrors.reset();
+		framingErrors.reset();
+		breakInterrupts.reset();
+		spinTime.reset();
+		spinHits.reset();
+		spinMisses.reset();
+		readLatency.reset();
+		writeLatency.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "CommPortMetrics [portName=" + portName + ", bytesRead=" + getBytesRead() + ", bytesWritten=" + getBytesWritten()
+				+ ", spinTime=" + getSpinTime() + ", spinHits=" + getSpinHits() + ", spinMisses=" + getSpinMisses() + ", readLatency=" + readLatency + ", writeLatency=" + writeLatency + "]";
+	}
+
+	void attach(final CommPort port) {
+		this.port = port;
+	}
+
+	void detach(final CommPort port) {
+		if (this.port == port) {
+			this.port = null;
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package javax.comm;
+
+/**
+ * <p>JMX management interface of the {@linkplain CommPortMetrics}. All the latencies are in nanoseconds.</p>
+ *
+ * @see CommPortMetrics
+ * @since 0.0.1
+ */
+public interface CommPortMetricsMBean {
+	/**
+	 * <p>Gets port name</p>
+	 * @return port name
+	 */
+	String getPortName();
+
+	/**
+	 * <p>Is the port currently opened</p>
+	 * @return true if opened
+	 */
+	boolean isOpened();
+
+	/**
+	 * <p>Gets total number of bytes read</p>
+	 * @return number of bytes read
+	 */
+	long getBytesRead();
+
+	/**
+	 * <p>Gets total number of bytes written</p>
+	 * @return number of bytes written
+	 */
+	long getBytesWritten();
+
+	/**
+	 * <p>Gets number of read operations</p>
+	 * @return number of read operations
+	 */
+	long getReadCount();
+
+	/**
+	 * <p>Gets number of write operations</p>
+	 * @return number of write operations
+	 */
+	long getWriteCount();
+
+	/**
+	 * <p>Gets number of overrun errors ({@linkplain SerialPortEvent#OE} events)</p>
+	 * @return number of errors
+	 */
+	long getOverrunErrors();
+
+	/**
+	 * <p>Gets number of parity errors ({@linkplain SerialPortEvent#PE} events)</p>
+	 * @return number of errors
+	 */
+	long getParityErrors();
+
+	/**
+	 * <p>Gets number of framing errors ({@linkplain SerialPortEvent#FE} events)</p>
+	 * @return number of errors
+	 */
+	long getFramingErrors();
+
+	/**
+	 * <p>Gets number of break interrupts ({@linkplain SerialPortEvent#BI} events)</p>
+	 * @return number of break interrupts
+	 */
+	long getBreakInterrupts();
+
+	/**
+	 * <p>Gets CPU time spent on busy-poll spinning in the low-latency receive mode</p>
+	 * @return spin time
+	 */
+	long getSpinTime();
+
+	/**
+	 * <p>Gets number of spins when data arrived before the spin budget was exhausted</p>
+	 * @return number of spins succeeded
+	 */
+	long getSpinHits();
+
+	/**
+	 * <p>Gets number of spins when the spin budget was exhausted and the reading thread parked</p>
+	 * @return number of spins failed
+	 */
+	long getSpinMisses();
+
+	/**
+	 * <p>Gets number of bytes in the input buffer of the opened port</p>
+	 * @return number of bytes or -1 if port is not opened or driver doesn't support it
+	 */
+	int getInputBufferOccupancy();
+
+	/**
+	 * <p>Gets input buffer size of the opened port</p>
+	 * @return input buffer size or -1 if port is not opened
+	 */
+	int getInputBufferSize();
+
+	/**
+	 * <p>Gets mean read latency</p>
+	 * @return mean latency
+	 */
+	double getReadLatencyMean();
+
+	/**
+	 * <p>Gets median read latency</p>
+	 * @return median latency
+	 */
+	long getReadLatencyP50();
+
+	/**
+	 * <p>Gets 99th percentile of read latency</p>
+	 * @return latency percentile
+	 */
+	long getReadLatencyP99();
+
+	/**
+	 * <p>Gets 99.9th percentile of read latency</p>
+	 * @return latency percentile
+	 */
+	long getReadLatencyP999();
+
+	/**
+	 * <p>Gets maximal read latency</p>
+	 * @return maximal latency
+	 */
+	long getReadLatencyMax();
+
+	/**
+	 * <p>Gets mean write latency</p>
+	 * @return mean latency
+	 */
+	double getWriteLatencyMean();
+
+	/**
+	 * <p>Gets median write latency</p>
+	 * @return median latency
+	 */
+	long getWriteLatencyP50();
+
+	/**
+	 * <p>Gets 99th percentile of write latency</p>
+	 * @return latency percentile
+	 */
+	long getWriteLatencyP99();
+
+	/**
+	 * <p>Gets 99.9th percentile of write latency</p>
+	 * @return latency percentile
+	 */
+	long getWriteLatencyP999();
+
+	/**
+	 * <p>Gets maximal write latency</p>
+	 * @return maximal latency
+	 */
+	long getWriteLatencyMax();
+
+	/**
+	 * <p>Resets all the counters and histograms</p>
+	 */
+	void reset();
+}
@@ -0,0 +1,24 @@
+package javax.comm;
+
+/**
+ * <p>Registry of the port metrics. Registry receives metrics of every port known by {@linkplain CommPortIdentifier} while metrics
+ * are enabled, and can publish them to any monitoring system. Default registry publishes metrics as JMX MBeans with the
+ * <b>javax.comm:type=CommPort,name=&lt;port name&gt;</b> object names in the platform MBean server.</p>
+ *
+ * @see CommPortIdentifier#setMetricsRegistry(CommPortMetricsRegistry)
+ * @see CommPortMetrics
+ * @since 0.0.1
+ */
+public interface CommPortMetricsRegistry {
+	/**
+	 * <p>Registers metrics of the port</p>
+	 * @param metrics metrics to register. Can't be null
+	 */
+	void register(CommPortMetrics metrics);
+
+	/**
+	 * <p>Unregisters metrics of the port</p>
+	 * @param metrics metrics to unregister. Can't be null
+	 */
+	void unregister(CommPortMetrics metrics);
+}
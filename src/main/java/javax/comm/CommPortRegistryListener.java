@@ -0,0 +1,33 @@
+package javax.comm;
+
+import java.util.EventListener;
+
+/**
+ * <p>Propagates changes of the communications port registry.</p>
+ *
+ * <p>Drivers supporting hot plug register and deregister ports while the application is running (for example, when USB serial
+ * adapters are plugged and unplugged). Listeners registered by the {@linkplain CommPortIdentifier#addPortRegistryListener(CommPortRegistryListener)}
+ * are notified about every change of the registry. Listeners are called by the thread changing the registry, so they must return
+ * quickly.</p>
+ *
+ * @see CommPortIdentifier#addPortRegistryListener(CommPortRegistryListener)
+ * @since 0.0.1
+ */
+public interface CommPortRegistryListener extends EventListener {
+    /**
+     * <p>The port was added to the registry by {@linkplain CommPortIdentifier#addPortName(String, int, CommDriver)}</p>
+     */
+    int PORT_ADDED = 1;
+
+    /**
+     * <p>The port was removed from the registry by {@linkplain CommPortIdentifier#removePortName(String)}</p>
+     */
+    int PORT_REMOVED = 2;
+
+    /**
+     * <p>Propagates a registry change event. This method will be called with the type set to one of the variables PORT_ADDED or PORT_REMOVED.</p>
+     * @param type event type
+     * @param identifier port identifier added or removed. Can't be null
+     */
+    void registryChange( int type, CommPortIdentifier identifier );
+}
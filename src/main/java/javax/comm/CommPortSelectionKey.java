@@ -0,0 +1,208 @@
+package javax.comm;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>A token representing the registration of a {@linkplain SerialPort} with a {@linkplain CommPortSelector}.</p>
+ *
+ * <p>Interest and ready sets are bitmasks of <b>1 &lt;&lt; event type</b>, where event types are the {@linkplain SerialPortEvent}
+ * constants, the same events that can be requested by the notifyOnXXX methods of the {@linkplain SerialPort}. Predefined masks
+ * are {@linkplain CommPortSelector#OP_READ}, {@linkplain CommPortSelector#OP_WRITE}, {@linkplain CommPortSelector#OP_MODEM} and
+ * {@linkplain CommPortSelector#OP_ERROR}.</p>
+ *
+ * @see CommPortSelector
+ * @since 0.0.1
+ */
+public final class CommPortSelectionKey {
+	private final CommPortSelector	selector;
+	private final SerialPort		port;
+	private final AtomicInteger		pendingOps = new AtomicInteger();
+	private final AtomicBoolean		queued = new AtomicBoolean();
+	private volatile int			interestOps;
+	private volatile int			readyOps = 0;
+	private volatile boolean		valid = true;
+	private volatile Object			attachment = null;
+
+	CommPortSelectionKey(final CommPortSelector selector, final SerialPort port, final int interestOps) {
+		this.selector = selector;
+		this.port = port;
+		this.interestOps = interestOps;
+	}
+
+	/**
+	 * <p>Returns the port for which this key was created.</p>
+	 * @return port. Can't be null
+	 */
+	public SerialPort port() {
+		return port;
+	}
+
+	/**
+	 * <p>Returns the selector for which this key was created.</p>
+	 * @return selector. Can't be null
+	 */
+	public CommPortSelector selector() {
+		return selector;
+	}
+
+	/**
+	 * <p>Gets key interest set.</p>
+	 * @return interest set
+	 */
+	public int interestOps() {
+		return interestOps;
+	}
+
+	/**
+	 * <p>Sets key interest set.</p>
+	 * @param ops new interest set
+	 * @return this key
+	 * @throws IllegalArgumentException if interest set contains unknown events
+	 * @throws IllegalStateException if the key was cancelled
+	 */
+	public CommPortSelectionKey interestOps(final int ops) throws IllegalArgumentException, IllegalStateException {
+		ensureValid();
+		CommPortSelector.checkOps(ops);
+		interestOps = ops;
+		port.updateSelectionInterest();
+		selector.enqueue(this);
+		return this;
+	}
+
+	/**
+	 * <p>Gets key ready set, filled by the last selection operation.</p>
+	 * @return ready set
+	 */
+	public int readyOps() {
+		return readyOps;
+	}
+
+	/**
+	 * <p>Is input data available in the port</p>
+	 * @return true if {@linkplain CommPortSelector#OP_READ} is in the ready set
+	 */
+	public boolean isReadable() {
+		return (readyOps & CommPortSelector.OP_READ) != 0;
+	}
+
+	/**
+	 * <p>Can data be written to the port</p>
+	 * @return true if {@linkplain CommPortSelector#OP_WRITE} is in the ready set
+	 */
+	public boolean isWritable() {
+		return (readyOps & CommPortSelector.OP_WRITE) != 0;
+	}
+
+	/**
+	 * <p>Was any modem line changed</p>
+	 * @return true if any of {@linkplain CommPortSelector#OP_MODEM} bits is in the ready set
+	 */
+	public boolean isModemChanged() {
+		return (readyOps & CommPortSelector.OP_MODEM) != 0;
+	}
+
+	/**
+	 * <p>Was any line error detected</p>
+	 * @return true if any of {@linkplain CommPortSelector#OP_ERROR} bits is in the ready set
+	 */
+	public boolean isError() {
+		return (readyOps & CommPortSelector.OP_ERROR) != 0;
+	}
+
+	/**
+	 * <p>Attaches any object to the key</p>
+	 * @param attachment object to attach. Can be null
+	 * @return previous attachment
+	 */
+	public Object attach(final Object attachment) {
+		final Object	old = this.attachment;
+
+		this.attachment = attachment;
+		return old;
+	}
+
+	/**
+	 * <p>Gets attached object</p>
+	 * @return attached object. Can be null
+	 */
+	public Object attachment() {
+		return attachment;
+	}
+
+	/**
+	 * <p>Is the key valid. Key is valid until it is cancelled, its port is closed or its selector is closed</p>
+	 * @return true if valid
+	 */
+	public boolean isValid() {
+		return valid;
+	}
+
+	/**
+	 * <p>Cancels key registration</p>
+	 */
+	public void cancel() {
+		if (valid) {
+			valid = false;
+			port.removeSelectionKey(this);
+			selector.deregister(this);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "CommPortSelectionKey [port=" + port + ", interestOps=" + interestOps + ", readyOps=" + readyOps + ", valid=" + valid + "]";
+	}
+
+	void signal(final int ops) {
+		if ((interestOps & ops) != 0) {
+			pendingOps.getAndUpdate((old)->old | ops);
+			selector.enqueue(this);
+		}
+	}
+
+	boolean markQueued() {
+		return queued.compareAndSet(false, true);
+	}
+
+	void unmarkQueued() {
+		queued.set(false);
+	}
+
+	/**
+	 * <p>Collects ready set of the key: level-triggered read and write readiness plus edge-triggered line events since the last call.</p>
+	 * @return ready set collected
+	 */
+	int collectReadyOps() {
+		final int	interest = interestOps;
+		int			ops = pendingOps.getAndSet(0) & interest;
+
+		if ((interest & CommPortSelector.OP_READ) != 0 && port.isInputReady()) {
+			ops |= CommPortSelector.OP_READ;
+		}
+		else {
+			ops &= ~CommPortSelector.OP_READ;
+		}
+		if ((interest & CommPortSelector.OP_WRITE) != 0 && port.isOutputReady()) {
+			ops |= CommPortSelector.OP_WRITE;
+		}
+		else {
+			ops &= ~CommPortSelector.OP_WRITE;
+		}
+		return ops;
+	}
+
+	void setReadyOps(final int ops) {
+		readyOps = ops;
+	}
+
+	void invalidate() {
+		valid = false;
+	}
+
+	private void ensureValid() throws IllegalStateException {
+		if (!valid) {
+			throw new IllegalStateException("Selection key is cancelled");
+		}
+	}
+}
@@ -0,0 +1,288 @@
+package javax.comm;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>A multiplexor of {@linkplain SerialPort} objects.</p>
+ *
+ * <p>Selector allows one thread to wait for readiness of many serial ports at once. Ports are registered with the
+ * {@linkplain #register(SerialPort, int)} method, that returns {@linkplain CommPortSelectionKey} for the port. Interest set of the
+ * key is built on the same events as the notifyOnXXX methods of the {@linkplain SerialPort}, but selector doesn't require any
+ * {@linkplain SerialPortEventListener} to be registered and doesn't interfere with the registered one.</p>
+ *
+ * <p>Read and write readiness are level-triggered: port is reported as readable while it has any input data, and as writable while it
+ * can accept output data. Port that can't accept output data is rechecked when its driver signals that output space is freed (for loopback ports,
+ * when the peer reads its input or raises RTS). Modem line changes and line errors are edge-triggered: they are reported once by the next selection
+ * operation after the event. Waiting for readiness is event driven: the selecting thread is parked until any of the registered ports
+ * signals an event, so the selector itself neither polls the ports nor starts any threads. Threads signalling the events belong to the drivers:
+ * loopback and replay ports signal from the threads of their peers or callers, and Linux ports signal from one epoll thread shared by all of them
+ * and, for the devices with modem lines, from one TIOCMIWAIT thread per port.</p>
+ *
+ * <p>Like {@linkplain java.nio.channels.Selector}, selector itself is thread-safe, but its selected-key set is not. The selected-key set
+ * must be processed and cleared by the selecting thread.</p>
+ *
+ * @see CommPortSelectionKey
+ * @since 0.0.1
+ */
+public class CommPortSelector implements Closeable {
+	/**
+	 * <p>Interest in the input data availability ({@linkplain SerialPortEvent#DATA_AVAILABLE})</p>
+	 */
+	public static final int	OP_READ = 1 << SerialPortEvent.DATA_AVAILABLE;
+
+	/**
+	 * <p>Interest in the output readiness ({@linkplain SerialPortEvent#OUTPUT_BUFFER_EMPTY})</p>
+	 */
+	public static final int	OP_WRITE = 1 << SerialPortEvent.OUTPUT_BUFFER_EMPTY;
+
+	/**
+	 * <p>Interest in the modem line changes ({@linkplain SerialPortEvent#CTS}, {@linkplain SerialPortEvent#DSR}, {@linkplain SerialPortEvent#RI}
+	 * and {@linkplain SerialPortEvent#CD})</p>
+	 */
+	public static final int	OP_MODEM = (1 << SerialPortEvent.CTS) | (1 << SerialPortEvent.DSR) | (1 << SerialPortEvent.RI) | (1 << SerialPortEvent.CD);
+
+	/**
+	 * <p>Interest in the line errors ({@linkplain SerialPortEvent#OE}, {@linkplain SerialPortEvent#PE}, {@linkplain SerialPortEvent#FE}
+	 * and {@linkplain SerialPortEvent#BI})</p>
+	 */
+	public static final int	OP_ERROR = (1 << SerialPortEvent.OE) | (1 << SerialPortEvent.PE) | (1 << SerialPortEvent.FE) | (1 << SerialPortEvent.BI);
+
+	static final int		OP_ALL = OP_READ | OP_WRITE | OP_MODEM | OP_ERROR;
+
+	private final Set<CommPortSelectionKey>		keys = ConcurrentHashMap.newKeySet();
+	private final Set<CommPortSelectionKey>		publicKeys = Collections.unmodifiableSet(keys);
+	private final Set<CommPortSelectionKey>		selectedKeys = new HashSet<>();
+	private final ConcurrentLinkedQueue<CommPortSelectionKey>	readyQueue = new ConcurrentLinkedQueue<>();
+	private final List<CommPortSelectionKey>	levelKeys = new ArrayList<>();
+	private final AtomicBoolean	wakeupRequested = new AtomicBoolean();
+	private final Object		selectLock = new Object();
+	private volatile Thread		waiter = null;
+	private volatile boolean	closed = false;
+
+	/**
+	 * <p>Registers serial port with the selector. If the port is already registered, changes interest set of its key.</p>
+	 * @param port port to register. Can't be null
+	 * @param ops interest set (see {@linkplain #OP_READ}, {@linkplain #OP_WRITE}, {@linkplain #OP_MODEM}, {@linkplain #OP_ERROR})
+	 * @return selection key of the port. Can't be null
+	 * @throws IllegalArgumentException if port is null or interest set contains unknown events
+	 * @throws IllegalStateException if the selector is closed
+	 */
+	public CommPortSelectionKey register(final SerialPort port, final int ops) throws IllegalArgumentException, IllegalStateException {
+		if (port == null) {
+			throw new IllegalArgumentException("Port can't be null");
+		}
+		else {
+			checkOps(ops);
+			ensureOpen();
+			for (CommPortSelectionKey key : keys) {
+				if (key.port() == port) {
+					return key.interestOps(ops);
+				}
+			}
+			final CommPortSelectionKey	key = new CommPortSelectionKey(this, port, ops);
+
+			keys.add(key);
+			port.addSelectionKey(key);
+			enqueue(key);	// port can be ready before registration
+			return key;
+		}
+	}
+
+	/**
+	 * <p>Returns this selector's key set. Key set is not modifiable.</p>
+	 * @return key set. Can't be null
+	 */
+	public Set<CommPortSelectionKey> keys() {
+		return publicKeys;
+	}
+
+	/**
+	 * <p>Returns this selector's selected-key set. Keys can be removed from the set, but can't be added to it.</p>
+	 * @return selected key set. Can't be null
+	 */
+	public Set<CommPortSelectionKey> selectedKeys() {
+		return selectedKeys;
+	}
+
+	/**
+	 * <p>Selects a set of keys whose ports are ready, blocking until at least one port is ready, {@linkplain #wakeup()} is called,
+	 * any key is cancelled, or the current thread is interrupted.</p>
+	 * @return number of keys whose ready sets were updated
+	 * @throws IllegalStateException if the selector is closed
+	 */
+	public int select() throws IllegalStateException {
+		return doSelect(-1);
+	}
+
+	/**
+	 * <p>Selects a set of keys whose ports are ready, blocking until at least one port is ready, {@linkplain #wakeup()} is called,
+	 * any key is cancelled, the current thread is interrupted, or the given timeout expires.</p>
+	 * @param timeout timeout in milliseconds. 0 means block indefinitely
+	 * @return number of keys whose ready sets were updated
+	 * @throws IllegalArgumentException if timeout is negative
+	 * @throws IllegalStateException if the selector is closed
+	 */
+	public int select(final long timeout) throws IllegalArgumentException, IllegalStateException {
+		if (timeout < 0) {
+			throw new IllegalArgumentException("Timeout ["+timeout+"] can't be negative");
+		}
+		else {
+			return doSelect(timeout == 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(timeout));
+		}
+	}
+
+	/**
+	 * <p>Selects a set of keys whose ports are ready without blocking.</p>
+	 * @return number of keys whose ready sets were updated
+	 * @throws IllegalStateException if the selector is closed
+	 */
+	public int selectNow() throws IllegalStateException {
+		return doSelect(0);
+	}
+
+	/**
+	 * <p>Causes the first selection operation that has not yet returned to return immediately. If no selection operation is in progress,
+	 * the next one will return immediately.</p>
+	 * @return this selector
+	 */
+	public CommPortSelector wakeup() {
+		wakeupRequested.set(true);
+		LockSupport.unpark(waiter);
+		return this;
+	}
+
+	/**
+	 * <p>Is the selector open.</p>
+	 * @return true if selector is not closed
+	 */
+	public boolean isOpen() {
+		return !closed;
+	}
+
+	/**
+	 * <p>Closes the selector. All the keys of the selector are cancelled.</p>
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			for (CommPortSelectionKey key : keys) {
+				key.invalidate();
+				key.port().removeSelectionKey(key);
+			}
+			keys.clear();
+			wakeup();
+		}
+	}
+
+	static void checkOps(final int ops) throws IllegalArgumentException {
+		if ((ops & ~OP_ALL) != 0) {
+			throw new IllegalArgumentException("Unknown interest set bits ["+Integer.toBinaryString(ops & ~OP_ALL)+"]");
+		}
+	}
+
+	void enqueue(final CommPortSelectionKey key) {
+		if (key.markQueued()) {
+			readyQueue.add(key);
+			LockSupport.unpark(waiter);
+		}
+	}
+
+	void deregister(final CommPortSelectionKey key) {
+		keys.remove(key);
+		wakeup();	// let the selecting thread notice cancelled key
+	}
+
+	int selectNanos(final long timeout) throws IllegalStateException {
+		return doSelect(timeout <= 0 ? 0 : timeout);
+	}
+
+	private int doSelect(final long timeout) throws IllegalStateException {
+		synchronized (selectLock) {
+			ensureOpen();
+			int		count = processReadyKeys();
+
+			if (count == 0 && timeout != 0) {
+				final Thread	current = Thread.currentThread();
+				final long		deadline = System.nanoTime() + timeout;
+
+				waiter = current;
+				try {
+					while (count == 0 && !wakeupRequested.getAndSet(false) && !closed && !current.isInterrupted()) {
+						if (readyQueue.isEmpty()) {
+							if (timeout < 0) {
+								LockSupport.park(this);
+							}
+							else {
+								final long	delay = deadline - System.nanoTime();
+
+								if (delay <= 0) {
+									break;
+								}
+								else {
+									LockSupport.parkNanos(this, delay);
+								}
+							}
+						}
+						count = processReadyKeys();
+					}
+				} finally {
+					waiter = null;
+				}
+			}
+			else {
+				wakeupRequested.set(false);
+			}
+			return count;
+		}
+	}
+
+	private int processReadyKeys() {
+		CommPortSelectionKey	key;
+		int						count = 0;
+
+		selectedKeys.removeIf((k)->!k.isValid());
+		while ((key = readyQueue.poll()) != null) {
+			key.unmarkQueued();
+			if (key.isValid()) {
+				final int	ops = key.collectReadyOps();
+
+				if (ops != 0) {
+					if (selectedKeys.add(key)) {
+						key.setReadyOps(ops);
+					}
+					else {
+						key.setReadyOps(key.readyOps() | ops);
+					}
+					if ((ops & (OP_READ | OP_WRITE)) != 0) {
+						levelKeys.add(key);		// level-triggered, recheck on the next selection
+					}
+					count++;
+				}
+			}
+		}
+		for (CommPortSelectionKey levelKey : levelKeys) {
+			if (levelKey.markQueued()) {
+				readyQueue.add(levelKey);
+			}
+		}
+		levelKeys.clear();
+		return count;
+	}
+
+	private void ensureOpen() throws IllegalStateException {
+		if (closed) {
+			throw new IllegalStateException("Selector is closed");
+		}
+	}
+}
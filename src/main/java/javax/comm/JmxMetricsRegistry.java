@@ -0,0 +1,43 @@
+package javax.comm;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * <p>Default {@linkplain CommPortMetricsRegistry} publishing metrics in the platform MBean server.</p>
+ */
+final class JmxMetricsRegistry implements CommPortMetricsRegistry {
+	static final String		DOMAIN = "javax.comm";
+
+	@Override
+	public void register(final CommPortMetrics metrics) {
+		final MBeanServer	server = ManagementFactory.getPlatformMBeanServer();
+
+		try {
+			final ObjectName	name = toObjectName(metrics);
+
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(metrics, name);
+		} catch (JMException exc) {
+			// metrics are not available by JMX, but still available by API
+		}
+	}
+
+	@Override
+	public void unregister(final CommPortMetrics metrics) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(toObjectName(metrics));
+		} catch (JMException exc) {
+			// already unregistered
+		}
+	}
+
+	private static ObjectName toObjectName(final CommPortMetrics metrics) throws JMException {
+		return new ObjectName(DOMAIN + ":type=CommPort,name=" + ObjectName.quote(metrics.getPortName()));
+	}
+}
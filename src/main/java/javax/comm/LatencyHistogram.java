@@ -0,0 +1,153 @@
+package javax.comm;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Lock-free latency histogram with logarithmic buckets.</p>
+ *
+ * <p>Every power of two range of values is split to {@value #SUB_BUCKETS} linear sub-buckets, so any value is stored with relative error
+ * less than 1/{@value #SUB_BUCKETS} in the fixed memory, whatever the value range is (like HDR histogram with one significant digit).
+ * Recording a value is a few atomic increments without locks and memory allocations, so the histogram can be updated from any number
+ * of threads on the I/O path.</p>
+ *
+ * @see CommPortMetrics
+ * @since 0.0.1
+ */
+public final class LatencyHistogram {
+	/**
+	 * <p>Number of sub-buckets in every power of two range</p>
+	 */
+	public static final int		SUB_BUCKETS = 8;
+
+	private static final int	SUB_BITS = 3;
+	private static final int	BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray	counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder			count = new LongAdder();
+	private final LongAdder			total = new LongAdder();
+	private final LongAccumulator	max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * <p>Records value</p>
+	 * @param value value to record. Negative values are recorded as 0
+	 */
+	public void record(final long value) {
+		final long	normalized = Math.max(0, value);
+
+		counts.incrementAndGet(bucketOf(normalized));
+		count.increment();
+		total.add(normalized);
+		max.accumulate(normalized);
+	}
+
+	/**
+	 * <p>Gets number of values recorded</p>
+	 * @return number of values recorded
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * <p>Gets sum of values recorded</p>
+	 * @return sum of values recorded
+	 */
+	public long getTotal() {
+		return total.sum();
+	}
+
+	/**
+	 * <p>Gets maximal value recorded</p>
+	 * @return maximal value recorded or 0 if histogram is empty
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * <p>Gets mean value recorded</p>
+	 * @return mean value recorded or 0 if histogram is empty
+	 */
+	public double getMean() {
+		final long	currentCount = getCount();
+
+		return currentCount == 0 ? 0 : (double)getTotal() / currentCount;
+	}
+
+	/**
+	 * <p>Gets value at the given percentile. Returned value is the upper bound of the bucket containing percentile, but not greater than
+	 * maximal value recorded.</p>
+	 * @param percentile percentile in the range 0..100
+	 * @return value at percentile or 0 if histogram is empty
+	 * @throws IllegalArgumentException if percentile out of range
+	 */
+	public long getValueAtPercentile(final double percentile) throws IllegalArgumentException {
+		if (percentile < 0 || percentile > 100 || Double.isNaN(percentile)) {
+			throw new IllegalArgumentException("Percentile ["+percentile+"] out of range 0..100");
+		}
+		else {
+			long	currentCount = 0;
+
+			for (int index = 0; index < BUCKETS; index++) {
+				currentCount += counts.get(index);
+			}
+			if (currentCount == 0) {
+				return 0;
+			}
+			else {
+				final long	threshold = Math.max(1, (long)Math.ceil(currentCount * percentile / 100));
+				long		accumulated = 0;
+
+				for (int index = 0; index < BUCKETS; index++) {
+					if ((accumulated += counts.get(index)) >= threshold) {
+						return Math.min(upperBoundOf(index), getMax());
+					}
+				}
+				return getMax();
+			}
+		}
+	}
+
+	/**
+	 * <p>Clears histogram. Values recorded concurrently with reset can be partially lost.</p>
+	 */
+	public void reset() {
+		for (int index = 0; index < BUCKETS; index++) {
+			counts.set(index, 0);
+		}
+		count.reset();
+		total.reset();
+		max.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "LatencyHistogram [count=" + getCount() + ", mean=" + getMean() + ", p50=" + getValueAtPercentile(50)
+				+ ", p99=" + getValueAtPercentile(99) + ", max=" + getMax() + "]";
+	}
+
+	private static int bucketOf(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int)value;
+		}
+		else {
+			final int	exponent = 63 - Long.numberOfLeadingZeros(value);
+
+			return (exponent - SUB_BITS + 1) * SUB_BUCKETS + (int)((value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1));
+		}
+	}
+
+	private static long upperBoundOf(final int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		else {
+			final int	shift = bucket / SUB_BUCKETS - 1;
+			final long	lower = (long)(SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+
+			return lower + (1L << shift) - 1;
+		}
+	}
+}
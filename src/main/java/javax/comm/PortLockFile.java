@@ -0,0 +1,208 @@
+package javax.comm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.spi.TimerWheel;
+
+/**
+ * <p>UUCP-style lock file of the port (<b>LCK..&lt;device name&gt;</b> with the owner process id) to coordinate port ownership between
+ * processes. Besides the process id, lock file is locked by the {@linkplain FileChannel#lock()}, so the lock is released by the operating
+ * system when the owner process dies, and waiting process acquires it immediately, without polling. Lock file is removed on release while
+ * it is still locked. Process acquired the lock checks that the file locked is still the one with the lock file name (by its file key,
+ * inode on Unix), and locks the current file again otherwise, so two processes can't own different files with the same name.</p>
+ *
+ * <p>Lock files are used only for ports named by the absolute path of the existing device, when lock directory is writable.</p>
+ */
+final class PortLockFile {
+	static final String		LOCK_FILE_PREFIX = "LCK..";
+	static final String		DEFAULT_LOCK_DIR = "/var/lock";
+
+	private static final long	CURRENT_PID = ProcessHandle.current().pid();
+
+	private final Path		path;
+	private FileChannel		channel = null;
+	private FileLock		lock = null;
+
+	private PortLockFile(final Path path) {
+		this.path = path;
+	}
+
+	/**
+	 * <p>Gets lock file for the given port</p>
+	 * @param portName port name
+	 * @return lock file or null if lock files are not applicable to the port
+	 */
+	static PortLockFile forPort(final String portName) {
+		final File	device = new File(portName);
+		final File	lockDir = new File(System.getProperty(CommPortIdentifier.LOCK_DIR_PROPERTY, DEFAULT_LOCK_DIR));
+
+		if (device.isAbsolute() && device.exists() && lockDir.isDirectory() && lockDir.canWrite()) {
+			return new PortLockFile(new File(lockDir, LOCK_FILE_PREFIX + device.getName()).toPath());
+		}
+		else {
+			return null;
+		}
+	}
+
+	/**
+	 * <p>Acquires lock file</p>
+	 * @param timeout time to wait for the lock in nanoseconds. 0 means don't wait
+	 * @return true if lock was acquired
+	 * @throws IOException on any I/O errors
+	 */
+	boolean acquire(final long timeout) throws IOException {
+		final long	deadline = System.nanoTime() + timeout;
+		boolean		acquired = false;
+
+		try {
+			for (;;) {
+				final Object	key = getFileKey();
+
+				channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				if (key != null && key.equals(getFileKey())) {	// otherwise the file was created or replaced while opening
+					final long	remaining = deadline - System.nanoTime();
+
+					lock = channel.tryLock();
+					if (lock == null && timeout > 0 && remaining > 0) {
+						lock = lockWithTimeout(remaining);
+					}
+					if (lock == null) {
+						return false;
+					}
+					else if (key.equals(getFileKey())) {
+						break;
+					}
+				}
+				close();	// file locked was removed by its previous owner, lock the current one
+			}
+			final long	pid = readPid(channel);
+
+			if (pid <= 0 || pid == CURRENT_PID || !isAlive(pid)) {	// otherwise owned by the application using plain lock files
+				channel.truncate(0);
+				channel.write(ByteBuffer.wrap(String.format("%10d\n", CURRENT_PID).getBytes(StandardCharsets.US_ASCII)), 0);
+				channel.force(false);
+				acquired = true;
+			}
+			return acquired;
+		} finally {
+			if (!acquired) {
+				close();
+			}
+		}
+	}
+
+	/**
+	 * <p>Releases lock file. File is removed before it is unlocked, so processes waiting for it lock the new file.</p>
+	 */
+	void release() {
+		try {
+			if (lock != null && lock.isValid()) {
+				Files.deleteIfExists(path);
+			}
+		} catch (IOException exc) {
+			// nothing to do on release
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * <p>Gets owner of the port from other process</p>
+	 * @param portName port name
+	 * @return owner description or null if the port is not owned by other live process
+	 */
+	static String getForeignOwner(final String portName) {
+		final PortLockFile	lockFile = forPort(portName);
+
+		if (lockFile != null && Files.exists(lockFile.path)) {
+			try (final FileChannel	fc = FileChannel.open(lockFile.path, StandardOpenOption.READ)) {
+				final long	pid = readPid(fc);
+
+				return pid > 0 && pid != CURRENT_PID && isAlive(pid) ? "process "+pid : null;
+			} catch (IOException exc) {
+				return null;
+			}
+		}
+		else {
+			return null;
+		}
+	}
+
+	private FileLock lockWithTimeout(final long timeout) throws IOException {
+		final FileChannel			fc = channel;
+		final TimerWheel.Timeout	alarm = TimerWheel.getDefault().schedule(()->{
+											try {
+												fc.close();		// breaks blocked lock()
+											} catch (IOException exc) {
+											}
+										}, timeout, TimeUnit.NANOSECONDS);
+		try {
+			final FileLock	result = fc.lock();
+
+			alarm.cancel();
+			return fc.isOpen() ? result : null;
+		} catch (AsynchronousCloseException exc) {	// timeout or interrupt (interrupt status is kept)
+			return null;
+		} finally {
+			alarm.cancel();
+		}
+	}
+
+	private void close() {
+		try {
+			if (lock != null && lock.isValid()) {
+				lock.release();
+			}
+		} catch (IOException exc) {
+		}
+		try {
+			if (channel != null) {
+				channel.close();
+			}
+		} catch (IOException exc) {
+		}
+		lock = null;
+		channel = null;
+	}
+
+	private Object getFileKey() {	// file key is null on some platforms, creation time identifies the file there
+		try {
+			final BasicFileAttributes	attrs = Files.readAttributes(path, BasicFileAttributes.class);
+
+			return attrs.fileKey() != null ? attrs.fileKey() : attrs.creationTime();
+		} catch (IOException exc) {
+			return null;
+		}
+	}
+
+	private static long readPid(final FileChannel fc) throws IOException {
+		if (fc == null || !fc.isOpen()) {
+			return -1;
+		}
+		else {
+			final ByteBuffer	buffer = ByteBuffer.allocate(32);
+
+			fc.read(buffer, 0);
+			try {
+				return Long.parseLong(new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII).trim());
+			} catch (NumberFormatException exc) {
+				return -1;
+			}
+		}
+	}
+
+	private static boolean isAlive(final long pid) {
+		return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+	}
+}
@@ -0,0 +1,56 @@
+package javax.comm;
+
+/**
+ * <p>Arrival time of the data read by the {@linkplain CommPort#readTimestamped(java.nio.ByteBuffer, ReceiveTimestamp)} method. Holder is
+ * owned by the caller and is filled by every read, so reading with timestamps doesn't allocate any objects. All the times are
+ * monotonic times of the {@linkplain System#nanoTime()}, so they can be compared with the {@linkplain SerialPortEvent#getTimestamp()}
+ * times of the same JVM.</p>
+ *
+ * <p>Holder is not thread-safe, every reading thread should have its own holder.</p>
+ *
+ * @since 0.0.1
+ */
+public final class ReceiveTimestamp {
+	private long	arrivalTime = 0;
+	private long	readTime = 0;
+
+	/**
+	 * <p>Gets arrival time of the first byte of the data read. It is the time when the driver took the byte from the hardware or
+	 * detected it in the hardware buffer, and it is the read time when the driver doesn't know arrival time.</p>
+	 * @return arrival time by {@linkplain System#nanoTime()}
+	 */
+	public long getArrivalTime() {
+		return arrivalTime;
+	}
+
+	/**
+	 * <p>Gets time when the data were read by the application.</p>
+	 * @return read time by {@linkplain System#nanoTime()}
+	 */
+	public long getReadTime() {
+		return readTime;
+	}
+
+	/**
+	 * <p>Gets time the first byte of the data read was waiting for the application.</p>
+	 * @return latency in nanoseconds
+	 */
+	public long getLatency() {
+		return readTime - arrivalTime;
+	}
+
+	/**
+	 * <p>Sets content of the holder. Called by drivers.</p>
+	 * @param arrivalTime arrival time of the first byte read
+	 * @param readTime read time
+	 */
+	public void set(final long arrivalTime, final long readTime) {
+		this.arrivalTime = arrivalTime;
+		this.readTime = readTime;
+	}
+
+	@Override
+	public String toString() {
+		return "ReceiveTimestamp [arrivalTime=" + arrivalTime + ", readTime=" + readTime + ", latency=" + getLatency() + "]";
+	}
+}
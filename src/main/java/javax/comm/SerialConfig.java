@@ -0,0 +1,330 @@
+package javax.comm;
+
+/**
+ * <p>Immutable set of the serial port settings. Config is applied to the port by the {@linkplain SerialPort#applyConfig(SerialConfig)}
+ * method at once, so the driver can apply all the settings by one hardware call, without intermediate states of the line.
+ * New configs are built from the {@linkplain #DEFAULT} one by the withXXX methods, every method returns a new config:</p>
+ * <pre>
+ * final SerialConfig config = SerialConfig.DEFAULT
+ *                                  .withSerialPortParams(115200, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE)
+ *                                  .withFlowControlMode(SerialPort.FLOWCONTROL_RTSCTS_IN | SerialPort.FLOWCONTROL_RTSCTS_OUT)
+ *                                  .withReceiveTimeout(100);
+ * </pre>
+ * <p>Configs are compared by value, so they can be used as map keys and can be shared between threads and ports.</p>
+ *
+ * @see SerialPort#applyConfig(SerialConfig)
+ * @see CommPortIdentifier#getLastSerialConfig()
+ * @since 0.0.1
+ */
+public final class SerialConfig {
+	/**
+	 * <p>Receive timeout or receive threshold value to disable them</p>
+	 */
+	public static final int		DISABLED = -1;
+
+	/**
+	 * <p>Default buffer sizes</p>
+	 */
+	public static final int		DEFAULT_BUFFER_SIZE = 4096;
+
+	/**
+	 * <p>Default port settings: 9600 baud, 8 data bits, 1 stop bit, no parity, no flow control, receive timeout and receive threshold
+	 * are disabled, DTR and RTS are set.</p>
+	 */
+	public static final SerialConfig	DEFAULT = new SerialConfig(9600, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE, SerialPort.FLOWCONTROL_NONE
+															, DISABLED, DISABLED, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_SIZE, true, true);
+
+	private static final int	FLOWCONTROL_MASK = SerialPort.FLOWCONTROL_RTSCTS_IN | SerialPort.FLOWCONTROL_RTSCTS_OUT | SerialPort.FLOWCONTROL_XONXOFF_IN | SerialPort.FLOWCONTROL_XONXOFF_OUT;
+
+	private final int		baudRate;
+	private final int		dataBits;
+	private final int		stopBits;
+	private final int		parity;
+	private final int		flowControl;
+	private final int		receiveTimeout;
+	private final int		receiveThreshold;
+	private final int		inputBufferSize;
+	private final int		outputBufferSize;
+	private final boolean	dtr;
+	private final boolean	rts;
+
+	private SerialConfig(final int baudRate, final int dataBits, final int stopBits, final int parity, final int flowControl, final int receiveTimeout
+						, final int receiveThreshold, final int inputBufferSize, final int outputBufferSize, final boolean dtr, final boolean rts) {
+		this.baudRate = baudRate;
+		this.dataBits = dataBits;
+		this.stopBits = stopBits;
+		this.parity = parity;
+		this.flowControl = flowControl;
+		this.receiveTimeout = receiveTimeout;
+		this.receiveThreshold = receiveThreshold;
+		this.inputBufferSize = inputBufferSize;
+		this.outputBufferSize = outputBufferSize;
+		this.dtr = dtr;
+		this.rts = rts;
+	}
+
+	/**
+	 * <p>Gets current settings of the port.</p>
+	 * @param port port to get settings from. Can't be null
+	 * @return config with the current port settings. Can't be null
+	 */
+	public static SerialConfig of(final SerialPort port) {
+		if (port == null) {
+			throw new NullPointerException("Port can't be null");
+		}
+		else {
+			return new SerialConfig(port.getBaudRate(), port.getDataBits(), port.getStopBits(), port.getParity(), port.getFlowControlMode()
+									, port.isReceiveTimeoutEnabled() ? port.getReceiveTimeout() : DISABLED
+									, port.isReceiveThresholdEnabled() ? port.getReceiveThreshold() : DISABLED
+									, port.getInputBufferSize(), port.getOutputBufferSize(), port.isDTR(), port.isRTS());
+		}
+	}
+
+	/**
+	 * <p>Creates config with the given serial port parameters (see {@linkplain SerialPort#setSerialPortParams(int, int, int, int)}).</p>
+	 * @param bitrate bit rate. Must be positive
+	 * @param datasize data bits (see {@linkplain SerialPort#DATABITS_8} etc)
+	 * @param stopbits stop bits (see {@linkplain SerialPort#STOPBITS_1} etc)
+	 * @param parity parity (see {@linkplain SerialPort#PARITY_NONE} etc)
+	 * @return new config. Can't be null
+	 * @throws IllegalArgumentException if any parameter is invalid
+	 */
+	public SerialConfig withSerialPortParams(final int bitrate, final int datasize, final int stopbits, final int parity) throws IllegalArgumentException {
+		if (bitrate <= 0) {
+			throw new IllegalArgumentException("Bit rate ["+bitrate+"] must be positive");
+		}
+		else if (datasize < SerialPort.DATABITS_5 || datasize > SerialPort.DATABITS_8) {
+			throw new IllegalArgumentException("Illegal data bits ["+datasize+"]");
+		}
+		else if (stopbits != SerialPort.STOPBITS_1 && stopbits != SerialPort.STOPBITS_2 && stopbits != SerialPort.STOPBITS_1_5) {
+			throw new IllegalArgumentException("Illegal stop bits ["+stopbits+"]");
+		}
+		else if (parity < SerialPort.PARITY_NONE || parity > SerialPort.PARITY_SPACE) {
+			throw new IllegalArgumentException("Illegal parity ["+parity+"]");
+		}
+		else {
+			return new SerialConfig(bitrate, datasize, stopbits, parity, flowControl, receiveTimeout, receiveThreshold, inputBufferSize, outputBufferSize, dtr, rts);
+		}
+	}
+
+	/**
+	 * <p>Creates config with the given flow control mode (see {@linkplain SerialPort#setFlowControlMode(int)}).</p>
+	 * @param flowcontrol flow control bitmask
+	 * @return new config. Can't be null
+	 * @throws IllegalArgumentException if flow control bitmask is invalid
+	 */
+	public SerialConfig withFlowControlMode(final int flowcontrol) throws IllegalArgumentException {
+		if ((flowcontrol & ~FLOWCONTROL_MASK) != 0) {
+			throw new IllegalArgumentException("Illegal flow control mask ["+flowcontrol+"]");
+		}
+		else {
+			return new SerialConfig(baudRate, dataBits, stopBits, parity, flowcontrol, receiveTimeout, receiveThreshold, inputBufferSize, outputBufferSize, dtr, rts);
+		}
+	}
+
+	/**
+	 * <p>Creates config with the given receive timeout (see {@linkplain SerialPort#enableReceiveTimeout(int)}).</p>
+	 * @param time receive timeout in milliseconds, or {@linkplain #DISABLED} to disable receive timeout
+	 * @return new config. Can't be null
+	 * @throws IllegalArgumentException if timeout is negative
+	 */
+	public SerialConfig withReceiveTimeout(final int time) throws IllegalArgumentException {
+		if (time < DISABLED) {
+			throw new IllegalArgumentException("Receive timeout ["+time+"] can't be negative");
+		}
+		else {
+			return new SerialConfig(baudRate, dataBits, stopBits, parity, flowControl, time, receiveThreshold, inputBufferSize, outputBufferSize, dtr, rts);
+		}
+	}
+
+	/**
+	 * <p>Creates config with the given receive threshold (see {@linkplain SerialPort#enableReceiveThreshold(int)}).</p>
+	 * @param thresh receive threshold in bytes, or {@linkplain #DISABLED} to disable receive threshold
+	 * @return new config. Can't be null
+	 * @throws IllegalArgumentException if threshold is negative
+	 */
+	public SerialConfig withReceiveThreshold(final int thresh) throws IllegalArgumentException {
+		if (thresh < DISABLED) {
+			throw new IllegalArgumentException("Receive threshold ["+thresh+"] can't be negative");
+		}
+		else {
+			return new SerialConfig(baudRate, dataBits, stopBits, parity, flowControl, receiveTimeout, thresh, inputBufferSize, outputBufferSize, dtr, rts);
+		}
+	}
+
+	/**
+	 * <p>Creates config with the given buffer sizes (see {@linkplain SerialPort#setInputBufferSize(int)} and {@linkplain SerialPort#setOutputBufferSize(int)}).</p>
+	 * @param inputSize input buffer size. Must be positive
+	 * @param outputSize output buffer size. Must be positive
+	 * @return new config. Can't be null
+	 * @throws IllegalArgumentException if any size is not positive
+	 */
+	public SerialConfig withBufferSizes(final int inputSize, final int outputSize) throws IllegalArgumentException {
+		if (inputSize <= 0) {
+			throw new IllegalArgumentException("Input buffer size ["+inputSize+"] must be positive");
+		}
+		else if (outputSize <= 0) {
+			throw new IllegalArgumentException("Output buffer size ["+outputSize+"] must be positive");
+		}
+		else {
+			return new SerialConfig(baudRate, dataBits, stopBits, parity, flowControl, receiveTimeout, receiveThreshold, inputSize, outputSize, dtr, rts);
+		}
+	}
+
+	/**
+	 * <p>Creates config with the given states of the modem control lines (see {@linkplain SerialPort#setDTR(boolean)} and {@linkplain SerialPort#setRTS(boolean)}).</p>
+	 * @param dtr DTR state
+	 * @param rts RTS state
+	 * @return new config. Can't be null
+	 */
+	public SerialConfig withModemLines(final boolean dtr, final boolean rts) {
+		return new SerialConfig(baudRate, dataBits, stopBits, parity, flowControl, receiveTimeout, receiveThreshold, inputBufferSize, outputBufferSize, dtr, rts);
+	}
+
+	/**
+	 * <p>Gets baud rate</p>
+	 * @return baud rate
+	 */
+	public int getBaudRate() {
+		return baudRate;
+	}
+
+	/**
+	 * <p>Gets data bits</p>
+	 * @return data bits (see {@linkplain SerialPort#DATABITS_8} etc)
+	 */
+	public int getDataBits() {
+		return dataBits;
+	}
+
+	/**
+	 * <p>Gets stop bits</p>
+	 * @return stop bits (see {@linkplain SerialPort#STOPBITS_1} etc)
+	 */
+	public int getStopBits() {
+		return stopBits;
+	}
+
+	/**
+	 * <p>Gets parity</p>
+	 * @return parity (see {@linkplain SerialPort#PARITY_NONE} etc)
+	 */
+	public int getParity() {
+		return parity;
+	}
+
+	/**
+	 * <p>Gets flow control mode</p>
+	 * @return flow control bitmask
+	 */
+	public int getFlowControlMode() {
+		return flowControl;
+	}
+
+	/**
+	 * <p>Gets receive timeout</p>
+	 * @return receive timeout in milliseconds, or {@linkplain #DISABLED} if receive timeout is disabled
+	 */
+	public int getReceiveTimeout() {
+		return receiveTimeout;
+	}
+
+	/**
+	 * <p>Gets receive threshold</p>
+	 * @return receive threshold in bytes, or {@linkplain #DISABLED} if receive threshold is disabled
+	 */
+	public int getReceiveThreshold() {
+		return receiveThreshold;
+	}
+
+	/**
+	 * <p>Gets input buffer size</p>
+	 * @return input buffer size
+	 */
+	public int getInputBufferSize() {
+		return inputBufferSize;
+	}
+
+	/**
+	 * <p>Gets output buffer size</p>
+	 * @return output buffer size
+	 */
+	public int getOutputBufferSize() {
+		return outputBufferSize;
+	}
+
+	/**
+	 * <p>Gets DTR state</p>
+	 * @return true if DTR must be set
+	 */
+	public boolean isDTR() {
+		return dtr;
+	}
+
+	/**
+	 * <p>Gets RTS state</p>
+	 * @return true if RTS must be set
+	 */
+	public boolean isRTS() {
+		return rts;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + baudRate;
+		result = prime * result + dataBits;
+		result = prime * result + stopBits;
+		result = prime * result + parity;
+		result = prime * result + flowControl;
+		result = prime * result + receiveTimeout;
+		result = prime * result + receiveThreshold;
+		result = prime * result + inputBufferSize;
+		result = prime * result + outputBufferSize;
+		result = prime * result + (dtr ? 1231 : 1237);
+		result = prime * result + (rts ? 1231 : 1237);
+		return result;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		final SerialConfig other = (SerialConfig) obj;
+		if (baudRate != other.baudRate)
+			return false;
+		if (dataBits != other.dataBits)
+			return false;
+		if (stopBits != other.stopBits)
+			return false;
+		if (parity != other.parity)
+			return false;
+		if (flowControl != other.flowControl)
+			return false;
+		if (receiveTimeout != other.receiveTimeout)
+			return false;
+		if (receiveThreshold != other.receiveThreshold)
+			return false;
+		if (inputBufferSize != other.inputBufferSize)
+			return false;
+		if (outputBufferSize != other.outputBufferSize)
+			return false;
+		if (dtr != other.dtr)
+			return false;
+		if (rts != other.rts)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "SerialConfig [baudRate=" + baudRate + ", dataBits=" + dataBits + ", stopBits=" + stopBits + ", parity=" + parity
+				+ ", flowControl=" + flowControl + ", receiveTimeout=" + receiveTimeout + ", receiveThreshold=" + receiveThreshold
+				+ ", inputBufferSize=" + inputBufferSize + ", outputBufferSize=" + outputBufferSize + ", dtr=" + dtr + ", rts=" + rts + "]";
+	}
+}
@@ -1,6 +1,11 @@
 package javax.comm;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.TooManyListenersException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * <p>An RS-232 serial communications port.</p>
@@ -77,6 +82,42 @@ public abstract class SerialPort extends CommPort {
 	 * <p>Flow control: XOn/XOff out</p>
 	 */
     public static final int FLOWCONTROL_XONXOFF_OUT = 8;
+	/**
+	 * <p>Modem status: DTR (Data Terminal Ready)</p>
+	 * @since 0.0.1
+	 */
+    public static final int MODEM_DTR = 0x002;
+	/**
+	 * <p>Modem status: RTS (Request To Send)</p>
+	 * @since 0.0.1
+	 */
+    public static final int MODEM_RTS = 0x004;
+	/**
+	 * <p>Modem status: CTS (Clear To Send)</p>
+	 * @since 0.0.1
+	 */
+    public static final int MODEM_CTS = 0x020;
+	/**
+	 * <p>Modem status: CD (Carrier Detect)</p>
+	 * @since 0.0.1
+	 */
+    public static final int MODEM_CD = 0x040;
+	/**
+	 * <p>Modem status: RI (Ring Indicator)</p>
+	 * @since 0.0.1
+	 */
+    public static final int MODEM_RI = 0x080;
+	/**
+	 * <p>Modem status: DSR (Data Set Ready)</p>
+	 * @since 0.0.1
+	 */
+    public static final int MODEM_DSR = 0x100;
+
+    private final CopyOnWriteArrayList<CommPortSelectionKey> selectionKeys = new CopyOnWriteArrayList<>();
+    private volatile int selectionInterest = 0;
+    private final CopyOnWriteArrayList<SerialPortEventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile int subscriptionInterest = 0;
+    private AsyncCommChannel asyncChannel = null;
 
     /**
      * <p>Sets serial port parameters.</p>
@@ -157,6 +198,70 @@ public abstract class SerialPort extends CommPort {
      */
     public abstract int getFlowControlMode();
 
+    /**
+     * <p>Applies all the settings of the config to the port at once.</p>
+     * <p>Drivers apply serial port parameters, flow control mode and receive options to the hardware by one call when possible, and change
+     * modem control lines only when their states differ from the config. Settings equal to the current ones are not applied again, so reapplying
+     * the same config is cheap. Config applied successfully is remembered by the port identifier and is restored on the next open of the port
+     * (see {@linkplain CommPortIdentifier#getLastSerialConfig()}), so reopening the configured port doesn't need reconfiguration.</p>
+     * <p>Drivers based on {@linkplain javax.comm.spi.AbstractSerialPort} apply the whole config, including buffer sizes and DTR/RTS lines, atomically
+     * for the other config applications and the settings setters and getters. Only serial port parameters, flow control mode and receive options are rolled back on failure.
+     * Default implementation of {@linkplain #configure(SerialConfig)} is not atomic.</p>
+     * @param config config to apply. Can't be null
+     * @throws UnsupportedCommOperationException if any setting of the config is not supported by the driver
+     * @see SerialConfig#of(SerialPort)
+     * @since 0.0.1
+     */
+    public final void applyConfig( SerialConfig config ) throws UnsupportedCommOperationException {
+        if (config == null) {
+            throw new NullPointerException("Config can't be null");
+        }
+        else {
+            final CommPortIdentifier cpi = getIdentifier();
+
+            configure(config);
+            if (cpi != null) {
+                cpi.setLastSerialConfig(config);
+            }
+        }
+    }
+
+    /**
+     * <p>Applies all the settings of the config to the port. Called by {@linkplain #applyConfig(SerialConfig)} and on the port open.</p>
+     * <p>Default implementation calls the setXXX methods one by one, drivers should override it to apply all the settings by one call.</p>
+     * @param config config to apply. Can't be null
+     * @throws UnsupportedCommOperationException if any setting of the config is not supported by the driver
+     * @since 0.0.1
+     */
+    protected void configure( SerialConfig config ) throws UnsupportedCommOperationException {
+        if (getBaudRate() != config.getBaudRate() || getDataBits() != config.getDataBits() || getStopBits() != config.getStopBits() || getParity() != config.getParity()) {
+            setSerialPortParams(config.getBaudRate(), config.getDataBits(), config.getStopBits(), config.getParity());
+        }
+        if (getFlowControlMode() != config.getFlowControlMode()) {
+            setFlowControlMode(config.getFlowControlMode());
+        }
+        if (config.getReceiveTimeout() == SerialConfig.DISABLED) {
+            disableReceiveTimeout();
+        }
+        else {
+            enableReceiveTimeout(config.getReceiveTimeout());
+        }
+        if (config.getReceiveThreshold() == SerialConfig.DISABLED) {
+            disableReceiveThreshold();
+        }
+        else {
+            enableReceiveThreshold(config.getReceiveThreshold());
+        }
+        setInputBufferSize(config.getInputBufferSize());
+        setOutputBufferSize(config.getOutputBufferSize());
+        if (isDTR() != config.isDTR()) {
+            setDTR(config.isDTR());
+        }
+        if (isRTS() != config.isRTS()) {
+            setRTS(config.isRTS());
+        }
+    }
+
     /**
      * <p>Sets or clears the DTR (Data Terminal Ready) bit in the UART, if supported by the underlying implementation.</p>
      * @param state <ul>
@@ -211,6 +316,37 @@ public abstract class SerialPort extends CommPort {
      */
     public abstract boolean isRI();
 
+    /**
+     * <p>Gets the state of all the modem lines by one call.</p>
+     * <p>Bits of the returned mask are the MODEM_XXX constants (their values are the same as the TIOCM_XXX values of the termios).
+     * Drivers keep the snapshot of the modem lines updated on every line change, so this method doesn't access the hardware.
+     * Default implementation collects states by the isXXX methods.</p>
+     * @return bitmask of the active modem lines
+     * @since 0.0.1
+     */
+    public int getModemStatus() {
+        return (isDTR() ? MODEM_DTR : 0) | (isRTS() ? MODEM_RTS : 0) | (isCTS() ? MODEM_CTS : 0)
+             | (isCD() ? MODEM_CD : 0) | (isRI() ? MODEM_RI : 0) | (isDSR() ? MODEM_DSR : 0);
+    }
+
+    /**
+     * <p>Waits until any of the given modem lines changes its state, like the TIOCMIWAIT ioctl.</p>
+     * <p>Method compares the current modem status with the status passed, so changes occurred between {@linkplain #getModemStatus()}
+     * and this call are never lost.</p>
+     * <p>Default implementation doesn't support waiting.</p>
+     * @param status modem status known by the caller (see {@linkplain #getModemStatus()})
+     * @param mask bitmask of the MODEM_XXX lines to wait for. Can't be 0
+     * @param timeout timeout in milliseconds. 0 means wait indefinitely
+     * @return current modem status. Lines of the mask are in the state passed on timeout or port close
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     * @throws UnsupportedCommOperationException if waiting is not supported by the driver
+     * @throws IllegalArgumentException if mask is 0 or timeout is negative
+     * @since 0.0.1
+     */
+    public int awaitModemStatusChange( int status, int mask, long timeout ) throws InterruptedException, UnsupportedCommOperationException, IllegalArgumentException {
+        throw new UnsupportedCommOperationException("Waiting for modem status change is not supported by the driver");
+    }
+
     /**
      * <p>Sends a break of <b>millis</b> milliseconds duration.</p>
      * <p>Note that it may not be possible to time the duration of the break under certain Operating Systems.
@@ -349,4 +485,416 @@ public abstract class SerialPort extends CommPort {
      *               </ul>
      */
     public abstract void notifyOnBreakInterrupt( boolean enable );
+
+    /**
+     * <p>Subscribes listener to the port events.</p>
+     * <p>Any number of listeners can be subscribed to the port, in addition to the listener registered by the {@linkplain #addEventListener(SerialPortEventListener)}.
+     * Every subscription receives only events selected by its event mask, regardless of the notifyOnXXX settings, and delivers them in order
+     * by its own executor. All the subscriptions are cancelled when the port is closed.</p>
+     * @param listener listener to subscribe. Can't be null
+     * @param eventMask bitmask of <b>1 &lt;&lt; event type</b> (see {@linkplain SerialPortEventSubscription#eventMask(int...)}). Can't be 0
+     * @param executor executor to deliver events by. Can be null (see {@linkplain SerialPortEventSubscription})
+     * @return subscription created. Can't be null
+     * @throws IllegalArgumentException if listener is null or event mask is invalid
+     * @since 0.0.1
+     */
+    public SerialPortEventSubscription subscribe( SerialPortEventListener listener, int eventMask, Executor executor ) throws IllegalArgumentException {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener can't be null");
+        }
+        else if (eventMask == 0 || (eventMask & ~SerialPortEventSubscription.ALL_EVENTS) != 0) {
+            throw new IllegalArgumentException("Invalid event mask ["+Integer.toBinaryString(eventMask)+"]");
+        }
+        else {
+            final SerialPortEventSubscription subscription = new SerialPortEventSubscription(this, listener, eventMask, executor);
+
+            subscriptions.add(subscription);
+            updateSubscriptionInterest();
+            return subscription;
+        }
+    }
+
+    /**
+     * <p>Subscribes listener to the port events with the default executor.</p>
+     * @param listener listener to subscribe. Can't be null
+     * @param eventMask bitmask of <b>1 &lt;&lt; event type</b> (see {@linkplain SerialPortEventSubscription#eventMask(int...)}). Can't be 0
+     * @return subscription created. Can't be null
+     * @throws IllegalArgumentException if listener is null or event mask is invalid
+     * @see #subscribe(SerialPortEventListener, int, Executor)
+     * @since 0.0.1
+     */
+    public SerialPortEventSubscription subscribe( SerialPortEventListener listener, int eventMask ) throws IllegalArgumentException {
+        return subscribe(listener, eventMask, null);
+    }
+
+    /**
+     * <p>Turns on or off coalescing event dispatch mode.</p>
+     * <p>In this mode events are delivered to the {@linkplain SerialPortEventListener} from the preallocated ring of reused event objects,
+     * so no memory is allocated per event. Repeated {@linkplain SerialPortEvent#DATA_AVAILABLE} and {@linkplain SerialPortEvent#OUTPUT_BUFFER_EMPTY}
+     * events, not delivered yet, are coalesced into one event with the summary byte count (see {@linkplain SerialPortEvent#getCount()}).
+     * Events are still delivered in order by one thread. Event object passed to the listener is valid only until the listener returns,
+     * so listener must not keep reference to it.</p>
+     * <p>Default implementation doesn't support coalescing.</p>
+     * @param enable <ul>
+     *               <li>true: enable coalescing</li>
+     *               <li>false: disable coalescing</li>
+     *               </ul>
+     * @throws UnsupportedCommOperationException if coalescing is not supported by the driver
+     * @since 0.0.1
+     */
+    public void setEventCoalescing( boolean enable ) throws UnsupportedCommOperationException {
+        if (enable) {
+            throw new UnsupportedCommOperationException("Event coalescing is not supported by the driver");
+        }
+    }
+
+    /**
+     * <p>Checks if coalescing event dispatch mode is on.</p>
+     * @return true if coalescing is on
+     * @since 0.0.1
+     */
+    public boolean isEventCoalescing() {
+        return false;
+    }
+
+    /**
+     * <p>Enables write coalescing.</p>
+     * <p>In this mode small writes to the output stream and channel of the port are collected in the buffer and are sent to the hardware
+     * by one operation, when the buffer of {@linkplain #getOutputBufferSize()} bytes is full or when the given time window since the first
+     * byte collected expires. Writes larger than the buffer are sent immediately, after the collected data. {@linkplain java.io.OutputStream#flush()}
+     * sends collected data immediately and waits until it leaves the port, so it is safe to switch half-duplex (RS-485) line direction
+     * just after flush. Changing modem control lines, sending break and closing the port also send collected data first.</p>
+     * <p>Default implementation doesn't support write coalescing.</p>
+     * @param window time window in microseconds. Must be positive
+     * @throws UnsupportedCommOperationException if write coalescing is not supported by the driver or window is not positive
+     * @since 0.0.1
+     */
+    public void enableWriteCoalescing( int window ) throws UnsupportedCommOperationException {
+        throw new UnsupportedCommOperationException("Write coalescing is not supported by the driver");
+    }
+
+    /**
+     * <p>Disables write coalescing. Data collected are sent to the hardware immediately.</p>
+     * @since 0.0.1
+     */
+    public void disableWriteCoalescing() {
+    }
+
+    /**
+     * <p>Checks if write coalescing is enabled.</p>
+     * @return true if write coalescing is enabled
+     * @since 0.0.1
+     */
+    public boolean isWriteCoalescingEnabled() {
+        return false;
+    }
+
+    /**
+     * <p>Gets write coalescing time window.</p>
+     * @return time window in microseconds. Returns 0 when write coalescing is disabled
+     * @since 0.0.1
+     */
+    public int getWriteCoalescingWindow() {
+        return 0;
+    }
+
+    /**
+     * <p>Enables low-latency receive mode.</p>
+     * <p>In this mode the driver asks the kernel to pass received data to the application immediately (the low_latency flag of the serial
+     * driver), where available, and reads that have no data to return spin by {@linkplain Thread#onSpinWait()} up to the given spin budget before
+     * the reading thread parks. Data arriving during the spin are returned without the wake-up latency of the parked thread, for the price of
+     * the CPU time burned. CPU time spent on spinning and the number of spins succeeded and failed are recorded in the port metrics
+     * (see {@linkplain CommPortMetrics#getSpinTime()}). Spinning thread takes the CPU from the thread delivering data, so spinning is
+     * useless on the single-processor machine and drivers may skip it there.</p>
+     * <p>Default implementation doesn't support low-latency mode.</p>
+     * @param spinBudget spin budget in microseconds. 0 turns on low-latency flag only, without spinning. Can't be negative
+     * @throws UnsupportedCommOperationException if low-latency mode is not supported by the driver or spin budget is negative
+     * @since 0.0.1
+     */
+    public void enableLowLatency( int spinBudget ) throws UnsupportedCommOperationException {
+        throw new UnsupportedCommOperationException("Low-latency mode is not supported by the driver");
+    }
+
+    /**
+     * <p>Disables low-latency receive mode.</p>
+     * @since 0.0.1
+     */
+    public void disableLowLatency() {
+    }
+
+    /**
+     * <p>Checks if low-latency receive mode is enabled.</p>
+     * @return true if low-latency mode is enabled
+     * @since 0.0.1
+     */
+    public boolean isLowLatencyEnabled() {
+        return false;
+    }
+
+    /**
+     * <p>Gets spin budget of the low-latency receive mode.</p>
+     * @return spin budget in microseconds. Returns 0 when low-latency mode is disabled
+     * @since 0.0.1
+     */
+    public int getLowLatencySpinBudget() {
+        return 0;
+    }
+
+    /**
+     * <p>Starts traffic capture.</p>
+     * <p>All the bytes read from and written to the port, and all the line state and line error events of the port are recorded with
+     * nanosecond timestamps into the memory-mapped append-only file, until {@linkplain #stopCapture()} is called or port is closed.
+     * Capture doesn't depend on notifyOnXXX settings and event listeners. Capture file can be read by {@linkplain javax.comm.capture.CaptureReader}
+     * and replayed as a virtual port by {@linkplain javax.comm.capture.ReplayCommDriver}. Starting new capture stops the previous one.</p>
+     * <p>Default implementation doesn't support capture.</p>
+     * @param file capture file. Will be created or truncated. Can't be null
+     * @throws IOException if capture file can't be created
+     * @throws UnsupportedCommOperationException if capture is not supported by the driver
+     * @since 0.0.1
+     */
+    public void startCapture( Path file ) throws IOException, UnsupportedCommOperationException {
+        throw new UnsupportedCommOperationException("Traffic capture is not supported by the driver");
+    }
+
+    /**
+     * <p>Stops traffic capture and closes capture file. Does nothing if capture is not started.</p>
+     * @throws IOException if any I/O error occurred while capturing or closing capture file
+     * @since 0.0.1
+     */
+    public void stopCapture() throws IOException {
+    }
+
+    /**
+     * <p>Checks if traffic capture is started.</p>
+     * @return true if capture is started
+     * @since 0.0.1
+     */
+    public boolean isCapturing() {
+        return false;
+    }
+
+    /**
+     * <p>Returns an asynchronous channel.</p>
+     * <p>Asynchronous channel reads and writes data without blocking the caller, and returns {@linkplain java.util.concurrent.CompletableFuture}
+     * for every operation. It doesn't require any {@linkplain SerialPortEventListener} to be registered and doesn't interfere with the
+     * registered one. All the calls to getAsyncChannel return the same channel object until the channel is closed. Closing the channel
+     * doesn't close the port.</p>
+     * @return asynchronous channel of the port. Can't be null
+     * @throws java.io.IOException - if an I/O error occurred
+     * @see AsyncCommChannel
+     * @since 0.0.1
+     */
+    public AsyncCommChannel getAsyncChannel() throws IOException {
+        synchronized (this) {
+            if (asyncChannel == null || !asyncChannel.isOpen()) {
+                asyncChannel = new AsyncCommChannel(this);
+            }
+            return asyncChannel;
+        }
+    }
+
+    /**
+     * <p>Returns a reactive publisher of the port input.</p>
+     * <p>Subscriber demand of the publisher drives input flow control of the port: when demand falls to zero, publisher throttles the sender
+     * by {@linkplain #throttleInput(boolean)}, and releases it when demand appears again. Publisher
+     * is notified about data received by the event subscription (see {@linkplain #subscribe(SerialPortEventListener, int, Executor)}),
+     * so it doesn't interfere with the registered {@linkplain SerialPortEventListener}, but reads the input stream of the port.</p>
+     * @param executor executor to deliver data by. Can be null (see {@linkplain SerialPortEventSubscription})
+     * @return new publisher of the port input. Can't be null
+     * @see SerialPortPublisher
+     * @since 0.0.1
+     */
+    public SerialPortPublisher getInputPublisher( Executor executor ) {
+        return new SerialPortPublisher(this, executor);
+    }
+
+    /**
+     * <p>Checks whether any {@linkplain CommPortSelector} is interested in the given event of this port. Drivers can use this method
+     * to avoid detecting events that nobody waits for.</p>
+     * @param eventType event type (see {@linkplain SerialPortEvent} constants)
+     * @return true if any selector is interested in the event
+     * @since 0.0.1
+     */
+    protected final boolean isSelectionInterested( int eventType ) {
+        return (selectionInterest & (1 << eventType)) != 0;
+    }
+
+    /**
+     * <p>Signals all the {@linkplain CommPortSelector} objects this port registered with about the event. Drivers must call this method
+     * on every event of the port, regardless of the notifyOnXXX settings.</p>
+     * @param eventType event type (see {@linkplain SerialPortEvent} constants)
+     * @since 0.0.1
+     */
+    protected final void signalSelectors( int eventType ) {
+        if (isSelectionInterested(eventType)) {
+            for (CommPortSelectionKey key : selectionKeys) {
+                key.signal(1 << eventType);
+            }
+        }
+    }
+
+    /**
+     * <p>Checks whether any {@linkplain SerialPortEventSubscription} is interested in the given event of this port.</p>
+     * @param eventType event type (see {@linkplain SerialPortEvent} constants)
+     * @return true if any subscription is interested in the event
+     * @since 0.0.1
+     */
+    protected final boolean isSubscribed( int eventType ) {
+        return (subscriptionInterest & (1 << eventType)) != 0;
+    }
+
+    /**
+     * <p>Delivers event to all the {@linkplain SerialPortEventSubscription} interested in it. Drivers must call this method on every event
+     * of the port, regardless of the notifyOnXXX settings.</p>
+     * @param eventType event type (see {@linkplain SerialPortEvent} constants)
+     * @param oldValue old value
+     * @param newValue new value
+     * @param count event count (see {@linkplain SerialPortEvent#getCount()})
+     * @since 0.0.1
+     */
+    protected final void notifySubscriptions( int eventType, boolean oldValue, boolean newValue, int count ) {
+        notifySubscriptions(eventType, oldValue, newValue, count, System.nanoTime());
+    }
+
+    /**
+     * <p>Delivers event with the given timestamp to all the {@linkplain SerialPortEventSubscription} interested in it.</p>
+     * @param eventType event type (see {@linkplain SerialPortEvent} constants)
+     * @param oldValue old value
+     * @param newValue new value
+     * @param count event count (see {@linkplain SerialPortEvent#getCount()})
+     * @param timestamp event time (see {@linkplain SerialPortEvent#getTimestamp()})
+     * @see #notifySubscriptions(int, boolean, boolean, int)
+     * @since 0.0.1
+     */
+    protected final void notifySubscriptions( int eventType, boolean oldValue, boolean newValue, int count, long timestamp ) {
+        if (isSubscribed(eventType)) {
+            SerialPortEvent event = null;
+
+            for (SerialPortEventSubscription subscription : subscriptions) {
+                if (subscription.isInterested(eventType)) {
+                    if (event == null) {
+                        event = new SerialPortEvent(this, eventType, oldValue, newValue, count, timestamp);
+                    }
+                    subscription.publish(event);
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Cancels all the {@linkplain SerialPortEventSubscription} of the port. Drivers must call this method on port close.</p>
+     * @since 0.0.1
+     */
+    protected final void cancelSubscriptions() {
+        for (SerialPortEventSubscription subscription : subscriptions) {
+            subscription.deactivate();
+        }
+        subscriptions.clear();
+        subscriptionInterest = 0;
+    }
+
+    /**
+     * <p>Cancels all the {@linkplain CommPortSelectionKey} of the port. Drivers must call this method on port close.</p>
+     * @since 0.0.1
+     */
+    protected final void cancelSelectionKeys() {
+        for (CommPortSelectionKey key : selectionKeys) {
+            key.cancel();
+        }
+    }
+
+    /**
+     * <p>Checks whether any input data is available in the port. Used by {@linkplain CommPortSelector} for level-triggered read readiness.
+     * Default implementation checks {@linkplain java.io.InputStream#available()} of the port input stream.</p>
+     * @return true if any input data is available
+     * @since 0.0.1
+     */
+    protected boolean isInputReady() {
+        try {
+            return getInputStream().available() > 0;
+        } catch (IOException | IllegalStateException exc) {
+            return false;
+        }
+    }
+
+    /**
+     * <p>Checks whether the port can accept output data. Used by {@linkplain CommPortSelector} for level-triggered write readiness.
+     * Selector checks it only when the port is signalled, so drivers returning false must call {@linkplain #signalSelectors(int)} with
+     * {@linkplain SerialPortEvent#OUTPUT_BUFFER_EMPTY} as soon as the port can accept output again (output buffer space freed, CTS raised and so on),
+     * otherwise selection of the port for writing can hang. Default implementation always returns true.</p>
+     * @return true if port can accept output data without blocking
+     * @since 0.0.1
+     */
+    protected boolean isOutputReady() {
+        return true;
+    }
+
+    /**
+     * <p>Gets number of bytes the port can accept without blocking. Used by {@linkplain AsyncCommChannel}, which never writes more than this
+     * number of bytes on its shared I/O thread. Drivers must count all the reasons to block (output buffer space, output flow control and so on),
+     * and must signal selectors when the count grows from zero (see {@linkplain #isOutputReady()}). Default implementation returns
+     * {@linkplain Integer#MAX_VALUE} when {@linkplain #isOutputReady()} is true, and 0 otherwise, so drivers with blocking writes must override it.</p>
+     * @return number of bytes can be written without blocking
+     * @since 0.0.1
+     */
+    protected int getOutputReadyCount() {
+        return isOutputReady() ? Integer.MAX_VALUE : 0;
+    }
+
+    /**
+     * <p>Throttles or releases the sender of the port input. Used by {@linkplain SerialPortPublisher} when its subscriber demand falls to zero
+     * and appears again. Default implementation deasserts RTS on throttle and asserts it on release, if {@linkplain #FLOWCONTROL_RTSCTS_IN}
+     * is set, and sends {@linkplain SerialPortPublisher#XOFF} or {@linkplain SerialPortPublisher#XON}, if {@linkplain #FLOWCONTROL_XONXOFF_IN}
+     * is set. Drivers unable to change RTS or to send flow control characters must override it. Without input flow control data are
+     * kept in the input buffer of the port.</p>
+     * @param state true to throttle the sender, false to release it
+     * @throws IOException on any I/O errors
+     * @since 0.0.1
+     */
+    protected void throttleInput( boolean state ) throws IOException {
+        final int mode = getFlowControlMode();
+
+        if ((mode & FLOWCONTROL_RTSCTS_IN) != 0) {
+            setRTS(!state);
+        }
+        if ((mode & FLOWCONTROL_XONXOFF_IN) != 0) {
+            final OutputStream os = getOutputStream();
+
+            os.write(state ? SerialPortPublisher.XOFF : SerialPortPublisher.XON);
+            os.flush();
+        }
+    }
+
+    void addSelectionKey( CommPortSelectionKey key ) {
+        selectionKeys.add(key);
+        updateSelectionInterest();
+    }
+
+    void removeSelectionKey( CommPortSelectionKey key ) {
+        selectionKeys.remove(key);
+        updateSelectionInterest();
+    }
+
+    void removeSubscription( SerialPortEventSubscription subscription ) {
+        subscriptions.remove(subscription);
+        updateSubscriptionInterest();
+    }
+
+    private void updateSubscriptionInterest() {
+        int interest = 0;
+
+        for (SerialPortEventSubscription subscription : subscriptions) {
+            interest |= subscription.getEventMask();
+        }
+        subscriptionInterest = interest;
+    }
+
+    void updateSelectionInterest() {
+        int interest = 0;
+
+        for (CommPortSelectionKey key : selectionKeys) {
+            interest |= key.interestOps();
+        }
+        selectionInterest = interest;
+    }
 }
@@ -61,6 +61,8 @@ public class SerialPortEvent extends EventObject {
     private boolean oldValue;
     private boolean newValue;
     private int eventType;
+    private int count;
+    private long timestamp;
 
     /**
      * <p>Constructs a SerialPortEvent with the specified serial port, event type, old and new values. Application programs should not directly create SerialPortEvent objects.</p>
@@ -72,10 +74,39 @@ public class SerialPortEvent extends EventObject {
      * @param newvalue  new value
      */
     public SerialPortEvent( SerialPort srcport, int eventtype, boolean oldvalue, boolean newvalue ) {
+        this( srcport, eventtype, oldvalue, newvalue, 0 );
+    }
+
+    /**
+     * <p>Constructs a SerialPortEvent with the specified serial port, event type, old and new values and count. Application programs should not directly create SerialPortEvent objects.</p>
+     * @param srcport   source port. Can't be null
+     * @param eventtype event type (see {@linkplain #SerialPortEvent(SerialPort, int, boolean, boolean)})
+     * @param oldvalue  old value
+     * @param newvalue  new value
+     * @param count     event count (see {@linkplain #getCount()})
+     * @since 0.0.1
+     */
+    public SerialPortEvent( SerialPort srcport, int eventtype, boolean oldvalue, boolean newvalue, int count ) {
+        this( srcport, eventtype, oldvalue, newvalue, count, System.nanoTime() );
+    }
+
+    /**
+     * <p>Constructs a SerialPortEvent with the specified serial port, event type, old and new values, count and timestamp. Application programs should not directly create SerialPortEvent objects.</p>
+     * @param srcport   source port. Can't be null
+     * @param eventtype event type (see {@linkplain #SerialPortEvent(SerialPort, int, boolean, boolean)})
+     * @param oldvalue  old value
+     * @param newvalue  new value
+     * @param count     event count (see {@linkplain #getCount()})
+     * @param timestamp event time (see {@linkplain #getTimestamp()})
+     * @since 0.0.1
+     */
+    public SerialPortEvent( SerialPort srcport, int eventtype, boolean oldvalue, boolean newvalue, int count, long timestamp ) {
         super( srcport );
         oldValue = oldvalue;
         newValue = newvalue;
         eventType = eventtype;
+        this.count = count;
+        this.timestamp = timestamp;
     }
 
     /**
@@ -104,4 +135,55 @@ public class SerialPortEvent extends EventObject {
     public boolean getOldValue() {
         return oldValue;
     }
+
+    /**
+     * <p>Gets the count of the event.</p>
+     * <p>For the {@linkplain #DATA_AVAILABLE} and {@linkplain #OUTPUT_BUFFER_EMPTY} events it is the number of bytes received or written
+     * since the previous event of the same type (0 if the driver doesn't report it). When events are coalesced
+     * (see {@linkplain SerialPort#setEventCoalescing(boolean)}), counts of all the coalesced events are summed.</p>
+     * @return count of the event
+     * @since 0.0.1
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * <p>Gets the time when the driver detected the event: arrival of the data for the {@linkplain #DATA_AVAILABLE} event,
+     * change of the line for the line events and so on. When events are coalesced, it is the time of the first event coalesced.</p>
+     * @return event time by {@linkplain System#nanoTime()}
+     * @since 0.0.1
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * <p>Reinitializes event content. Allows drivers to reuse preallocated event objects.</p>
+     * @param eventtype event type
+     * @param oldvalue  old value
+     * @param newvalue  new value
+     * @param count     event count
+     * @since 0.0.1
+     */
+    protected void setEvent( int eventtype, boolean oldvalue, boolean newvalue, int count ) {
+        setEvent( eventtype, oldvalue, newvalue, count, System.nanoTime() );
+    }
+
+    /**
+     * <p>Reinitializes event content with the given timestamp. Allows drivers to reuse preallocated event objects.</p>
+     * @param eventtype event type
+     * @param oldvalue  old value
+     * @param newvalue  new value
+     * @param count     event count
+     * @param timestamp event time
+     * @since 0.0.1
+     */
+    protected void setEvent( int eventtype, boolean oldvalue, boolean newvalue, int count, long timestamp ) {
+        oldValue = oldvalue;
+        newValue = newvalue;
+        eventType = eventtype;
+        this.count = count;
+        this.timestamp = timestamp;
+    }
 }
@@ -0,0 +1,195 @@
+package javax.comm;
+
+import java.io.Closeable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>A subscription of the {@linkplain SerialPortEventListener} to the events of the {@linkplain SerialPort}.</p>
+ *
+ * <p>Subscriptions are created by {@linkplain SerialPort#subscribe(SerialPortEventListener, int, Executor)} method. Unlike the only
+ * listener registered by the {@linkplain SerialPort#addEventListener(SerialPortEventListener)}, any number of subscriptions can exist
+ * for the port. Every subscription receives only events selected by its event mask, and doesn't depend on the notifyOnXXX settings
+ * of the port. Events are delivered to every subscription in order, by tasks of its own executor, so a slow listener doesn't
+ * delay delivery to other listeners. When no executor is passed, events are delivered by virtual threads, if the Java runtime supports
+ * them, or by the shared pool of daemon threads otherwise.</p>
+ *
+ * <p>Event mask is a bitmask of <b>1 &lt;&lt; event type</b>, where event types are the {@linkplain SerialPortEvent} constants
+ * (see also {@linkplain #eventMask(int...)}).</p>
+ *
+ * @see SerialPort#subscribe(SerialPortEventListener, int, Executor)
+ * @since 0.0.1
+ */
+public final class SerialPortEventSubscription implements Closeable {
+	/**
+	 * <p>Mask of all the event types</p>
+	 */
+	public static final int	ALL_EVENTS = (1 << SerialPortEvent.DATA_AVAILABLE) | (1 << SerialPortEvent.OUTPUT_BUFFER_EMPTY)
+											| (1 << SerialPortEvent.CTS) | (1 << SerialPortEvent.DSR) | (1 << SerialPortEvent.RI) | (1 << SerialPortEvent.CD)
+											| (1 << SerialPortEvent.OE) | (1 << SerialPortEvent.PE) | (1 << SerialPortEvent.FE) | (1 << SerialPortEvent.BI);
+
+	private static final int	MAX_BATCH = 64;
+
+	private final SerialPort				port;
+	private final SerialPortEventListener	listener;
+	private final int						eventMask;
+	private final Executor					executor;
+	private final ConcurrentLinkedQueue<SerialPortEvent>	queue = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean				scheduled = new AtomicBoolean();
+	private final Runnable					drainer = this::drain;
+	private volatile boolean				active = true;
+	private volatile Runnable				deactivateHandler = null;
+
+	SerialPortEventSubscription(final SerialPort port, final SerialPortEventListener listener, final int eventMask, final Executor executor) {
+		this.port = port;
+		this.listener = listener;
+		this.eventMask = eventMask;
+		this.executor = executor == null ? DefaultExecutorHolder.EXECUTOR : executor;
+	}
+
+	/**
+	 * <p>Builds event mask for the given event types</p>
+	 * @param eventTypes event types (see {@linkplain SerialPortEvent} constants)
+	 * @return event mask
+	 * @throws IllegalArgumentException if any event type is unknown
+	 */
+	public static int eventMask(final int... eventTypes) throws IllegalArgumentException {
+		int	result = 0;
+
+		for (int eventType : eventTypes) {
+			if (eventType < SerialPortEvent.DATA_AVAILABLE || eventType > SerialPortEvent.BI) {
+				throw new IllegalArgumentException("Unknown event type ["+eventType+"]");
+			}
+			else {
+				result |= 1 << eventType;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * <p>Gets port of the subscription</p>
+	 * @return port. Can't be null
+	 */
+	public SerialPort getPort() {
+		return port;
+	}
+
+	/**
+	 * <p>Gets listener of the subscription</p>
+	 * @return listener. Can't be null
+	 */
+	public SerialPortEventListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * <p>Gets event mask of the subscription</p>
+	 * @return event mask
+	 */
+	public int getEventMask() {
+		return eventMask;
+	}
+
+	/**
+	 * <p>Is the subscription active. Subscription is active until it is closed or its port is closed</p>
+	 * @return true if active
+	 */
+	public boolean isActive() {
+		return active;
+	}
+
+	/**
+	 * <p>Cancels subscription. Events not delivered yet are discarded.</p>
+	 */
+	@Override
+	public void close() {
+		if (active) {
+			active = false;
+			queue.clear();
+			port.removeSubscription(this);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SerialPortEventSubscription [port=" + port + ", eventMask=" + Integer.toBinaryString(eventMask) + ", active=" + active + "]";
+	}
+
+	boolean isInterested(final int eventType) {
+		return (eventMask & (1 << eventType)) != 0;
+	}
+
+	void publish(final SerialPortEvent event) {
+		if (active) {
+			queue.add(event);
+			schedule();
+		}
+	}
+
+	void deactivate() {
+		final Runnable	handler = deactivateHandler;
+
+		active = false;
+		queue.clear();
+		if (handler != null) {
+			try {
+				executor.execute(handler);
+			} catch (RejectedExecutionException exc) {
+				handler.run();
+			}
+		}
+	}
+
+	void onDeactivate(final Runnable handler) {
+		deactivateHandler = handler;
+	}
+
+	private void schedule() {
+		if (scheduled.compareAndSet(false, true)) {
+			try {
+				executor.execute(drainer);
+			} catch (RejectedExecutionException exc) {
+				scheduled.set(false);
+				queue.clear();
+			}
+		}
+	}
+
+	private void drain() {
+		SerialPortEvent	event;
+		int				count = 0;
+
+		while (active && count++ < MAX_BATCH && (event = queue.poll()) != null) {
+			try {
+				listener.serialEvent(event);
+			} catch (RuntimeException exc) {
+				// listener failure must not stop delivery
+			}
+		}
+		scheduled.set(false);
+		if (active && !queue.isEmpty()) {	// the rest of events or events published while clearing the flag
+			schedule();
+		}
+	}
+
+	private static class DefaultExecutorHolder {
+		private static final Executor	EXECUTOR = createDefaultExecutor();
+
+		private static Executor createDefaultExecutor() {
+			try {	// virtual threads are available since Java 21
+				return (Executor)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (ReflectiveOperationException exc) {
+				return Executors.newCachedThreadPool((r)->{
+					final Thread	t = new Thread(r, "SerialPortEventSubscriptions");
+
+					t.setDaemon(true);
+					return t;
+				});
+			}
+		}
+	}
+}
@@ -0,0 +1,465 @@
+package javax.comm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>A group of {@linkplain SerialPort} objects read by one thread into one time-ordered stream of frames.</p>
+ *
+ * <p>Group registers all the member ports with its own {@linkplain CommPortSelector}, and the only I/O thread of the group reads every
+ * port ready by the {@linkplain CommPort#readTimestamped(ByteBuffer, ReceiveTimestamp)} method. Every read makes a {@linkplain Frame},
+ * tagged with the port, member index of the port, arrival time of the data and arrival order number, that is unique and growing
+ * across the group. Frames read by one selection are ordered by their arrival times, so the stream is ordered by the arrival time
+ * with the accuracy of the port drivers, while frame size is enough to take all the data received by the port between selections.
+ * Like {@linkplain AsyncCommChannel} reads, group reads never request more than {@linkplain java.io.InputStream#available()} bytes, so
+ * member ports with receive threshold or receive timeout enabled never block the I/O thread. The I/O thread is the only thread the group
+ * adds, drivers of the member ports may have threads of their own (see {@linkplain CommPortSelector}). Typical usage is:</p>
+ * <pre>
+ * try(final SerialPortGroup group = new SerialPortGroup(1024, 256)) {
+ *    group.open(CommPortIdentifier.getPortIdentifier("COM1"), "sensors", 1000);
+ *    group.open(CommPortIdentifier.getPortIdentifier("COM2"), "sensors", 1000);
+ *    SerialPortGroup.Frame frame;
+ *
+ *    while ((frame = group.take()) != null) {
+ *       process(frame.getPortIndex(), frame.getData());
+ *    }
+ * }
+ * </pre>
+ *
+ * <p>Frames are kept in the bounded lock-free ring of preallocated frames with the direct storage, so neither reading nor passing
+ * frames allocates memory. When the ring is full, I/O thread stops reading the ports and waits for the consumer, so data remain
+ * in the input buffers of the ports, and port flow control throttles the devices. Frame returned by the {@linkplain #poll()},
+ * {@linkplain #poll(long, TimeUnit)} and {@linkplain #take()} methods is valid until the next call of any of them, and only one thread
+ * can take frames from the group at the same time. Other methods of the group are thread-safe.</p>
+ *
+ * <p>Group reads the ports by their channels, so nobody else must read the member ports. Port removed from the group, closed, or failed
+ * to read is excluded from the group. Ports opened by the {@linkplain #open(CommPortIdentifier, String, int)} method are owned by the
+ * group and are closed with it, other ports remain open.</p>
+ *
+ * @see CommPortSelector
+ * @since 0.0.1
+ */
+public final class SerialPortGroup implements Closeable {
+	private final CommPortSelector	selector = new CommPortSelector();
+	private final Frame[]			slots;
+	private final int				mask;
+	private final List<SerialPort>	ownedPorts = new CopyOnWriteArrayList<>();
+	private final Thread			thread;
+	private final ReceiveTimestamp	stamp = new ReceiveTimestamp();	// I/O thread only
+	private volatile long			head = 0;		// next frame to take
+	private volatile long			tail = 0;		// next frame to fill
+	private volatile Thread			consumerWaiter = null;
+	private volatile Thread			producerWaiter = null;
+	private volatile boolean		closed = false;
+	private boolean					taken = false;	// consumer only: frame at head is taken by consumer
+	private long					sequence = 0;	// I/O thread only
+	private int						nextIndex = 0;
+
+	/**
+	 * <p>Constructor of the class. Starts I/O thread of the group.</p>
+	 * @param queueCapacity minimal number of frames in the queue. Will be rounded up to the power of two
+	 * @param frameSize maximal frame size
+	 * @throws IllegalArgumentException if any argument is not positive
+	 */
+	public SerialPortGroup(final int queueCapacity, final int frameSize) throws IllegalArgumentException {
+		if (queueCapacity <= 0 || queueCapacity > (1 << 20)) {
+			throw new IllegalArgumentException("Queue capacity ["+queueCapacity+"] out of range 1.."+(1 << 20));
+		}
+		else if (frameSize <= 0) {
+			throw new IllegalArgumentException("Frame size ["+frameSize+"] must be positive");
+		}
+		else {
+			int	size = 1;
+
+			while (size < queueCapacity) {
+				size <<= 1;
+			}
+			final ByteBuffer	storage = ByteBuffer.allocateDirect(size * frameSize);
+
+			this.slots = new Frame[size];
+			this.mask = size - 1;
+			for (int index = 0; index < size; index++) {
+				storage.limit((index + 1) * frameSize).position(index * frameSize);
+				slots[index] = new Frame(storage.slice());
+			}
+			this.thread = new Thread(this::loop, "SerialPortGroup");
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+	}
+
+	/**
+	 * <p>Adds port to the group. Port remains owned by the caller.</p>
+	 * @param port port to add. Can't be null
+	 * @return member index of the port, passed with all its frames
+	 * @throws IllegalArgumentException if port is null or is already a member of the group
+	 * @throws IllegalStateException if the group is closed
+	 */
+	public synchronized int add(final SerialPort port) throws IllegalArgumentException, IllegalStateException {
+		if (port == null) {
+			throw new IllegalArgumentException("Port can't be null");
+		}
+		else {
+			ensureOpen();
+			for (CommPortSelectionKey key : selector.keys()) {
+				if (key.port() == port) {
+					throw new IllegalArgumentException("Port ["+port.getName()+"] is already a member of the group");
+				}
+			}
+			final int	index = nextIndex++;
+
+			selector.register(port, CommPortSelector.OP_READ).attach(index);
+			return index;
+		}
+	}
+
+	/**
+	 * <p>Opens serial port and adds it to the group. Port is owned by the group and will be closed with it.</p>
+	 * @param id port identifier. Can't be null
+	 * @param appName application name to open port with. Can't be null or empty
+	 * @param timeout time in milliseconds to block waiting for port open
+	 * @return port opened. Can't be null
+	 * @throws PortInUseException if the port is in use by another application
+	 * @throws IllegalArgumentException if identifier is null or it is not a serial port
+	 * @throws IllegalStateException if the group is closed
+	 */
+	public SerialPort open(final CommPortIdentifier id, final String appName, final int timeout) throws PortInUseException, IllegalArgumentException, IllegalStateException {
+		if (id == null) {
+			throw new IllegalArgumentException("Port identifier can't be null");
+		}
+		else if (id.getPortType() != CommPortIdentifier.PORT_SERIAL) {
+			throw new IllegalArgumentException("Port ["+id.getName()+"] is not a serial port");
+		}
+		else {
+			ensureOpen();
+			final SerialPort	port = (SerialPort)id.open(appName, timeout);
+
+			try {
+				ownedPorts.add(port);
+				add(port);
+				return port;
+			} catch (RuntimeException exc) {
+				ownedPorts.remove(port);
+				port.close();
+				throw exc;
+			}
+		}
+	}
+
+	/**
+	 * <p>Removes port from the group. Port opened by the group is closed.</p>
+	 * @param port port to remove. Can't be null
+	 * @return true if port was a member of the group
+	 */
+	public synchronized boolean remove(final SerialPort port) {
+		for (CommPortSelectionKey key : selector.keys()) {
+			if (key.port() == port) {
+				key.cancel();
+				if (ownedPorts.remove(port)) {
+					port.close();
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * <p>Gets member ports of the group</p>
+	 * @return list of the member ports. Can't be null
+	 */
+	public List<SerialPort> getPorts() {
+		final List<SerialPort>	result = new ArrayList<>();
+
+		for (CommPortSelectionKey key : selector.keys()) {
+			result.add(key.port());
+		}
+		return result;
+	}
+
+	/**
+	 * <p>Gets number of frames in the queue</p>
+	 * @return number of frames waiting for the consumer
+	 */
+	public int size() {
+		return (int)(tail - head);
+	}
+
+	/**
+	 * <p>Takes next frame without blocking. Frame previously taken is released.</p>
+	 * @return frame taken or null if the queue is empty
+	 */
+	public Frame poll() {
+		release();
+		return head < tail ? takeHead() : null;
+	}
+
+	/**
+	 * <p>Takes next frame, waiting for it if necessary. Frame previously taken is released.</p>
+	 * @param timeout time to wait
+	 * @param unit time unit of the timeout. Can't be null
+	 * @return frame taken or null on timeout, if the group is closed or the current thread is interrupted
+	 */
+	public Frame poll(final long timeout, final TimeUnit unit) {
+		return awaitFrame(unit.toNanos(timeout));
+	}
+
+	/**
+	 * <p>Takes next frame, waiting for it if necessary. Frame previously taken is released.</p>
+	 * @return frame taken or null if the group is closed or the current thread is interrupted
+	 */
+	public Frame take() {
+		return awaitFrame(-1);
+	}
+
+	/**
+	 * <p>Is the group open</p>
+	 * @return true if the group is not closed
+	 */
+	public boolean isOpen() {
+		return !closed;
+	}
+
+	/**
+	 * <p>Closes the group. Stops I/O thread and closes all the ports owned by the group. Frames in the queue can be taken after close.</p>
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			selector.close();
+			LockSupport.unpark(thread);
+			LockSupport.unpark(consumerWaiter);
+			try {
+				thread.join(1000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			for (SerialPort port : ownedPorts) {
+				port.close();
+			}
+			ownedPorts.clear();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SerialPortGroup [ports=" + selector.keys().size() + ", capacity=" + slots.length + ", size=" + size() + ", closed=" + closed + "]";
+	}
+
+	private Frame awaitFrame(final long timeout) {
+		release();
+
+		final Thread	current = Thread.currentThread();
+		final long		deadline = System.nanoTime() + timeout;
+
+		consumerWaiter = current;
+		try {
+			while (head == tail) {
+				if (closed || current.isInterrupted()) {
+					return null;
+				}
+				else if (timeout < 0) {
+					LockSupport.park(this);
+				}
+				else {
+					final long	delay = deadline - System.nanoTime();
+
+					if (delay <= 0) {
+						return null;
+					}
+					else {
+						LockSupport.parkNanos(this, delay);
+					}
+				}
+			}
+			return takeHead();
+		} finally {
+			consumerWaiter = null;
+		}
+	}
+
+	private Frame takeHead() {
+		taken = true;
+		return slots[(int)head & mask];
+	}
+
+	private void release() {
+		if (taken) {
+			taken = false;
+			head++;
+			LockSupport.unpark(producerWaiter);
+		}
+	}
+
+	private void loop() {
+		producerWaiter = thread;
+		try {
+			while (!closed) {
+				if (tail - head == slots.length) {
+					LockSupport.park(this);		// queue is full, data remain in the ports
+				}
+				else {
+					try {
+						selector.select();
+					} catch (IllegalStateException exc) {
+						return;		// selector closed
+					}
+					publish(readSelected());
+				}
+			}
+		} finally {
+			producerWaiter = null;
+		}
+	}
+
+	private int readSelected() {
+		final long	first = tail;
+		int			filled = 0;
+
+		for (CommPortSelectionKey key : selector.selectedKeys()) {
+			if (first + filled - head == slots.length) {
+				break;		// queue is full, ports are still ready and will be selected again
+			}
+			else if (key.isValid() && key.isReadable()) {
+				final Frame		frame = slots[(int)(first + filled) & mask];
+
+				frame.storage.clear();
+				try {	// nothing available on the port ready means end of input, and reads return at once
+					final int	available = key.port().getInputStream().available();
+
+					if (available > 0) {
+						frame.storage.limit(Math.min(available, frame.storage.capacity()));
+					}
+					final int	read = key.port().readTimestamped(frame.storage, stamp);
+
+					if (read > 0) {
+						frame.fill(key.port(), (Integer)key.attachment(), stamp.getArrivalTime(), read);
+						filled++;
+					}
+					else if (read < 0) {
+						exclude(key);
+					}
+				} catch (IOException | IllegalStateException exc) {
+					exclude(key);
+				}
+			}
+		}
+		selector.selectedKeys().clear();
+		return filled;
+	}
+
+	private void publish(final int filled) {
+		final long	first = tail;
+
+		for (int index = 1; index < filled; index++) {		// insertion sort by arrival time, frames are not published yet
+			final Frame	frame = slots[(int)(first + index) & mask];
+			int			where = index;
+
+			while (where > 0 && slots[(int)(first + where - 1) & mask].arrivalTime - frame.arrivalTime > 0) {
+				slots[(int)(first + where) & mask] = slots[(int)(first + where - 1) & mask];
+				where--;
+			}
+			slots[(int)(first + where) & mask] = frame;
+		}
+		for (int index = 0; index < filled; index++) {
+			slots[(int)(first + index) & mask].sequence = sequence++;
+		}
+		if (filled > 0) {
+			tail = first + filled;
+			LockSupport.unpark(consumerWaiter);
+		}
+	}
+
+	private void exclude(final CommPortSelectionKey key) {
+		key.cancel();
+		if (ownedPorts.remove(key.port())) {
+			key.port().close();
+		}
+	}
+
+	private void ensureOpen() throws IllegalStateException {
+		if (closed) {
+			throw new IllegalStateException("Port group is closed");
+		}
+	}
+
+	/**
+	 * <p>Frame of the {@linkplain SerialPortGroup}: data received by one read of the member port. Frame objects are reused by the group, so
+	 * frame content is valid until the next frame is taken.</p>
+	 *
+	 * @since 0.0.1
+	 */
+	public static final class Frame {
+		private final ByteBuffer	storage;
+		private final ByteBuffer	data;
+		private SerialPort			port;
+		private int					portIndex;
+		private long				arrivalTime;
+		private long				sequence;
+
+		private Frame(final ByteBuffer storage) {
+			this.storage = storage;
+			this.data = storage.asReadOnlyBuffer();
+		}
+
+		/**
+		 * <p>Gets port the frame was received from</p>
+		 * @return port. Can't be null
+		 */
+		public SerialPort getPort() {
+			return port;
+		}
+
+		/**
+		 * <p>Gets member index of the port the frame was received from</p>
+		 * @return member index (see {@linkplain SerialPortGroup#add(SerialPort)})
+		 */
+		public int getPortIndex() {
+			return portIndex;
+		}
+
+		/**
+		 * <p>Gets arrival time of the first byte of the frame</p>
+		 * @return arrival time by {@linkplain System#nanoTime()} (see {@linkplain ReceiveTimestamp#getArrivalTime()})
+		 */
+		public long getArrivalTime() {
+			return arrivalTime;
+		}
+
+		/**
+		 * <p>Gets arrival order number of the frame. Numbers start from 0 and grow by 1 across all the ports of the group.</p>
+		 * @return arrival order number
+		 */
+		public long getSequence() {
+			return sequence;
+		}
+
+		/**
+		 * <p>Gets frame content. The same read-only buffer is returned for every call</p>
+		 * @return frame content between buffer position and limit. Can't be null
+		 */
+		public ByteBuffer getData() {
+			return data;
+		}
+
+		@Override
+		public String toString() {
+			return "Frame [port=" + (port == null ? null : port.getName()) + ", portIndex=" + portIndex + ", arrivalTime=" + arrivalTime
+					+ ", sequence=" + sequence + ", length=" + data.remaining() + "]";
+		}
+
+		private void fill(final SerialPort port, final int portIndex, final long arrivalTime, final int length) {
+			this.port = port;
+			this.portIndex = portIndex;
+			this.arrivalTime = arrivalTime;
+			this.data.limit(length).position(0);
+		}
+	}
+}
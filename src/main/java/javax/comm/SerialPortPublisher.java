@@ -0,0 +1,288 @@
+package javax.comm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Reactive view of the {@linkplain SerialPort} input.</p>
+ *
+ * <p>Publisher passes data received by the port to its subscriber as {@linkplain ByteBuffer} chunks, not greater than the input buffer
+ * size of the port. Every chunk is the new heap buffer of the data available at the moment, owned by the subscriber, so subscriber can keep
+ * it or pass it to other threads. Chunks are not reused, because publisher can't know when subscriber releases them.</p>
+ *
+ * <p>Subscriber demand drives input flow control of the port: when demand falls to zero, publisher stops reading the port and throttles the
+ * sender by the driver (see {@linkplain SerialPort#throttleInput(boolean)}). By default it deasserts RTS, if {@linkplain SerialPort#FLOWCONTROL_RTSCTS_IN}
+ * is set, and sends XOFF, if {@linkplain SerialPort#FLOWCONTROL_XONXOFF_IN} is set by the {@linkplain SerialPort#setFlowControlMode(int)}.
+ * Drivers can do it in other way, for example, Linux driver stops reading the device, so the kernel applies its input flow control. When
+ * subscriber requests more data, publisher releases the sender. So slow subscriber throttles the device end-to-end, and data are not lost by
+ * the input buffer overrun. Without input flow control, data are kept in the input buffer of the port while there is no demand.</p>
+ *
+ * <p>Publisher is notified about data received by the {@linkplain SerialPortEventSubscription} with the executor passed. Data are passed to
+ * the subscriber by the thread of this executor, or by the thread calling {@linkplain Flow.Subscription#request(long)}, but never concurrently.
+ * Publisher supports only one subscriber at the same time, other subscribers receive {@linkplain IllegalStateException} by their
+ * {@linkplain Flow.Subscriber#onError(Throwable)}. Subscription is completed when the port is closed or end of stream reached.</p>
+ *
+ * <p>Publisher reads the port by its input stream, so nobody else must read the port while subscription is active.</p>
+ *
+ * @see SerialPort#getInputPublisher(Executor)
+ * @since 0.0.1
+ */
+public final class SerialPortPublisher implements Flow.Publisher<ByteBuffer> {
+	/**
+	 * <p>XON character</p>
+	 */
+	public static final int		XON = 0x11;
+	/**
+	 * <p>XOFF character</p>
+	 */
+	public static final int		XOFF = 0x13;
+
+	private static final Flow.Subscription	REJECTED = new Flow.Subscription() {
+												@Override public void request(final long n) {}
+												@Override public void cancel() {}
+											};
+
+	private final SerialPort	port;
+	private final Executor		executor;
+	private final AtomicReference<PortSubscription>	current = new AtomicReference<>();
+
+	SerialPortPublisher(final SerialPort port, final Executor executor) {
+		this.port = port;
+		this.executor = executor;
+	}
+
+	/**
+	 * <p>Gets port of the publisher</p>
+	 * @return port. Can't be null
+	 */
+	public SerialPort getPort() {
+		return port;
+	}
+
+	/**
+	 * <p>Is the input throttled now</p>
+	 * @return true if subscriber has no demand, and the sender is throttled
+	 */
+	public boolean isThrottled() {
+		final PortSubscription	subscription = current.get();
+
+		return subscription != null && subscription.throttled;
+	}
+
+	@Override
+	public void subscribe(final Flow.Subscriber<? super ByteBuffer> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException("Subscriber can't be null");
+		}
+		else {
+			final PortSubscription	subscription = new PortSubscription(subscriber);
+
+			if (!current.compareAndSet(null, subscription)) {
+				subscriber.onSubscribe(REJECTED);
+				subscriber.onError(new IllegalStateException("Port ["+port.getName()+"] publisher already has a subscriber"));
+			}
+			else {
+				subscriber.onSubscribe(subscription);
+				subscription.start();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SerialPortPublisher [port=" + port.getName() + ", subscribed=" + (current.get() != null) + ", throttled=" + isThrottled() + "]";
+	}
+
+	private class PortSubscription implements Flow.Subscription, SerialPortEventListener {
+		private final Flow.Subscriber<? super ByteBuffer>	subscriber;
+		private final AtomicLong		requested = new AtomicLong();
+		private final AtomicInteger		wip = new AtomicInteger();
+		private volatile boolean		cancelRequested = false;
+		private volatile boolean		completed = false;
+		private volatile Throwable		error = null;
+		private volatile boolean		throttled = false;
+		private volatile boolean		started = false;
+		private boolean					terminated = false;	// fields below are accessed by the drain loop only
+		private SerialPortEventSubscription	events = null;
+		private InputStream				in = null;
+
+		PortSubscription(final Flow.Subscriber<? super ByteBuffer> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(final long n) {
+			if (n <= 0) {
+				error = new IllegalArgumentException("Requested number of items ["+n+"] must be positive");
+			}
+			else {
+				long	current, next;
+
+				do {
+					current = requested.get();
+					next = current + n < 0 ? Long.MAX_VALUE : current + n;
+				} while (!requested.compareAndSet(current, next));
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			cancelRequested = true;
+			drain();
+		}
+
+		@Override
+		public void serialEvent(final SerialPortEvent event) {
+			drain();
+		}
+
+		void start() {
+			started = true;
+			drain();
+		}
+
+		private void drain() {
+			if (wip.getAndIncrement() == 0) {
+				drainLoop();
+			}
+		}
+
+		private void drainLoop() {
+			int	missed = 1;
+
+			while (missed != 0) {
+				if (started && in == null && !terminated && !cancelRequested) {
+					open();
+				}
+				for (;;) {
+					if (terminated) {
+						return;
+					}
+					else if (cancelRequested) {
+						terminate();
+						return;
+					}
+					else if (error != null) {
+						terminate();
+						subscriber.onError(error);
+						return;
+					}
+					else if (completed) {
+						terminate();
+						subscriber.onComplete();
+						return;
+					}
+					else if (in == null || requested.get() == 0) {
+						break;
+					}
+					else {
+						final ByteBuffer	chunk;
+
+						try {
+							if ((chunk = readChunk()) == null) {
+								if (completed) {	// end of stream, complete the subscriber
+									continue;
+								}
+								else {
+									break;
+								}
+							}
+						} catch (IOException exc) {
+							error = exc;
+							continue;
+						} catch (IllegalStateException exc) {	// port was closed
+							completed = true;
+							continue;
+						}
+						if (requested.get() != Long.MAX_VALUE) {
+							requested.decrementAndGet();
+						}
+						subscriber.onNext(chunk);
+					}
+				}
+				if (in != null) {
+					try {
+						throttle(requested.get() == 0);
+					} catch (IOException exc) {
+						error = exc;
+						continue;
+					} catch (IllegalStateException exc) {
+						completed = true;
+						continue;
+					}
+				}
+				missed = wip.addAndGet(-missed);
+			}
+		}
+
+		private void open() {
+			try {
+				in = port.getInputStream();
+				events = port.subscribe(this, SerialPortEventSubscription.eventMask(SerialPortEvent.DATA_AVAILABLE), executor);
+				events.onDeactivate(()->{
+					completed = true;
+					drain();
+				});
+				if (!events.isActive()) {	// port was closed while subscribing
+					completed = true;
+				}
+			} catch (IOException exc) {
+				error = exc;
+			} catch (IllegalStateException exc) {
+				completed = true;
+			}
+		}
+
+		private ByteBuffer readChunk() throws IOException {
+			final int	available = in.available();
+
+			if (available <= 0) {
+				return null;
+			}
+			else {
+				final byte[]	data = new byte[Math.min(available, Math.max(1, port.getInputBufferSize()))];
+				final int		read = in.read(data);
+
+				if (read < 0) {
+					completed = true;
+					return null;
+				}
+				else if (read == 0) {
+					return null;
+				}
+				else {
+					return ByteBuffer.wrap(data, 0, read);
+				}
+			}
+		}
+
+		private void throttle(final boolean state) throws IOException {
+			if (throttled != state) {
+				throttled = state;
+				port.throttleInput(state);
+			}
+		}
+
+		private void terminate() {
+			terminated = true;
+			if (events != null) {
+				events.close();
+			}
+			try {
+				if (in != null) {
+					throttle(false);
+				}
+			} catch (IOException | IllegalStateException exc) {
+				// port is closed or broken, nothing to release
+			}
+			current.compareAndSet(this, null);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package javax.comm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import javax.comm.spi.AbstractCommChannel;
+
+/**
+ * <p>Default {@linkplain CommChannel} implementation for the drivers that don't support channels natively. It wraps port input and
+ * output streams, so data are copied through the heap buffer.</p>
+ */
+class StreamCommChannel extends AbstractCommChannel {
+	private static final int	BUFFER_SIZE = 4096;
+
+	private final CommPort		port;
+	private final InputStream	is;
+	private final OutputStream	os;
+	private final byte[]		readBuffer = new byte[BUFFER_SIZE];
+	private final byte[]		writeBuffer = new byte[BUFFER_SIZE];
+	private volatile boolean	closed = false;
+
+	StreamCommChannel(final CommPort port) throws IOException {
+		this.port = port;
+		this.is = port.getInputStream();
+		this.os = port.getOutputStream();
+	}
+
+	@Override
+	public int read(final ByteBuffer dst) throws IOException {
+		ensureOpen();
+		if (!dst.hasRemaining()) {
+			return 0;
+		}
+		else if (dst.hasArray()) {
+			final int	read = is.read(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+
+			if (read > 0) {
+				dst.position(dst.position() + read);
+			}
+			return read;
+		}
+		else {
+			synchronized (readBuffer) {
+				final int	read = is.read(readBuffer, 0, Math.min(readBuffer.length, dst.remaining()));
+
+				if (read > 0) {
+					dst.put(readBuffer, 0, read);
+				}
+				return read;
+			}
+		}
+	}
+
+	@Override
+	public int write(final ByteBuffer src) throws IOException {
+		ensureOpen();
+		final int	written = src.remaining();
+
+		if (src.hasArray()) {
+			os.write(src.array(), src.arrayOffset() + src.position(), written);
+			src.position(src.limit());
+		}
+		else {
+			synchronized (writeBuffer) {
+				while (src.hasRemaining()) {
+					final int	part = Math.min(writeBuffer.length, src.remaining());
+
+					src.get(writeBuffer, 0, part);
+					os.write(writeBuffer, 0, part);
+				}
+			}
+		}
+		return written;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return !closed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			port.close();
+		}
+	}
+
+	@Override
+	protected int available() throws IOException {
+		return is.available();
+	}
+}
@@ -0,0 +1,44 @@
+package javax.comm.capture;
+
+import java.nio.ByteOrder;
+
+/**
+ * <p>Layout of the capture file. File starts with the header:</p>
+ * <ul>
+ * <li>magic number (8 bytes)</li>
+ * <li>format version (4 bytes)</li>
+ * <li>header size (4 bytes)</li>
+ * <li>capture start time, milliseconds since epoch (8 bytes)</li>
+ * <li>port name length (2 bytes) and UTF-8 port name</li>
+ * </ul>
+ * <p>and continues with records. Every record has 16-byte header:</p>
+ * <ul>
+ * <li>timestamp, nanoseconds since capture start (8 bytes)</li>
+ * <li>record type (1 byte). Zero type marks end of records</li>
+ * <li>event type, old and new value of the event records (3 bytes)</li>
+ * <li>payload length (4 bytes)</li>
+ * </ul>
+ * <p>followed by payload. Header and every record are aligned to 8 bytes. All the numbers are little-endian. Record type is written
+ * after the rest of the record, so the record cut by the application crash is never read.</p>
+ */
+final class CaptureFormat {
+	static final long		MAGIC = 0x315041434D4F434AL;		// "JCOMCAP1" in little-endian
+	static final int		VERSION = 1;
+	static final ByteOrder	ORDER = ByteOrder.LITTLE_ENDIAN;
+	static final int		FIXED_HEADER_SIZE = 26;
+	static final int		MAX_NAME_LENGTH = 1024;
+	static final int		RECORD_HEADER_SIZE = 16;
+	static final int		TYPE_OFFSET = 8;
+	static final int		EVENT_TYPE_OFFSET = 9;
+	static final int		OLD_VALUE_OFFSET = 10;
+	static final int		NEW_VALUE_OFFSET = 11;
+	static final int		LENGTH_OFFSET = 12;
+	static final int		EVENT_PAYLOAD_SIZE = 4;
+
+	private CaptureFormat() {
+	}
+
+	static long align(final long size) {
+		return (size + 7) & ~7L;
+	}
+}
@@ -0,0 +1,255 @@
+package javax.comm.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>Reader of the port traffic capture file written by the {@linkplain CaptureWriter}. File is read through the read-only memory-mapped
+ * windows, so reading doesn't copy data. Reader moves over records by the {@linkplain #next()} method and provides content of the current
+ * record by the getXXX methods. Records are read in order of their writing, so their timestamps never decrease.</p>
+ *
+ * <p>Typical usage is:</p>
+ * <pre>
+ * try(final CaptureReader rdr = new CaptureReader(file)) {
+ *    while (rdr.next()) {
+ *       switch (rdr.getRecordType()) {
+ *          case CaptureReader.RECORD_INPUT  : ... rdr.getData() ...; break;
+ *          case CaptureReader.RECORD_OUTPUT : ... rdr.getData() ...; break;
+ *          case CaptureReader.RECORD_EVENT  : ... rdr.getEventType() ...; break;
+ *       }
+ *    }
+ * }
+ * </pre>
+ *
+ * @see CaptureWriter
+ * @see ReplayCommDriver
+ * @since 0.0.1
+ */
+public final class CaptureReader implements Closeable {
+	/**
+	 * <p>Record type: data read from the port</p>
+	 */
+	public static final int		RECORD_INPUT = 1;
+	/**
+	 * <p>Record type: data written to the port</p>
+	 */
+	public static final int		RECORD_OUTPUT = 2;
+	/**
+	 * <p>Record type: serial port event</p>
+	 */
+	public static final int		RECORD_EVENT = 3;
+
+	private static final int			WINDOW_SIZE = 256 << 20;
+	private static final ByteBuffer		EMPTY = ByteBuffer.allocate(0).asReadOnlyBuffer();
+
+	private final FileChannel	channel;
+	private final long			size;
+	private final String		portName;
+	private final long			startTime;
+	private MappedByteBuffer	window = null;
+	private long				windowStart = 0;
+	private long				position;
+	private int					recordType = 0;
+	private long				timestamp = 0;
+	private int					eventType = 0;
+	private boolean				oldValue = false;
+	private boolean				newValue = false;
+	private int					count = 0;
+	private ByteBuffer			data = EMPTY;
+
+	/**
+	 * <p>Constructor of the class</p>
+	 * @param file capture file. Can't be null
+	 * @throws IOException on any I/O errors or if the file is not a capture file
+	 */
+	public CaptureReader(final Path file) throws IOException {
+		if (file == null) {
+			throw new NullPointerException("File can't be null");
+		}
+		else {
+			this.channel = FileChannel.open(file, StandardOpenOption.READ);
+			try {
+				this.size = channel.size();
+				if (size < CaptureFormat.FIXED_HEADER_SIZE) {
+					throw new IOException("File ["+file+"] is not a capture file");
+				}
+				else {
+					map(0, CaptureFormat.FIXED_HEADER_SIZE);
+					if (window.getLong(0) != CaptureFormat.MAGIC) {
+						throw new IOException("File ["+file+"] is not a capture file");
+					}
+					else if (window.getInt(8) != CaptureFormat.VERSION) {
+						throw new IOException("Capture file ["+file+"] has unsupported version ["+window.getInt(8)+"]");
+					}
+					else {
+						final int		headerSize = window.getInt(12);
+						final int		nameLength = window.getShort(24) & 0xFFFF;
+						final byte[]	name = new byte[nameLength];
+
+						if (nameLength > CaptureFormat.MAX_NAME_LENGTH || headerSize < CaptureFormat.FIXED_HEADER_SIZE + nameLength || headerSize > size) {
+							throw new IOException("Capture file ["+file+"] has corrupted header");
+						}
+						else {
+							this.startTime = window.getLong(16);
+							map(0, headerSize);
+							window.position(CaptureFormat.FIXED_HEADER_SIZE);
+							window.get(name);
+							this.portName = new String(name, StandardCharsets.UTF_8);
+							this.position = headerSize;
+						}
+					}
+				}
+			} catch (IOException | RuntimeException exc) {
+				channel.close();
+				throw exc;
+			}
+		}
+	}
+
+	/**
+	 * <p>Gets name of the port captured</p>
+	 * @return port name. Can't be null
+	 */
+	public String getPortName() {
+		return portName;
+	}
+
+	/**
+	 * <p>Gets capture start time</p>
+	 * @return capture start time in milliseconds since epoch
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * <p>Moves to the next record</p>
+	 * @return true if record is available, false on end of capture
+	 * @throws IOException on any I/O errors
+	 */
+	public boolean next() throws IOException {
+		if (position + CaptureFormat.RECORD_HEADER_SIZE > size) {
+			return endOfCapture();
+		}
+		else {
+			map(position, CaptureFormat.RECORD_HEADER_SIZE);
+			final int	at = (int)(position - windowStart);
+			final int	type = window.get(at + CaptureFormat.TYPE_OFFSET);
+			final int	length = window.getInt(at + CaptureFormat.LENGTH_OFFSET);
+			final long	recordSize = CaptureFormat.align(CaptureFormat.RECORD_HEADER_SIZE + (long)length);
+
+			if (type < RECORD_INPUT || type > RECORD_EVENT || length < 0 || position + recordSize > size
+					|| type == RECORD_EVENT && length != CaptureFormat.EVENT_PAYLOAD_SIZE) {
+				return endOfCapture();
+			}
+			else {
+				map(position, (int)recordSize);
+				final int	start = (int)(position - windowStart);
+
+				recordType = type;
+				timestamp = window.getLong(start);
+				if (type == RECORD_EVENT) {
+					eventType = window.get(start + CaptureFormat.EVENT_TYPE_OFFSET);
+					oldValue = window.get(start + CaptureFormat.OLD_VALUE_OFFSET) != 0;
+					newValue = window.get(start + CaptureFormat.NEW_VALUE_OFFSET) != 0;
+					count = window.getInt(start + CaptureFormat.RECORD_HEADER_SIZE);
+					data = EMPTY;
+				}
+				else {
+					eventType = 0;
+					oldValue = newValue = false;
+					count = length;
+					window.limit(start + CaptureFormat.RECORD_HEADER_SIZE + length).position(start + CaptureFormat.RECORD_HEADER_SIZE);
+					data = window.slice().asReadOnlyBuffer();
+					window.clear();
+				}
+				position += recordSize;
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * <p>Gets type of the current record</p>
+	 * @return one of {@linkplain #RECORD_INPUT}, {@linkplain #RECORD_OUTPUT} or {@linkplain #RECORD_EVENT}, or 0 if there is no current record
+	 */
+	public int getRecordType() {
+		return recordType;
+	}
+
+	/**
+	 * <p>Gets timestamp of the current record</p>
+	 * @return timestamp in nanoseconds since capture start
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * <p>Gets data of the current input or output record. Returned buffer is valid until next call of {@linkplain #next()} or {@linkplain #close()}.</p>
+	 * @return read-only buffer with record data. Is empty for event records. Can't be null
+	 */
+	public ByteBuffer getData() {
+		return data;
+	}
+
+	/**
+	 * <p>Gets event type of the current event record</p>
+	 * @return event type (see {@linkplain javax.comm.SerialPortEvent} constants), or 0 for input and output records
+	 */
+	public int getEventType() {
+		return eventType;
+	}
+
+	/**
+	 * <p>Gets old value of the current event record</p>
+	 * @return old value
+	 */
+	public boolean getOldValue() {
+		return oldValue;
+	}
+
+	/**
+	 * <p>Gets new value of the current event record</p>
+	 * @return new value
+	 */
+	public boolean getNewValue() {
+		return newValue;
+	}
+
+	/**
+	 * <p>Gets count of the current record</p>
+	 * @return event count for event records, data length for input and output records
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		data = EMPTY;
+		channel.close();
+	}
+
+	private boolean endOfCapture() {
+		recordType = 0;
+		data = EMPTY;
+		position = size;
+		return false;
+	}
+
+	private void map(final long from, final int length) throws IOException {
+		if (window == null || from < windowStart || from + length > windowStart + window.capacity()) {
+			windowStart = from;
+			window = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(size - from, Math.max(WINDOW_SIZE, length)));
+			window.order(CaptureFormat.ORDER);
+		}
+	}
+}
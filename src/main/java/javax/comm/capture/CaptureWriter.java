@@ -0,0 +1,206 @@
+package javax.comm.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>Writer of the port traffic capture file. File is written through the memory-mapped chunks, so appending a record is a memory copy
+ * without system calls. Every record has nanosecond timestamp since the capture start. Records of any thread are appended in order of
+ * the method calls. Records cut by the application crash are never read by the {@linkplain CaptureReader}.</p>
+ *
+ * <p>Recording methods never throw exceptions to avoid breaking port I/O. The first I/O error stops recording and is thrown by the
+ * {@linkplain #close()} method.</p>
+ *
+ * @see CaptureReader
+ * @see javax.comm.SerialPort#startCapture(Path)
+ * @since 0.0.1
+ */
+public final class CaptureWriter implements Closeable {
+	/**
+	 * <p>Default size of the memory-mapped chunk</p>
+	 */
+	public static final int		DEFAULT_CHUNK_SIZE = 64 << 20;
+
+	private final FileChannel	channel;
+	private final int			chunkSize;
+	private final long			startNanos;
+	private MappedByteBuffer	mapping = null;
+	private long				mappingStart = 0;
+	private long				position = 0;
+	private IOException			error = null;
+	private boolean				closed = false;
+
+	/**
+	 * <p>Constructor of the class. Creates capture file or truncates the existing one.</p>
+	 * @param file capture file. Can't be null
+	 * @param portName name of the captured port. Can't be null
+	 * @throws IOException on any I/O errors
+	 */
+	public CaptureWriter(final Path file, final String portName) throws IOException {
+		this(file, portName, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * <p>Constructor of the class. Creates capture file or truncates the existing one.</p>
+	 * @param file capture file. Can't be null
+	 * @param portName name of the captured port. Can't be null
+	 * @param chunkSize size of the memory-mapped chunk. Must be at least 4096
+	 * @throws IOException on any I/O errors
+	 * @throws IllegalArgumentException if chunk size is too small
+	 */
+	public CaptureWriter(final Path file, final String portName, final int chunkSize) throws IOException, IllegalArgumentException {
+		if (file == null) {
+			throw new NullPointerException("File can't be null");
+		}
+		else if (portName == null) {
+			throw new NullPointerException("Port name can't be null");
+		}
+		else if (chunkSize < 4096) {
+			throw new IllegalArgumentException("Chunk size ["+chunkSize+"] must be at least 4096");
+		}
+		else {
+			final byte[]	name = portName.getBytes(StandardCharsets.UTF_8);
+			final int		nameLength = Math.min(name.length, CaptureFormat.MAX_NAME_LENGTH);
+			final int		headerSize = (int)CaptureFormat.align(CaptureFormat.FIXED_HEADER_SIZE + nameLength);
+
+			this.chunkSize = chunkSize;
+			this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			try {
+				ensureMapped(headerSize);
+				mapping.putLong(0, CaptureFormat.MAGIC);
+				mapping.putInt(8, CaptureFormat.VERSION);
+				mapping.putInt(12, headerSize);
+				mapping.putLong(16, System.currentTimeMillis());
+				mapping.putShort(24, (short)nameLength);
+				mapping.position(CaptureFormat.FIXED_HEADER_SIZE);
+				mapping.put(name, 0, nameLength);
+				position = headerSize;
+			} catch (IOException exc) {
+				channel.close();
+				throw exc;
+			}
+			this.startNanos = System.nanoTime();
+		}
+	}
+
+	/**
+	 * <p>Records data read from the port</p>
+	 * @param data buffer with data. Buffer position and limit are not changed
+	 * @param offset absolute offset of data in the buffer
+	 * @param length data length
+	 */
+	public void input(final ByteBuffer data, final int offset, final int length) {
+		append(CaptureReader.RECORD_INPUT, 0, false, false, data, offset, length, 0);
+	}
+
+	/**
+	 * <p>Records data written to the port</p>
+	 * @param data buffer with data. Buffer position and limit are not changed
+	 * @param offset absolute offset of data in the buffer
+	 * @param length data length
+	 */
+	public void output(final ByteBuffer data, final int offset, final int length) {
+		append(CaptureReader.RECORD_OUTPUT, 0, false, false, data, offset, length, 0);
+	}
+
+	/**
+	 * <p>Records serial port event</p>
+	 * @param eventType event type (see {@linkplain javax.comm.SerialPortEvent} constants)
+	 * @param oldValue old value
+	 * @param newValue new value
+	 * @param count event count
+	 */
+	public void event(final int eventType, final boolean oldValue, final boolean newValue, final int count) {
+		append(CaptureReader.RECORD_EVENT, eventType, oldValue, newValue, null, 0, CaptureFormat.EVENT_PAYLOAD_SIZE, count);
+	}
+
+	/**
+	 * <p>Gets current size of the capture</p>
+	 * @return size of the capture in bytes
+	 */
+	public synchronized long getSize() {
+		return position;
+	}
+
+	/**
+	 * <p>Is recording stopped by I/O error</p>
+	 * @return true if recording failed
+	 */
+	public synchronized boolean isFailed() {
+		return error != null;
+	}
+
+	/**
+	 * <p>Flushes capture to the disk, truncates file to the actual size and closes it</p>
+	 * @throws IOException on any I/O errors, including errors of the recording
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			try {
+				if (mapping != null) {
+					mapping.force();
+					mapping = null;
+				}
+				channel.truncate(position);
+			} finally {
+				channel.close();
+			}
+			if (error != null) {
+				throw error;
+			}
+		}
+	}
+
+	private synchronized void append(final int type, final int eventType, final boolean oldValue, final boolean newValue, final ByteBuffer data, final int offset, final int length, final int count) {
+		if (!closed && error == null) {
+			final long	timestamp = System.nanoTime() - startNanos;
+
+			try {
+				final int	size = (int)CaptureFormat.align(CaptureFormat.RECORD_HEADER_SIZE + (long)length);
+
+				ensureMapped(size);
+				final int	at = (int)(position - mappingStart);
+
+				mapping.putLong(at, timestamp);
+				mapping.put(at + CaptureFormat.EVENT_TYPE_OFFSET, (byte)eventType);
+				mapping.put(at + CaptureFormat.OLD_VALUE_OFFSET, (byte)(oldValue ? 1 : 0));
+				mapping.put(at + CaptureFormat.NEW_VALUE_OFFSET, (byte)(newValue ? 1 : 0));
+				mapping.putInt(at + CaptureFormat.LENGTH_OFFSET, length);
+				if (data == null) {
+					mapping.putInt(at + CaptureFormat.RECORD_HEADER_SIZE, count);
+				}
+				else if (length > 0) {
+					final int	oldPosition = data.position(), oldLimit = data.limit();
+
+					data.limit(offset + length).position(offset);
+					mapping.position(at + CaptureFormat.RECORD_HEADER_SIZE);
+					mapping.put(data);
+					data.limit(oldLimit).position(oldPosition);
+				}
+				mapping.put(at + CaptureFormat.TYPE_OFFSET, (byte)type);	// record becomes visible
+				position += size;
+			} catch (IOException | RuntimeException exc) {
+				error = exc instanceof IOException ? (IOException)exc : new IOException(exc);
+			}
+		}
+	}
+
+	private void ensureMapped(final int size) throws IOException {
+		if (mapping == null || position + size > mappingStart + mapping.capacity()) {
+			if (mapping != null) {
+				mapping.force();
+			}
+			mappingStart = position;
+			mapping = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(chunkSize, size));
+			mapping.order(CaptureFormat.ORDER);
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package javax.comm.capture;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.comm.CommDriver;
+import javax.comm.CommPort;
+import javax.comm.CommPortIdentifier;
+
+/**
+ * <p>Replay driver. It registers virtual serial ports serving the traffic capture files (see {@linkplain javax.comm.SerialPort#startCapture(Path)})
+ * back to the application: data read by the captured port can be read from the virtual port, and line events of the captured port are fired
+ * by the virtual port at the same moments since the port open, as they were captured since the capture start. Replay can be accelerated
+ * or slowed down by the replay speed, or can be made as fast as possible. Every open of the port replays capture from the beginning, so
+ * the same capture can be replayed many times to reproduce bugs and to test applications deterministically.</p>
+ *
+ * <p>Driver can be configured with system properties:</p>
+ * <ul>
+ * <li><b>javax.comm.replay.files</b> - comma-separated list of <b>&lt;port name&gt;=&lt;capture file&gt;</b> pairs to register on initialization</li>
+ * <li><b>javax.comm.replay.speed</b> - replay speed of the ports registered on initialization, 1 is original speed, 0 is as fast as possible (default is 1)</li>
+ * <li><b>javax.comm.replay.bufferSize</b> - size of the receive buffer of every port (default is 65536)</li>
+ * </ul>
+ * <p>Any other ports can be registered by the {@linkplain #addPort(String, Path, double)} method.</p>
+ *
+ * @see CaptureWriter
+ * @see CaptureReader
+ * @since 0.0.1
+ */
+public class ReplayCommDriver implements CommDriver {
+	/**
+	 * <p>System property with capture files to register on initialization.</p>
+	 */
+	public static final String	FILES_PROPERTY = "javax.comm.replay.files";
+
+	/**
+	 * <p>System property with replay speed</p>
+	 */
+	public static final String	SPEED_PROPERTY = "javax.comm.replay.speed";
+
+	/**
+	 * <p>System property with receive buffer size</p>
+	 */
+	public static final String	BUFFER_SIZE_PROPERTY = "javax.comm.replay.bufferSize";
+
+	private static final int	DEFAULT_BUFFER_SIZE = 65536;
+
+	private final ConcurrentHashMap<String, ReplaySource>	sources = new ConcurrentHashMap<>();
+
+	@Override
+	public CommPort getCommPort(final String portName, final int portType) {
+		if (portName == null || portName.isEmpty()) {
+			throw new IllegalArgumentException("Port name can't be null or empty");
+		}
+		else if (portType != CommPortIdentifier.PORT_SERIAL) {
+			return null;
+		}
+		else {
+			final ReplaySource	source = sources.get(portName);
+
+			if (source == null) {
+				return null;
+			}
+			else {
+				synchronized (source) {
+					if (source.port != null && !source.port.isClosed()) {
+						return null;
+					}
+					else {
+						try {
+							return source.port = new ReplaySerialPort(source);
+						} catch (IOException exc) {
+							throw new UncheckedIOException("Capture of the port ["+portName+"] can't be opened: "+exc.getMessage(), exc);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void initialize() {
+		final String	files = System.getProperty(FILES_PROPERTY, "").trim();
+
+		if (!files.isEmpty()) {
+			final double	speed = parseSpeed(System.getProperty(SPEED_PROPERTY, "1"));
+
+			for (String item : files.split(",")) {
+				final int	eq = item.indexOf('=');
+
+				if (eq > 0) {
+					try {
+						addPort(item.substring(0, eq).trim(), Paths.get(item.substring(eq + 1).trim()), speed);
+					} catch (IllegalArgumentException exc) {
+						// wrong items are ignored
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Registers replay port in the {@linkplain CommPortIdentifier}. Capture file is opened on every port open, so it can be changed
+	 * between opens.</p>
+	 * @param portName name of the port. Can't be null or empty
+	 * @param file capture file. Can't be null
+	 * @param speed replay speed: 1 is original speed, 2 is twice faster and so on, 0 is as fast as possible
+	 * @throws IllegalArgumentException if port name is null, empty, or already registered by this driver, or speed is negative
+	 */
+	public void addPort(final String portName, final Path file, final double speed) throws IllegalArgumentException {
+		if (portName == null || portName.isEmpty()) {
+			throw new IllegalArgumentException("Port name can't be null or empty");
+		}
+		else if (file == null) {
+			throw new NullPointerException("Capture file can't be null");
+		}
+		else if (!(speed >= 0) || Double.isInfinite(speed)) {
+			throw new IllegalArgumentException("Replay speed ["+speed+"] must be non-negative");
+		}
+		else if (sources.putIfAbsent(portName, new ReplaySource(portName, file, speed, Integer.getInteger(BUFFER_SIZE_PROPERTY, DEFAULT_BUFFER_SIZE))) != null) {
+			throw new IllegalArgumentException("Port name ["+portName+"] is already registered");
+		}
+		else {
+			CommPortIdentifier.addPortName(portName, CommPortIdentifier.PORT_SERIAL, this);
+		}
+	}
+
+	private static double parseSpeed(final String speed) {
+		try {
+			final double	result = Double.parseDouble(speed.trim());
+
+			return result >= 0 && !Double.isInfinite(result) ? result : 1;
+		} catch (NumberFormatException exc) {
+			return 1;
+		}
+	}
+
+	static class ReplaySource {
+		final String		name;
+		final Path			file;
+		final double		speed;
+		final int			bufferSize;
+		ReplaySerialPort	port = null;
+
+		ReplaySource(final String name, final Path file, final double speed, final int bufferSize) {
+			this.name = name;
+			this.file = file;
+			this.speed = speed;
+			this.bufferSize = bufferSize;
+		}
+	}
+}
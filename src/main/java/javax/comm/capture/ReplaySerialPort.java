@@ -0,0 +1,214 @@
+package javax.comm.capture;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.comm.SerialPortEvent;
+import javax.comm.UnsupportedCommOperationException;
+import javax.comm.spi.AbstractSerialPort;
+import javax.comm.spi.DirectByteRing;
+
+/**
+ * <p>Virtual serial port replaying the capture file. Replay thread of the port reads records of the capture and reproduces them at the
+ * moments of their timestamps divided by the replay speed: data read by the captured port are placed into the receive ring and can be read
+ * from the port, line events change modem line states and are fired as the port events. Data written to the captured port are skipped.
+ * When application doesn't read data, replay waits for free space in the receive ring, so no data are lost. End of capture is reported
+ * as end of stream by input stream and channel.</p>
+ *
+ * <p>Data written to the port are discarded. Output modem lines are kept but have no effect. Receive ring size is set by the driver, so
+ * {@linkplain #setInputBufferSize(int)} ignores any other size and configs with any other input buffer size are rejected.</p>
+ */
+class ReplaySerialPort extends AbstractSerialPort {
+	private final ReplayCommDriver.ReplaySource	source;
+	private final CaptureReader		reader;
+	private final DirectByteRing	rx;
+	private final Object			readLock = new Object();
+	private final Thread			replayThread;
+	private volatile boolean		finished = false;
+
+	ReplaySerialPort(final ReplayCommDriver.ReplaySource source) throws IOException {
+		super(source.name);
+		this.source = source;
+		this.reader = new CaptureReader(source.file);
+		this.rx = new DirectByteRing(source.bufferSize);
+		setInputBufferSize(rx.capacity());
+		updateModemStatus(MODEM_DTR | MODEM_RTS, MODEM_DTR | MODEM_RTS);
+		this.replayThread = new Thread(this::replay, "CommPortReplay-"+source.name);
+		this.replayThread.setDaemon(true);
+		this.replayThread.start();
+	}
+
+	@Override
+	public void setDTR(final boolean state) {
+		ensureOpen();
+		updateModemStatus(MODEM_DTR, state ? MODEM_DTR : 0);
+	}
+
+	@Override
+	public void setRTS(final boolean state) {
+		ensureOpen();
+		updateModemStatus(MODEM_RTS, state ? MODEM_RTS : 0);
+	}
+
+	@Override
+	public void sendBreak(final int duration) {
+		ensureOpen();
+		if (duration > 0) {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(duration));
+		}
+	}
+
+	@Override
+	protected boolean resizeInputBuffer(final int size) {
+		return size == rx.capacity();	// receive ring size is set by the driver
+	}
+
+	@Override
+	protected boolean isInputReady() {
+		return !isClosed() && (rx.available() > 0 || finished);
+	}
+
+	@Override
+	protected boolean isOutputReady() {
+		return !isClosed();
+	}
+
+	@Override
+	protected int getOutputReadyCount() {
+		return isClosed() ? 0 : Integer.MAX_VALUE;
+	}
+
+	@Override
+	protected void applySerialPortParams(final int bitrate, final int datasize, final int stopbits, final int parity) throws UnsupportedCommOperationException {
+		// replay speed doesn't depend on port parameters
+	}
+
+	@Override
+	protected void applyFlowControlMode(final int flowcontrol) throws UnsupportedCommOperationException {
+		// replay doesn't depend on flow control
+	}
+
+	@Override
+	protected int getInputBufferOccupancy() {
+		return rx.available();
+	}
+
+	@Override
+	protected boolean isWriteCoalescingSupported() {
+		return true;
+	}
+
+	@Override
+	protected int readInput(final ByteBuffer dst) throws IOException {
+		synchronized (readLock) {
+			final boolean	thresholdEnabled = isReceiveThresholdEnabled(), timeoutEnabled = isReceiveTimeoutEnabled();
+
+			if (!(thresholdEnabled && getReceiveThreshold() == 0 || timeoutEnabled && getReceiveTimeout() == 0)) {
+				final int	minBytes = Math.min(Math.min(thresholdEnabled ? getReceiveThreshold() : 1, dst.remaining()), rx.capacity());
+				final long	timeout = timeoutEnabled ? TimeUnit.MILLISECONDS.toNanos(getReceiveTimeout()) : -1;
+
+				if (!spinForInput(rx, minBytes)) {
+					rx.awaitData(minBytes, timeout, ()->isClosed() || finished);
+				}
+			}
+			final int	read = rx.read(dst);
+
+			return read == 0 && (isClosed() || finished && rx.available() == 0) ? -1 : read;
+		}
+	}
+
+	@Override
+	protected int writeOutput(final ByteBuffer src) throws IOException {
+		final int	total = src.remaining();
+
+		src.position(src.limit());
+		fireSerialEvent(SerialPortEvent.OUTPUT_BUFFER_EMPTY, false, true, total);
+		return total;
+	}
+
+	@Override
+	protected void closePort() throws IOException {
+		rx.wakeUp();
+		LockSupport.unpark(replayThread);
+		synchronized (source) {
+			source.port = null;
+		}
+	}
+
+	private void replay() {
+		final long	start = System.nanoTime();
+
+		try {
+			while (!isClosed() && reader.next()) {
+				if (source.speed > 0 && !waitUntil(start + (long)(reader.getTimestamp() / source.speed))) {
+					break;
+				}
+				switch (reader.getRecordType()) {
+					case CaptureReader.RECORD_INPUT	:
+						final ByteBuffer	data = reader.getData();
+
+						while (data.hasRemaining() && !isClosed()) {
+							final int	written = rx.write(data);
+
+							if (written > 0) {
+								fireDataAvailable(written);
+							}
+							else {
+								rx.awaitSpace(1, -1, this::isClosed);
+							}
+						}
+						break;
+					case CaptureReader.RECORD_EVENT	:
+						replayEvent(reader.getEventType(), reader.getOldValue(), reader.getNewValue(), reader.getCount());
+						break;
+					default :	// output records are not replayed
+				}
+			}
+		} catch (IOException exc) {
+			// broken capture is replayed up to the broken record
+		} finally {
+			finished = true;
+			rx.wakeUp();
+			signalSelectors(SerialPortEvent.DATA_AVAILABLE);
+			try {
+				reader.close();
+			} catch (IOException exc) {
+				// nothing to do on replay end
+			}
+		}
+	}
+
+	private void replayEvent(final int eventType, final boolean oldValue, final boolean newValue, final int count) {
+		final int	line;
+
+		switch (eventType) {
+			case SerialPortEvent.CTS	: line = MODEM_CTS; break;
+			case SerialPortEvent.DSR	: line = MODEM_DSR; break;
+			case SerialPortEvent.RI		: line = MODEM_RI; break;
+			case SerialPortEvent.CD		: line = MODEM_CD; break;
+			default : line = 0;
+		}
+		if (line != 0) {	// line states recorded on capture start don't change anything, so they are not fired
+			updateModemStatus(line, newValue ? line : 0);
+		}
+		else {
+			fireSerialEvent(eventType, oldValue, newValue, count);
+		}
+	}
+
+	private boolean waitUntil(final long deadline) {
+		long	delay;
+
+		while ((delay = deadline - System.nanoTime()) > 0) {
+			if (isClosed()) {
+				return false;
+			}
+			else {
+				LockSupport.parkNanos(this, delay);
+			}
+		}
+		return !isClosed();
+	}
+}
@@ -0,0 +1,8 @@
+/**
+ * <p>This package contains traffic capture and replay of the communications ports. Capture file is written by the
+ * {@linkplain javax.comm.capture.CaptureWriter} (see {@linkplain javax.comm.SerialPort#startCapture(java.nio.file.Path)}), can be read by the
+ * {@linkplain javax.comm.capture.CaptureReader} and can be served back as a virtual port by the {@linkplain javax.comm.capture.ReplayCommDriver}.</p>
+ *
+ * @since 0.0.1
+ */
+package javax.comm.capture;
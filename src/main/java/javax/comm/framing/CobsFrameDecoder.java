@@ -0,0 +1,66 @@
+package javax.comm.framing;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Decoder of the COBS (Consistent Overhead Byte Stuffing) frames, delimited by zero byte. Frames are decoded in place, empty and
+ * invalid frames are skipped.</p>
+ *
+ * @see FrameReader
+ * @since 0.0.1
+ */
+public class CobsFrameDecoder implements FrameDecoder {
+	private static final int	MAX_CODE = 0xFF;
+
+	private int		scanned = 0;
+
+	@Override
+	public boolean decode(final ByteBuffer input, final ByteBuffer frame) {
+		final int	end = input.limit();
+		int			start = input.position();
+
+		for (int index = start + scanned; index < end; index++) {
+			if (input.get(index) == 0) {
+				final int	length = unstuff(input, start, index);
+
+				input.position(index + 1);
+				if (length > 0) {
+					frame.clear().position(start).limit(start + length);
+					scanned = 0;
+					return true;
+				}
+				else {
+					start = index + 1;		// skip empty or invalid frame
+				}
+			}
+		}
+		scanned = end - start;
+		return false;
+	}
+
+	@Override
+	public void reset() {
+		scanned = 0;
+	}
+
+	private static int unstuff(final ByteBuffer input, final int from, final int to) {
+		int		in = from, out = from;
+
+		while (in < to) {
+			final int	code = input.get(in++) & 0xFF;
+
+			if (in + code - 1 > to) {
+				return -1;
+			}
+			else {
+				for (int index = 1; index < code; index++) {
+					input.put(out++, input.get(in++));
+				}
+				if (code < MAX_CODE && in < to) {
+					input.put(out++, (byte)0);
+				}
+			}
+		}
+		return out - from;
+	}
+}
@@ -0,0 +1,64 @@
+package javax.comm.framing;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * <p>Decoder of the frames terminated by delimiter sequence. Unlike {@linkplain javax.comm.CommPort#enableReceiveFraming(int)},
+ * delimiter can contain any number of bytes (for example, CR LF).</p>
+ *
+ * @see FrameReader
+ * @since 0.0.1
+ */
+public class DelimiterFrameDecoder implements FrameDecoder {
+	private final byte[]	delimiter;
+	private final boolean	stripDelimiter;
+	private int				scanned = 0;
+
+	/**
+	 * <p>Constructor of the class</p>
+	 * @param stripDelimiter true if delimiter must not be included into the frame
+	 * @param delimiter delimiter sequence. Can't be null or empty
+	 * @throws IllegalArgumentException if delimiter is null or empty
+	 */
+	public DelimiterFrameDecoder(final boolean stripDelimiter, final byte... delimiter) throws IllegalArgumentException {
+		if (delimiter == null || delimiter.length == 0) {
+			throw new IllegalArgumentException("Delimiter can't be null or empty");
+		}
+		else {
+			this.delimiter = Arrays.copyOf(delimiter, delimiter.length);
+			this.stripDelimiter = stripDelimiter;
+		}
+	}
+
+	@Override
+	public boolean decode(final ByteBuffer input, final ByteBuffer frame) {
+		final int	start = input.position(), end = input.limit(), length = delimiter.length;
+		final byte	last = delimiter[length - 1];
+
+		for (int index = Math.max(start + scanned, start + length - 1); index < end; index++) {
+			if (input.get(index) == last && matches(input, index - length + 1)) {
+				frame.clear().position(start).limit(stripDelimiter ? index - length + 1 : index + 1);
+				input.position(index + 1);
+				scanned = 0;
+				return true;
+			}
+		}
+		scanned = end - start;
+		return false;
+	}
+
+	@Override
+	public void reset() {
+		scanned = 0;
+	}
+
+	private boolean matches(final ByteBuffer input, final int from) {
+		for (int index = 0; index < delimiter.length - 1; index++) {
+			if (input.get(from + index) != delimiter[index]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
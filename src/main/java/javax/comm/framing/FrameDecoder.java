@@ -0,0 +1,49 @@
+package javax.comm.framing;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>This interface describes receive frame decoder, used by {@linkplain FrameReader}.</p>
+ *
+ * <p>Both input and frame buffers passed to decoder are views of the same reused storage. Content between input position and input limit
+ * is received and not consumed yet data. Decoder can keep its scan state between calls, but the state must be relative to the input
+ * position, because reader can move unconsumed data to the beginning of the storage between calls. Decoder can rewrite content of
+ * the input in place (for example, to unescape bytes), but decoded content must not be longer than the input consumed.</p>
+ *
+ * @see FrameReader
+ * @since 0.0.1
+ */
+public interface FrameDecoder {
+	/**
+	 * <p>Tries to decode next frame.</p>
+	 * @param input received data. Can't be null
+	 * @param frame buffer to set frame bounds to. Can't be null
+	 * @return true if the frame was decoded. In this case decoder must set frame position and limit to the frame content bounds
+	 * and move input position beyond the frame consumed
+	 */
+	boolean decode(ByteBuffer input, ByteBuffer frame);
+
+	/**
+	 * <p>Gets silence interval terminating the frame. When it is not 0, reader calls {@linkplain #flush(ByteBuffer, ByteBuffer)} after
+	 * the given silence on the line.</p>
+	 * @return silence interval in nanoseconds. 0 means silence doesn't terminate frame
+	 */
+	default long getFrameGap() {
+		return 0;
+	}
+
+	/**
+	 * <p>Completes frame after silence on the line.</p>
+	 * @param input received data. Can't be null
+	 * @param frame buffer to set frame bounds to. Can't be null
+	 * @return true if the frame was decoded (see {@linkplain #decode(ByteBuffer, ByteBuffer)})
+	 */
+	default boolean flush(final ByteBuffer input, final ByteBuffer frame) {
+		return false;
+	}
+
+	/**
+	 * <p>Resets decoder state. Called by reader when received data is discarded.</p>
+	 */
+	void reset();
+}
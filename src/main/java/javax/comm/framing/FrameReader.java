@@ -0,0 +1,167 @@
+package javax.comm.framing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.comm.CommChannel;
+import javax.comm.CommPort;
+
+/**
+ * <p>This class reads frames from the port.</p>
+ *
+ * <p>Reader reads port data with the {@linkplain CommPort#getChannel()} channel directly into the reused storage, and decodes frames in
+ * place with the {@linkplain FrameDecoder}. Frame returned by the {@linkplain #read()} method is a view of the storage, so no data is
+ * copied and no memory is allocated per frame. Returned buffer content is valid until the next call of the {@linkplain #read()}
+ * method. Typical usage is:</p>
+ * <pre>
+ * final FrameReader reader = new FrameReader(port, new CobsFrameDecoder(), 1024);
+ * ByteBuffer frame;
+ *
+ * while ((frame = reader.read()) != null) {
+ *    process(frame);
+ * }
+ * </pre>
+ * <p>Blocking behaviour of the reader is the same as described in {@linkplain CommPort#getInputStream()}. Receive threshold should be
+ * disabled to use decoders with the {@linkplain FrameDecoder#getFrameGap() frame gap}, because silence on the line is detected by the
+ * reader.</p>
+ * <p>This class is not thread-safe.</p>
+ *
+ * @see FrameDecoder
+ * @since 0.0.1
+ */
+public class FrameReader {
+	private final CommChannel	channel;
+	private final InputStream	is;
+	private final FrameDecoder	decoder;
+	private final ByteBuffer	input;
+	private final ByteBuffer	fill;
+	private final ByteBuffer	frame;
+	private long				lastReceived = 0;
+
+	/**
+	 * <p>Constructor of the class. Direct buffer of the given size is used as a storage.</p>
+	 * @param port port to read frames from. Can't be null
+	 * @param decoder frame decoder. Can't be null
+	 * @param bufferSize storage size. Must be greater than the longest frame expected (with framing overhead)
+	 * @throws IOException on any I/O errors
+	 * @throws IllegalArgumentException if any argument is invalid
+	 */
+	public FrameReader(final CommPort port, final FrameDecoder decoder, final int bufferSize) throws IOException, IllegalArgumentException {
+		this(port, decoder, bufferSize <= 0 ? null : ByteBuffer.allocateDirect(bufferSize));
+	}
+
+	/**
+	 * <p>Constructor of the class.</p>
+	 * @param port port to read frames from. Can't be null
+	 * @param decoder frame decoder. Can't be null
+	 * @param storage buffer to use as a storage. Can't be null or read-only. Whole buffer capacity is used, and buffer content must not
+	 * be changed by caller after the call
+	 * @throws IOException on any I/O errors
+	 * @throws IllegalArgumentException if any argument is invalid
+	 */
+	public FrameReader(final CommPort port, final FrameDecoder decoder, final ByteBuffer storage) throws IOException, IllegalArgumentException {
+		if (port == null) {
+			throw new IllegalArgumentException("Port can't be null");
+		}
+		else if (decoder == null) {
+			throw new IllegalArgumentException("Frame decoder can't be null");
+		}
+		else if (storage == null || storage.isReadOnly() || storage.capacity() == 0) {
+			throw new IllegalArgumentException("Storage can't be null, empty or read-only");
+		}
+		else {
+			this.channel = port.getChannel();
+			this.is = port.getInputStream();
+			this.decoder = decoder;
+			this.input = storage.duplicate();
+			this.fill = storage.duplicate();
+			this.frame = storage.duplicate();
+			this.input.clear().limit(0);
+		}
+	}
+
+	/**
+	 * <p>Reads next frame from the port.</p>
+	 * @return frame read. Buffer position and limit are bounds of the frame content. The same buffer object is returned by every call.
+	 * Null means that the receive timeout of the port expired before the frame was completed
+	 * @throws ClosedChannelException if the port is closed
+	 * @throws IOException on any I/O errors or if the frame is longer than the storage. Data received is discarded in the last case
+	 */
+	public ByteBuffer read() throws IOException {
+		for (;;) {
+			if (decoder.decode(input, frame)) {
+				return frame;
+			}
+			else {
+				prepareStorage();
+
+				final long	gap = decoder.getFrameGap();
+
+				if (gap > 0 && input.hasRemaining()) {		// partial frame, wait for data or silence
+					final long	silence = System.nanoTime() - lastReceived;
+
+					if (is.available() > 0) {
+						receive();
+					}
+					else if (silence >= gap) {
+						if (decoder.flush(input, frame)) {
+							return frame;
+						}
+					}
+					else {
+						LockSupport.parkNanos(Math.max(1, (gap - silence) / 4));
+					}
+				}
+				else if (receive() == 0) {
+					return null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Discards all the data received and resets decoder.</p>
+	 */
+	public void reset() {
+		input.clear().limit(0);
+		decoder.reset();
+	}
+
+	private void prepareStorage() throws IOException {
+		if (!input.hasRemaining()) {
+			input.clear().limit(0);
+		}
+		else if (input.limit() == input.capacity()) {
+			if (input.position() == 0) {
+				reset();
+				throw new IOException("Frame is longer than reader storage size ["+input.capacity()+"], data discarded");
+			}
+			else {
+				final int	size = input.remaining();
+
+				input.compact();
+				input.limit(size).position(0);
+			}
+		}
+	}
+
+	private int receive() throws IOException {
+		fill.limit(fill.capacity()).position(input.limit());
+
+		final int	read = channel.read(fill);
+
+		if (read < 0) {
+			throw new ClosedChannelException();
+		}
+		else {
+			if (read > 0) {
+				input.limit(fill.position());
+				lastReceived = System.nanoTime();
+			}
+			return read;
+		}
+	}
+}
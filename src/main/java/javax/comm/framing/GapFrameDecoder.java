@@ -0,0 +1,85 @@
+package javax.comm.framing;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.SerialPort;
+
+/**
+ * <p>Decoder of the frames terminated by silence on the line, for example Modbus RTU frames (3.5 character silence).</p>
+ *
+ * @see FrameReader
+ * @since 0.0.1
+ */
+public class GapFrameDecoder implements FrameDecoder {
+	private static final long	MODBUS_FIXED_GAP = TimeUnit.MICROSECONDS.toNanos(1750);
+	private static final int	MODBUS_FIXED_GAP_BAUD = 19200;
+
+	private final long	gap;
+
+	/**
+	 * <p>Constructor of the class</p>
+	 * @param gap silence interval terminating the frame. Must be positive
+	 * @param unit interval unit. Can't be null
+	 * @throws IllegalArgumentException if any argument is invalid
+	 */
+	public GapFrameDecoder(final long gap, final TimeUnit unit) throws IllegalArgumentException {
+		if (gap <= 0) {
+			throw new IllegalArgumentException("Gap ["+gap+"] must be positive");
+		}
+		else if (unit == null) {
+			throw new IllegalArgumentException("Time unit can't be null");
+		}
+		else {
+			this.gap = unit.toNanos(gap);
+		}
+	}
+
+	/**
+	 * <p>Creates decoder for Modbus RTU frames with the current port settings. Silence interval is 3.5 characters for the bit rate up to
+	 * 19200 and 1750 microseconds for higher bit rates, as Modbus over serial line specification requires.</p>
+	 * @param port port to get settings from. Can't be null
+	 * @return decoder created. Can't be null
+	 * @throws IllegalArgumentException if port is null
+	 */
+	public static GapFrameDecoder forModbusRtu(final SerialPort port) throws IllegalArgumentException {
+		if (port == null) {
+			throw new IllegalArgumentException("Port can't be null");
+		}
+		else if (port.getBaudRate() > MODBUS_FIXED_GAP_BAUD) {
+			return new GapFrameDecoder(MODBUS_FIXED_GAP, TimeUnit.NANOSECONDS);
+		}
+		else {
+			final int	halfBits = 2 * (1 + port.getDataBits() + (port.getParity() == SerialPort.PARITY_NONE ? 0 : 1))
+										+ (port.getStopBits() == SerialPort.STOPBITS_1 ? 2 : (port.getStopBits() == SerialPort.STOPBITS_2 ? 4 : 3));
+
+			return new GapFrameDecoder(TimeUnit.SECONDS.toNanos(7) * halfBits / (4L * port.getBaudRate()), TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public boolean decode(final ByteBuffer input, final ByteBuffer frame) {
+		return false;
+	}
+
+	@Override
+	public long getFrameGap() {
+		return gap;
+	}
+
+	@Override
+	public boolean flush(final ByteBuffer input, final ByteBuffer frame) {
+		if (input.hasRemaining()) {
+			frame.clear().position(input.position()).limit(input.limit());
+			input.position(input.limit());
+			return true;
+		}
+		else {
+			return false;
+		}
+	}
+
+	@Override
+	public void reset() {
+	}
+}
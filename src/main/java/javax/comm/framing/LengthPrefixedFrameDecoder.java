@@ -0,0 +1,101 @@
+package javax.comm.framing;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>Decoder of the frames with the length field in the frame header. Total frame length is calculated as
+ * <b>fieldOffset + fieldSize + field value + adjustment</b>. When the length calculated is invalid, decoder skips one byte and tries to
+ * find the next frame header.</p>
+ *
+ * @see FrameReader
+ * @since 0.0.1
+ */
+public class LengthPrefixedFrameDecoder implements FrameDecoder {
+	private final int		fieldOffset;
+	private final int		fieldSize;
+	private final ByteOrder	order;
+	private final int		adjustment;
+	private final boolean	stripHeader;
+
+	/**
+	 * <p>Constructor of the class for the frames started with the length of the frame content.</p>
+	 * @param fieldSize length field size. Can be 1, 2, 3 or 4
+	 * @param order length field byte order. Can't be null
+	 * @throws IllegalArgumentException if any argument is invalid
+	 */
+	public LengthPrefixedFrameDecoder(final int fieldSize, final ByteOrder order) throws IllegalArgumentException {
+		this(0, fieldSize, order, 0, true);
+	}
+
+	/**
+	 * <p>Constructor of the class.</p>
+	 * @param fieldOffset length field offset in the frame header. Can't be negative
+	 * @param fieldSize length field size. Can be 1, 2, 3 or 4
+	 * @param order length field byte order. Can't be null
+	 * @param adjustment value to add to the length field value to get frame length after the length field (for example, checksum size)
+	 * @param stripHeader true if frame header (up to and including length field) must not be included into the frame
+	 * @throws IllegalArgumentException if any argument is invalid
+	 */
+	public LengthPrefixedFrameDecoder(final int fieldOffset, final int fieldSize, final ByteOrder order, final int adjustment, final boolean stripHeader) throws IllegalArgumentException {
+		if (fieldOffset < 0) {
+			throw new IllegalArgumentException("Field offset ["+fieldOffset+"] can't be negative");
+		}
+		else if (fieldSize < 1 || fieldSize > 4) {
+			throw new IllegalArgumentException("Field size ["+fieldSize+"] out of range 1..4");
+		}
+		else if (order == null) {
+			throw new IllegalArgumentException("Byte order can't be null");
+		}
+		else {
+			this.fieldOffset = fieldOffset;
+			this.fieldSize = fieldSize;
+			this.order = order;
+			this.adjustment = adjustment;
+			this.stripHeader = stripHeader;
+		}
+	}
+
+	@Override
+	public boolean decode(final ByteBuffer input, final ByteBuffer frame) {
+		final int	header = fieldOffset + fieldSize;
+
+		while (input.remaining() >= header) {
+			final int	start = input.position();
+			final long	length = header + getLength(input, start + fieldOffset) + adjustment;
+
+			if (length < header || length > input.capacity()) {
+				input.position(start + 1);	// corrupted header, resynchronize
+			}
+			else if (input.remaining() < length) {
+				return false;
+			}
+			else {
+				frame.clear().position(start + (stripHeader ? header : 0)).limit(start + (int)length);
+				input.position(start + (int)length);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void reset() {
+	}
+
+	private long getLength(final ByteBuffer input, final int from) {
+		long	result = 0;
+
+		if (order == ByteOrder.BIG_ENDIAN) {
+			for (int index = 0; index < fieldSize; index++) {
+				result = (result << 8) | (input.get(from + index) & 0xFF);
+			}
+		}
+		else {
+			for (int index = fieldSize - 1; index >= 0; index--) {
+				result = (result << 8) | (input.get(from + index) & 0xFF);
+			}
+		}
+		return result;
+	}
+}
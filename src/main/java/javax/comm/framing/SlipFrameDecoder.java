@@ -0,0 +1,77 @@
+package javax.comm.framing;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Decoder of the SLIP (RFC 1055) frames. Frames are unescaped in place, empty frames are skipped.</p>
+ *
+ * @see FrameReader
+ * @since 0.0.1
+ */
+public class SlipFrameDecoder implements FrameDecoder {
+	/**
+	 * <p>Frame end byte</p>
+	 */
+	public static final byte	END = (byte)0xC0;
+
+	/**
+	 * <p>Escape byte</p>
+	 */
+	public static final byte	ESC = (byte)0xDB;
+
+	/**
+	 * <p>Escaped frame end byte</p>
+	 */
+	public static final byte	ESC_END = (byte)0xDC;
+
+	/**
+	 * <p>Escaped escape byte</p>
+	 */
+	public static final byte	ESC_ESC = (byte)0xDD;
+
+	private int		scanned = 0;
+	private int		decoded = 0;
+	private boolean	escaped = false;
+
+	@Override
+	public boolean decode(final ByteBuffer input, final ByteBuffer frame) {
+		final int	end = input.limit();
+		int			start = input.position();
+
+		for (int index = start + scanned; index < end; index++) {
+			final byte	b = input.get(index);
+
+			if (escaped) {
+				escaped = false;
+				input.put(start + decoded++, b == ESC_END ? END : (b == ESC_ESC ? ESC : b));
+			}
+			else if (b == END) {
+				if (decoded > 0) {
+					frame.clear().position(start).limit(start + decoded);
+					input.position(index + 1);
+					reset();
+					return true;
+				}
+				else {
+					start = index + 1;		// skip empty frame
+					input.position(start);
+				}
+			}
+			else if (b == ESC) {
+				escaped = true;
+			}
+			else {
+				input.put(start + decoded++, b);
+			}
+		}
+		scanned = end - start;
+		return false;
+	}
+
+	@Override
+	public void reset() {
+		scanned = 0;
+		decoded = 0;
+		escaped = false;
+	}
+}
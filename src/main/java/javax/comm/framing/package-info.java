@@ -0,0 +1,10 @@
+/**
+ * <p>This package contains receive framing engine. {@linkplain javax.comm.framing.FrameReader} reads port data into one reused buffer and
+ * splits it to frames with the pluggable {@linkplain javax.comm.framing.FrameDecoder}. Frames are returned as views of the reused buffer,
+ * so no per-frame allocation and no second buffering layer occur. Decoders for the delimited, length-prefixed, SLIP, COBS and
+ * inter-character gap (Modbus RTU) framing are included.</p>
+ *  
+ * @author Alexander Chernomyrdin aka chav1961
+ * @since 0.0.1
+ */
+package javax.comm.framing;
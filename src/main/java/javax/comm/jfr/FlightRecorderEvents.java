@@ -0,0 +1,190 @@
+package javax.comm.jfr;
+
+import java.util.Optional;
+
+import jdk.jfr.EventType;
+
+/**
+ * <p>Emitter of the JDK Flight Recorder events of the ports. All the methods do nothing when the <b>jdk.jfr</b> module is not available
+ * (on the module path it must be added by <b>--add-modules jdk.jfr</b>), and event objects are created only when the event is enabled
+ * in any running recording, so events cost almost nothing without recording. Read, write and open events are committed only if their
+ * duration exceeds threshold of the recording settings (1 ms for I/O by default).</p>
+ *
+ * <p>Duration events are used in two steps: beginXXX method returns started event or null if the event is disabled, and endXXX method
+ * fills and commits it.</p>
+ */
+public final class FlightRecorderEvents {
+	/**
+	 * <p>Is the JDK Flight Recorder available</p>
+	 */
+	public static final boolean	AVAILABLE = isFlightRecorderAvailable();
+
+	private static final String[]	EVENT_NAMES = {"UNKNOWN", "DATA_AVAILABLE", "OUTPUT_BUFFER_EMPTY", "CTS", "DSR", "RI", "CD", "OE", "PE", "FE", "BI"};
+
+	private FlightRecorderEvents() {
+	}
+
+	/**
+	 * <p>Begins port open event</p>
+	 * @return event started or null if disabled
+	 */
+	public static PortOpenEvent beginOpen() {
+		if (AVAILABLE && Types.OPEN.isEnabled()) {
+			final PortOpenEvent	event = new PortOpenEvent();
+
+			event.begin();
+			return event;
+		}
+		else {
+			return null;
+		}
+	}
+
+	/**
+	 * <p>Ends port open event</p>
+	 * @param event event returned by {@linkplain #beginOpen()}. Can be null
+	 * @param portName port name
+	 * @param owner application opening the port
+	 * @param succeeded is the port opened
+	 */
+	public static void endOpen(final PortOpenEvent event, final String portName, final String owner, final boolean succeeded) {
+		if (event != null) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.portName = portName;
+				event.owner = owner;
+				event.succeeded = succeeded;
+				event.commit();
+			}
+		}
+	}
+
+	/**
+	 * <p>Begins port configuration event</p>
+	 * @return event started or null if disabled
+	 */
+	public static PortConfigurationEvent beginConfiguration() {
+		if (AVAILABLE && Types.CONFIGURATION.isEnabled()) {
+			final PortConfigurationEvent	event = new PortConfigurationEvent();
+
+			event.begin();
+			return event;
+		}
+		else {
+			return null;
+		}
+	}
+
+	/**
+	 * <p>Ends port configuration event</p>
+	 * @param event event returned by {@linkplain #beginConfiguration()}. Can be null
+	 * @param portName port name
+	 * @param operation name of the configuration method
+	 * @param baudRate baud rate requested
+	 * @param dataBits data bits requested
+	 * @param stopBits stop bits requested
+	 * @param parity parity requested
+	 * @param flowControl flow control requested
+	 * @param succeeded is configuration applied
+	 */
+	public static void endConfiguration(final PortConfigurationEvent event, final String portName, final String operation, final int baudRate, final int dataBits,
+										final int stopBits, final int parity, final int flowControl, final boolean succeeded) {
+		if (event != null) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.portName = portName;
+				event.operation = operation;
+				event.baudRate = baudRate;
+				event.dataBits = dataBits;
+				event.stopBits = stopBits;
+				event.parity = parity;
+				event.flowControl = flowControl;
+				event.succeeded = succeeded;
+				event.commit();
+			}
+		}
+	}
+
+	/**
+	 * <p>Begins port read event</p>
+	 * @return event started or null if disabled
+	 */
+	public static PortIOEvent beginRead() {
+		return AVAILABLE && Types.READ.isEnabled() ? begin(new PortReadEvent()) : null;
+	}
+
+	/**
+	 * <p>Begins port write event</p>
+	 * @return event started or null if disabled
+	 */
+	public static PortIOEvent beginWrite() {
+		return AVAILABLE && Types.WRITE.isEnabled() ? begin(new PortWriteEvent()) : null;
+	}
+
+	/**
+	 * <p>Ends port read or write event</p>
+	 * @param event event returned by {@linkplain #beginRead()} or {@linkplain #beginWrite()}. Can be null
+	 * @param portName port name
+	 * @param bytes number of bytes read or written
+	 */
+	public static void endIO(final PortIOEvent event, final String portName, final long bytes) {
+		if (event != null) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.portName = portName;
+				event.bytes = bytes;
+				event.commit();
+			}
+		}
+	}
+
+	/**
+	 * <p>Emits serial port event</p>
+	 * @param portName port name
+	 * @param eventType event type (see {@linkplain javax.comm.SerialPortEvent} constants)
+	 * @param oldValue old value
+	 * @param newValue new value
+	 * @param count event count
+	 */
+	public static void serialEvent(final String portName, final int eventType, final boolean oldValue, final boolean newValue, final int count) {
+		if (AVAILABLE && Types.SERIAL_EVENT.isEnabled()) {
+			final SerialPortEventEvent	event = new SerialPortEventEvent();
+
+			event.portName = portName;
+			event.eventType = eventType > 0 && eventType < EVENT_NAMES.length ? EVENT_NAMES[eventType] : EVENT_NAMES[0];
+			event.oldValue = oldValue;
+			event.newValue = newValue;
+			event.count = count;
+			event.commit();
+		}
+	}
+
+	private static PortIOEvent begin(final PortIOEvent event) {
+		event.begin();
+		return event;
+	}
+
+	private static boolean isFlightRecorderAvailable() {
+		final Optional<Module>	jfr = ModuleLayer.boot().findModule("jdk.jfr");
+
+		if (jfr.isPresent()) {
+			final Module	self = FlightRecorderEvents.class.getModule();
+
+			if (!self.canRead(jfr.get())) {		// 'requires static' doesn't add readability at runtime
+				self.addReads(jfr.get());
+			}
+			return true;
+		}
+		else {
+			return false;
+		}
+	}
+
+	private static class Types {	// loaded only when jdk.jfr is available
+		private static final EventType	OPEN = EventType.getEventType(PortOpenEvent.class);
+		private static final EventType	CONFIGURATION = EventType.getEventType(PortConfigurationEvent.class);
+		private static final EventType	READ = EventType.getEventType(PortReadEvent.class);
+		private static final EventType	WRITE = EventType.getEventType(PortWriteEvent.class);
+		private static final EventType	SERIAL_EVENT = EventType.getEventType(SerialPortEventEvent.class);
+	}
+}
@@ -0,0 +1,41 @@
+package javax.comm.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * <p>Change of the serial port parameters or flow control mode.</p>
+ */
+@Name("javax.comm.PortConfiguration")
+@Label("Port Configuration")
+@Description("Change of the serial port parameters or flow control mode")
+@Category("javax.comm")
+@Threshold("0 ms")
+public final class PortConfigurationEvent extends jdk.jfr.Event {
+	@Label("Port Name")
+	String	portName;
+
+	@Label("Operation")
+	String	operation;
+
+	@Label("Baud Rate")
+	int		baudRate;
+
+	@Label("Data Bits")
+	int		dataBits;
+
+	@Label("Stop Bits")
+	int		stopBits;
+
+	@Label("Parity")
+	int		parity;
+
+	@Label("Flow Control")
+	int		flowControl;
+
+	@Label("Succeeded")
+	boolean	succeeded;
+}
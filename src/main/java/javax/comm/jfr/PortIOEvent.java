@@ -0,0 +1,18 @@
+package javax.comm.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+
+/**
+ * <p>Base class of the port read and write events.</p>
+ */
+@Category({"javax.comm", "I/O"})
+public abstract class PortIOEvent extends jdk.jfr.Event {
+	@Label("Port Name")
+	String	portName;
+
+	@Label("Bytes")
+	@DataAmount
+	long	bytes;
+}
@@ -0,0 +1,26 @@
+package javax.comm.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * <p>Port open by the {@linkplain javax.comm.CommPortIdentifier#open(String, int)}, including time waiting for the port release.</p>
+ */
+@Name("javax.comm.PortOpen")
+@Label("Port Open")
+@Description("Open of the communications port, including time waiting for the port release")
+@Category("javax.comm")
+@Threshold("0 ms")
+public final class PortOpenEvent extends jdk.jfr.Event {
+	@Label("Port Name")
+	String	portName;
+
+	@Label("Application")
+	String	owner;
+
+	@Label("Succeeded")
+	boolean	succeeded;
+}
@@ -0,0 +1,16 @@
+package javax.comm.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * <p>Read from the port, including time blocked waiting for data.</p>
+ */
+@Name("javax.comm.PortRead")
+@Label("Port Read")
+@Description("Read from the communications port, including time blocked waiting for data")
+@Threshold("1 ms")
+public final class PortReadEvent extends PortIOEvent {
+}
@@ -0,0 +1,16 @@
+package javax.comm.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * <p>Write to the port, including time blocked by flow control.</p>
+ */
+@Name("javax.comm.PortWrite")
+@Label("Port Write")
+@Description("Write to the communications port, including time blocked by flow control")
+@Threshold("1 ms")
+public final class PortWriteEvent extends PortIOEvent {
+}
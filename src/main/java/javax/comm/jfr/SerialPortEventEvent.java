@@ -0,0 +1,32 @@
+package javax.comm.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <p>{@linkplain javax.comm.SerialPortEvent} fired by the port driver.</p>
+ */
+@Name("javax.comm.SerialPortEvent")
+@Label("Serial Port Event")
+@Description("Data, line state or line error event fired by the serial port driver")
+@Category("javax.comm")
+@StackTrace(false)
+public final class SerialPortEventEvent extends jdk.jfr.Event {
+	@Label("Port Name")
+	String	portName;
+
+	@Label("Event Type")
+	String	eventType;
+
+	@Label("Old Value")
+	boolean	oldValue;
+
+	@Label("New Value")
+	boolean	newValue;
+
+	@Label("Count")
+	int		count;
+}
@@ -0,0 +1,8 @@
+/**
+ * <p>This package contains JDK Flight Recorder events of the communications ports. Package is not exported, events are emitted by the
+ * {@linkplain javax.comm.jfr.FlightRecorderEvents} class from the ports and drivers of the module. Events are available only when the
+ * <b>jdk.jfr</b> module is resolved (on the module path use <b>--add-modules jdk.jfr</b>).</p>
+ *
+ * @since 0.0.1
+ */
+package javax.comm.jfr;
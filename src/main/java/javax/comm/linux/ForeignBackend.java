@@ -0,0 +1,152 @@
+package javax.comm.linux;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Optional;
+
+/**
+ * <p>Native backend of Java 22 and later built on the final <b>java.lang.foreign</b> API (see {@linkplain NativeBackend}). Every downcall
+ * captures errno into the thread-local direct buffer, which is passed to the linker as the call state segment.</p>
+ */
+final class ForeignBackend extends NativeBackend {
+	private static final String	PACKAGE = "java.lang.foreign.";
+
+	private final Object				linker;
+	private final Object				lookup;
+	private final Method				findMethod;
+	private final Method				downcallMethod;
+	private final Method				describeMethod;
+	private final Method				variadicMethod;
+	private final Class<?>				layoutClass;
+	private final Class<?>				segmentClass;
+	private final Class<?>				optionClass;
+	private final Object				intLayout;
+	private final Object				longLayout;
+	private final Object				pointerLayout;
+	private final Object				captureOption;
+	private final MethodHandle			toPointer;
+	private final MethodHandle			captureState;
+	private final Object				nullPointer;
+	private final int					errnoOffset;
+	private final ThreadLocal<CallState>	callState;
+
+	ForeignBackend() throws ReflectiveOperationException {
+		final Class<?>	linkerClass = Class.forName(PACKAGE+"Linker");
+		final Class<?>	valueLayoutClass = Class.forName(PACKAGE+"ValueLayout");
+		final Class<?>	descriptorClass = Class.forName(PACKAGE+"FunctionDescriptor");
+		final Class<?>	pathClass = Class.forName(PACKAGE+"MemoryLayout$PathElement");
+
+		this.layoutClass = Class.forName(PACKAGE+"MemoryLayout");
+		this.segmentClass = Class.forName(PACKAGE+"MemorySegment");
+		this.optionClass = Class.forName(PACKAGE+"Linker$Option");
+		this.linker = invoke(linkerClass.getMethod("nativeLinker"), null);
+		this.lookup = invoke(linkerClass.getMethod("defaultLookup"), linker);
+		this.findMethod = Class.forName(PACKAGE+"SymbolLookup").getMethod("find", String.class);
+		this.downcallMethod = linkerClass.getMethod("downcallHandle", segmentClass, descriptorClass, Array.newInstance(optionClass, 0).getClass());
+		this.describeMethod = descriptorClass.getMethod("of", layoutClass, Array.newInstance(layoutClass, 0).getClass());
+		this.variadicMethod = optionClass.getMethod("firstVariadicArg", int.class);
+		this.intLayout = valueLayoutClass.getField("JAVA_INT").get(null);
+		this.longLayout = valueLayoutClass.getField("JAVA_LONG").get(null);
+		this.pointerLayout = valueLayoutClass.getField("ADDRESS").get(null);
+		this.nullPointer = segmentClass.getField("NULL").get(null);
+		this.captureOption = invoke(optionClass.getMethod("captureCallState", String[].class), null, (Object)new String[] {"errno"});
+		this.toPointer = MethodHandles.publicLookup().findStatic(segmentClass, "ofBuffer", MethodType.methodType(segmentClass, Buffer.class))
+							.asType(MethodType.methodType(segmentClass, ByteBuffer.class));
+		this.captureState = MethodHandles.lookup().findVirtual(ForeignBackend.class, "captureSegment", MethodType.methodType(Object.class))
+							.bindTo(this).asType(MethodType.methodType(segmentClass));
+
+		final Object	stateLayout = invoke(optionClass.getMethod("captureStateLayout"), null);
+		final Object	path = Array.newInstance(pathClass, 1);
+		final int		stateSize = (int)(long)invoke(layoutClass.getMethod("byteSize"), stateLayout);
+		final Method	ofBuffer = segmentClass.getMethod("ofBuffer", Buffer.class);
+
+		Array.set(path, 0, invoke(pathClass.getMethod("groupElement", String.class), null, "errno"));
+		this.errnoOffset = (int)(long)invoke(layoutClass.getMethod("byteOffset", path.getClass()), stateLayout, path);
+		this.callState = ThreadLocal.withInitial(()->{
+							final ByteBuffer	buffer = ByteBuffer.allocateDirect(stateSize).order(ByteOrder.nativeOrder());
+
+							try {
+								return new CallState(buffer, invoke(ofBuffer, null, buffer));
+							} catch (ReflectiveOperationException exc) {
+								throw new IllegalStateException("Call state can't be allocated: "+exc.getMessage(), exc);
+							}
+						});
+	}
+
+	@Override
+	MethodHandle downcall(final String name, final int firstVariadic, final Class<?> returnType, final Class<?>... parameterTypes) throws ReflectiveOperationException {
+		final Class<?>[]	carriers = new Class<?>[parameterTypes.length + 1];
+		final Object		layouts = Array.newInstance(layoutClass, parameterTypes.length);
+		final Object		options = Array.newInstance(optionClass, firstVariadic >= 0 ? 2 : 1);
+
+		carriers[0] = segmentClass;		// call state segment goes first
+		for (int index = 0; index < parameterTypes.length; index++) {
+			carriers[index + 1] = carrierOf(parameterTypes[index], segmentClass);
+			Array.set(layouts, index, layoutOf(parameterTypes[index]));
+		}
+		Array.set(options, 0, captureOption);
+		if (firstVariadic >= 0) {
+			Array.set(options, 1, invoke(variadicMethod, null, firstVariadic));
+		}
+		final MethodHandle	raw = (MethodHandle)invoke(downcallMethod, linker, find(name), invoke(describeMethod, null, layoutOf(returnType), layouts), options);
+
+		return MethodHandles.collectArguments(adaptPointers(raw.asType(MethodType.methodType(returnType, carriers)), 1, parameterTypes, toPointer, nullPointer), 0, captureState);
+	}
+
+	@Override
+	int errno() {
+		return callState.get().buffer.getInt(errnoOffset);
+	}
+
+	private Object captureSegment() {
+		return callState.get().segment;
+	}
+
+	private Object find(final String name) throws ReflectiveOperationException {
+		final Optional<?>	symbol = (Optional<?>)invoke(findMethod, lookup, name);
+
+		if (symbol.isPresent()) {
+			return symbol.get();
+		}
+		else {
+			throw new NoSuchMethodException("C library function ["+name+"] is not found");
+		}
+	}
+
+	private Object layoutOf(final Class<?> type) {
+		if (type == int.class) {
+			return intLayout;
+		}
+		else if (type == long.class) {
+			return longLayout;
+		}
+		else {
+			return pointerLayout;
+		}
+	}
+
+	private static Object invoke(final Method method, final Object target, final Object... args) throws ReflectiveOperationException {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException exc) {
+			throw new ReflectiveOperationException(exc.getCause().getMessage(), exc.getCause());
+		}
+	}
+
+	private static class CallState {
+		private final ByteBuffer	buffer;
+		private final Object		segment;
+
+		private CallState(final ByteBuffer buffer, final Object segment) {
+			this.buffer = buffer;
+			this.segment = segment;
+		}
+	}
+}
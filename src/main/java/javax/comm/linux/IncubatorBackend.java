@@ -0,0 +1,130 @@
+package javax.comm.linux;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Optional;
+
+/**
+ * <p>Native backend of Java 17 built on the incubating <b>jdk.incubator.foreign</b> API (see {@linkplain NativeBackend}). The API can't
+ * capture errno, so errno is read from the thread-local location returned by <b>__errno_location</b>. The location is mapped once per thread.</p>
+ */
+final class IncubatorBackend extends NativeBackend {
+	private static final String	PACKAGE = "jdk.incubator.foreign.";
+
+	private final Object				linker;
+	private final Object				lookup;
+	private final Method				lookupMethod;
+	private final Method				downcallMethod;
+	private final Method				describeMethod;
+	private final Method				varArgMethod;
+	private final Class<?>				layoutClass;
+	private final Class<?>				addressClass;
+	private final Object				intLayout;
+	private final Object				longLayout;
+	private final Object				pointerLayout;
+	private final MethodHandle			toPointer;
+	private final Object				nullPointer;
+	private final ThreadLocal<ByteBuffer>	errnoView;
+
+	IncubatorBackend() throws ReflectiveOperationException {
+		final Class<?>	linkerClass = Class.forName(PACKAGE+"CLinker");
+		final Class<?>	segmentClass = Class.forName(PACKAGE+"MemorySegment");
+		final Class<?>	descriptorClass = Class.forName(PACKAGE+"FunctionDescriptor");
+		final Class<?>	scopeClass = Class.forName(PACKAGE+"ResourceScope");
+
+		this.layoutClass = Class.forName(PACKAGE+"MemoryLayout");
+		this.addressClass = Class.forName(PACKAGE+"MemoryAddress");
+		this.linker = invoke(linkerClass.getMethod("getInstance"), null);	// throws IllegalCallerException without native access
+		this.lookup = invoke(linkerClass.getMethod("systemLookup"), null);
+		this.lookupMethod = Class.forName(PACKAGE+"SymbolLookup").getMethod("lookup", String.class);
+		this.downcallMethod = linkerClass.getMethod("downcallHandle", Class.forName(PACKAGE+"Addressable"), MethodType.class, descriptorClass);
+		this.describeMethod = descriptorClass.getMethod("of", layoutClass, Array.newInstance(layoutClass, 0).getClass());
+		this.varArgMethod = linkerClass.getMethod("asVarArg", layoutClass);
+		this.intLayout = linkerClass.getField("C_INT").get(null);
+		this.longLayout = linkerClass.getField("C_LONG").get(null);
+		this.pointerLayout = linkerClass.getField("C_POINTER").get(null);
+		this.nullPointer = addressClass.getField("NULL").get(null);
+		this.toPointer = MethodHandles.filterReturnValue(
+							MethodHandles.publicLookup().findStatic(segmentClass, "ofByteBuffer", MethodType.methodType(segmentClass, ByteBuffer.class))
+							, MethodHandles.publicLookup().findVirtual(segmentClass, "address", MethodType.methodType(addressClass)));
+
+		final MethodHandle	location = raw("__errno_location", addressClass);
+		final Method		asSegment = addressClass.getMethod("asSegment", long.class, scopeClass);
+		final Method		asByteBuffer = segmentClass.getMethod("asByteBuffer");
+		final Object		globalScope = invoke(scopeClass.getMethod("globalScope"), null);
+
+		this.errnoView = ThreadLocal.withInitial(()->{
+							try {
+								final Object	address = location.invoke();
+
+								return ((ByteBuffer)invoke(asByteBuffer, invoke(asSegment, address, (long)Integer.BYTES, globalScope))).order(ByteOrder.nativeOrder());
+							} catch (Throwable exc) {
+								throw new IllegalStateException("errno location can't be mapped: "+exc.getMessage(), exc);
+							}
+						});
+	}
+
+	@Override
+	MethodHandle downcall(final String name, final int firstVariadic, final Class<?> returnType, final Class<?>... parameterTypes) throws ReflectiveOperationException {
+		final Class<?>[]	carriers = new Class<?>[parameterTypes.length];
+		final Object		layouts = Array.newInstance(layoutClass, parameterTypes.length);
+
+		for (int index = 0; index < parameterTypes.length; index++) {
+			final Object	layout = layoutOf(parameterTypes[index]);
+
+			carriers[index] = carrierOf(parameterTypes[index], addressClass);
+			Array.set(layouts, index, firstVariadic >= 0 && index >= firstVariadic ? invoke(varArgMethod, null, layout) : layout);
+		}
+		final MethodHandle	raw = (MethodHandle)invoke(downcallMethod, linker, find(name), MethodType.methodType(returnType, carriers)
+										, invoke(describeMethod, null, layoutOf(returnType), layouts));
+
+		return adaptPointers(raw, 0, parameterTypes, toPointer, nullPointer);
+	}
+
+	@Override
+	int errno() {
+		return errnoView.get().getInt(0);
+	}
+
+	private MethodHandle raw(final String name, final Class<?> returnCarrier) throws ReflectiveOperationException {
+		return (MethodHandle)invoke(downcallMethod, linker, find(name), MethodType.methodType(returnCarrier)
+							, invoke(describeMethod, null, pointerLayout, Array.newInstance(layoutClass, 0)));
+	}
+
+	private Object find(final String name) throws ReflectiveOperationException {
+		final Optional<?>	symbol = (Optional<?>)invoke(lookupMethod, lookup, name);
+
+		if (symbol.isPresent()) {
+			return symbol.get();
+		}
+		else {
+			throw new NoSuchMethodException("C library function ["+name+"] is not found");
+		}
+	}
+
+	private Object layoutOf(final Class<?> type) {
+		if (type == int.class) {
+			return intLayout;
+		}
+		else if (type == long.class) {
+			return longLayout;
+		}
+		else {
+			return pointerLayout;
+		}
+	}
+
+	private static Object invoke(final Method method, final Object target, final Object... args) throws ReflectiveOperationException {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException exc) {	// API failures, for example IllegalCallerException without native access
+			throw new ReflectiveOperationException(exc.getCause().getMessage(), exc.getCause());
+		}
+	}
+}
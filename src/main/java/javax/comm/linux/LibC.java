@@ -0,0 +1,366 @@
+package javax.comm.linux;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.ref.Reference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>C library calls of the Linux driver made by the Foreign Function &amp; Memory API (see {@linkplain NativeBackend}). Every call returns
+ * non-negative result on success, or negated errno on failure, like the kernel does. Pointer arguments are direct {@linkplain ByteBuffer}s,
+ * memory is passed from the buffer position, and buffers read or written are moved by the number of bytes transferred. Structures
+ * are laid out for the 64-bit little-endian Linux ABI of the x86_64, aarch64 and riscv64 processors, other platforms are not supported.</p>
+ */
+final class LibC {
+	static final int	O_RDWR = 02;
+	static final int	O_NOCTTY = 0400;
+	static final int	O_NONBLOCK = 04000;
+	static final int	O_CLOEXEC = 02000000;
+
+	static final int	EINTR = 4;
+	static final int	EIO = 5;
+	static final int	EBADF = 9;
+	static final int	EAGAIN = 11;
+	static final int	EBUSY = 16;
+	static final int	EINVAL = 22;
+	static final int	ENOTTY = 25;
+
+	static final long	TCGETS2 = 0x802C542AL;
+	static final long	TCSETS2 = 0x402C542BL;
+	static final long	TIOCMGET = 0x5415;
+	static final long	TIOCMBIS = 0x5416;
+	static final long	TIOCMBIC = 0x5417;
+	static final long	TIOCMIWAIT = 0x545C;
+	static final long	TIOCSBRK = 0x5427;
+	static final long	TIOCCBRK = 0x5428;
+	static final long	TIOCGSERIAL = 0x541E;
+	static final long	TIOCSSERIAL = 0x541F;
+	static final long	TIOCEXCL = 0x540C;
+	static final long	TIOCNXCL = 0x540D;
+	static final long	TCFLSH = 0x540B;
+	static final long	FIONREAD = 0x541B;
+	static final int	TCOFLUSH = 1;
+	static final int	TIOCM_DTR = 0x002;
+	static final int	TIOCM_RTS = 0x004;
+	static final int	TIOCM_CTS = 0x020;
+	static final int	TIOCM_CD = 0x040;
+	static final int	TIOCM_RI = 0x080;
+	static final int	TIOCM_DSR = 0x100;
+
+	static final int	EPOLL_CTL_ADD = 1;
+	static final int	EPOLL_CTL_DEL = 2;
+	static final int	EPOLL_CTL_MOD = 3;
+	static final int	EPOLLIN = 0x001;
+	static final int	EPOLLOUT = 0x004;
+	static final int	EPOLLERR = 0x008;
+	static final int	EPOLLHUP = 0x010;
+	static final int	EPOLL_EVENT_SIZE;		// struct epoll_event is packed on x86_64 only
+	static final int	EPOLL_DATA_OFFSET;
+
+	private static final int			SIGACTION_SIZE = 256;	// more than sizeof(struct sigaction) of all the platforms supported
+	private static final long			SIG_DFL = 0;
+	private static final long			SIG_IGN = 1;
+	private static final String			UNAVAILABLE_REASON;
+	private static final NativeBackend	BACKEND;
+	private static final MethodHandle	OPEN;
+	private static final MethodHandle	CLOSE;
+	private static final MethodHandle	READ;
+	private static final MethodHandle	WRITE;
+	private static final MethodHandle	IOCTL_POINTER;
+	private static final MethodHandle	IOCTL_VALUE;
+	private static final MethodHandle	TCDRAIN;
+	private static final MethodHandle	EPOLL_CREATE;
+	private static final MethodHandle	EPOLL_CTL;
+	private static final MethodHandle	EPOLL_WAIT;
+	private static final MethodHandle	PTHREAD_SELF;
+	private static final MethodHandle	PTHREAD_KILL;
+	private static final MethodHandle	SIGACTION;
+	private static final ThreadLocal<ByteBuffer>	SCRATCH = ThreadLocal.withInitial(()->ByteBuffer.allocateDirect(SIGACTION_SIZE).order(ByteOrder.nativeOrder()));
+
+	static {
+		final String	arch = System.getProperty("os.arch", "");
+		NativeBackend	backend = null;
+		String			reason = null;
+		MethodHandle[]	handles = new MethodHandle[13];
+
+		if (!System.getProperty("os.name", "").toLowerCase().startsWith("linux")) {
+			reason = "Linux is required";
+		}
+		else if (!(arch.equals("amd64") || arch.equals("x86_64") || arch.equals("aarch64") || arch.equals("riscv64"))) {
+			reason = "Processor architecture ["+arch+"] is not supported";
+		}
+		else {
+			try {
+				backend = NativeBackend.load();
+				handles[0] = backend.downcall("open", -1, int.class, ByteBuffer.class, int.class);
+				handles[1] = backend.downcall("close", -1, int.class, int.class);
+				handles[2] = backend.downcall("read", -1, long.class, int.class, ByteBuffer.class, long.class);
+				handles[3] = backend.downcall("write", -1, long.class, int.class, ByteBuffer.class, long.class);
+				handles[4] = backend.downcall("ioctl", 2, int.class, int.class, long.class, ByteBuffer.class);
+				handles[5] = backend.downcall("ioctl", 2, int.class, int.class, long.class, long.class);
+				handles[6] = backend.downcall("tcdrain", -1, int.class, int.class);
+				handles[7] = backend.downcall("epoll_create1", -1, int.class, int.class);
+				handles[8] = backend.downcall("epoll_ctl", -1, int.class, int.class, int.class, int.class, ByteBuffer.class);
+				handles[9] = backend.downcall("epoll_wait", -1, int.class, int.class, ByteBuffer.class, int.class, int.class);
+				handles[10] = backend.downcall("pthread_self", -1, long.class);
+				handles[11] = backend.downcall("pthread_kill", -1, int.class, long.class, int.class);
+				handles[12] = backend.downcall("sigaction", -1, int.class, int.class, ByteBuffer.class, ByteBuffer.class);
+				try {	// installs the signal handler the JDK interrupts blocking I/O with (see interrupt(long))
+					Class.forName("sun.nio.ch.NativeThread");
+				} catch (ClassNotFoundException exc) {
+					// interrupt(long) checks the handler anyway
+				}
+			} catch (ReflectiveOperationException | RuntimeException exc) {
+				backend = null;
+				handles = new MethodHandle[handles.length];
+				reason = exc.getMessage() != null ? exc.getMessage() : exc.toString();
+			}
+		}
+		BACKEND = backend;
+		UNAVAILABLE_REASON = reason;
+		OPEN = handles[0];
+		CLOSE = handles[1];
+		READ = handles[2];
+		WRITE = handles[3];
+		IOCTL_POINTER = handles[4];
+		IOCTL_VALUE = handles[5];
+		TCDRAIN = handles[6];
+		EPOLL_CREATE = handles[7];
+		EPOLL_CTL = handles[8];
+		EPOLL_WAIT = handles[9];
+		PTHREAD_SELF = handles[10];
+		PTHREAD_KILL = handles[11];
+		SIGACTION = handles[12];
+		EPOLL_EVENT_SIZE = arch.equals("amd64") || arch.equals("x86_64") ? 12 : 16;
+		EPOLL_DATA_OFFSET = EPOLL_EVENT_SIZE - Long.BYTES;
+	}
+
+	private LibC() {
+	}
+
+	/**
+	 * <p>Are native calls available</p>
+	 * @return true if available
+	 */
+	static boolean isAvailable() {
+		return BACKEND != null;
+	}
+
+	/**
+	 * <p>Gets reason of the native calls unavailability</p>
+	 * @return reason, or null if native calls are available
+	 */
+	static String getUnavailableReason() {
+		return UNAVAILABLE_REASON;
+	}
+
+	static int open(final String path, final int flags) {
+		final byte[]		name = path.getBytes(StandardCharsets.UTF_8);
+		final ByteBuffer	buffer = ByteBuffer.allocateDirect(name.length + 1).put(name).put((byte)0);
+
+		buffer.flip();
+		try {
+			return check((int)OPEN.invokeExact(buffer, flags));
+		} catch (Throwable exc) {
+			throw unexpected(exc);
+		} finally {
+			Reference.reachabilityFence(buffer);
+		}
+	}
+
+	static int close(final int fd) {
+		try {
+			return check((int)CLOSE.invokeExact(fd));
+		} catch (Throwable exc) {
+			throw unexpected(exc);
+		}
+	}
+
+	static int read(final int fd, final ByteBuffer dst) {
+		try {
+			final int	result = check((int)(long)READ.invokeExact(fd, dst, (long)dst.remaining()));
+
+			if (result > 0) {
+				dst.position(dst.position() + result);
+			}
+			return result;
+		} catch (Throwable exc) {
+			throw unexpected(exc);
+		} finally {
+			Reference.reachabilityFence(dst);
+		}
+	}
+
+	static int write(final int fd, final ByteBuffer src) {
+		try {
+			final int	result = check((int)(long)WRITE.invokeExact(fd, src, (long)src.remaining()));
+
+			if (result > 0) {
+				src.position(src.position() + result);
+			}
+			return result;
+		} catch (Throwable exc) {
+			throw unexpected(exc);
+		} finally {
+			Reference.reachabilityFence(src);
+		}
+	}
+
+	static int ioctl(final int fd, final long request, final ByteBuffer arg) {
+		try {
+			return check((int)IOCTL_POINTER.invokeExact(fd, request, arg));
+		} catch (Throwable exc) {
+			throw unexpected(exc);
+		} finally {
+			Reference.reachabilityFence(arg);
+		}
+	}
+
+	static int ioctl(final int fd, final long request, final long arg) {
+		try {
+			return check((int)IOCTL_VALUE.invokeExact(fd, request, arg));
+		} catch (Throwable exc) {
+			throw unexpected(exc);
+		}
+	}
+
+	/**
+	 * <p>Calls ioctl with the int argument passed by pointer</p>
+	 * @param fd file descriptor
+	 * @param request request code
+	 * @param arg argument value
+	 * @return value of the argument after the call, or negated errno
+	 */
+	static int ioctlInt(final int fd, final long request, final int arg) {
+		final ByteBuffer	scratch = SCRATCH.get();
+		final int			result;
+
+		scratch.clear();
+		scratch.putInt(0, arg);
+		return (result = ioctl(fd, request, scratch)) < 0 ? result : scratch.getInt(0);
+	}
+
+	static int tcdrain(final int fd) {
+		try {
+			return check((int)TCDRAIN.invokeExact(fd));
+		} catch (Throwable exc) {
+			throw unexpected(exc);
+		}
+	}
+
+	static int epollCreate() {
+		try {
+			return check((int)EPOLL_CREATE.invokeExact(O_CLOEXEC));
+		} catch (Throwable exc) {
+			throw unexpected(exc);
+		}
+	}
+
+	/**
+	 * <p>Controls epoll interest list. File descriptor is passed as the user data of the event.</p>
+	 * @param epfd epoll file descriptor
+	 * @param op operation (see {@linkplain #EPOLL_CTL_ADD} etc)
+	 * @param fd file descriptor
+	 * @param events events to wait for
+	 * @return 0 or negated errno
+	 */
+	static int epollCtl(final int epfd, final int op, final int fd, final int events) {
+		final ByteBuffer	event = SCRATCH.get();
+
+		event.clear();
+		event.putInt(0, events);
+		event.putLong(EPOLL_DATA_OFFSET, fd);
+		try {
+			return check((int)EPOLL_CTL.invokeExact(epfd, op, fd, event));
+		} catch (Throwable exc) {
+			throw unexpected(exc);
+		}
+	}
+
+	/**
+	 * <p>Waits for epoll events. Events are stored from the buffer position, buffer position is not changed</p>
+	 * @param epfd epoll file descriptor
+	 * @param events buffer for events
+	 * @param timeout timeout in milliseconds, -1 means forever
+	 * @return number of events or negated errno
+	 */
+	static int epollWait(final int epfd, final ByteBuffer events, final int timeout) {
+		try {
+			return check((int)EPOLL_WAIT.invokeExact(epfd, events, events.remaining() / EPOLL_EVENT_SIZE, timeout));
+		} catch (Throwable exc) {
+			throw unexpected(exc);
+		} finally {
+			Reference.reachabilityFence(events);
+		}
+	}
+
+	static long pthreadSelf() {
+		try {
+			return (long)PTHREAD_SELF.invokeExact();
+		} catch (Throwable exc) {
+			throw unexpected(exc);
+		}
+	}
+
+	/**
+	 * <p>Interrupts blocking system call of the thread by the signal the JDK uses to interrupt blocking I/O (__SIGRTMAX - 2, with
+	 * the empty handler installed without SA_RESTART). Signal is sent only when its handler is installed, so it never kills the process.</p>
+	 * @param thread pthread_t of the thread
+	 * @return true if the signal was sent
+	 */
+	static boolean interrupt(final long thread) {
+		final int	signal = 64 - 2;
+		final ByteBuffer	scratch = SCRATCH.get();
+
+		scratch.clear();
+		try {
+			if (check((int)SIGACTION.invokeExact(signal, (ByteBuffer)null, scratch)) < 0) {
+				return false;
+			}
+			else {
+				final long	handler = scratch.getLong(0);
+
+				return handler != SIG_DFL && handler != SIG_IGN && (int)PTHREAD_KILL.invokeExact(thread, signal) == 0;
+			}
+		} catch (Throwable exc) {
+			throw unexpected(exc);
+		}
+	}
+
+	/**
+	 * <p>Gets name of the error</p>
+	 * @param errno error number, positive or negated
+	 * @return error name. Can't be null
+	 */
+	static String describe(final int errno) {
+		switch (Math.abs(errno)) {
+			case 1		: return "EPERM (operation not permitted)";
+			case 2		: return "ENOENT (no such file or directory)";
+			case EINTR	: return "EINTR (interrupted system call)";
+			case EIO	: return "EIO (input/output error)";
+			case 6		: return "ENXIO (no such device or address)";
+			case EBADF	: return "EBADF (bad file descriptor)";
+			case EAGAIN	: return "EAGAIN (resource temporarily unavailable)";
+			case 13		: return "EACCES (permission denied)";
+			case EBUSY	: return "EBUSY (device or resource busy)";
+			case 19		: return "ENODEV (no such device)";
+			case EINVAL	: return "EINVAL (invalid argument)";
+			case ENOTTY	: return "ENOTTY (inappropriate ioctl for device)";
+			default		: return "errno "+Math.abs(errno);
+		}
+	}
+
+	private static int check(final int result) {
+		return result < 0 ? -BACKEND.errno() : result;
+	}
+
+	private static IllegalStateException unexpected(final Throwable exc) {
+		if (exc instanceof Error) {
+			throw (Error)exc;
+		}
+		else {
+			return new IllegalStateException("Native call failed: "+exc.getMessage(), exc);
+		}
+	}
+}
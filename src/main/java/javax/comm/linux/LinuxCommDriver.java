@@ -0,0 +1,183 @@
+package javax.comm.linux;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.comm.CommDriver;
+import javax.comm.CommPort;
+import javax.comm.CommPortIdentifier;
+import javax.comm.NoSuchPortException;
+import javax.comm.SerialConfig;
+import javax.comm.UnsupportedCommOperationException;
+
+/**
+ * <p>Linux serial port driver. On initialization it registers all the <b>/dev/ttyS*</b>, <b>/dev/ttyUSB*</b>, <b>/dev/ttyACM*</b>, <b>/dev/ttyAMA*</b>
+ * and <b>/dev/rfcomm*</b> devices backed by the real hardware (having <b>/sys/class/tty/&lt;name&gt;/device</b> entry), and all the devices listed
+ * in the <b>javax.comm.linux.ports</b> system property (comma-separated list of absolute device paths, for example pseudo-terminals).
+ * Port name is an absolute path of the device.</p>
+ *
+ * <p>After initialization driver watches the <b>/dev</b> directory with inotify-based {@linkplain java.nio.file.WatchService}, and registers
+ * or deregisters devices as soon as they are plugged or unplugged. Hot plug watching can be turned off by the <b>javax.comm.linux.hotplug</b>
+ * system property set to <b>false</b>.</p>
+ *
+ * <p>Driver calls termios, ioctl and epoll natively by the Foreign Function &amp; Memory API (see {@linkplain LinuxSerialPort}), so it needs
+ * Java 17 with <b>--add-modules jdk.incubator.foreign</b> or Java 22 and later, and native access enabled by <b>--enable-native-access=javax.comm</b>
+ * (<b>ALL-UNNAMED</b> on the class path). Without them the driver registers no ports, and {@linkplain #getUnavailableReason()} tells why.
+ * Legacy <b>/dev/ttyS*</b> devices without UART (reported by the kernel as the port type 0) are not registered.</p>
+ *
+ * <p>Driver does nothing on non-Linux operating systems.</p>
+ *
+ * @author Alexander Chernomyrdin aka chav1961
+ * @since 0.0.1
+ */
+public class LinuxCommDriver implements CommDriver {
+	/**
+	 * <p>System property with the comma-separated list of additional device paths to register.</p>
+	 */
+	public static final String	PORTS_PROPERTY = "javax.comm.linux.ports";
+
+	/**
+	 * <p>System property to turn hot plug watching on or off. Default is <b>true</b>.</p>
+	 */
+	public static final String	HOTPLUG_PROPERTY = "javax.comm.linux.hotplug";
+
+	private static final String		DEV_DIR = "/dev";
+	private static final String		SYS_TTY_DIR = "/sys/class/tty";
+	private static final String[]	DEVICE_PREFIXES = {"ttyS", "ttyUSB", "ttyACM", "ttyAMA", "rfcomm"};
+
+	private final Set<String>		discovered = ConcurrentHashMap.newKeySet();
+
+	@Override
+	public CommPort getCommPort(final String portName, final int portType) {
+		if (portName == null || portName.isEmpty()) {
+			throw new IllegalArgumentException("Port name can't be null or empty");
+		}
+		else if (portType != CommPortIdentifier.PORT_SERIAL) {
+			return null;
+		}
+		else {
+			try {
+				return new LinuxSerialPort(portName, portName.startsWith("/") ? portName : DEV_DIR + '/' + portName, getLastSerialConfig(portName));
+			} catch (IOException exc) {
+				throw new UncheckedIOException("Device ["+portName+"] can't be opened: "+exc.getMessage(), exc);
+			} catch (UnsupportedCommOperationException exc) {
+				throw new IllegalStateException("Device ["+portName+"] can't be configured: "+exc.getMessage(), exc);
+			}
+		}
+	}
+
+	@Override
+	public void initialize() {
+		if (System.getProperty("os.name", "").toLowerCase().startsWith("linux") && LibC.isAvailable()) {
+			LinuxDeviceWatcher	watcher = null;
+
+			if (Boolean.parseBoolean(System.getProperty(HOTPLUG_PROPERTY, "true"))) {
+				try {	// watch before scanning to miss nothing
+					watcher = new LinuxDeviceWatcher(this, DEV_DIR);
+				} catch (IOException exc) {
+					watcher = null;
+				}
+			}
+			rescan();
+			for (String path : System.getProperty(PORTS_PROPERTY, "").split(",")) {
+				if (!path.trim().isEmpty()) {
+					CommPortIdentifier.addPortName(path.trim(), CommPortIdentifier.PORT_SERIAL, this);
+				}
+			}
+			if (watcher != null) {
+				watcher.start();
+			}
+		}
+	}
+
+	/**
+	 * <p>Gets reason why the driver can't work in the current runtime</p>
+	 * @return reason, or null if the driver is available
+	 */
+	public static String getUnavailableReason() {
+		return LibC.getUnavailableReason();
+	}
+
+	/**
+	 * <p>Synchronizes registered devices with the <b>/dev</b> directory content</p>
+	 */
+	void rescan() {
+		final File[]		devices = new File(DEV_DIR).listFiles((dir, name) -> isSerialDeviceName(name));
+		final Set<String>	present = new HashSet<>();
+
+		if (devices != null) {
+			for (File device : devices) {
+				present.add(device.getName());
+				deviceAdded(device.getName());
+			}
+		}
+		for (String path : discovered) {
+			if (!present.contains(new File(path).getName())) {
+				deviceRemoved(new File(path).getName());
+			}
+		}
+	}
+
+	/**
+	 * <p>Registers device appeared in the <b>/dev</b> directory, if it is a serial port backed by the hardware</p>
+	 * @param name device name
+	 */
+	void deviceAdded(final String name) {
+		if (isSerialDeviceName(name) && new File(new File(SYS_TTY_DIR, name), "device").exists() && isUartPresent(name)) {
+			final String	path = DEV_DIR + '/' + name;
+
+			if (discovered.add(path)) {
+				CommPortIdentifier.addPortName(path, CommPortIdentifier.PORT_SERIAL, this);
+			}
+		}
+	}
+
+	/**
+	 * <p>Deregisters device disappeared from the <b>/dev</b> directory</p>
+	 * @param name device name
+	 */
+	void deviceRemoved(final String name) {
+		final String	path = DEV_DIR + '/' + name;
+
+		if (discovered.remove(path)) {
+			CommPortIdentifier.removePortName(path);
+		}
+	}
+
+	private static SerialConfig getLastSerialConfig(final String portName) {
+		try {
+			return CommPortIdentifier.getPortIdentifier(portName).getLastSerialConfig();
+		} catch (NoSuchPortException exc) {
+			return null;
+		}
+	}
+
+	private static boolean isUartPresent(final String name) {	// legacy serial driver creates devices for all the possible ports
+		if (name.startsWith("ttyS")) {
+			try {
+				return !"0".equals(new String(Files.readAllBytes(Paths.get(SYS_TTY_DIR, name, "type")), StandardCharsets.US_ASCII).trim());
+			} catch (IOException exc) {
+				return true;
+			}
+		}
+		else {
+			return true;
+		}
+	}
+
+	private static boolean isSerialDeviceName(final String name) {
+		for (String prefix : DEVICE_PREFIXES) {
+			if (name.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
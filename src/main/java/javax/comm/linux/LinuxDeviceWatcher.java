@@ -0,0 +1,69 @@
+package javax.comm.linux;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * <p>Hot plug watcher of the <b>/dev</b> directory. The default file system watch service on Linux is built on inotify, so device nodes
+ * created and removed by udev are detected without polling. Watcher runs in its own daemon thread and reports changes to the
+ * {@linkplain LinuxCommDriver}. On the event queue overflow it asks driver to rescan the directory.</p>
+ */
+class LinuxDeviceWatcher implements Runnable {
+	private final LinuxCommDriver	driver;
+	private final WatchService		service;
+
+	LinuxDeviceWatcher(final LinuxCommDriver driver, final String directory) throws IOException {
+		this.driver = driver;
+		this.service = FileSystems.getDefault().newWatchService();
+		try {
+			Paths.get(directory).register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+		} catch (IOException exc) {
+			service.close();
+			throw exc;
+		}
+	}
+
+	void start() {
+		final Thread	t = new Thread(this, "LinuxDeviceWatcher");
+
+		t.setDaemon(true);
+		t.start();
+	}
+
+	@Override
+	public void run() {
+		try {
+			for (;;) {
+				final WatchKey	key = service.take();
+
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+						driver.rescan();
+					}
+					else {
+						final String	name = ((Path)event.context()).toString();
+
+						if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+							driver.deviceAdded(name);
+						}
+						else {
+							driver.deviceRemoved(name);
+						}
+					}
+				}
+				if (!key.reset()) {		// directory is not accessible anymore
+					return;
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException exc) {
+			// watcher stopped
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package javax.comm.linux;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Shared epoll poller of the Linux driver. One daemon thread serves all the ports open in the JVM: it waits for the readiness of their
+ * devices by <b>epoll_wait</b> and calls {@linkplain LinuxSerialPort#ready(int)} of the port ready. epoll is level-triggered, so ports
+ * control their interest (see {@linkplain #modify(int, int)}) to stop reading the device when their receive ring is full or input is
+ * throttled, and to wait for the device output space only when the device didn't accept all the data. Interest is changed by
+ * <b>epoll_ctl</b> directly from any thread, the poller thread doesn't need to be woken up for it.</p>
+ *
+ * <p>Poller is started with the first port open and is never stopped. File descriptors are passed as the event data, so the event
+ * received for the file descriptor closed and reused by another port can reach the new port. Ports read and write devices non-blocking,
+ * so such an event is harmless.</p>
+ */
+class LinuxPoller implements Runnable {
+	private static final int			MAX_EVENTS = 64;
+	private static volatile LinuxPoller	instance = null;
+
+	private final int	epfd;
+	private final Map<Integer, LinuxSerialPort>	ports = new ConcurrentHashMap<>();
+
+	private LinuxPoller(final int epfd) {
+		this.epfd = epfd;
+	}
+
+	/**
+	 * <p>Gets the shared poller, starting it when necessary</p>
+	 * @return poller. Can't be null
+	 * @throws IOException if epoll instance can't be created
+	 */
+	static LinuxPoller getDefault() throws IOException {
+		LinuxPoller	result = instance;
+
+		if (result == null) {
+			synchronized (LinuxPoller.class) {
+				if ((result = instance) == null) {
+					final int	epfd = LibC.epollCreate();
+
+					if (epfd < 0) {
+						throw new IOException("epoll instance can't be created, "+LibC.describe(epfd));
+					}
+					final Thread	t = new Thread(result = new LinuxPoller(epfd), "LinuxSerialPoller");
+
+					t.setDaemon(true);
+					t.start();
+					instance = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * <p>Starts to watch the device of the port</p>
+	 * @param fd file descriptor of the device
+	 * @param events events to wait for (see {@linkplain LibC#EPOLLIN} etc)
+	 * @param port port to notify. Can't be null
+	 * @throws IOException if the device can't be watched
+	 */
+	void register(final int fd, final int events, final LinuxSerialPort port) throws IOException {
+		ports.put(fd, port);
+
+		final int	result = LibC.epollCtl(epfd, LibC.EPOLL_CTL_ADD, fd, events);
+
+		if (result < 0) {
+			ports.remove(fd, port);
+			throw new IOException("Device can't be watched by epoll, "+LibC.describe(result));
+		}
+	}
+
+	/**
+	 * <p>Changes events to wait for the device</p>
+	 * @param fd file descriptor of the device
+	 * @param events events to wait for
+	 */
+	void modify(final int fd, final int events) {
+		LibC.epollCtl(epfd, LibC.EPOLL_CTL_MOD, fd, events);
+	}
+
+	/**
+	 * <p>Stops to watch the device. Must be called before the device is closed.</p>
+	 * @param fd file descriptor of the device
+	 * @param port port watching the device. Can't be null
+	 */
+	void deregister(final int fd, final LinuxSerialPort port) {
+		if (ports.remove(fd, port)) {
+			LibC.epollCtl(epfd, LibC.EPOLL_CTL_DEL, fd, 0);
+		}
+	}
+
+	@Override
+	public void run() {
+		final ByteBuffer	events = ByteBuffer.allocateDirect(MAX_EVENTS * LibC.EPOLL_EVENT_SIZE).order(ByteOrder.nativeOrder());
+
+		for (;;) {
+			final int	count = LibC.epollWait(epfd, events, -1);
+
+			for (int index = 0; index < count; index++) {
+				final int				offset = index * LibC.EPOLL_EVENT_SIZE;
+				final LinuxSerialPort	port = ports.get((int)events.getLong(offset + LibC.EPOLL_DATA_OFFSET));
+
+				if (port != null) {
+					try {
+						port.ready(events.getInt(offset));
+					} catch (RuntimeException exc) {
+						// keep the shared thread alive, failure belongs to the port only
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,781 @@
+package javax.comm.linux;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.comm.SerialConfig;
+import javax.comm.SerialPortEvent;
+import javax.comm.UnsupportedCommOperationException;
+import javax.comm.spi.AbstractSerialPort;
+import javax.comm.spi.DirectByteRing;
+
+/**
+ * <p>Linux tty serial port (see {@linkplain LinuxCommDriver}). Device is opened non-blocking by <b>open(2)</b>, made exclusive by TIOCEXCL
+ * and controlled by ioctl calls made through the Foreign Function &amp; Memory API (see {@linkplain LibC}). All the termios settings are
+ * always applied by one TCSETS2 call and read back (see {@linkplain Termios}), and the port is opened with the last config applied to it
+ * (see {@linkplain javax.comm.CommPortIdentifier#getLastSerialConfig()}), so reopening the configured port costs the same single call as
+ * opening the new one.</p>
+ *
+ * <p>The port has no threads of its own. Readiness of the device is watched by the poller thread shared by all the ports
+ * (see {@linkplain LinuxPoller}), which reads the device into the off-heap direct buffer of the port, moves data to the off-heap
+ * {@linkplain DirectByteRing} of the input buffer size and fires {@linkplain SerialPortEvent#DATA_AVAILABLE} immediately, so events don't need
+ * any polling and arrival times of the data read (see {@linkplain #readTimestamped(ByteBuffer, javax.comm.ReceiveTimestamp)}) are the times of the
+ * device wakeups. Receive timeout and receive threshold are served by the ring, so changing them doesn't touch the device, and timeouts are not
+ * limited by the VTIME range. When the ring is full, the poller stops reading the device, so the kernel input flow control (RTS/CTS or XON/XOFF,
+ * if enabled) stops the sender. {@linkplain #throttleInput(boolean)} stops reading the device in the same way, because flow control characters
+ * sent by the application would be mixed with the kernel ones.</p>
+ *
+ * <p>Low-latency mode (see {@linkplain #enableLowLatency(int)}) spins on the receive ring before parking the reading thread, and turns on
+ * the low_latency flag of the serial driver by TIOCSSERIAL. The flag is not supported by all the devices (for example, by pseudo terminals),
+ * so failure to set it is ignored.</p>
+ *
+ * <p>Data written are moved to the off-heap {@linkplain DirectByteRing} of the output buffer size and written to the device non-blocking by
+ * the writing thread itself. When the device doesn't accept all the data, the rest is written by the poller when the device has space again.
+ * Data are removed from the ring and the in-flight buffer only when the device has accepted them, so {@linkplain #close()} sends all the data
+ * written before it (but doesn't wait for the stopped line longer than the estimated transmission time and half a second). Gathering writes put
+ * all their buffers into the ring under one lock, so they are not interleaved with other writes. Writes block only when the ring is full,
+ * {@linkplain #getOutputReadyCount()} is the free space of the ring, and the {@linkplain javax.comm.AsyncCommChannel} never blocks its thread
+ * on this port. {@linkplain SerialPortEvent#OUTPUT_BUFFER_EMPTY} is fired when the ring becomes empty. Write coalescing is supported.
+ * {@linkplain java.io.OutputStream#flush()} waits until the ring is empty and then calls <b>tcdrain</b>.</p>
+ *
+ * <p>Modem control lines are controlled by TIOCMBIS and TIOCMBIC, and break is sent by TIOCSBRK and TIOCCBRK. Input lines of the devices
+ * supporting TIOCMIWAIT are watched by one thread per port, blocked in TIOCMIWAIT and reading the lines by TIOCMGET on every wakeup, so
+ * line change events are fired and {@linkplain #awaitModemStatusChange(int, int, long)} is woken up without polling. Line changes between
+ * TIOCMGET and the next TIOCMIWAIT are seen on the next wakeup only. Devices without TIOCMIWAIT have the lines read by TIOCMGET on every
+ * line getter call and don't support {@linkplain #awaitModemStatusChange(int, int, long)}. Devices without modem lines (for example, pseudo
+ * terminals) are not modem-controlled: DTR and RTS are always reported asserted, input lines are always reported dropped and
+ * {@linkplain #awaitModemStatusChange(int, int, long)} throws {@linkplain UnsupportedCommOperationException}.</p>
+ */
+class LinuxSerialPort extends AbstractSerialPort {
+	private static final long		CLOSE_DRAIN_TIMEOUT = 500;
+	private static final long		WATCHER_STOP_TIMEOUT = 1000;
+	private static final int		MODEM_INPUTS = MODEM_CTS | MODEM_DSR | MODEM_CD | MODEM_RI;
+
+	private final String			devicePath;
+	private final int				fd;
+	private final LinuxPoller		poller;
+	private final boolean			modemControl;
+	private final Thread			modemWatcher;
+	private final ByteBuffer		rxBuffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE);
+	private final ByteBuffer		txBuffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE).limit(0);	// in-flight chunk, guarded by txLock
+	private final ReentrantLock		readLock = new ReentrantLock();
+	private final ReentrantLock		writeLock = new ReentrantLock();
+	private final ReentrantReadWriteLock	fdLock = new ReentrantReadWriteLock();	// read lock for the device calls, write lock for close
+	private final Object			rxLock = new Object();	// producer side of the receive ring
+	private final Object			txLock = new Object();	// consumer side of the transmit ring
+	private final Object			interestLock = new Object();
+	private final Object			watcherLock = new Object();
+	private final AtomicInteger		pendingInputSize = new AtomicInteger();
+	private final AtomicInteger		pendingOutputSize = new AtomicInteger();
+	private final AtomicInteger		draining = new AtomicInteger();
+	private volatile DirectByteRing	rx;
+	private volatile DirectByteRing	tx;
+	private volatile int			interest = 0;
+	private volatile boolean		registered = false;
+	private volatile boolean		hungUp = false;
+	private volatile boolean		fdClosing = false;
+	private volatile boolean		fdClosed = false;
+	private volatile boolean		inputEnded = false;
+	private volatile boolean		inputThrottled = false;
+	private volatile IOException	inputFailure = null;
+	private volatile boolean		outputBlocked = false;
+	private volatile boolean		outputEnded = false;
+	private volatile IOException	outputFailure = null;
+	private volatile boolean		modemWatched = false;
+	private volatile long			watcherThread = 0;
+	private volatile long			charNanos;
+	private int						sent = 0;	// guarded by txLock
+
+	LinuxSerialPort(final String portName, final String devicePath, final SerialConfig config) throws IOException, UnsupportedCommOperationException {
+		super(portName);
+		this.devicePath = devicePath;
+		if (config != null) {
+			presetConfig(config);
+		}
+		this.charNanos = calculateCharacterTime(getBaudRate(), getDataBits(), getStopBits(), getParity());
+		this.poller = LinuxPoller.getDefault();
+		// non-blocking open doesn't wait for the carrier
+		if ((this.fd = LibC.open(devicePath, LibC.O_RDWR | LibC.O_NOCTTY | LibC.O_NONBLOCK | LibC.O_CLOEXEC)) < 0) {
+			throw new IOException("Device ["+devicePath+"] can't be opened, "+LibC.describe(fd));
+		}
+		boolean	succeeded = false;
+
+		try {
+			final int	result = LibC.ioctl(fd, LibC.TIOCEXCL, 0L);
+
+			if (result < 0) {
+				throw new IOException("Device ["+devicePath+"] can't be opened exclusively, "+LibC.describe(result));
+			}
+			Termios.apply(fd, devicePath, getBaudRate(), getDataBits(), getStopBits(), getParity(), getFlowControlMode());
+			this.rx = new DirectByteRing(Math.min(getInputBufferSize(), DirectByteRing.MAX_CAPACITY));
+			this.tx = new DirectByteRing(Math.min(getOutputBufferSize(), DirectByteRing.MAX_CAPACITY));
+
+			final int	lines = LibC.ioctlInt(fd, LibC.TIOCMGET, 0);
+
+			if (this.modemControl = lines >= 0) {	// TIOCM_XXX bits are the same as MODEM_XXX ones
+				updateModemStatus(MODEM_DTR | MODEM_RTS | MODEM_INPUTS, lines);
+				this.modemWatched = true;
+				this.modemWatcher = new Thread(this::watchModem, "LinuxSerialModem-"+portName);
+				this.modemWatcher.setDaemon(true);
+			}
+			else {	// no modem lines at all, DTR and RTS are considered raised as the kernel does on open
+				updateModemStatus(MODEM_DTR | MODEM_RTS, MODEM_DTR | MODEM_RTS);
+				this.modemWatcher = null;
+			}
+			synchronized (interestLock) {
+				poller.register(fd, interest = LibC.EPOLLIN, this);
+				registered = true;
+			}
+			if (modemWatcher != null) {
+				modemWatcher.start();
+			}
+			succeeded = true;
+		} finally {
+			if (!succeeded) {
+				LibC.ioctl(fd, LibC.TIOCNXCL, 0L);
+				LibC.close(fd);
+			}
+		}
+	}
+
+	@Override
+	public void setDTR(final boolean state) {
+		ensureOpen();
+		if (modemControl) {
+			setLine(LibC.TIOCM_DTR, MODEM_DTR, state);
+		}
+	}
+
+	@Override
+	public void setRTS(final boolean state) {
+		ensureOpen();
+		if (modemControl) {
+			setLine(LibC.TIOCM_RTS, MODEM_RTS, state);
+		}
+	}
+
+	@Override
+	public void sendBreak(final int duration) {
+		ensureOpen();
+		fdLock.readLock().lock();
+		try {
+			if (!fdClosed && LibC.ioctl(fd, LibC.TIOCSBRK, 0L) >= 0) {
+				try {
+					Thread.sleep(Math.max(0, duration));
+				} catch (InterruptedException exc) {
+					Thread.currentThread().interrupt();
+				} finally {
+					LibC.ioctl(fd, LibC.TIOCCBRK, 0L);
+				}
+			}
+		} finally {
+			fdLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	protected boolean isModemControlSupported() {
+		return modemControl;
+	}
+
+	@Override
+	public boolean isCTS() {
+		refreshModemStatus();
+		return super.isCTS();
+	}
+
+	@Override
+	public boolean isDSR() {
+		refreshModemStatus();
+		return super.isDSR();
+	}
+
+	@Override
+	public boolean isCD() {
+		refreshModemStatus();
+		return super.isCD();
+	}
+
+	@Override
+	public boolean isRI() {
+		refreshModemStatus();
+		return super.isRI();
+	}
+
+	@Override
+	public int getModemStatus() {
+		refreshModemStatus();
+		return super.getModemStatus();
+	}
+
+	@Override
+	public int awaitModemStatusChange(final int status, final int mask, final long timeout) throws InterruptedException, UnsupportedCommOperationException, IllegalArgumentException {
+		if (!modemControl) {
+			throw new UnsupportedCommOperationException("Port ["+getName()+"]: device has no modem lines");
+		}
+		else if (!modemWatched && !isClosed()) {
+			throw new UnsupportedCommOperationException("Port ["+getName()+"]: modem lines can't be watched by the device (TIOCMIWAIT is not supported)");
+		}
+		else {
+			return super.awaitModemStatusChange(status, mask, timeout);
+		}
+	}
+
+	@Override
+	protected boolean isInputReady() {
+		return !isClosed() && rx.available() > 0;
+	}
+
+	@Override
+	protected boolean isOutputReady() {
+		return getOutputReadyCount() > 0;
+	}
+
+	@Override
+	protected int getOutputReadyCount() {
+		return isClosed() || outputEnded ? 0 : Math.max(0, tx.free() - getCoalescedOutputCount());
+	}
+
+	@Override
+	protected void applySerialPortParams(final int bitrate, final int datasize, final int stopbits, final int parity) throws UnsupportedCommOperationException {
+		if (bitrate != getBaudRate() || datasize != getDataBits() || stopbits != getStopBits() || parity != getParity()) {
+			applyTermios(bitrate, datasize, stopbits, parity, getFlowControlMode());
+			charNanos = calculateCharacterTime(bitrate, datasize, stopbits, parity);
+		}
+	}
+
+	@Override
+	protected void applyFlowControlMode(final int flowcontrol) throws UnsupportedCommOperationException {
+		if (flowcontrol != getFlowControlMode()) {
+			applyTermios(getBaudRate(), getDataBits(), getStopBits(), getParity(), flowcontrol);
+		}
+	}
+
+	@Override
+	protected void applyReceiveOptions() throws UnsupportedCommOperationException {
+		if (isReceiveFramingEnabled()) {
+			throw new UnsupportedCommOperationException("Receive framing is not supported by termios");
+		}
+	}
+
+	@Override
+	protected void applySettings() throws UnsupportedCommOperationException {
+		if (isReceiveFramingEnabled()) {
+			throw new UnsupportedCommOperationException("Receive framing is not supported by termios");
+		}
+		else {
+			applyTermios(getBaudRate(), getDataBits(), getStopBits(), getParity(), getFlowControlMode());
+			charNanos = calculateCharacterTime(getBaudRate(), getDataBits(), getStopBits(), getParity());
+		}
+	}
+
+	@Override
+	protected void applyLowLatency(final boolean enable) throws UnsupportedCommOperationException {
+		fdLock.readLock().lock();
+		try {
+			if (!fdClosed) {
+				Termios.setLowLatency(fd, devicePath, enable);
+			}
+		} catch (UnsupportedCommOperationException exc) {
+			// low_latency flag is optional, spinning is available anyway
+		} finally {
+			fdLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	protected boolean resizeInputBuffer(final int size) {
+		pendingInputSize.set(Math.min(size, DirectByteRing.MAX_CAPACITY));
+		if (readLock.tryLock()) {	// otherwise the reader resizes the ring when the read ends
+			try {
+				resizeInput();
+			} finally {
+				readLock.unlock();
+			}
+		}
+		return true;
+	}
+
+	@Override
+	protected boolean resizeOutputBuffer(final int size) {
+		pendingOutputSize.set(Math.min(size, DirectByteRing.MAX_CAPACITY));
+		if (writeLock.tryLock()) {	// otherwise the writer resizes the ring when the write ends
+			try {
+				resizeOutput();
+			} finally {
+				writeLock.unlock();
+			}
+		}
+		return true;
+	}
+
+	@Override
+	protected int getInputBufferOccupancy() {
+		return isClosed() ? -1 : rx.available();
+	}
+
+	@Override
+	protected void throttleInput(final boolean state) throws IOException {
+		inputThrottled = state;
+		updateInterest();
+	}
+
+	@Override
+	protected boolean isWriteCoalescingSupported() {
+		return true;
+	}
+
+	@Override
+	protected int writeOutput(final ByteBuffer src) throws IOException {
+		writeLock.lock();
+		try {
+			return enqueue(src);
+		} finally {
+			resizeOutput();
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	protected long writeOutput(final ByteBuffer[] srcs, final int offset, final int length) throws IOException {
+		long	total = 0;
+
+		writeLock.lock();
+		try {	// buffers are copied to the ring one by one, and are sent as they come
+			for (int index = offset; index < offset + length; index++) {
+				total += enqueue(srcs[index]);
+			}
+		} finally {
+			resizeOutput();
+			writeLock.unlock();
+		}
+		return total;
+	}
+
+	@Override
+	protected void drainOutput() throws IOException {
+		try {
+			synchronized (txLock) {
+				while (hasPendingOutput() && !outputEnded && !fdClosed) {
+					txLock.wait();
+				}
+			}
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Port ["+getName()+"]: flush is interrupted");
+		}
+		checkOutput();
+		draining.incrementAndGet();
+		fdLock.readLock().lock();
+		try {	// close flushes the device output when it sees a drainer, so the stopped line can't block it
+			if (!fdClosing) {
+				int	result;
+
+				while ((result = LibC.tcdrain(fd)) == -LibC.EINTR && !fdClosing) {
+					// signals interrupt the drain
+				}
+				if (result < 0 && result != -LibC.EINTR && !fdClosing) {
+					throw new IOException("Port ["+getName()+"]: output can't be drained, "+LibC.describe(result));
+				}
+			}
+		} finally {
+			fdLock.readLock().unlock();
+			draining.decrementAndGet();
+		}
+		checkOutput();
+	}
+
+	@Override
+	protected void closePort() throws IOException {
+		tx.wakeUp();	// blocked writers see the port closed
+		writeLock.lock();
+		try {	// let the device accept the rest of data, but don't wait for the stopped line forever
+			final long	deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_DRAIN_TIMEOUT) + (tx.available() + txBuffer.remaining()) * charNanos;
+
+			synchronized (txLock) {
+				long	delay;
+
+				while (hasPendingOutput() && !outputEnded && (delay = deadline - System.nanoTime()) > 0) {
+					TimeUnit.NANOSECONDS.timedWait(txLock, delay);
+				}
+			}
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+		} finally {
+			writeLock.unlock();
+		}
+		deregister();
+		stopModemWatcher();
+		fdClosing = true;
+		if (draining.get() > 0) {	// releases the flush blocked by the stopped line
+			LibC.ioctl(fd, LibC.TCFLSH, LibC.TCOFLUSH);
+		}
+		fdLock.writeLock().lock();
+		try {
+			synchronized (rxLock) {
+				synchronized (txLock) {
+					LibC.ioctl(fd, LibC.TIOCNXCL, 0L);	// pseudo terminals keep the flag while the master is open
+					LibC.close(fd);
+					fdClosed = true;
+					txLock.notifyAll();
+				}
+			}
+		} finally {
+			fdLock.writeLock().unlock();
+			rx.wakeUp();
+			tx.wakeUp();
+		}
+	}
+
+	@Override
+	protected int readInput(final ByteBuffer dst) throws IOException {
+		readLock.lock();
+		try {
+			final DirectByteRing	ring = rx;	// can't be replaced while the read lock is held
+			final boolean	thresholdEnabled = isReceiveThresholdEnabled(), timeoutEnabled = isReceiveTimeoutEnabled();
+
+			if (hungUp) {	// the poller doesn't watch the device anymore, so the rest of input is read by the reader
+				receive();
+			}
+			if (!(thresholdEnabled && getReceiveThreshold() == 0 || timeoutEnabled && getReceiveTimeout() == 0)) {
+				final int	minBytes = Math.min(Math.min(thresholdEnabled ? getReceiveThreshold() : 1, dst.remaining()), ring.capacity());
+				final long	timeout = timeoutEnabled ? TimeUnit.MILLISECONDS.toNanos(getReceiveTimeout()) : -1;
+
+				if (!spinForInput(ring, minBytes)) {
+					ring.awaitData(minBytes, timeout, ()->inputEnded || hungUp || isClosed());
+				}
+			}
+			final int	read = ring.read(dst);
+
+			if (read > 0 && (interest & LibC.EPOLLIN) == 0) {	// ring has space for the poller again
+				updateInterest();
+			}
+			if (read == 0 && (inputEnded || isClosed()) && ring.available() == 0) {
+				final IOException	failure = inputFailure;
+
+				if (failure != null && !isClosed()) {
+					throw new IOException("Port ["+getName()+"]: "+failure.getMessage(), failure);
+				}
+				else {
+					return -1;
+				}
+			}
+			else {
+				return read;
+			}
+		} finally {
+			resizeInput();
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * <p>Gets number of bytes received by the device and not read by the port yet (FIONREAD)</p>
+	 * @return number of bytes, or negated errno
+	 */
+	int queuedInput() {
+		fdLock.readLock().lock();
+		try {
+			return fdClosed ? -LibC.EBADF : LibC.ioctlInt(fd, LibC.FIONREAD, 0);
+		} finally {
+			fdLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * <p>Processes readiness of the device. Called by the poller thread only.</p>
+	 * @param events epoll events of the device
+	 */
+	void ready(final int events) {
+		if ((events & (LibC.EPOLLERR | LibC.EPOLLHUP)) != 0) {	// level-triggered hangup is reported until close, so stop watching the device
+			hungUp = true;
+			deregister();
+			receive();
+			pump();
+			if (outputBlocked) {
+				outputFailure = new IOException("Device ["+devicePath+"] is hung up");
+				outputEnded = true;
+				synchronized (txLock) {
+					txLock.notifyAll();
+				}
+				tx.wakeUp();
+			}
+			rx.wakeUp();
+		}
+		else {
+			if ((events & LibC.EPOLLIN) != 0) {
+				receive();
+			}
+			if ((events & LibC.EPOLLOUT) != 0) {
+				pump();
+			}
+			updateInterest();
+		}
+	}
+
+	/**
+	 * <p>Moves data from the device to the receive ring and fires {@linkplain SerialPortEvent#DATA_AVAILABLE} for every chunk read. Device is
+	 * read only while the ring has space and input is not throttled.</p>
+	 */
+	private void receive() {
+		synchronized (rxLock) {
+			while (!fdClosed && !inputEnded && !inputThrottled) {
+				final DirectByteRing	ring = rx;
+
+				if (ring.free() == 0) {
+					break;
+				}
+				rxBuffer.clear().limit(Math.min(rxBuffer.capacity(), ring.free()));
+
+				final int	read = LibC.read(fd, rxBuffer);
+
+				if (read > 0) {
+					rxBuffer.flip();
+					ring.write(rxBuffer);
+					fireDataAvailable(read);
+				}
+				else if (read == 0 || read == -LibC.EIO) {	// hangup
+					inputEnded = true;
+				}
+				else if (read != -LibC.EAGAIN && read != -LibC.EINTR) {
+					inputFailure = new IOException("Device ["+devicePath+"] can't be read, "+LibC.describe(read));
+					inputEnded = true;
+				}
+				else if (read == -LibC.EAGAIN) {
+					break;
+				}
+			}
+		}
+		if (inputEnded) {
+			rx.wakeUp();
+		}
+	}
+
+	/**
+	 * <p>Writes data of the transmit ring to the device, until the device doesn't accept more. The chunk taken from the ring stays in the
+	 * in-flight buffer until the device accepts it. Fires {@linkplain SerialPortEvent#OUTPUT_BUFFER_EMPTY} when all the data are written,
+	 * and signals selectors on every space freed. Called by writers and the poller thread.</p>
+	 */
+	private void pump() {
+		boolean	freed = false, empty = false;
+		int		count = 0;
+
+		synchronized (txLock) {
+			while (!fdClosed && !outputEnded) {
+				if (!txBuffer.hasRemaining()) {
+					txBuffer.clear();
+					if (tx.read(txBuffer) == 0) {
+						txBuffer.limit(0);
+						break;
+					}
+					txBuffer.flip();
+					freed = true;
+				}
+				final int	written = LibC.write(fd, txBuffer);
+
+				if (written > 0) {
+					sent += written;
+				}
+				else if (written == -LibC.EAGAIN) {
+					break;
+				}
+				else if (written != -LibC.EINTR && written != 0) {
+					outputFailure = new IOException("Device ["+devicePath+"] can't be written, "+LibC.describe(written));
+					outputEnded = true;
+				}
+			}
+			outputBlocked = hasPendingOutput() && !outputEnded && !fdClosed;
+			if (!outputBlocked) {
+				txLock.notifyAll();		// drain and close wait for it
+				empty = sent > 0;
+				count = sent;
+				sent = 0;
+			}
+		}
+		if (outputEnded) {
+			tx.wakeUp();
+		}
+		if (empty) {
+			fireSerialEvent(SerialPortEvent.OUTPUT_BUFFER_EMPTY, false, true, count);
+		}
+		else if (freed) {
+			signalSelectors(SerialPortEvent.OUTPUT_BUFFER_EMPTY);
+		}
+		if (outputBlocked != ((interest & LibC.EPOLLOUT) != 0)) {
+			updateInterest();
+		}
+	}
+
+	private boolean hasPendingOutput() {	// called under txLock
+		return txBuffer.hasRemaining() || tx.available() > 0;
+	}
+
+	private void updateInterest() {
+		synchronized (interestLock) {
+			final int	events = (!inputEnded && !inputThrottled && rx.free() > 0 ? LibC.EPOLLIN : 0) | (outputBlocked ? LibC.EPOLLOUT : 0);
+
+			if (registered && events != interest) {
+				poller.modify(fd, interest = events);
+			}
+		}
+	}
+
+	private void deregister() {
+		synchronized (interestLock) {
+			if (registered) {
+				registered = false;
+				poller.deregister(fd, this);
+			}
+		}
+	}
+
+	private void applyTermios(final int baudRate, final int dataBits, final int stopBits, final int parity, final int flowControl) throws UnsupportedCommOperationException {
+		fdLock.readLock().lock();
+		try {
+			if (!fdClosed) {
+				Termios.apply(fd, devicePath, baudRate, dataBits, stopBits, parity, flowControl);
+			}
+		} finally {
+			fdLock.readLock().unlock();
+		}
+	}
+
+	private void setLine(final int line, final int modemLine, final boolean state) {
+		fdLock.readLock().lock();
+		try {
+			if (!fdClosed && LibC.ioctlInt(fd, state ? LibC.TIOCMBIS : LibC.TIOCMBIC, line) >= 0) {
+				updateModemStatus(modemLine, state ? modemLine : 0);
+			}
+		} finally {
+			fdLock.readLock().unlock();
+		}
+	}
+
+	private void refreshModemStatus() {	// lines of the watched device are kept current by the watcher
+		if (modemControl && !modemWatched && !isClosed()) {
+			fdLock.readLock().lock();
+			try {
+				final int	lines = fdClosed ? -LibC.EBADF : LibC.ioctlInt(fd, LibC.TIOCMGET, 0);
+
+				if (lines >= 0) {
+					updateModemStatus(MODEM_INPUTS, lines);
+				}
+			} finally {
+				fdLock.readLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * <p>Body of the modem watcher thread. Reads input lines after every TIOCMIWAIT wakeup. Thread ends when the port is closed or the device
+	 * doesn't support TIOCMIWAIT.</p>
+	 */
+	private void watchModem() {
+		synchronized (watcherLock) {
+			watcherThread = LibC.pthreadSelf();
+		}
+		try {
+			while (!isClosed()) {
+				final int	lines = LibC.ioctlInt(fd, LibC.TIOCMGET, 0);
+
+				if (lines >= 0) {
+					updateModemStatus(MODEM_INPUTS, lines);
+				}
+				final int	result = LibC.ioctl(fd, LibC.TIOCMIWAIT, (long)(LibC.TIOCM_CTS | LibC.TIOCM_DSR | LibC.TIOCM_CD | LibC.TIOCM_RI));
+
+				if (result < 0 && result != -LibC.EINTR) {
+					break;
+				}
+			}
+		} finally {
+			synchronized (watcherLock) {	// pthread_t is not valid after the thread ends
+				watcherThread = 0;
+			}
+			modemWatched = false;
+		}
+	}
+
+	private void stopModemWatcher() {
+		if (modemWatcher != null) {
+			final long	deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WATCHER_STOP_TIMEOUT);
+
+			try {
+				while (modemWatcher.isAlive() && System.nanoTime() < deadline) {
+					synchronized (watcherLock) {
+						if (watcherThread != 0 && !LibC.interrupt(watcherThread)) {
+							break;	// no handler for the signal, the watcher ends on the next line change
+						}
+					}
+					modemWatcher.join(10);
+				}
+			} catch (InterruptedException exc) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void resizeInput() {	// called under readLock, so the consumer side of the ring is quiescent
+		final int	size = pendingInputSize.getAndSet(0);
+
+		if (size > 0) {
+			synchronized (rxLock) {
+				final DirectByteRing	old = rx;
+
+				rx = old.resize(size);
+				old.wakeUp();
+			}
+			if (rx.available() > size) {	// data stored don't fit the size yet, so shrink the ring after the next read
+				pendingInputSize.compareAndSet(0, size);
+			}
+			updateInterest();
+		}
+	}
+
+	private void resizeOutput() {	// called under writeLock, so the producer side of the ring is quiescent
+		final int	size = pendingOutputSize.getAndSet(0);
+
+		if (size > 0) {
+			synchronized (txLock) {
+				final DirectByteRing	old = tx;
+
+				tx = old.resize(size);
+				old.wakeUp();
+			}
+			if (tx.available() > size) {	// data stored don't fit the size yet, so shrink the ring after the next write
+				pendingOutputSize.compareAndSet(0, size);
+			}
+		}
+	}
+
+	private int enqueue(final ByteBuffer src) throws IOException {	// called under writeLock
+		final int	total = src.remaining();
+
+		while (src.hasRemaining()) {
+			if (tx.write(src) == 0) {
+				tx.awaitSpace(1, -1, ()->outputEnded || isClosed());
+			}
+			else {
+				pump();
+			}
+			checkOutput();
+		}
+		return total;
+	}
+
+	private void checkOutput() throws IOException {
+		if (isClosed()) {
+			throw new ClosedChannelException();
+		}
+		else if (outputEnded) {
+			final IOException	failure = outputFailure;
+
+			throw new IOException("Port ["+getName()+"]: "+(failure != null ? failure.getMessage() : "output is closed"), failure);
+		}
+	}
+}
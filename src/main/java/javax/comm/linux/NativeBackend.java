@@ -0,0 +1,97 @@
+package javax.comm.linux;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * <p>Access to the native C library by the Foreign Function &amp; Memory API. The package is compiled for Java 11, so the API is used
+ * reflectively, and all the downcall handles are adapted to the uniform Java signatures with <b>int</b>, <b>long</b> and direct
+ * {@linkplain ByteBuffer} (pointer from its position, or NULL for null) parameters. Two runtimes are supported:</p>
+ * <ul>
+ * <li>Java 22 and later with the final <b>java.lang.foreign</b> API (see {@linkplain ForeignBackend}). errno is captured by the linker
+ * right after the call;</li>
+ * <li>Java 17 with the incubating <b>jdk.incubator.foreign</b> API (see {@linkplain IncubatorBackend}). The module must be added by
+ * <b>--add-modules jdk.incubator.foreign</b>. errno is read by <b>__errno_location</b> after the call.</li>
+ * </ul>
+ * <p>Both of them need native access enabled for the module (<b>--enable-native-access=javax.comm</b>, or <b>ALL-UNNAMED</b> on the
+ * class path). Java 17 refuses native access without it, later versions print a warning.</p>
+ */
+abstract class NativeBackend {
+	private static final MethodHandle	IS_NULL;
+
+	static {
+		try {
+			IS_NULL = MethodHandles.publicLookup().findStatic(Objects.class, "isNull", MethodType.methodType(boolean.class, Object.class))
+							.asType(MethodType.methodType(boolean.class, ByteBuffer.class));
+		} catch (ReflectiveOperationException exc) {
+			throw new ExceptionInInitializerError(exc);
+		}
+	}
+
+	/**
+	 * <p>Makes a downcall handle for the C library function.</p>
+	 * @param name function name. Can't be null or empty
+	 * @param firstVariadic index of the first variadic parameter, or -1 for functions without variadic parameters
+	 * @param returnType return type, <b>int.class</b> or <b>long.class</b>
+	 * @param parameterTypes parameter types, <b>int.class</b>, <b>long.class</b> or <b>ByteBuffer.class</b>
+	 * @return handle of the given Java type. Can't be null
+	 * @throws ReflectiveOperationException if the function or API is not available
+	 */
+	abstract MethodHandle downcall(String name, int firstVariadic, Class<?> returnType, Class<?>... parameterTypes) throws ReflectiveOperationException;
+
+	/**
+	 * <p>Gets errno set by the last downcall of the current thread. Must be called immediately after the failed downcall.</p>
+	 * @return errno value
+	 */
+	abstract int errno();
+
+	/**
+	 * <p>Loads the backend for the current runtime.</p>
+	 * @return backend loaded. Can't be null
+	 * @throws ReflectiveOperationException if the Foreign Function &amp; Memory API is not available or native access is not enabled
+	 */
+	static NativeBackend load() throws ReflectiveOperationException {
+		final int	feature = Runtime.version().feature();
+
+		if (feature >= 22) {
+			return new ForeignBackend();
+		}
+		else if (feature == 17) {
+			return new IncubatorBackend();
+		}
+		else {
+			throw new ClassNotFoundException("Foreign Function & Memory API of Java 17 or 22+ is required, current Java version is "+feature);
+		}
+	}
+
+	/**
+	 * <p>Adapts pointer parameters of the raw downcall handle to the direct {@linkplain ByteBuffer} parameters.</p>
+	 * @param raw raw downcall handle
+	 * @param from index of the first parameter to adapt
+	 * @param parameterTypes Java parameter types required
+	 * @param toPointer handle converting non-null {@linkplain ByteBuffer} to the pointer carrier of the API
+	 * @param nullPointer NULL pointer value of the API
+	 * @return adapted handle. Can't be null
+	 */
+	static MethodHandle adaptPointers(final MethodHandle raw, final int from, final Class<?>[] parameterTypes, final MethodHandle toPointer, final Object nullPointer) {
+		final Class<?>		carrier = toPointer.type().returnType();
+		final MethodHandle	pointer = MethodHandles.guardWithTest(IS_NULL
+										, MethodHandles.dropArguments(MethodHandles.constant(carrier, nullPointer), 0, ByteBuffer.class)
+										, toPointer.asType(MethodType.methodType(carrier, ByteBuffer.class)));
+		MethodHandle	result = raw;
+
+		for (int index = 0; index < parameterTypes.length; index++) {
+			if (parameterTypes[index] == ByteBuffer.class) {
+				result = MethodHandles.filterArguments(result, from + index, pointer);
+			}
+		}
+		return result;
+	}
+
+	static Class<?> carrierOf(final Class<?> type, final Class<?> pointerCarrier) {
+		return type == ByteBuffer.class ? pointerCarrier : type;
+	}
+}
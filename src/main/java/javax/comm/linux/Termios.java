@@ -0,0 +1,185 @@
+package javax.comm.linux;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.comm.SerialPort;
+import javax.comm.UnsupportedCommOperationException;
+
+/**
+ * <p>This class applies termios settings to the tty device by the TCGETS2 and TCSETS2 ioctls (see {@linkplain LibC}). struct termios2 carries
+ * the baud rate as a number (BOTHER), so any baud rate supported by the device can be set, not only the Bxxx ones (standard rates are still
+ * set by their Bxxx codes). All the settings are always applied by one call and read back after it, because the tty driver silently replaces
+ * settings it doesn't support by the nearest ones (for example, pseudo-terminals always force 8 data bits without parity). Settings not applied
+ * as requested are rolled back and reported by {@linkplain UnsupportedCommOperationException}. Device is always put into the raw mode with
+ * VMIN = 1 and VTIME = 0, device is opened non-blocking, so receive timeout and threshold are implemented by the driver.</p>
+ */
+class Termios {
+	private static final int	SIZE = 44;			// sizeof(struct termios2)
+	private static final int	C_IFLAG = 0;
+	private static final int	C_OFLAG = 4;
+	private static final int	C_CFLAG = 8;
+	private static final int	C_LFLAG = 12;
+	private static final int	C_LINE = 16;
+	private static final int	C_CC = 17;
+	private static final int	C_ISPEED = 36;
+	private static final int	C_OSPEED = 40;
+
+	private static final int	IGNBRK = 01, BRKINT = 02, IGNPAR = 04, PARMRK = 010, INPCK = 020, ISTRIP = 040, INLCR = 0100, IGNCR = 0200, ICRNL = 0400;
+	private static final int	IXON = 02000, IXANY = 04000, IXOFF = 010000;
+	private static final int	OPOST = 01;
+	private static final int	ISIG = 01, ICANON = 02, ECHO = 010, ECHOE = 020, ECHONL = 0100, IEXTEN = 0100000;
+	private static final int	CBAUD = 010017, BOTHER = 010000, IBSHIFT = 16;
+	private static final int	CSIZE = 060, CS5 = 0, CS6 = 020, CS7 = 040, CS8 = 060;
+	private static final int	CSTOPB = 0100, CREAD = 0200, PARENB = 0400, PARODD = 01000, HUPCL = 02000, CLOCAL = 04000;
+	private static final int	CMSPAR = 010000000000, CRTSCTS = 020000000000;
+	private static final int	VTIME = 5, VMIN = 6;
+	private static final int	CHECKED_CFLAGS = CSIZE | CSTOPB | PARENB | PARODD | CMSPAR | CRTSCTS;
+	private static final int	CHECKED_IFLAGS = INPCK | IXON | IXOFF;
+	private static final int	BAUD_TOLERANCE_PERCENT = 3;
+	private static final int[]	STANDARD_RATES = {0, 50, 75, 110, 134, 150, 200, 300, 600, 1200, 1800, 2400, 4800, 9600, 19200, 38400
+										, 57600, 115200, 230400, 460800, 500000, 576000, 921600, 1000000, 1152000, 1500000, 2000000
+										, 2500000, 3000000, 3500000, 4000000};
+
+	private static final int	SERIAL_STRUCT_SIZE = 72;	// sizeof(struct serial_struct)
+	private static final int	SERIAL_FLAGS = 16;
+	private static final int	ASYNC_LOW_LATENCY = 1 << 13;
+
+	private Termios() {
+	}
+
+	/**
+	 * <p>Applies all port settings to the device.</p>
+	 * @param fd file descriptor of the device
+	 * @param devicePath device path for error messages. Can't be null or empty
+	 * @param baudRate baud rate
+	 * @param dataBits data bits (see {@linkplain SerialPort#DATABITS_8} etc)
+	 * @param stopBits stop bits (see {@linkplain SerialPort#STOPBITS_1} etc)
+	 * @param parity parity (see {@linkplain SerialPort#PARITY_NONE} etc)
+	 * @param flowControl flow control mask (see {@linkplain SerialPort#FLOWCONTROL_NONE} etc)
+	 * @throws UnsupportedCommOperationException if any settings are not supported by the device
+	 */
+	static void apply(final int fd, final String devicePath, final int baudRate, final int dataBits, final int stopBits, final int parity, final int flowControl) throws UnsupportedCommOperationException {
+		final ByteBuffer	old = get(fd, devicePath);
+		final ByteBuffer	termios = ByteBuffer.allocateDirect(SIZE).order(ByteOrder.nativeOrder()).put(old.duplicate());
+		int					iflag = termios.getInt(C_IFLAG), cflag = termios.getInt(C_CFLAG);
+
+		iflag &= ~(IGNBRK | BRKINT | IGNPAR | PARMRK | INPCK | ISTRIP | INLCR | IGNCR | ICRNL | IXON | IXANY | IXOFF);
+		cflag &= ~(CBAUD | (CBAUD << IBSHIFT) | CHECKED_CFLAGS | HUPCL);
+		cflag |= speedCode(baudRate) | CREAD | CLOCAL;
+		switch (dataBits) {
+			case SerialPort.DATABITS_5	: cflag |= CS5; break;
+			case SerialPort.DATABITS_6	: cflag |= CS6; break;
+			case SerialPort.DATABITS_7	: cflag |= CS7; break;
+			case SerialPort.DATABITS_8	: cflag |= CS8; break;
+			default : throw new UnsupportedCommOperationException("Data bits ["+dataBits+"] are not supported by termios");
+		}
+		switch (stopBits) {
+			case SerialPort.STOPBITS_1	: break;
+			case SerialPort.STOPBITS_2	: cflag |= CSTOPB; break;
+			default : throw new UnsupportedCommOperationException("Stop bits ["+stopBits+"] are not supported by termios");
+		}
+		switch (parity) {
+			case SerialPort.PARITY_NONE		: break;
+			case SerialPort.PARITY_ODD		: cflag |= PARENB | PARODD; iflag |= INPCK; break;
+			case SerialPort.PARITY_EVEN		: cflag |= PARENB; iflag |= INPCK; break;
+			case SerialPort.PARITY_MARK		: cflag |= PARENB | PARODD | CMSPAR; iflag |= INPCK; break;
+			case SerialPort.PARITY_SPACE	: cflag |= PARENB | CMSPAR; iflag |= INPCK; break;
+			default : throw new UnsupportedCommOperationException("Parity ["+parity+"] is not supported by termios");
+		}
+		if ((flowControl & (SerialPort.FLOWCONTROL_RTSCTS_IN | SerialPort.FLOWCONTROL_RTSCTS_OUT)) != 0) {
+			cflag |= CRTSCTS;
+		}
+		if ((flowControl & SerialPort.FLOWCONTROL_XONXOFF_OUT) != 0) {
+			iflag |= IXON;
+		}
+		if ((flowControl & SerialPort.FLOWCONTROL_XONXOFF_IN) != 0) {
+			iflag |= IXOFF;
+		}
+		termios.putInt(C_IFLAG, iflag);
+		termios.putInt(C_OFLAG, termios.getInt(C_OFLAG) & ~OPOST);
+		termios.putInt(C_CFLAG, cflag);
+		termios.putInt(C_LFLAG, termios.getInt(C_LFLAG) & ~(ISIG | ICANON | ECHO | ECHOE | ECHONL | IEXTEN));
+		termios.put(C_LINE, (byte)0);
+		termios.put(C_CC + VMIN, (byte)1);
+		termios.put(C_CC + VTIME, (byte)0);
+		termios.putInt(C_ISPEED, baudRate);
+		termios.putInt(C_OSPEED, baudRate);
+		set(fd, devicePath, termios);
+
+		final ByteBuffer	applied = get(fd, devicePath);
+		final String		mismatch = compare(termios, applied);
+
+		if (mismatch != null) {
+			set(fd, devicePath, old);
+			throw new UnsupportedCommOperationException("Device ["+devicePath+"]: "+mismatch+" are not supported by the device");
+		}
+	}
+
+	/**
+	 * <p>Turns low_latency flag of the serial driver on or off. Driver with the flag on pushes received data to the tty layer immediately
+	 * instead of the deferred work.</p>
+	 * @param fd file descriptor of the device
+	 * @param devicePath device path for error messages. Can't be null or empty
+	 * @param enable true to turn the flag on
+	 * @throws UnsupportedCommOperationException if the flag is not supported by the device
+	 */
+	static void setLowLatency(final int fd, final String devicePath, final boolean enable) throws UnsupportedCommOperationException {
+		final ByteBuffer	serial = ByteBuffer.allocateDirect(SERIAL_STRUCT_SIZE).order(ByteOrder.nativeOrder());
+		int					result;
+
+		if ((result = LibC.ioctl(fd, LibC.TIOCGSERIAL, serial)) >= 0) {
+			final int	flags = serial.getInt(SERIAL_FLAGS);
+
+			serial.putInt(SERIAL_FLAGS, enable ? flags | ASYNC_LOW_LATENCY : flags & ~ASYNC_LOW_LATENCY);
+			result = LibC.ioctl(fd, LibC.TIOCSSERIAL, serial);
+		}
+		if (result < 0) {
+			throw new UnsupportedCommOperationException("Device ["+devicePath+"]: low_latency flag can't be changed, "+LibC.describe(result));
+		}
+	}
+
+	private static int speedCode(final int baudRate) {	// standard rates keep the Bxxx code, so tools using the old TCGETS see them
+		for (int index = 0; index < STANDARD_RATES.length; index++) {
+			if (STANDARD_RATES[index] == baudRate) {
+				return index < 16 ? index : BOTHER | (index - 15);
+			}
+		}
+		return BOTHER;
+	}
+
+	private static ByteBuffer get(final int fd, final String devicePath) throws UnsupportedCommOperationException {
+		final ByteBuffer	termios = ByteBuffer.allocateDirect(SIZE).order(ByteOrder.nativeOrder());
+		final int			result = LibC.ioctl(fd, LibC.TCGETS2, termios);
+
+		if (result < 0) {
+			throw new UnsupportedCommOperationException("Device ["+devicePath+"]: termios can't be read, "+LibC.describe(result));
+		}
+		return termios;
+	}
+
+	private static void set(final int fd, final String devicePath, final ByteBuffer termios) throws UnsupportedCommOperationException {
+		final int	result = LibC.ioctl(fd, LibC.TCSETS2, termios.clear());
+
+		if (result < 0) {
+			throw new UnsupportedCommOperationException("Device ["+devicePath+"]: termios can't be set, "+LibC.describe(result));
+		}
+	}
+
+	private static String compare(final ByteBuffer requested, final ByteBuffer applied) {
+		final long	baudRate = requested.getInt(C_OSPEED) & 0xFFFFFFFFL, appliedRate = applied.getInt(C_OSPEED) & 0xFFFFFFFFL;
+
+		if (((requested.getInt(C_CFLAG) ^ applied.getInt(C_CFLAG)) & CHECKED_CFLAGS) != 0) {
+			return "data bits, stop bits, parity or RTS/CTS flow control";
+		}
+		else if (((requested.getInt(C_IFLAG) ^ applied.getInt(C_IFLAG)) & CHECKED_IFLAGS) != 0) {
+			return "parity check or XON/XOFF flow control";
+		}
+		else if (Math.abs(appliedRate - baudRate) * 100 > baudRate * BAUD_TOLERANCE_PERCENT) {
+			return "baud rate ["+baudRate+"] (nearest is "+appliedRate+")";
+		}
+		else {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,8 @@
+/**
+ * <p>This package contains Linux serial port driver. Driver works with <b>/dev/tty*</b> devices and any pseudo-terminals
+ * ({@code /dev/pts/*}) registered by the <b>javax.comm.linux.ports</b> system property.</p>
+ *  
+ * @author Alexander Chernomyrdin aka chav1961
+ * @since 0.0.1
+ */
+package javax.comm.linux;
@@ -0,0 +1,122 @@
+package javax.comm.loopback;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.comm.CommDriver;
+import javax.comm.CommPort;
+import javax.comm.CommPortIdentifier;
+
+/**
+ * <p>In-memory null-modem driver. It registers pairs of virtual serial ports connected to each other with lock-free ring buffers:
+ * all the data written to one port of the pair can be read from another one. Modem lines are wired as in the null-modem cable:
+ * RTS of one port is CTS of another one, DTR of one port is DSR and CD of another one. Throughput can be paced to the bit rate
+ * set by {@linkplain javax.comm.SerialPort#setSerialPortParams(int, int, int, int)}.</p>
+ *
+ * <p>On initialization driver registers the given number of pairs <b>LOOP&lt;n&gt;A</b>/<b>LOOP&lt;n&gt;B</b>. Driver can be configured
+ * with system properties:</p>
+ * <ul>
+ * <li><b>javax.comm.loopback.pairs</b> - number of pairs to register on initialization (default is 0)</li>
+ * <li><b>javax.comm.loopback.paced</b> - pace throughput to the bit rate (default is false)</li>
+ * <li><b>javax.comm.loopback.bufferSize</b> - size of the receive buffer of every port (default is 65536)</li>
+ * </ul>
+ * <p>Any other pairs can be created by the {@linkplain #createPair(String, String, boolean)} method.</p>
+ *
+ * @author Alexander Chernomyrdin aka chav1961
+ * @since 0.0.1
+ */
+public class LoopbackCommDriver implements CommDriver {
+	/**
+	 * <p>System property with number of pairs to register on initialization.</p>
+	 */
+	public static final String	PAIRS_PROPERTY = "javax.comm.loopback.pairs";
+
+	/**
+	 * <p>System property to pace throughput to the bit rate</p>
+	 */
+	public static final String	PACED_PROPERTY = "javax.comm.loopback.paced";
+
+	/**
+	 * <p>System property with receive buffer size</p>
+	 */
+	public static final String	BUFFER_SIZE_PROPERTY = "javax.comm.loopback.bufferSize";
+
+	private static final int	DEFAULT_BUFFER_SIZE = 65536;
+
+	private final ConcurrentHashMap<String, LoopbackEndpoint>	endpoints = new ConcurrentHashMap<>();
+
+	@Override
+	public CommPort getCommPort(final String portName, final int portType) {
+		if (portName == null || portName.isEmpty()) {
+			throw new IllegalArgumentException("Port name can't be null or empty");
+		}
+		else if (portType != CommPortIdentifier.PORT_SERIAL) {
+			return null;
+		}
+		else {
+			final LoopbackEndpoint	endpoint = endpoints.get(portName);
+
+			if (endpoint == null) {
+				return null;
+			}
+			else {
+				synchronized (endpoint) {
+					if (endpoint.port != null && !endpoint.port.isClosed()) {
+						return null;
+					}
+					else {
+						return new LoopbackSerialPort(endpoint);
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void initialize() {
+		final int		pairs = Integer.getInteger(PAIRS_PROPERTY, 0);
+		final boolean	paced = Boolean.getBoolean(PACED_PROPERTY);
+
+		for (int index = 0; index < pairs; index++) {
+			createPair("LOOP"+index+"A", "LOOP"+index+"B", paced);
+		}
+	}
+
+	/**
+	 * <p>Creates a pair of the connected ports and registers them in the {@linkplain CommPortIdentifier}.</p>
+	 * @param nameA name of the first port. Can't be null or empty
+	 * @param nameB name of the second port. Can't be null or empty and can't be equal to the first name
+	 * @param paced pace throughput to the bit rate of the port
+	 * @throws IllegalArgumentException if any name is null, empty, or already registered by this driver
+	 */
+	public void createPair(final String nameA, final String nameB, final boolean paced) throws IllegalArgumentException {
+		if (nameA == null || nameA.isEmpty()) {
+			throw new IllegalArgumentException("First port name can't be null or empty");
+		}
+		else if (nameB == null || nameB.isEmpty()) {
+			throw new IllegalArgumentException("Second port name can't be null or empty");
+		}
+		else if (nameA.equals(nameB)) {
+			throw new IllegalArgumentException("Port names can't be the same");
+		}
+		else {
+			final int				bufferSize = Integer.getInteger(BUFFER_SIZE_PROPERTY, DEFAULT_BUFFER_SIZE);
+			final Object			lines = new Object();
+			final LoopbackEndpoint	a = new LoopbackEndpoint(nameA, bufferSize, paced, lines);
+			final LoopbackEndpoint	b = new LoopbackEndpoint(nameB, bufferSize, paced, lines);
+
+			a.peer = b;
+			b.peer = a;
+			if (endpoints.putIfAbsent(nameA, a) != null) {
+				throw new IllegalArgumentException("Port name ["+nameA+"] is already registered");
+			}
+			else if (endpoints.putIfAbsent(nameB, b) != null) {
+				endpoints.remove(nameA);
+				throw new IllegalArgumentException("Port name ["+nameB+"] is already registered");
+			}
+			else {
+				CommPortIdentifier.addPortName(nameA, CommPortIdentifier.PORT_SERIAL, this);
+				CommPortIdentifier.addPortName(nameB, CommPortIdentifier.PORT_SERIAL, this);
+			}
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package javax.comm.loopback;
+
+import javax.comm.spi.DirectByteRing;
+
+/**
+ * <p>One end of the virtual null-modem cable. Endpoint lives as long as the driver, and keeps receive ring and modem line states
+ * between port opens. Receive ring is replaced on resize, so the writing peer puts data into it under the ring lock only.</p>
+ */
+class LoopbackEndpoint {
+	final String		name;
+	final boolean		paced;
+	final Object		lines;		// shared by the pair, guards line changes
+	final Object		ringLock = new Object();	// producer side of the receive ring
+	volatile DirectByteRing	rx;
+	LoopbackEndpoint	peer;
+	volatile boolean	rts = false;
+	volatile boolean	dtr = false;
+	volatile LoopbackSerialPort	port = null;
+
+	LoopbackEndpoint(final String name, final int bufferSize, final boolean paced, final Object lines) {
+		this.name = name;
+		this.rx = new DirectByteRing(bufferSize);
+		this.paced = paced;
+		this.lines = lines;
+	}
+}
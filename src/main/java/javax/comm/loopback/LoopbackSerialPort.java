@@ -0,0 +1,327 @@
+package javax.comm.loopback;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.comm.SerialPortEvent;
+import javax.comm.UnsupportedCommOperationException;
+import javax.comm.spi.AbstractSerialPort;
+import javax.comm.spi.DirectByteRing;
+
+/**
+ * <p>Virtual serial port of the null-modem pair. Receive buffer of the port is the off-heap {@linkplain DirectByteRing} of the endpoint,
+ * its initial size is set by the driver. {@linkplain #setInputBufferSize(int)} replaces the ring by the resized one at once if no read is in
+ * progress, or when the read in progress ends otherwise. Data are written directly to the peer's receive ring, so output buffer size has no effect.</p>
+ */
+class LoopbackSerialPort extends AbstractSerialPort {
+	private static final long	PACING_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final LoopbackEndpoint	endpoint;
+	private final LoopbackEndpoint	peer;
+	private final ReentrantLock		readLock = new ReentrantLock();
+	private final Object			writeLock = new Object();
+	private final AtomicInteger		pendingInputSize = new AtomicInteger();
+	private volatile long			charNanos;
+	private long					nextSlot = 0;
+
+	LoopbackSerialPort(final LoopbackEndpoint endpoint) {
+		super(endpoint.name);
+		this.endpoint = endpoint;
+		this.peer = endpoint.peer;
+		this.charNanos = calculateCharacterTime(getBaudRate(), getDataBits(), getStopBits(), getParity());
+		endpoint.rx.clear();
+		endpoint.rx.resetHighWaterMark();
+		setInputBufferSize(endpoint.rx.capacity());
+		synchronized (endpoint.lines) {
+			endpoint.port = this;
+			updateModemStatus(MODEM_CTS | MODEM_DSR | MODEM_CD, (peer.rts ? MODEM_CTS : 0) | (peer.dtr ? MODEM_DSR | MODEM_CD : 0));
+		}
+		setDTR(true);
+		setRTS(true);
+	}
+
+	@Override
+	public void setDTR(final boolean state) {
+		ensureOpen();
+		flushQuietly();
+		synchronized (endpoint.lines) {
+			final LoopbackSerialPort	peerPort = peer.port;
+
+			endpoint.dtr = state;
+			updateModemStatus(MODEM_DTR, state ? MODEM_DTR : 0);
+			if (peerPort != null) {
+				peerPort.updateModemStatus(MODEM_DSR | MODEM_CD, state ? MODEM_DSR | MODEM_CD : 0);
+			}
+		}
+	}
+
+	@Override
+	public void setRTS(final boolean state) {
+		ensureOpen();
+		flushQuietly();
+		synchronized (endpoint.lines) {
+			final LoopbackSerialPort	peerPort = peer.port;
+
+			endpoint.rts = state;
+			updateModemStatus(MODEM_RTS, state ? MODEM_RTS : 0);
+			if (peerPort != null) {
+				peerPort.updateModemStatus(MODEM_CTS, state ? MODEM_CTS : 0);
+			}
+		}
+		endpoint.rx.wakeUp();	// peer can wait for CTS
+		if (state) {
+			signalPeerOutputReady();
+		}
+	}
+
+	@Override
+	public void sendBreak(final int duration) {
+		ensureOpen();
+		flushQuietly();
+		final LoopbackSerialPort	peerPort = peer.port;
+
+		if (peerPort != null) {
+			peerPort.fireSerialEvent(SerialPortEvent.BI, false, true);
+		}
+		if (duration > 0) {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(duration));
+		}
+	}
+
+	@Override
+	protected boolean resizeInputBuffer(final int size) {
+		pendingInputSize.set(Math.min(size, DirectByteRing.MAX_CAPACITY));
+		if (readLock.tryLock()) {	// otherwise the reader resizes the ring when the read ends
+			try {
+				resizeInput();
+			} finally {
+				readLock.unlock();
+			}
+		}
+		return true;
+	}
+
+	@Override
+	protected boolean isInputReady() {
+		return !isClosed() && endpoint.rx.available() > 0;
+	}
+
+	@Override
+	protected boolean isOutputReady() {
+		return getOutputReadyCount() > 0;
+	}
+
+	@Override
+	protected int getOutputReadyCount() {
+		if (isClosed() || (getFlowControlMode() & FLOWCONTROL_RTSCTS_OUT) != 0 && !isCTS()) {
+			return 0;
+		}
+		else {
+			return peer.port == null ? Integer.MAX_VALUE : Math.max(0, peer.rx.free() - getCoalescedOutputCount());	// data to nobody are lost without waiting
+		}
+	}
+
+	@Override
+	protected void applySerialPortParams(final int bitrate, final int datasize, final int stopbits, final int parity) throws UnsupportedCommOperationException {
+		charNanos = calculateCharacterTime(bitrate, datasize, stopbits, parity);
+	}
+
+	@Override
+	protected void applyFlowControlMode(final int flowcontrol) throws UnsupportedCommOperationException {
+		if ((flowcontrol & (FLOWCONTROL_XONXOFF_IN | FLOWCONTROL_XONXOFF_OUT)) != 0) {
+			throw new UnsupportedCommOperationException("XON/XOFF flow control is not supported by loopback driver");
+		}
+	}
+
+	@Override
+	protected int getInputBufferOccupancy() {
+		return endpoint.rx.available();
+	}
+
+	@Override
+	protected boolean isWriteCoalescingSupported() {
+		return true;
+	}
+
+	@Override
+	protected int writeOutput(final ByteBuffer src) throws IOException {
+		return writeData(src);
+	}
+
+	@Override
+	protected long writeOutput(final ByteBuffer[] srcs, final int offset, final int length) throws IOException {
+		long	total = 0;
+
+		synchronized (writeLock) {
+			for (int index = offset; index < offset + length; index++) {
+				total += transmit(srcs[index]);
+			}
+		}
+		fireSerialEvent(SerialPortEvent.OUTPUT_BUFFER_EMPTY, false, true, (int)Math.min(total, Integer.MAX_VALUE));
+		return total;
+	}
+
+	@Override
+	protected void drainOutput() throws IOException {
+		if (endpoint.paced) {	// the last slice is still on the line
+			long	delay;
+
+			while ((delay = getNextSlot() - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(delay);
+			}
+		}
+	}
+
+	@Override
+	protected void closePort() throws IOException {
+		synchronized (endpoint.lines) {
+			if (endpoint.port == this) {	// endpoint can be already reopened
+				final LoopbackSerialPort	peerPort = peer.port;
+
+				endpoint.port = null;
+				endpoint.dtr = false;
+				endpoint.rts = false;
+				if (peerPort != null) {
+					peerPort.updateModemStatus(MODEM_CTS | MODEM_DSR | MODEM_CD, 0);
+				}
+			}
+		}
+		endpoint.rx.wakeUp();
+		peer.rx.wakeUp();
+		signalPeerOutputReady();	// peer writes to nobody now
+	}
+
+	private void pace(final int bytes) {
+		final long	now = System.nanoTime();
+		long		delay;
+
+		while ((delay = nextSlot - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(delay);
+		}
+		nextSlot = Math.max(now, nextSlot) + bytes * charNanos;
+	}
+
+	@Override
+	protected int readInput(final ByteBuffer dst) throws IOException {
+		readLock.lock();
+		try {
+			final DirectByteRing	rx = endpoint.rx;	// can't be replaced while the read lock is held
+			final boolean	thresholdEnabled = isReceiveThresholdEnabled(), timeoutEnabled = isReceiveTimeoutEnabled();
+
+			if (!(thresholdEnabled && getReceiveThreshold() == 0 || timeoutEnabled && getReceiveTimeout() == 0)) {
+				final int	minBytes = Math.min(Math.min(thresholdEnabled ? getReceiveThreshold() : 1, dst.remaining()), rx.capacity());
+				final long	timeout = timeoutEnabled ? TimeUnit.MILLISECONDS.toNanos(getReceiveTimeout()) : -1;
+
+				if (!spinForInput(rx, minBytes) && !rx.awaitData(minBytes, timeout, this::isClosed) && isClosed()) {
+					return -1;
+				}
+			}
+			final int	read = rx.read(dst);
+
+			if (read > 0) {
+				signalPeerOutputReady();
+			}
+			return read;
+		} finally {
+			resizeInput();
+			readLock.unlock();
+		}
+	}
+
+	private void resizeInput() {	// called under readLock, so the consumer side of the ring is quiescent
+		final int	size = pendingInputSize.getAndSet(0);
+
+		if (size > 0) {
+			synchronized (endpoint.ringLock) {
+				final DirectByteRing	old = endpoint.rx;
+
+				endpoint.rx = old.resize(size);
+				old.wakeUp();
+			}
+			if (endpoint.rx.available() > size) {	// data stored don't fit the size yet, so shrink the ring after the next read
+				pendingInputSize.compareAndSet(0, size);
+			}
+			signalPeerOutputReady();
+		}
+	}
+
+	private int writeData(final ByteBuffer src) {
+		final int	total;
+
+		synchronized (writeLock) {
+			total = transmit(src);
+		}
+		fireSerialEvent(SerialPortEvent.OUTPUT_BUFFER_EMPTY, false, true, total);
+		return total;
+	}
+
+	private int transmit(final ByteBuffer src) {	// called under writeLock
+		final int		total = src.remaining();
+
+		while (src.hasRemaining()) {
+			final DirectByteRing	tx = peer.rx;
+			final int	slice = endpoint.paced ? (int)Math.max(1, Math.min(src.remaining(), PACING_SLICE_NANOS / charNanos)) : src.remaining();
+			final int	written;
+
+			if ((getFlowControlMode() & FLOWCONTROL_RTSCTS_OUT) != 0 && !isCTS()) {
+				tx.awaitWriter(this::isCTS, -1, ()->isClosed() || tx != peer.rx);
+			}
+			ensureOpen();
+			final LoopbackSerialPort	peerPort = peer.port;
+
+			if (endpoint.paced) {
+				pace(slice);
+			}
+			if (peerPort == null) {	// nobody listens the line, data are lost
+				src.position(src.position() + slice);
+				written = slice;
+			}
+			else if ((written = offer(src, slice)) > 0) {
+				peerPort.fireDataAvailable(written);
+			}
+			else {
+				tx.awaitSpace(1, -1, ()->isClosed() || peer.port == null || tx != peer.rx);
+			}
+			if (endpoint.paced && written < slice) {
+				nextSlot -= (slice - written) * charNanos;
+			}
+		}
+		return total;
+	}
+
+	private int offer(final ByteBuffer src, final int slice) {	// peer can replace its ring at any time
+		synchronized (peer.ringLock) {
+			return peer.rx.offer(src, slice);
+		}
+	}
+
+	private long getNextSlot() {
+		synchronized (writeLock) {
+			return nextSlot;
+		}
+	}
+
+	/**
+	 * <p>Wakes up selectors waiting for the peer output readiness. Peer is not ready to write only when this port's receive ring is full or
+	 * this port drops RTS, and it can't detect the end of these states itself.</p>
+	 */
+	private void signalPeerOutputReady() {
+		final LoopbackSerialPort	peerPort = peer.port;
+
+		if (peerPort != null) {
+			peerPort.signalSelectors(SerialPortEvent.OUTPUT_BUFFER_EMPTY);
+		}
+	}
+
+	private void flushQuietly() {
+		try {
+			flushOutput();
+		} catch (IOException exc) {
+			// loopback writes don't fail
+		}
+	}
+}
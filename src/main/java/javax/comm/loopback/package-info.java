@@ -0,0 +1,7 @@
+/**
+ * <p>This package contains in-memory null-modem driver. It is useful to test and benchmark applications without any hardware.</p>
+ *  
+ * @author Alexander Chernomyrdin aka chav1961
+ * @since 0.0.1
+ */
+package javax.comm.loopback;
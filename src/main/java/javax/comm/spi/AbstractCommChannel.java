@@ -0,0 +1,89 @@
+package javax.comm.spi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+
+import javax.comm.CommChannel;
+
+/**
+ * <p>Skeletal implementation of the {@linkplain CommChannel} for driver writers. Driver only need to implement single-buffer
+ * {@linkplain #read(ByteBuffer)} and {@linkplain #write(ByteBuffer)} methods, scattering reads and gathering writes are built on them.
+ * Scattering read blocks only to fill the first buffer, and the rest of buffers are filled with the data already available.</p>
+ *
+ * @author Alexander Chernomyrdin aka chav1961
+ * @since 0.0.1
+ */
+public abstract class AbstractCommChannel implements CommChannel {
+	/**
+	 * <p>Gets number of bytes that can be read without blocking.</p>
+	 * @return number of bytes available
+	 * @throws IOException on any I/O errors
+	 */
+	protected abstract int available() throws IOException;
+
+	@Override
+	public long read(final ByteBuffer[] dsts) throws IOException {
+		return read(dsts, 0, dsts.length);
+	}
+
+	@Override
+	public long read(final ByteBuffer[] dsts, final int offset, final int length) throws IOException {
+		if (offset < 0 || length < 0 || offset + length > dsts.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		else {
+			long	total = 0;
+
+			for (int index = offset; index < offset + length; index++) {
+				if (dsts[index].hasRemaining()) {
+					if (total > 0 && available() <= 0) {
+						break;
+					}
+					final int	read = read(dsts[index]);
+
+					if (read < 0) {
+						return total == 0 ? -1 : total;
+					}
+					total += read;
+					if (dsts[index].hasRemaining()) {
+						break;
+					}
+				}
+			}
+			return total;
+		}
+	}
+
+	@Override
+	public long write(final ByteBuffer[] srcs) throws IOException {
+		return write(srcs, 0, srcs.length);
+	}
+
+	@Override
+	public long write(final ByteBuffer[] srcs, final int offset, final int length) throws IOException {
+		if (offset < 0 || length < 0 || offset + length > srcs.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		else {
+			long	total = 0;
+
+			for (int index = offset; index < offset + length; index++) {
+				while (srcs[index].hasRemaining()) {
+					total += write(srcs[index]);
+				}
+			}
+			return total;
+		}
+	}
+
+	/**
+	 * <p>Checks that channel is open</p>
+	 * @throws ClosedChannelException if channel is closed
+	 */
+	protected void ensureOpen() throws ClosedChannelException {
+		if (!isOpen()) {
+			throw new ClosedChannelException();
+		}
+	}
+}
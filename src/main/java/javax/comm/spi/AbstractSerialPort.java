@@ -0,0 +1,1537 @@
+package javax.comm.spi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.TooManyListenersException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import javax.comm.CommChannel;
+import javax.comm.CommPortMetrics;
+import javax.comm.ReceiveTimestamp;
+import javax.comm.SerialConfig;
+import javax.comm.SerialPort;
+import javax.comm.SerialPortEvent;
+import javax.comm.SerialPortEventListener;
+import javax.comm.SerialPortEventSubscription;
+import javax.comm.UnsupportedCommOperationException;
+import javax.comm.capture.CaptureWriter;
+import javax.comm.jfr.FlightRecorderEvents;
+import javax.comm.jfr.PortConfigurationEvent;
+import javax.comm.jfr.PortIOEvent;
+
+/**
+ * <p>Skeletal implementation of the {@linkplain SerialPort} for driver writers.</p>
+ *
+ * <p>This class keeps all the port settings (serial parameters, flow control, receive timeout, threshold and framing, buffer sizes),
+ * manages the {@linkplain SerialPortEventListener} and the dedicated event thread, and checks the port state. Driver only need to implement
+ * a few primitive methods to apply settings to the hardware and to make I/O.</p>
+ *
+ * <p>To support write coalescing (see {@linkplain #enableWriteCoalescing(int)}), driver must override {@linkplain #isWriteCoalescingSupported()}
+ * method, send all the data written to its streams and channels through the
+ * {@linkplain #submitOutput(ByteBuffer)} methods, and call {@linkplain #flushOutput()} on output stream flush and before changing
+ * modem control lines.</p>
+ *
+ * <p>Settings of the {@linkplain SerialConfig} are applied to the hardware by one {@linkplain #applySettings()} call, so drivers
+ * able to configure the hardware at once should override it.</p>
+ *
+ * <p>Modem line states are kept in the snapshot (see {@linkplain #getModemStatus()}). Driver must report every line change by the
+ * {@linkplain #updateModemStatus(int, int)} method, which fires line events and wakes up threads waiting for the change, so neither
+ * the line state methods nor event detection access the hardware.</p>
+ *
+ * <p>Driver reads and writes the hardware by the {@linkplain #readInput(ByteBuffer)} and {@linkplain #writeOutput(ByteBuffer)} methods. Input and output
+ * streams and the channel of the port are built on them, and {@linkplain InputStream#available()} of the stream is the {@linkplain #getInputBufferOccupancy()}
+ * of the driver, so drivers keeping data received in the input buffer must override it. Drivers overriding streams or channel should pass all their reads
+ * through the {@linkplain #submitInput(ByteBuffer)} method and all their writes through the {@linkplain #submitOutput(ByteBuffer)} methods. Reads and writes submitted and line events fired are recorded in the {@linkplain CommPortMetrics}
+ * of the port, in the JDK Flight Recorder and in the traffic capture (see {@linkplain #startCapture(Path)}) automatically.
+ * Driver should report data received by the {@linkplain #fireDataAvailable(int)} method as soon as it takes data from the hardware, so arrival
+ * times of the data are available by the {@linkplain #readTimestamped(ByteBuffer, ReceiveTimestamp)} method.</p>
+ *
+ * @author Alexander Chernomyrdin aka chav1961
+ * @since 0.0.1
+ */
+public abstract class AbstractSerialPort extends SerialPort {
+	/**
+	 * <p>Default input and output buffer size</p>
+	 */
+    public static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    private static final int	NOTIFY_ALL_MASK = (1 << (SerialPortEvent.BI + 1)) - 1;
+    private static final boolean	SPIN_AVAILABLE = Runtime.getRuntime().availableProcessors() > 1;	// spinning on the single CPU only delays the data
+
+    private final Object		lock = new Object();
+    private final InputStream	is = new PortInputStream();
+    private final OutputStream	os = new PortOutputStream();
+    private final CommChannel	channel = new PortChannel();
+    private final AtomicBoolean	closing = new AtomicBoolean();
+    private volatile boolean	closed = false;
+    private int					baudRate = 9600;
+    private int					dataBits = DATABITS_8;
+    private int					stopBits = STOPBITS_1;
+    private int					parity = PARITY_NONE;
+    private int					flowControl = FLOWCONTROL_NONE;
+    private boolean				timeoutEnabled = false;
+    private int					timeout = 0;
+    private boolean				thresholdEnabled = false;
+    private int					threshold = 0;
+    private boolean				framingEnabled = false;
+    private int					framingByte = 0;
+    private int					inputBufferSize = DEFAULT_BUFFER_SIZE;
+    private int					outputBufferSize = DEFAULT_BUFFER_SIZE;
+    private volatile int		notifyMask = 0;
+    private final Object		dispatchLock = new Object();	// listener and its dispatcher, never held while calling the driver
+    private volatile SerialPortEventListener	listener = null;
+    private ExecutorService		eventThread = null;
+    private boolean				coalescing = false;
+    private EventRing			eventRing = null;
+    private long				droppedEvents = 0;
+    private final Object		coalescingLock = new Object();
+    private volatile WriteCoalescer	writeCoalescer = null;
+    private volatile int		coalescingWindow = 0;
+    private final Object		captureLock = new Object();		// capture start and stop, never held by I/O
+    private volatile CaptureWriter	capture = null;
+    private final Object		modemLock = new Object();
+    private volatile int		modemStatus = 0;
+    private final ArrivalMarks	arrivals = new ArrivalMarks(ArrivalMarks.DEFAULT_CAPACITY);
+    private volatile boolean	lowLatency = false;
+    private volatile int		spinBudget = 0;
+
+    /**
+     * <p>Constructor of the class</p>
+     * @param portName port name. Can't be null or empty
+     * @throws IllegalArgumentException when port name is null or empty
+     */
+    protected AbstractSerialPort(final String portName) throws IllegalArgumentException {
+    	if (portName == null || portName.isEmpty()) {
+    		throw new IllegalArgumentException("Port name can't be null or empty");
+    	}
+    	else {
+    		this.name = portName;
+    	}
+    }
+
+    /**
+     * <p>Applies serial port parameters to the hardware. Parameters were already validated by caller.</p>
+     * @param bitrate bit rate
+     * @param datasize data bits
+     * @param stopbits stop bits
+     * @param parity parity
+     * @throws UnsupportedCommOperationException if the hardware doesn't support the given parameters
+     */
+    protected abstract void applySerialPortParams(int bitrate, int datasize, int stopbits, int parity) throws UnsupportedCommOperationException;
+
+    /**
+     * <p>Applies flow control mode to the hardware. Parameter was already validated by caller.</p>
+     * @param flowcontrol flow control bitmask
+     * @throws UnsupportedCommOperationException if the hardware doesn't support the given flow control
+     */
+    protected abstract void applyFlowControlMode(int flowcontrol) throws UnsupportedCommOperationException;
+
+    /**
+     * <p>Applies receive timeout, threshold and framing settings to the hardware. Current values can be get by
+     * {@linkplain #isReceiveTimeoutEnabled()}, {@linkplain #getReceiveTimeout()} and so on. Default implementation does nothing.</p>
+     * @throws UnsupportedCommOperationException if the hardware doesn't support the current settings
+     */
+    protected void applyReceiveOptions() throws UnsupportedCommOperationException {
+    }
+
+    /**
+     * <p>Turns the kernel low-latency flag of the hardware on or off (see {@linkplain #enableLowLatency(int)}). Default implementation does nothing,
+     * so only busy-poll spinning is available.</p>
+     * @param enable true to turn low-latency flag on
+     * @throws UnsupportedCommOperationException if the hardware doesn't support low-latency mode
+     */
+    protected void applyLowLatency(final boolean enable) throws UnsupportedCommOperationException {
+    }
+
+    /**
+     * <p>Applies all the current port settings (serial port parameters, flow control and receive options) to the hardware by one operation.
+     * Called by {@linkplain #configure(SerialConfig)} when any of these settings changes. Current values can be get by {@linkplain #getBaudRate()},
+     * {@linkplain #getFlowControlMode()} and so on. Default implementation calls {@linkplain #applySerialPortParams(int, int, int, int)},
+     * {@linkplain #applyFlowControlMode(int)} and {@linkplain #applyReceiveOptions()} one by one, drivers can override it to apply all
+     * the settings at once.</p>
+     * @throws UnsupportedCommOperationException if the hardware doesn't support the current settings
+     */
+    protected void applySettings() throws UnsupportedCommOperationException {
+    	synchronized (lock) {
+    		applySerialPortParams(baudRate, dataBits, stopBits, parity);
+    		applyFlowControlMode(flowControl);
+    		applyReceiveOptions();
+    	}
+    }
+
+    /**
+     * <p>Sets port settings from the config without applying them to the hardware. Drivers applying settings on the port open can call it
+     * from constructor to make port settings equal to the settings applied, so the same config will not be applied again on open.</p>
+     * @param config config to set. Can't be null
+     */
+    protected void presetConfig(final SerialConfig config) {
+    	if (config == null) {
+    		throw new NullPointerException("Config can't be null");
+    	}
+    	else {
+    		synchronized (lock) {
+    			setSettings(config);
+    			inputBufferSize = config.getInputBufferSize();
+    			outputBufferSize = config.getOutputBufferSize();
+    		}
+    	}
+    }
+
+    /**
+     * <p>Reads data from the hardware without blocking. Is called by the {@linkplain #submitInput(ByteBuffer)} methods.</p>
+     * @param dst buffer to read data to
+     * @return number of bytes read, or -1 on end of stream
+     * @throws IOException on any I/O errors
+     */
+    protected abstract int readInput(final ByteBuffer dst) throws IOException;
+
+    /**
+     * <p>Resizes the input buffer of the driver. Called by {@linkplain #setInputBufferSize(int)} and {@linkplain #configure(SerialConfig)} under
+     * the settings lock, so drivers must not block in it. Drivers keeping data received in the {@linkplain DirectByteRing} should replace it by
+     * the {@linkplain DirectByteRing#resize(int)} result when both sides of the ring are quiescent: at once, if no read is in progress, or when
+     * the read in progress ends. Default implementation accepts any size and does nothing.</p>
+     * @param size new buffer size. Always positive
+     * @return true if the size is accepted, false if the driver can't honor it. Size rejected is not recorded
+     */
+    protected boolean resizeInputBuffer(final int size) {
+    	return true;
+    }
+
+    /**
+     * <p>Resizes the output buffer of the driver. Called by {@linkplain #setOutputBufferSize(int)} and {@linkplain #configure(SerialConfig)} under
+     * the settings lock, so drivers must not block in it (see {@linkplain #resizeInputBuffer(int)}). Default implementation accepts any size and
+     * does nothing.</p>
+     * @param size new buffer size. Always positive
+     * @return true if the size is accepted, false if the driver can't honor it. Size rejected is not recorded
+     */
+    protected boolean resizeOutputBuffer(final int size) {
+    	return true;
+    }
+
+    /**
+     * <p>Can the driver change DTR and RTS lines. Drivers returning false keep both lines in the state they were opened with, their
+     * {@linkplain #setDTR(boolean)} and {@linkplain #setRTS(boolean)} do nothing and {@linkplain #configure(SerialConfig)} rejects configs
+     * changing the lines. Default implementation returns true.</p>
+     * @return true if supported
+     */
+    protected boolean isModemControlSupported() {
+    	return true;
+    }
+
+    /**
+     * <p>Is write coalescing supported by the driver. Default implementation returns false.</p>
+     * @return true if supported
+     */
+    protected boolean isWriteCoalescingSupported() {
+    	return false;
+    }
+
+    /**
+     * <p>Writes data to the hardware, bypassing write coalescer. Is called by {@linkplain #submitOutput(ByteBuffer)} and by the write coalescer,
+     * if write coalescing is supported by the driver.</p>
+     * @param src data to write
+     * @return number of bytes written
+     * @throws IOException on any I/O errors
+     */
+    protected abstract int writeOutput(final ByteBuffer src) throws IOException;
+
+    /**
+     * <p>Writes a sequence of buffers to the hardware, bypassing write coalescer. Default implementation calls {@linkplain #writeOutput(ByteBuffer)}
+     * for every buffer, drivers can override it to send all the buffers by one operation.</p>
+     * @param srcs buffers to write
+     * @param offset offset of the first buffer in the array
+     * @param length number of buffers to write
+     * @return number of bytes written
+     * @throws IOException on any I/O errors
+     */
+    protected long writeOutput(final ByteBuffer[] srcs, final int offset, final int length) throws IOException {
+    	long	total = 0;
+
+    	for (int index = offset; index < offset + length; index++) {
+    		while (srcs[index].hasRemaining()) {
+    			total += writeOutput(srcs[index]);
+    		}
+    	}
+    	return total;
+    }
+
+    /**
+     * <p>Waits until all the data written leave the port. Default implementation does nothing.</p>
+     * @throws IOException on any I/O errors
+     */
+    protected void drainOutput() throws IOException {
+    }
+
+    /**
+     * <p>Releases all driver resources associated with the port. Will be called once on {@linkplain #close()}</p>
+     * @throws IOException on any I/O errors
+     */
+    protected abstract void closePort() throws IOException;
+
+    @Override
+    public void setSerialPortParams(final int bitrate, final int datasize, final int stopbits, final int parity) throws UnsupportedCommOperationException {
+    	ensureOpen();
+    	checkSerialPortParams(bitrate, datasize, stopbits, parity);
+
+    	final PortConfigurationEvent	event = FlightRecorderEvents.beginConfiguration();
+    	boolean	succeeded = false;
+
+    	try {
+    		synchronized (lock) {
+    			applySerialPortParams(bitrate, datasize, stopbits, parity);
+    			this.baudRate = bitrate;
+    			this.dataBits = datasize;
+    			this.stopBits = stopbits;
+    			this.parity = parity;
+    			succeeded = true;
+    		}
+    	} finally {
+    		FlightRecorderEvents.endConfiguration(event, getName(), "setSerialPortParams", bitrate, datasize, stopbits, parity, getFlowControlMode(), succeeded);
+    	}
+    }
+
+    @Override
+    public int getBaudRate() {
+    	synchronized (lock) {
+    		return baudRate;
+    	}
+    }
+
+    @Override
+    public int getDataBits() {
+    	synchronized (lock) {
+    		return dataBits;
+    	}
+    }
+
+    @Override
+    public int getStopBits() {
+    	synchronized (lock) {
+    		return stopBits;
+    	}
+    }
+
+    @Override
+    public int getParity() {
+    	synchronized (lock) {
+    		return parity;
+    	}
+    }
+
+    @Override
+    public void setFlowControlMode(final int flowcontrol) throws UnsupportedCommOperationException {
+    	ensureOpen();
+    	checkFlowControlMode(flowcontrol);
+
+    	final PortConfigurationEvent	event = FlightRecorderEvents.beginConfiguration();
+    	boolean	succeeded = false;
+
+    	try {
+    		synchronized (lock) {
+    			applyFlowControlMode(flowcontrol);
+    			this.flowControl = flowcontrol;
+    			succeeded = true;
+    		}
+    	} finally {
+    		FlightRecorderEvents.endConfiguration(event, getName(), "setFlowControlMode", getBaudRate(), getDataBits(), getStopBits(), getParity(), flowcontrol, succeeded);
+    	}
+    }
+
+    /**
+     * <p>Applies the config under the settings lock. Serial port parameters, flow control mode and receive options are applied to the hardware
+     * by one {@linkplain #applySettings()} call and are rolled back if the driver rejects them. Buffer sizes and DTR/RTS lines are changed in the
+     * same critical section, so concurrent config applications and the settings getters and setters of the port see either the old or the new config,
+     * never a mix of them. Buffer sizes the driver can't honor (see {@linkplain #resizeInputBuffer(int)}) fail the config before anything else is applied.
+     * Direct {@linkplain #setDTR(boolean)} and {@linkplain #setRTS(boolean)} calls are not serialized with it, and line changes
+     * are not rolled back. Data collected by the write coalescer is sent before the lock is taken when any line is about to change. Configs changing
+     * the lines are rejected before anything is applied when the driver can't change them (see {@linkplain #isModemControlSupported()}).</p>
+     */
+    @Override
+    protected void configure(final SerialConfig config) throws UnsupportedCommOperationException {
+    	ensureOpen();
+    	checkSerialPortParams(config.getBaudRate(), config.getDataBits(), config.getStopBits(), config.getParity());
+    	checkFlowControlMode(config.getFlowControlMode());
+    	if (!isModemControlSupported() && (isDTR() != config.isDTR() || isRTS() != config.isRTS())) {
+    		throw new UnsupportedCommOperationException("Port ["+getName()+"]: DTR/RTS lines can't be changed by the driver");
+    	}
+
+    	final PortConfigurationEvent	event = FlightRecorderEvents.beginConfiguration();
+    	boolean	succeeded = false;
+
+    	if (isDTR() != config.isDTR() || isRTS() != config.isRTS()) {
+    		try {	// line changes send collected data first, don't wait for transmission under lock
+    			flushOutput();
+    		} catch (IOException exc) {
+    			// write error will be reported to the writer
+    		}
+    	}
+    	try {
+    		synchronized (lock) {
+    			final int	oldInputSize = inputBufferSize, oldOutputSize = outputBufferSize;
+
+    			setInputBufferSize(config.getInputBufferSize());
+    			setOutputBufferSize(config.getOutputBufferSize());
+    			if (inputBufferSize != config.getInputBufferSize() || outputBufferSize != config.getOutputBufferSize()) {
+    				setInputBufferSize(oldInputSize);
+    				setOutputBufferSize(oldOutputSize);
+    				throw new UnsupportedCommOperationException("Port ["+getName()+"]: buffer sizes ["+config.getInputBufferSize()+", "+config.getOutputBufferSize()+"] are not supported by the driver");
+    			}
+    			if (!hasSettings(config)) {
+    				final SerialConfig	old = SerialConfig.of(this);
+
+    				setSettings(config);
+    				try {
+    					applySettings();
+    				} catch (UnsupportedCommOperationException | RuntimeException exc) {
+    					setSettings(old);
+    					throw exc;
+    				}
+    			}
+    			if (isDTR() != config.isDTR()) {
+    				setDTR(config.isDTR());
+    			}
+    			if (isRTS() != config.isRTS()) {
+    				setRTS(config.isRTS());
+    			}
+    			succeeded = true;
+    		}
+    	} finally {
+    		FlightRecorderEvents.endConfiguration(event, getName(), "applyConfig", config.getBaudRate(), config.getDataBits(), config.getStopBits(), config.getParity(), config.getFlowControlMode(), succeeded);
+    	}
+    }
+
+    @Override
+    public int getFlowControlMode() {
+    	synchronized (lock) {
+    		return flowControl;
+    	}
+    }
+
+    @Override
+    public boolean isRTS() {
+    	return (modemStatus & MODEM_RTS) != 0;
+    }
+
+    @Override
+    public boolean isCTS() {
+    	return (modemStatus & MODEM_CTS) != 0;
+    }
+
+    @Override
+    public boolean isDTR() {
+    	return (modemStatus & MODEM_DTR) != 0;
+    }
+
+    @Override
+    public boolean isDSR() {
+    	return (modemStatus & MODEM_DSR) != 0;
+    }
+
+    @Override
+    public boolean isCD() {
+    	return (modemStatus & MODEM_CD) != 0;
+    }
+
+    @Override
+    public boolean isRI() {
+    	return (modemStatus & MODEM_RI) != 0;
+    }
+
+    @Override
+    public int getModemStatus() {
+    	return modemStatus;
+    }
+
+    @Override
+    public int awaitModemStatusChange(final int status, final int mask, final long timeout) throws InterruptedException, UnsupportedCommOperationException, IllegalArgumentException {
+    	if (mask == 0) {
+    		throw new IllegalArgumentException("Modem status mask can't be 0");
+    	}
+    	else if (timeout < 0) {
+    		throw new IllegalArgumentException("Timeout ["+timeout+"] can't be negative");
+    	}
+    	else {
+    		final long	deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+    		synchronized (modemLock) {
+    			while (((modemStatus ^ status) & mask) == 0 && !closed) {
+    				if (timeout == 0) {
+    					modemLock.wait();
+    				}
+    				else {
+    					final long	delay = deadline - System.nanoTime();
+
+    					if (delay <= 0) {
+    						break;
+    					}
+    					else {
+    						TimeUnit.NANOSECONDS.timedWait(modemLock, delay);
+    					}
+    				}
+    			}
+    			return modemStatus;
+    		}
+    	}
+    }
+
+    @Override
+    public void enableReceiveFraming(final int framingByte) throws UnsupportedCommOperationException {
+    	ensureOpen();
+    	synchronized (lock) {
+    		final boolean	oldEnabled = framingEnabled;
+    		final int		oldByte = this.framingByte;
+
+    		framingEnabled = true;
+    		this.framingByte = framingByte & 0xFF;
+    		try {
+    			applyReceiveOptions();
+    		} catch (UnsupportedCommOperationException exc) {
+    			framingEnabled = oldEnabled;
+    			this.framingByte = oldByte;
+    			throw exc;
+    		}
+    	}
+    }
+
+    @Override
+    public void disableReceiveFraming() {
+    	synchronized (lock) {
+    		framingEnabled = false;
+    		applyReceiveOptionsQuietly();
+    	}
+    }
+
+    @Override
+    public boolean isReceiveFramingEnabled() {
+    	synchronized (lock) {
+    		return framingEnabled;
+    	}
+    }
+
+    @Override
+    public int getReceiveFramingByte() {
+    	synchronized (lock) {
+    		return framingByte;
+    	}
+    }
+
+    @Override
+    public void enableReceiveTimeout(final int time) throws UnsupportedCommOperationException {
+    	ensureOpen();
+    	if (time < 0) {
+    		throw new UnsupportedCommOperationException("Receive timeout ["+time+"] can't be negative");
+    	}
+    	else {
+	    	synchronized (lock) {
+	    		final boolean	oldEnabled = timeoutEnabled;
+	    		final int		oldTimeout = timeout;
+
+	    		timeoutEnabled = true;
+	    		timeout = time;
+	    		try {
+	    			applyReceiveOptions();
+	    		} catch (UnsupportedCommOperationException exc) {
+	    			timeoutEnabled = oldEnabled;
+	    			timeout = oldTimeout;
+	    			throw exc;
+	    		}
+	    	}
+    	}
+    }
+
+    @Override
+    public void disableReceiveTimeout() {
+    	synchronized (lock) {
+    		timeoutEnabled = false;
+    		applyReceiveOptionsQuietly();
+    	}
+    }
+
+    @Override
+    public boolean isReceiveTimeoutEnabled() {
+    	synchronized (lock) {
+    		return timeoutEnabled;
+    	}
+    }
+
+    @Override
+    public int getReceiveTimeout() {
+    	synchronized (lock) {
+    		return timeout;
+    	}
+    }
+
+    @Override
+    public void enableReceiveThreshold(final int thresh) throws UnsupportedCommOperationException {
+    	ensureOpen();
+    	if (thresh < 0) {
+    		throw new UnsupportedCommOperationException("Receive threshold ["+thresh+"] can't be negative");
+    	}
+    	else {
+	    	synchronized (lock) {
+	    		final boolean	oldEnabled = thresholdEnabled;
+	    		final int		oldThreshold = threshold;
+
+	    		thresholdEnabled = true;
+	    		threshold = thresh;
+	    		try {
+	    			applyReceiveOptions();
+	    		} catch (UnsupportedCommOperationException exc) {
+	    			thresholdEnabled = oldEnabled;
+	    			threshold = oldThreshold;
+	    			throw exc;
+	    		}
+	    	}
+    	}
+    }
+
+    @Override
+    public void disableReceiveThreshold() {
+    	synchronized (lock) {
+    		thresholdEnabled = false;
+    		applyReceiveOptionsQuietly();
+    	}
+    }
+
+    @Override
+    public int getReceiveThreshold() {
+    	synchronized (lock) {
+    		return threshold;
+    	}
+    }
+
+    @Override
+    public boolean isReceiveThresholdEnabled() {
+    	synchronized (lock) {
+    		return thresholdEnabled;
+    	}
+    }
+
+    @Override
+    public void setInputBufferSize(final int size) {
+    	if (size > 0) {
+	    	synchronized (lock) {
+	    		if (resizeInputBuffer(size)) {
+	    			inputBufferSize = size;
+	    		}
+	    	}
+    	}
+    }
+
+    @Override
+    public int getInputBufferSize() {
+    	synchronized (lock) {
+    		return inputBufferSize;
+    	}
+    }
+
+    @Override
+    public void setOutputBufferSize(final int size) {
+    	if (size > 0) {
+	    	synchronized (lock) {
+	    		if (resizeOutputBuffer(size)) {
+	    			outputBufferSize = size;
+	    		}
+	    	}
+    	}
+    }
+
+    @Override
+    public int getOutputBufferSize() {
+    	synchronized (lock) {
+    		return outputBufferSize;
+    	}
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+    	ensureOpen();
+    	return is;
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+    	ensureOpen();
+    	return os;
+    }
+
+    @Override
+    public CommChannel getChannel() throws IOException {
+    	ensureOpen();
+    	return channel;
+    }
+
+    @Override
+    public void addEventListener(final SerialPortEventListener listener) throws TooManyListenersException {
+    	ensureOpen();
+    	if (listener == null) {
+    		throw new NullPointerException("Listener can't be null");
+    	}
+    	else {
+	    	synchronized (dispatchLock) {
+	    		if (this.listener != null) {
+	    			throw new TooManyListenersException("Port ["+getName()+"] already has an event listener");
+	    		}
+	    		else {
+	    			this.listener = listener;
+	    			startDispatcher();
+	    		}
+	    	}
+    	}
+    }
+
+    @Override
+    public void removeEventListener() {
+    	synchronized (dispatchLock) {
+    		if (listener != null) {
+    			listener = null;
+    			stopDispatcher();
+    		}
+    	}
+    }
+
+    @Override
+    public SerialPortEventSubscription subscribe(final SerialPortEventListener listener, final int eventMask, final Executor executor) throws IllegalArgumentException {
+    	ensureOpen();
+    	return super.subscribe(listener, eventMask, executor);
+    }
+
+    @Override
+    public void setEventCoalescing(final boolean enable) throws UnsupportedCommOperationException {
+    	ensureOpen();
+    	synchronized (dispatchLock) {
+    		if (coalescing != enable) {
+    			coalescing = enable;
+    			if (listener != null) {
+    				stopDispatcher();
+    				startDispatcher();
+    			}
+    		}
+    	}
+    }
+
+    @Override
+    public boolean isEventCoalescing() {
+    	synchronized (dispatchLock) {
+    		return coalescing;
+    	}
+    }
+
+    /**
+     * <p>Gets number of events discarded in the coalescing mode because the listener didn't keep up with the event rate.</p>
+     * @return number of events discarded
+     * @see #setEventCoalescing(boolean)
+     */
+    public long getDroppedEventCount() {
+    	synchronized (dispatchLock) {
+    		return droppedEvents + (eventRing != null ? eventRing.getDroppedCount() : 0);
+    	}
+    }
+
+    @Override
+    public int readTimestamped(final ByteBuffer dst, final ReceiveTimestamp timestamp) throws IOException {
+    	if (dst == null) {
+    		throw new NullPointerException("Buffer can't be null");
+    	}
+    	else if (timestamp == null) {
+    		throw new NullPointerException("Timestamp holder can't be null");
+    	}
+    	else {
+    		ensureOpen();
+    		return dst.hasRemaining() ? submitInput(dst, timestamp) : 0;
+    	}
+    }
+
+    @Override
+    public void enableWriteCoalescing(final int window) throws UnsupportedCommOperationException {
+    	ensureOpen();
+    	if (!isWriteCoalescingSupported()) {
+    		super.enableWriteCoalescing(window);
+    	}
+    	else if (window <= 0) {
+    		throw new UnsupportedCommOperationException("Write coalescing window ["+window+"] must be positive");
+    	}
+    	else {
+    		synchronized (coalescingLock) {
+    			final WriteCoalescer	old = writeCoalescer;
+
+    			writeCoalescer = new WriteCoalescer(this, getOutputBufferSize(), TimeUnit.MICROSECONDS.toNanos(window));
+    			coalescingWindow = window;
+    			flushQuietly(old);
+    		}
+    	}
+    }
+
+    @Override
+    public void disableWriteCoalescing() {
+    	synchronized (coalescingLock) {
+    		final WriteCoalescer	old = writeCoalescer;
+
+    		writeCoalescer = null;
+    		coalescingWindow = 0;
+    		flushQuietly(old);
+    	}
+    }
+
+    @Override
+    public boolean isWriteCoalescingEnabled() {
+    	return writeCoalescer != null;
+    }
+
+    @Override
+    public int getWriteCoalescingWindow() {
+    	return coalescingWindow;
+    }
+
+    @Override
+    public void enableLowLatency(final int spinBudget) throws UnsupportedCommOperationException {
+    	ensureOpen();
+    	if (spinBudget < 0) {
+    		throw new UnsupportedCommOperationException("Spin budget ["+spinBudget+"] can't be negative");
+    	}
+    	else {
+    		synchronized (lock) {
+    			applyLowLatency(true);
+    			this.spinBudget = spinBudget;
+    			this.lowLatency = true;
+    		}
+    	}
+    }
+
+    @Override
+    public void disableLowLatency() {
+    	synchronized (lock) {
+    		if (lowLatency) {
+    			lowLatency = false;
+    			spinBudget = 0;
+    			try {
+    				applyLowLatency(false);
+    			} catch (UnsupportedCommOperationException exc) {
+    				// spinning is off anyway
+    			}
+    		}
+    	}
+    }
+
+    @Override
+    public boolean isLowLatencyEnabled() {
+    	return lowLatency;
+    }
+
+    @Override
+    public int getLowLatencySpinBudget() {
+    	return spinBudget;
+    }
+
+    @Override
+    public void startCapture(final Path file) throws IOException, UnsupportedCommOperationException {
+    	ensureOpen();
+    	if (file == null) {
+    		throw new NullPointerException("Capture file can't be null");
+    	}
+    	else {
+    		synchronized (captureLock) {
+    			final CaptureWriter	old = capture;
+    			final CaptureWriter	writer = new CaptureWriter(file, getName());
+    			final int			status = modemStatus;	// snapshot, drivers can't read some lines
+
+    			writer.event(SerialPortEvent.CTS, (status & MODEM_CTS) != 0, (status & MODEM_CTS) != 0, 0);	// initial line states
+    			writer.event(SerialPortEvent.DSR, (status & MODEM_DSR) != 0, (status & MODEM_DSR) != 0, 0);
+    			writer.event(SerialPortEvent.RI, (status & MODEM_RI) != 0, (status & MODEM_RI) != 0, 0);
+    			writer.event(SerialPortEvent.CD, (status & MODEM_CD) != 0, (status & MODEM_CD) != 0, 0);
+    			capture = writer;
+    			if (old != null) {
+    				old.close();
+    			}
+    		}
+    	}
+    }
+
+    @Override
+    public void stopCapture() throws IOException {
+    	synchronized (captureLock) {
+    		final CaptureWriter	old = capture;
+
+    		capture = null;
+    		if (old != null) {
+    			old.close();
+    		}
+    	}
+    }
+
+    @Override
+    public boolean isCapturing() {
+    	return capture != null;
+    }
+
+    @Override
+    public void notifyOnDataAvailable(final boolean enable) {
+    	setNotification(SerialPortEvent.DATA_AVAILABLE, enable);
+    }
+
+    @Override
+    public void notifyOnOutputEmpty(final boolean enable) {
+    	setNotification(SerialPortEvent.OUTPUT_BUFFER_EMPTY, enable);
+    }
+
+    @Override
+    public void notifyOnCTS(final boolean enable) {
+    	setNotification(SerialPortEvent.CTS, enable);
+    }
+
+    @Override
+    public void notifyOnDSR(final boolean enable) {
+    	setNotification(SerialPortEvent.DSR, enable);
+    }
+
+    @Override
+    public void notifyOnRingIndicator(final boolean enable) {
+    	setNotification(SerialPortEvent.RI, enable);
+    }
+
+    @Override
+    public void notifyOnCarrierDetect(final boolean enable) {
+    	setNotification(SerialPortEvent.CD, enable);
+    }
+
+    @Override
+    public void notifyOnOverrunError(final boolean enable) {
+    	setNotification(SerialPortEvent.OE, enable);
+    }
+
+    @Override
+    public void notifyOnParityError(final boolean enable) {
+    	setNotification(SerialPortEvent.PE, enable);
+    }
+
+    @Override
+    public void notifyOnFramingError(final boolean enable) {
+    	setNotification(SerialPortEvent.FE, enable);
+    }
+
+    @Override
+    public void notifyOnBreakInterrupt(final boolean enable) {
+    	setNotification(SerialPortEvent.BI, enable);
+    }
+
+    @Override
+    public void close() {
+    	if (closing.compareAndSet(false, true)) {	// only one of concurrent closes releases the port
+    		flushQuietly(writeCoalescer);
+    		closed = true;
+    		synchronized (modemLock) {
+    			modemLock.notifyAll();
+    		}
+    		cancelSelectionKeys();
+    		cancelSubscriptions();
+    		removeEventListener();
+    		try {
+    			closePort();
+    		} catch (IOException e) {
+    			// nothing to do on close
+    		} finally {
+    			releaseOwnership();
+    			try {
+    				stopCapture();
+    			} catch (IOException e) {
+    				// nothing to do on close
+    			}
+    		}
+    	}
+    }
+
+    /**
+     * <p>Is the port closed</p>
+     * @return true if {@linkplain #close()} was called
+     */
+    public boolean isClosed() {
+    	return closed;
+    }
+
+    /**
+     * <p>Checks that port is not closed</p>
+     * @throws IllegalStateException if port is already closed
+     */
+    protected void ensureOpen() throws IllegalStateException {
+    	if (closed) {
+    		throw new IllegalStateException("Port ["+getName()+"] is already closed");
+    	}
+    }
+
+    private static void checkSerialPortParams(final int bitrate, final int datasize, final int stopbits, final int parity) throws UnsupportedCommOperationException {
+    	if (bitrate <= 0) {
+    		throw new UnsupportedCommOperationException("Bit rate ["+bitrate+"] must be positive");
+    	}
+    	else if (datasize < DATABITS_5 || datasize > DATABITS_8) {
+    		throw new UnsupportedCommOperationException("Illegal data bits ["+datasize+"]");
+    	}
+    	else if (stopbits != STOPBITS_1 && stopbits != STOPBITS_2 && stopbits != STOPBITS_1_5) {
+    		throw new UnsupportedCommOperationException("Illegal stop bits ["+stopbits+"]");
+    	}
+    	else if (parity < PARITY_NONE || parity > PARITY_SPACE) {
+    		throw new UnsupportedCommOperationException("Illegal parity ["+parity+"]");
+    	}
+    }
+
+    private static void checkFlowControlMode(final int flowcontrol) throws UnsupportedCommOperationException {
+    	if ((flowcontrol & ~(FLOWCONTROL_RTSCTS_IN | FLOWCONTROL_RTSCTS_OUT | FLOWCONTROL_XONXOFF_IN | FLOWCONTROL_XONXOFF_OUT)) != 0) {
+    		throw new UnsupportedCommOperationException("Illegal flow control mask ["+flowcontrol+"]");
+    	}
+    	else if ((flowcontrol & FLOWCONTROL_RTSCTS_IN) != 0 && (flowcontrol & FLOWCONTROL_XONXOFF_OUT) != 0
+    			|| (flowcontrol & FLOWCONTROL_XONXOFF_IN) != 0 && (flowcontrol & FLOWCONTROL_RTSCTS_OUT) != 0) {
+    		throw new UnsupportedCommOperationException("Input and output flow control can't be hardware and software at the same time");
+    	}
+    }
+
+    private boolean hasSettings(final SerialConfig config) {	// called under lock
+    	return baudRate == config.getBaudRate() && dataBits == config.getDataBits() && stopBits == config.getStopBits() && parity == config.getParity()
+    			&& flowControl == config.getFlowControlMode()
+    			&& timeoutEnabled == (config.getReceiveTimeout() != SerialConfig.DISABLED) && (!timeoutEnabled || timeout == config.getReceiveTimeout())
+    			&& thresholdEnabled == (config.getReceiveThreshold() != SerialConfig.DISABLED) && (!thresholdEnabled || threshold == config.getReceiveThreshold());
+    }
+
+    private void setSettings(final SerialConfig config) {	// called under lock
+    	baudRate = config.getBaudRate();
+    	dataBits = config.getDataBits();
+    	stopBits = config.getStopBits();
+    	parity = config.getParity();
+    	flowControl = config.getFlowControlMode();
+    	timeoutEnabled = config.getReceiveTimeout() != SerialConfig.DISABLED;
+    	timeout = timeoutEnabled ? config.getReceiveTimeout() : timeout;
+    	thresholdEnabled = config.getReceiveThreshold() != SerialConfig.DISABLED;
+    	threshold = thresholdEnabled ? config.getReceiveThreshold() : threshold;
+    }
+
+    /**
+     * <p>Calculates transmission time of one character</p>
+     * @param bitrate bit rate
+     * @param datasize data bits
+     * @param stopbits stop bits
+     * @param parity parity
+     * @return time in nanoseconds, including start, parity and stop bits
+     */
+    protected static long calculateCharacterTime(final int bitrate, final int datasize, final int stopbits, final int parity) {
+    	final int	halfBits = 2 * (1 + datasize + (parity == PARITY_NONE ? 0 : 1)) + (stopbits == STOPBITS_1 ? 2 : (stopbits == STOPBITS_2 ? 4 : 3));
+
+    	return TimeUnit.SECONDS.toNanos(1) * halfBits / (2L * bitrate);
+    }
+
+    /**
+     * <p>Reads data by {@linkplain #readInput(ByteBuffer)}, recording the read in the port metrics, JDK Flight Recorder and traffic capture</p>
+     * @param dst buffer to read data to
+     * @return number of bytes read, or -1 on end of stream
+     * @throws IOException on any I/O errors
+     */
+    protected final int submitInput(final ByteBuffer dst) throws IOException {
+    	return submitInput(dst, null);
+    }
+
+    /**
+     * <p>Reads data by {@linkplain #readInput(ByteBuffer)} like {@linkplain #submitInput(ByteBuffer)}, and stores arrival time of the data read
+     * into the holder</p>
+     * @param dst buffer to read data to
+     * @param timestamp holder to store arrival time to. Can be null
+     * @return number of bytes read, or -1 on end of stream
+     * @throws IOException on any I/O errors
+     */
+    protected final int submitInput(final ByteBuffer dst, final ReceiveTimestamp timestamp) throws IOException {
+    	final CaptureWriter		writer = capture;
+    	final CommPortMetrics	metrics = getMetrics();
+    	final PortIOEvent		event = FlightRecorderEvents.beginRead();
+
+    	if (metrics == null && event == null && writer == null) {
+    		final int	read = readInput(dst);
+
+    		if (read > 0) {
+    			consumeArrivals(read, timestamp);
+    		}
+    		return read;
+    	}
+    	else {
+    		final long	start = System.nanoTime();
+    		final int	position = dst.position();
+    		final int	read = readInput(dst);
+
+    		if (read > 0) {
+    			consumeArrivals(read, timestamp);
+    			if (metrics != null) {
+    				metrics.recordRead(read, System.nanoTime() - start);
+    			}
+    			if (writer != null) {
+    				writer.input(dst, position, read);
+    			}
+    		}
+    		FlightRecorderEvents.endIO(event, getName(), Math.max(read, 0));
+    		return read;
+    	}
+    }
+
+    /**
+     * <p>Busy-waits for the data in the receive ring in the low-latency mode (see {@linkplain #enableLowLatency(int)}). Drivers reading from
+     * the {@linkplain DirectByteRing} should call it before parking the reading thread. Spin is recorded in the port metrics. Spinning is
+     * skipped on the single-processor machine.</p>
+     * @param ring ring to wait data in. Can't be null
+     * @param minBytes bytes to wait for
+     * @return true if ring contains requested bytes, false if low-latency mode is off or spin budget is exhausted
+     */
+    protected final boolean spinForInput(final DirectByteRing ring, final int minBytes) {
+    	final int	budget = spinBudget;
+
+    	if (budget <= 0 || !SPIN_AVAILABLE || ring.available() >= minBytes) {
+    		return ring.available() >= minBytes;
+    	}
+    	else {
+    		final long		start = System.nanoTime();
+    		final boolean	succeeded = ring.spinForData(minBytes, TimeUnit.MICROSECONDS.toNanos(budget));
+
+    		recordSpin(System.nanoTime() - start, succeeded);
+    		return succeeded;
+    	}
+    }
+
+    /**
+     * <p>Busy-waits for the input data in the low-latency mode (see {@linkplain #enableLowLatency(int)}). Drivers should call it before blocking
+     * or parking the reading thread. Spin is recorded in the port metrics. Spinning is skipped on the single-processor machine.</p>
+     * @param ready check for the input data. Is called on every spin, so it should be cheap and should not allocate memory. Can't be null
+     * @return true if input data is ready, false if low-latency mode is off or spin budget is exhausted
+     */
+    protected final boolean spinForInput(final BooleanSupplier ready) {
+    	final int	budget = spinBudget;
+
+    	if (budget <= 0 || !SPIN_AVAILABLE || ready.getAsBoolean()) {
+    		return ready.getAsBoolean();
+    	}
+    	else {
+    		final long	start = System.nanoTime(), deadline = start + TimeUnit.MICROSECONDS.toNanos(budget);
+    		boolean		succeeded;
+
+    		while (!(succeeded = ready.getAsBoolean()) && System.nanoTime() - deadline < 0) {
+    			Thread.onSpinWait();
+    		}
+    		recordSpin(System.nanoTime() - start, succeeded);
+    		return succeeded;
+    	}
+    }
+
+    /**
+     * <p>Writes data through the write coalescer, if write coalescing is enabled, or directly by {@linkplain #writeOutput(ByteBuffer)}</p>
+     * @param src data to write
+     * @return number of bytes written
+     * @throws IOException on any I/O errors
+     */
+    protected final int submitOutput(final ByteBuffer src) throws IOException {
+    	final WriteCoalescer	coalescer = writeCoalescer;
+    	final CaptureWriter		writer = capture;
+    	final CommPortMetrics	metrics = getMetrics();
+    	final PortIOEvent		event = FlightRecorderEvents.beginWrite();
+
+    	if (metrics == null && event == null && writer == null) {
+    		return coalescer != null ? coalescer.write(src) : writeOutput(src);
+    	}
+    	else {
+    		final long	start = System.nanoTime();
+    		final int	position = src.position();
+    		final int	written = coalescer != null ? coalescer.write(src) : writeOutput(src);
+
+    		if (writer != null && written > 0) {
+    			writer.output(src, position, written);
+    		}
+    		recordWrite(metrics, event, written, start);
+    		return written;
+    	}
+    }
+
+    /**
+     * <p>Writes a sequence of buffers through the write coalescer, if write coalescing is enabled, or directly by
+     * {@linkplain #writeOutput(ByteBuffer[], int, int)}</p>
+     * @param srcs buffers to write
+     * @param offset offset of the first buffer in the array
+     * @param length number of buffers to write
+     * @return number of bytes written
+     * @throws IOException on any I/O errors
+     */
+    protected final long submitOutput(final ByteBuffer[] srcs, final int offset, final int length) throws IOException {
+    	final WriteCoalescer	coalescer = writeCoalescer;
+    	final CaptureWriter		writer = capture;
+    	final CommPortMetrics	metrics = getMetrics();
+    	final PortIOEvent		event = FlightRecorderEvents.beginWrite();
+
+    	if (metrics == null && event == null && writer == null) {
+    		return coalescer != null ? coalescer.write(srcs, offset, length) : writeOutput(srcs, offset, length);
+    	}
+    	else {
+    		final long	start = System.nanoTime();
+    		final int[]	positions = writer != null ? new int[length] : null;
+
+    		if (positions != null) {
+    			for (int index = 0; index < length; index++) {
+    				positions[index] = srcs[offset + index].position();
+    			}
+    		}
+    		final long	written = coalescer != null ? coalescer.write(srcs, offset, length) : writeOutput(srcs, offset, length);
+
+    		if (positions != null) {
+    			for (int index = 0; index < length; index++) {
+    				final ByteBuffer	src = srcs[offset + index];
+
+    				if (src.position() > positions[index]) {
+    					writer.output(src, positions[index], src.position() - positions[index]);
+    				}
+    			}
+    		}
+    		recordWrite(metrics, event, written, start);
+    		return written;
+    	}
+    }
+
+    /**
+     * <p>Sends data collected by write coalescer to the hardware and waits until all the data written leave the port (see {@linkplain #drainOutput()}).</p>
+     * @throws IOException on any I/O errors
+     */
+    protected final void flushOutput() throws IOException {
+    	final WriteCoalescer	coalescer = writeCoalescer;
+
+    	if (coalescer != null) {
+    		coalescer.flush();
+    	}
+    	drainOutput();
+    }
+
+    /**
+     * <p>Gets number of bytes collected by the write coalescer, but not sent to the driver yet. Coalescer sends them together with the next
+     * write, so drivers must subtract them from the {@linkplain #getOutputReadyCount()} result, otherwise asynchronous writes can block.</p>
+     * @return number of bytes collected. Always 0 when write coalescing is disabled
+     */
+    protected final int getCoalescedOutputCount() {
+    	final WriteCoalescer	coalescer = writeCoalescer;
+
+    	return coalescer != null ? coalescer.getCollected() : 0;
+    }
+
+    /**
+     * <p>Gets number of bytes the port can accept without blocking for the write coalescer timer flush</p>
+     * @return number of bytes can be written without blocking
+     */
+    int getCoalescerReadyCount() {
+    	return getOutputReadyCount();
+    }
+
+    /**
+     * <p>Updates modem status snapshot. Fires {@linkplain SerialPortEvent#CTS}, {@linkplain SerialPortEvent#DSR}, {@linkplain SerialPortEvent#RI}
+     * and {@linkplain SerialPortEvent#CD} events for the input lines changed, and wakes up threads waiting for the change. Lines out of
+     * the mask are not changed.</p>
+     * @param mask bitmask of the MODEM_XXX lines to update
+     * @param status new state of the lines
+     * @return modem status before update
+     */
+    protected final int updateModemStatus(final int mask, final int status) {
+    	final int	oldStatus, newStatus;
+
+    	synchronized (modemLock) {
+    		oldStatus = modemStatus;
+    		newStatus = (oldStatus & ~mask) | (status & mask);
+    		if (newStatus != oldStatus) {
+    			modemStatus = newStatus;
+    			modemLock.notifyAll();
+    		}
+    	}
+    	if (newStatus != oldStatus) {
+    		final long	now = System.nanoTime();
+
+    		fireLineChange(oldStatus, newStatus, MODEM_CTS, SerialPortEvent.CTS, now);
+    		fireLineChange(oldStatus, newStatus, MODEM_DSR, SerialPortEvent.DSR, now);
+    		fireLineChange(oldStatus, newStatus, MODEM_RI, SerialPortEvent.RI, now);
+    		fireLineChange(oldStatus, newStatus, MODEM_CD, SerialPortEvent.CD, now);
+    	}
+    	return oldStatus;
+    }
+
+    /**
+     * <p>Is notification for the given event type enabled and any listener, {@linkplain javax.comm.SerialPortEventSubscription} or
+     * {@linkplain javax.comm.CommPortSelector} waits for it.</p>
+     * @param eventType event type (see {@linkplain SerialPortEvent} constants)
+     * @return true if event will be delivered to the listener, subscription or selector
+     */
+    protected boolean isNotificationEnabled(final int eventType) {
+    	return listener != null && (notifyMask & (1 << eventType)) != 0 || isSelectionInterested(eventType) || isSubscribed(eventType);
+    }
+
+    /**
+     * <p>Fires serial port event. Event will be fired only when notification for it is enabled. Events are delivered to the listener
+     * asynchronously by the dedicated event thread of the port. Selectors are signalled immediately.</p>
+     * @param eventType event type (see {@linkplain SerialPortEvent} constants)
+     * @param oldValue old value
+     * @param newValue new value
+     */
+    protected void fireSerialEvent(final int eventType, final boolean oldValue, final boolean newValue) {
+    	fireSerialEvent(eventType, oldValue, newValue, 0);
+    }
+
+    /**
+     * <p>Fires serial port event with the given count (see {@linkplain SerialPortEvent#getCount()}). Event will be fired only when
+     * notification for it is enabled. Events are delivered to the listener asynchronously by the dedicated event thread of the port,
+     * and to the subscriptions by their executors. Selectors are signalled immediately. Line errors are recorded in the port metrics,
+     * if they are enabled, and every event is emitted to the JDK Flight Recorder.</p>
+     * @param eventType event type (see {@linkplain SerialPortEvent} constants)
+     * @param oldValue old value
+     * @param newValue new value
+     * @param count number of bytes received or written for the {@linkplain SerialPortEvent#DATA_AVAILABLE} and
+     * {@linkplain SerialPortEvent#OUTPUT_BUFFER_EMPTY} events
+     */
+    protected void fireSerialEvent(final int eventType, final boolean oldValue, final boolean newValue, final int count) {
+    	fireSerialEvent(eventType, oldValue, newValue, count, System.nanoTime());
+    }
+
+    /**
+     * <p>Fires serial port event with the given count and timestamp (see {@linkplain SerialPortEvent#getTimestamp()}). Drivers knowing
+     * the time of the event more precisely than the time of this call should use this method.</p>
+     * @param eventType event type (see {@linkplain SerialPortEvent} constants)
+     * @param oldValue old value
+     * @param newValue new value
+     * @param count event count (see {@linkplain #fireSerialEvent(int, boolean, boolean, int)})
+     * @param timestamp event time by {@linkplain System#nanoTime()}
+     */
+    protected void fireSerialEvent(final int eventType, final boolean oldValue, final boolean newValue, final int count, final long timestamp) {
+    	if (eventType >= SerialPortEvent.OE) {
+    		final CommPortMetrics	metrics = getMetrics();
+
+    		if (metrics != null) {
+    			metrics.recordError(eventType);
+    		}
+    	}
+    	if (eventType >= SerialPortEvent.CTS) {
+    		final CaptureWriter	writer = capture;
+
+    		if (writer != null) {
+    			writer.event(eventType, oldValue, newValue, count);
+    		}
+    	}
+    	FlightRecorderEvents.serialEvent(getName(), eventType, oldValue, newValue, count);
+    	signalSelectors(eventType);
+    	notifySubscriptions(eventType, oldValue, newValue, count, timestamp);
+    	if (listener != null && (notifyMask & (1 << eventType)) != 0) {
+    		synchronized (dispatchLock) {
+    			final SerialPortEventListener	currentListener = listener;
+
+    			if (currentListener != null) {
+    				if (eventRing != null) {
+    					eventRing.publish(eventType, oldValue, newValue, count, timestamp);
+    				}
+    				else {
+    					final SerialPortEvent	event = new SerialPortEvent(this, eventType, oldValue, newValue, count, timestamp);
+
+    					eventThread.execute(()->currentListener.serialEvent(event));
+    				}
+    			}
+    		}
+    	}
+    }
+
+    /**
+     * <p>Reports data received by the driver. Marks arrival time of the data at the current time and fires {@linkplain SerialPortEvent#DATA_AVAILABLE}
+     * event with the same timestamp. Drivers must call it as soon as they take data from the hardware or detect data in the hardware buffer.</p>
+     * @param count number of bytes received. Must be positive
+     */
+    protected void fireDataAvailable(final int count) {
+    	final long	now = System.nanoTime();
+
+    	arrivals.mark(count, now);
+    	fireSerialEvent(SerialPortEvent.DATA_AVAILABLE, false, true, count, now);
+    }
+
+    private void startDispatcher() {
+    	if (coalescing) {
+    		eventRing = new EventRing(this, listener, EventRing.DEFAULT_CAPACITY, "SerialPortEvents-"+getName());
+    	}
+    	else {
+    		eventThread = Executors.newSingleThreadExecutor((r)->{
+    			final Thread	t = new Thread(r, "SerialPortEvents-"+getName());
+
+    			t.setDaemon(true);
+    			return t;
+    		});
+    	}
+    }
+
+    private void stopDispatcher() {
+    	if (eventRing != null) {
+    		droppedEvents += eventRing.getDroppedCount();
+    		eventRing.stop();
+    		eventRing = null;
+    	}
+    	if (eventThread != null) {
+    		eventThread.shutdown();
+    		eventThread = null;
+    	}
+    }
+
+    private void setNotification(final int eventType, final boolean enable) {
+    	synchronized (lock) {
+    		if (enable) {
+    			notifyMask = (notifyMask | (1 << eventType)) & NOTIFY_ALL_MASK;
+    		}
+    		else {
+    			notifyMask &= ~(1 << eventType);
+    		}
+    	}
+    }
+
+    private void fireLineChange(final int oldStatus, final int newStatus, final int line, final int eventType, final long timestamp) {
+    	if (((oldStatus ^ newStatus) & line) != 0) {
+    		fireSerialEvent(eventType, (oldStatus & line) != 0, (newStatus & line) != 0, 0, timestamp);
+    	}
+    }
+
+    private void consumeArrivals(final int read, final ReceiveTimestamp timestamp) {
+    	final long	arrival = arrivals.consume(read);
+
+    	if (timestamp != null) {
+    		final long	now = System.nanoTime();
+
+    		timestamp.set(arrival == ArrivalMarks.UNKNOWN ? now : arrival, now);
+    	}
+    }
+
+    private void recordSpin(final long duration, final boolean succeeded) {
+    	final CommPortMetrics	metrics = getMetrics();
+
+    	if (metrics != null) {
+    		metrics.recordSpin(duration, succeeded);
+    	}
+    }
+
+    private void recordWrite(final CommPortMetrics metrics, final PortIOEvent event, final long written, final long start) {
+    	if (metrics != null) {
+    		metrics.recordWrite(written, System.nanoTime() - start);
+    	}
+    	FlightRecorderEvents.endIO(event, getName(), written);
+    }
+
+    private static void flushQuietly(final WriteCoalescer coalescer) {
+    	if (coalescer != null) {
+    		try {
+    			coalescer.flush();
+    		} catch (IOException exc) {
+    			// nothing to do on disable or close
+    		}
+    	}
+    }
+
+    private void applyReceiveOptionsQuietly() {
+    	if (!closed) {
+	    	try {
+				applyReceiveOptions();
+			} catch (UnsupportedCommOperationException e) {
+				// disabling can't be unsupported
+			}
+    	}
+    }
+
+    private class PortInputStream extends InputStream {
+    	private final byte[]	single = new byte[1];
+
+    	@Override
+    	public int read() throws IOException {
+    		synchronized (single) {
+    			return read(single, 0, 1) <= 0 ? -1 : single[0] & 0xFF;
+    		}
+    	}
+
+    	@Override
+    	public int read(final byte[] b, final int off, final int len) throws IOException {
+    		if (off < 0 || len < 0 || off + len > b.length) {
+    			throw new IndexOutOfBoundsException();
+    		}
+    		else if (len == 0) {
+    			return 0;
+    		}
+    		else {
+    			ensureOpen();
+    			return submitInput(ByteBuffer.wrap(b, off, len));
+    		}
+    	}
+
+    	@Override
+    	public int available() throws IOException {
+    		ensureOpen();
+    		return Math.max(0, getInputBufferOccupancy());
+    	}
+    }
+
+    private class PortOutputStream extends OutputStream {
+    	private final byte[]	single = new byte[1];
+
+    	@Override
+    	public void write(final int b) throws IOException {
+    		synchronized (single) {
+    			single[0] = (byte)b;
+    			write(single, 0, 1);
+    		}
+    	}
+
+    	@Override
+    	public void write(final byte[] b, final int off, final int len) throws IOException {
+    		if (off < 0 || len < 0 || off + len > b.length) {
+    			throw new IndexOutOfBoundsException();
+    		}
+    		else {
+    			ensureOpen();
+    			submitOutput(ByteBuffer.wrap(b, off, len));
+    		}
+    	}
+
+    	@Override
+    	public void flush() throws IOException {
+    		ensureOpen();
+    		flushOutput();
+    	}
+    }
+
+    private class PortChannel extends AbstractCommChannel {
+    	@Override
+    	public int read(final ByteBuffer dst) throws IOException {
+    		ensureOpen();
+    		return dst.hasRemaining() ? submitInput(dst) : 0;
+    	}
+
+    	@Override
+    	public int write(final ByteBuffer src) throws IOException {
+    		ensureOpen();
+    		return submitOutput(src);
+    	}
+
+    	@Override
+    	public long write(final ByteBuffer[] srcs, final int offset, final int length) throws IOException {
+    		if (offset < 0 || length < 0 || offset + length > srcs.length) {
+    			throw new IndexOutOfBoundsException();
+    		}
+    		else {
+    			ensureOpen();
+    			return length == 0 ? 0 : submitOutput(srcs, offset, length);
+    		}
+    	}
+
+    	@Override
+    	public boolean isOpen() {
+    		return !isClosed();
+    	}
+
+    	@Override
+    	public void close() throws IOException {
+    		AbstractSerialPort.this.close();
+    	}
+
+    	@Override
+    	protected int available() throws IOException {
+    		return Math.max(0, getInputBufferOccupancy());
+    	}
+    }
+}
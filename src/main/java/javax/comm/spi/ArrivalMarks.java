@@ -0,0 +1,71 @@
+package javax.comm.spi;
+
+/**
+ * <p>Arrival times of the received data. Every mark keeps arrival time and stream offset of the data end, so the arrival time of any byte
+ * received is the time of the first mark after it. Marks are kept in the preallocated ring, when the ring is full, the newest mark is
+ * extended with the data received, so arrival times of the newest data are reported earlier than they were. Drivers mark the data after
+ * they are published to readers, so the data can be read before their mark. A late mark is counted against the data read and
+ * marks only the rest of them, if any, so it never moves to the data received later.</p>
+ */
+final class ArrivalMarks {
+	static final int		DEFAULT_CAPACITY = 64;
+	static final long		UNKNOWN = Long.MIN_VALUE;
+
+	private final long[]	ends;
+	private final long[]	times;
+	private final int		mask;
+	private long			head = 0;		// oldest mark
+	private long			tail = 0;		// next mark to fill
+	private long			received = 0;
+	private long			consumed = 0;
+
+	ArrivalMarks(final int capacity) {
+		int	size = 1;
+
+		while (size < capacity) {
+			size <<= 1;
+		}
+		this.ends = new long[size];
+		this.times = new long[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * <p>Marks data arrival</p>
+	 * @param count number of bytes arrived
+	 * @param timestamp arrival time
+	 */
+	synchronized void mark(final int count, final long timestamp) {
+		received += count;
+		if (received - consumed <= 0) {	// all the data were read before the mark
+			return;
+		}
+		if (tail - head == ends.length) {
+			ends[(int)(tail - 1) & mask] = received;
+		}
+		else {
+			ends[(int)tail & mask] = received;
+			times[(int)tail++ & mask] = timestamp;
+		}
+	}
+
+	/**
+	 * <p>Consumes data read and gets arrival time of its first byte</p>
+	 * @param count number of bytes read
+	 * @return arrival time of the first byte, or {@linkplain #UNKNOWN} if arrival of the byte was not marked
+	 */
+	synchronized long consume(final int count) {
+		final long	first = consumed;
+
+		consumed += count;
+		while (head < tail && ends[(int)head & mask] <= first) {
+			head++;
+		}
+		final long	result = head < tail ? times[(int)head & mask] : UNKNOWN;
+
+		while (head < tail && ends[(int)head & mask] <= consumed) {
+			head++;
+		}
+		return result;
+	}
+}
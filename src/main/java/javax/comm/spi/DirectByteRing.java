@@ -0,0 +1,424 @@
+package javax.comm.spi;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * <p>Lock-free single-producer/single-consumer byte ring for driver writers. Ring content is stored in the direct (off-heap) buffer,
+ * so even multi-megabyte rings don't load Java heap and garbage collector. Capacity is always power of two. Read and write indices
+ * are padded to separate cache lines to avoid false sharing between producer and consumer threads. Every side keeps its own view
+ * of the storage, so bulk copy from and to any {@linkplain ByteBuffer} doesn't allocate memory.</p>
+ *
+ * <p>Only one thread can write to the ring (producer) and only one thread can read from the ring (consumer) at the same time. Producer
+ * and consumer can block waiting for free space and data respectively, waiting threads are unparked by the opposite side. Both sides
+ * put full fence between publishing own index and checking the opposite waiter, so wakeup can't be lost.</p>
+ *
+ * <p>Ring keeps high-water mark (maximal number of bytes stored in the ring since creation or last {@linkplain #resetHighWaterMark()} call),
+ * so drivers and applications can check whether buffer size is sufficient.</p>
+ *
+ * @since 0.0.1
+ */
+public final class DirectByteRing {
+	/**
+	 * <p>Maximal capacity of the ring</p>
+	 */
+	public static final int		MAX_CAPACITY = 1 << 30;
+
+	private final int			capacity;
+	private final int			mask;
+	private final ByteBuffer	producerView;
+	private final ByteBuffer	consumerView;
+	private final PaddedIndex	head = new PaddedIndex();	// next byte to read, cached tail in the consumer side
+	private final PaddedIndex	tail = new PaddedIndex();	// next byte to write, cached head in the producer side
+	private volatile int		highWater = 0;
+	private volatile Thread		readerWaiter = null;
+	private volatile Thread		writerWaiter = null;
+
+	/**
+	 * <p>Constructor of the class</p>
+	 * @param capacity minimal capacity of the ring. Will be rounded up to the power of two
+	 * @throws IllegalArgumentException if capacity is not positive or greater than {@value #MAX_CAPACITY}
+	 */
+	public DirectByteRing(final int capacity) throws IllegalArgumentException {
+		if (capacity <= 0 || capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("Capacity ["+capacity+"] out of range 1.."+MAX_CAPACITY);
+		}
+		else {
+			int	size = 1;
+
+			while (size < capacity) {
+				size <<= 1;
+			}
+			final ByteBuffer	storage = ByteBuffer.allocateDirect(size);
+
+			this.capacity = size;
+			this.mask = this.capacity - 1;
+			this.producerView = storage.duplicate();
+			this.consumerView = storage.duplicate();
+		}
+	}
+
+	/**
+	 * <p>Gets ring capacity</p>
+	 * @return ring capacity
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * <p>Gets number of bytes stored in the ring</p>
+	 * @return number of bytes available to read
+	 */
+	public int available() {
+		return (int)(tail.getAcquire() - head.getAcquire());
+	}
+
+	/**
+	 * <p>Gets free space of the ring</p>
+	 * @return number of bytes can be written without blocking
+	 */
+	public int free() {
+		return capacity - available();
+	}
+
+	/**
+	 * <p>Writes bytes to the ring. Can write less than required when ring is full. Must be called from the producer side.</p>
+	 * @param src source buffer. Its position will be moved by the number of bytes written
+	 * @return number of bytes written
+	 */
+	public int write(final ByteBuffer src) {
+		return offer(src, src.remaining());
+	}
+
+	/**
+	 * <p>Writes bytes to the ring. Can write less than required when ring is full. Must be called from the producer side.</p>
+	 * @param src source buffer. Its position will be moved by the number of bytes written
+	 * @param len maximum number of bytes to write
+	 * @return number of bytes written
+	 */
+	public int offer(final ByteBuffer src, final int len) {
+		final long	currentTail = tail.getPlain();
+		final int	required = Math.min(len, src.remaining());
+
+		if (required <= 0) {
+			return 0;
+		}
+		else {
+			int	space = capacity - (int)(currentTail - tail.cached);
+
+			if (space < required) {		// refresh cached head only when necessary
+				tail.cached = head.getAcquire();
+				space = capacity - (int)(currentTail - tail.cached);
+			}
+			final int	toWrite = Math.min(required, space);
+
+			if (toWrite > 0) {
+				final int	from = (int)(currentTail & mask);
+				final int	first = Math.min(toWrite, capacity - from);
+				final int	limit = src.limit();
+
+				src.limit(src.position() + first);
+				producerView.limit(from + first).position(from);
+				producerView.put(src);
+				if (first < toWrite) {
+					src.limit(src.position() + toWrite - first);
+					producerView.limit(toWrite - first).position(0);
+					producerView.put(src);
+				}
+				src.limit(limit);
+				tail.setRelease(currentTail + toWrite);
+
+				if ((int)(currentTail + toWrite - tail.cached) > highWater) {	// cached head can be stale, so recheck with the actual one
+					final int	used = (int)(currentTail + toWrite - head.getAcquire());
+
+					if (used > highWater) {
+						highWater = used;
+					}
+				}
+				VarHandle.fullFence();		// publish tail before checking waiter, pairs with the fence in await()
+				LockSupport.unpark(readerWaiter);
+			}
+			return toWrite;
+		}
+	}
+
+	/**
+	 * <p>Reads bytes from the ring without blocking. Must be called from the consumer side.</p>
+	 * @param dst target buffer. Its position will be moved by the number of bytes read
+	 * @return number of bytes read
+	 */
+	public int read(final ByteBuffer dst) {
+		final long	currentHead = head.getPlain();
+		final int	required = dst.remaining();
+
+		if (required <= 0) {
+			return 0;
+		}
+		else {
+			int	stored = (int)(head.cached - currentHead);
+
+			if (stored < required) {		// refresh cached tail only when necessary
+				head.cached = tail.getAcquire();
+				stored = (int)(head.cached - currentHead);
+			}
+			final int	toRead = Math.min(required, stored);
+
+			if (toRead > 0) {
+				final int	from = (int)(currentHead & mask);
+				final int	first = Math.min(toRead, capacity - from);
+
+				consumerView.limit(from + first).position(from);
+				dst.put(consumerView);
+				if (first < toRead) {
+					consumerView.limit(toRead - first).position(0);
+					dst.put(consumerView);
+				}
+				head.setRelease(currentHead + toRead);
+				VarHandle.fullFence();		// publish head before checking waiter, pairs with the fence in await()
+				LockSupport.unpark(writerWaiter);
+			}
+			return toRead;
+		}
+	}
+
+	/**
+	 * <p>Discards the given number of bytes from the ring. Must be called from the consumer side.</p>
+	 * @param len maximum number of bytes to discard
+	 * @return number of bytes discarded
+	 */
+	public int skip(final int len) {
+		final long	currentHead = head.getPlain();
+		final int	toSkip = Math.max(0, Math.min(len, (int)((head.cached = tail.getAcquire()) - currentHead)));
+
+		if (toSkip > 0) {
+			head.setRelease(currentHead + toSkip);
+			VarHandle.fullFence();
+			LockSupport.unpark(writerWaiter);
+		}
+		return toSkip;
+	}
+
+	/**
+	 * <p>Discards all the data in the ring. Must be called from the consumer side.</p>
+	 */
+	public void clear() {
+		skip(capacity);
+	}
+
+	/**
+	 * <p>Moves all the data stored in the ring to the new ring of the given capacity. Ring can't be resized in place, so the caller must
+	 * exclude both producer and consumer sides of this ring while resizing, and must make them use the new ring after that. Threads
+	 * waiting on this ring should be woken up by {@linkplain #wakeUp()} to switch to the new ring. This ring becomes empty. High-water mark
+	 * and totals of the new ring count the data moved only.</p>
+	 * @param capacity minimal capacity of the new ring. Will be rounded up to the power of two, and is never less than the number of bytes stored
+	 * @return new ring, or this ring if its capacity doesn't change
+	 * @throws IllegalArgumentException if capacity is not positive or greater than {@value #MAX_CAPACITY}
+	 */
+	public DirectByteRing resize(final int capacity) throws IllegalArgumentException {
+		if (capacity <= 0 || capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("Capacity ["+capacity+"] out of range 1.."+MAX_CAPACITY);
+		}
+		else {
+			final int	stored = available();
+			final int	required = Math.max(capacity, stored);
+
+			if (required <= this.capacity && required > this.capacity / 2) {
+				return this;
+			}
+			else {
+				final DirectByteRing	result = new DirectByteRing(required);
+
+				result.producerView.limit(stored).position(0);
+				read(result.producerView);
+				result.tail.setRelease(stored);
+				result.highWater = stored;
+				return result;
+			}
+		}
+	}
+
+	/**
+	 * <p>Gets high-water mark of the ring</p>
+	 * @return maximal number of bytes stored in the ring since creation or last reset
+	 */
+	public int getHighWaterMark() {
+		return highWater;
+	}
+
+	/**
+	 * <p>Resets high-water mark of the ring to the current number of bytes stored</p>
+	 * @return high-water mark before reset
+	 */
+	public int resetHighWaterMark() {
+		final int	result = highWater;
+
+		highWater = available();
+		return result;
+	}
+
+	/**
+	 * <p>Gets total number of bytes written to the ring since creation</p>
+	 * @return total number of bytes written
+	 */
+	public long getTotalWritten() {
+		return tail.getAcquire();
+	}
+
+	/**
+	 * <p>Gets total number of bytes read or discarded from the ring since creation</p>
+	 * @return total number of bytes read
+	 */
+	public long getTotalRead() {
+		return head.getAcquire();
+	}
+
+	/**
+	 * <p>Waits on the consumer side until the ring contains at least the given number of bytes</p>
+	 * @param minBytes bytes to wait for
+	 * @param timeout timeout in nanoseconds, negative means wait forever
+	 * @param cancelled check for cancel condition. Can't be null
+	 * @return true if ring contains requested bytes, false on timeout, cancel or interrupt
+	 */
+	public boolean awaitData(final int minBytes, final long timeout, final BooleanSupplier cancelled) {
+		return await(true, ()->available() >= minBytes, timeout, cancelled);
+	}
+
+	/**
+	 * <p>Busy-waits on the consumer side until the ring contains at least the given number of bytes. Consumer spins by {@linkplain Thread#onSpinWait()}
+	 * and doesn't park, so producer doesn't need to unpark it.</p>
+	 * @param minBytes bytes to wait for
+	 * @param spinNanos spin budget in nanoseconds
+	 * @return true if ring contains requested bytes, false if spin budget is exhausted
+	 */
+	public boolean spinForData(final int minBytes, final long spinNanos) {
+		final long	deadline = System.nanoTime() + spinNanos;
+
+		while (available() < minBytes) {
+			if (System.nanoTime() - deadline >= 0) {
+				return false;
+			}
+			else {
+				Thread.onSpinWait();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * <p>Waits on the producer side until the ring contains at least the given number of free bytes</p>
+	 * @param minBytes free space to wait for
+	 * @param timeout timeout in nanoseconds, negative means wait forever
+	 * @param cancelled check for cancel condition. Can't be null
+	 * @return true if ring contains requested free space, false on timeout, cancel or interrupt
+	 */
+	public boolean awaitSpace(final int minBytes, final long timeout, final BooleanSupplier cancelled) {
+		return await(false, ()->free() >= minBytes, timeout, cancelled);
+	}
+
+	/**
+	 * <p>Waits on the producer side for any condition. Waiting thread will be unparked on every read from the ring and on {@linkplain #wakeUp()} call</p>
+	 * @param condition condition to wait for. Can't be null
+	 * @param timeout timeout in nanoseconds, negative means wait forever
+	 * @param cancelled check for cancel condition. Can't be null
+	 * @return true if condition is satisfied, false on timeout, cancel or interrupt
+	 */
+	public boolean awaitWriter(final BooleanSupplier condition, final long timeout, final BooleanSupplier cancelled) {
+		return await(false, condition, timeout, cancelled);
+	}
+
+	/**
+	 * <p>Wakes up all waiting threads to recheck their conditions</p>
+	 */
+	public void wakeUp() {
+		VarHandle.fullFence();
+		LockSupport.unpark(readerWaiter);
+		LockSupport.unpark(writerWaiter);
+	}
+
+	@Override
+	public String toString() {
+		return "DirectByteRing [capacity=" + capacity + ", available=" + available() + ", highWater=" + highWater + "]";
+	}
+
+	private boolean await(final boolean forData, final BooleanSupplier condition, final long timeout, final BooleanSupplier cancelled) {
+		final Thread	current = Thread.currentThread();
+		final long		deadline = System.nanoTime() + timeout;
+
+		if (forData) {
+			readerWaiter = current;
+		}
+		else {
+			writerWaiter = current;
+		}
+		VarHandle.fullFence();	// publish waiter before checking the condition, so either we see the new index, or the opposite side sees us
+		try {
+			for (;;) {
+				if (condition.getAsBoolean()) {
+					return true;
+				}
+				else if (cancelled.getAsBoolean() || current.isInterrupted()) {
+					return false;
+				}
+				else if (timeout < 0) {
+					LockSupport.park(this);
+				}
+				else {
+					final long	delay = deadline - System.nanoTime();
+
+					if (delay <= 0) {
+						return false;
+					}
+					else {
+						LockSupport.parkNanos(this, delay);
+					}
+				}
+			}
+		} finally {
+			if (forData) {
+				readerWaiter = null;
+			}
+			else {
+				writerWaiter = null;
+			}
+		}
+	}
+
+	private static class LeftPadding {
+		long	p01, p02, p03, p04, p05, p06, p07;
+	}
+
+	private static class Index extends LeftPadding {
+		private static final VarHandle	VALUE;
+
+		static {
+			try {
+				VALUE = MethodHandles.lookup().findVarHandle(Index.class, "value", long.class);
+			} catch (ReflectiveOperationException exc) {
+				throw new ExceptionInInitializerError(exc);
+			}
+		}
+
+		private volatile long	value;
+		long	cached;		// owner side copy of the opposite index
+
+		long getPlain() {
+			return (long)VALUE.get(this);
+		}
+
+		long getAcquire() {
+			return (long)VALUE.getAcquire(this);
+		}
+
+		void setRelease(final long newValue) {
+			VALUE.setRelease(this, newValue);
+		}
+	}
+
+	private static final class PaddedIndex extends Index {
+		long	p11, p12, p13, p14, p15, p16, p17;
+	}
+}
@@ -0,0 +1,142 @@
+package javax.comm.spi;
+
+import javax.comm.SerialPort;
+import javax.comm.SerialPortEvent;
+import javax.comm.SerialPortEventListener;
+
+/**
+ * <p>Coalescing event dispatcher of the port. Events are stored in the preallocated ring of reused event objects and are delivered to
+ * the listener in order by the dedicated thread. {@linkplain SerialPortEvent#DATA_AVAILABLE} and {@linkplain SerialPortEvent#OUTPUT_BUFFER_EMPTY}
+ * events are merged with the last not delivered event of the same type. Events that don't fit into the ring are discarded.</p>
+ */
+final class EventRing implements Runnable {
+	static final int	DEFAULT_CAPACITY = 256;
+
+	private final SerialPortEventListener	listener;
+	private final ReusableEvent[]	slots;
+	private final int				mask;
+	private final Thread			thread;
+	private long					head = 0;		// next event to deliver
+	private long					tail = 0;		// next slot to fill
+	private boolean					delivering = false;
+	private boolean					waiting = false;
+	private boolean					stopped = false;
+	private long					dropped = 0;
+
+	EventRing(final SerialPort port, final SerialPortEventListener listener, final int capacity, final String threadName) {
+		int	size = 1;
+
+		while (size < capacity) {
+			size <<= 1;
+		}
+		this.listener = listener;
+		this.slots = new ReusableEvent[size];
+		this.mask = size - 1;
+		for (int index = 0; index < size; index++) {
+			slots[index] = new ReusableEvent(port);
+		}
+		this.thread = new Thread(this, threadName);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * <p>Publishes event</p>
+	 * @param eventType event type
+	 * @param oldValue old value
+	 * @param newValue new value
+	 * @param count event count
+	 * @param timestamp event time
+	 * @return false if the ring is full and event was discarded
+	 */
+	synchronized boolean publish(final int eventType, final boolean oldValue, final boolean newValue, final int count, final long timestamp) {
+		if (stopped) {
+			return false;
+		}
+		else if ((eventType == SerialPortEvent.DATA_AVAILABLE || eventType == SerialPortEvent.OUTPUT_BUFFER_EMPTY)
+				&& tail - head > (delivering ? 1 : 0) && slots[(int)(tail - 1) & mask].getEventType() == eventType) {
+			slots[(int)(tail - 1) & mask].coalesce(newValue, count);
+			return true;
+		}
+		else if (tail - head == slots.length) {
+			dropped++;
+			return false;
+		}
+		else {
+			slots[(int)tail++ & mask].set(eventType, oldValue, newValue, count, timestamp);
+			if (waiting) {
+				notify();
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * <p>Stops dispatching. Events already published will be delivered.</p>
+	 */
+	synchronized void stop() {
+		stopped = true;
+		notify();
+	}
+
+	/**
+	 * <p>Gets number of events discarded because of ring overflow</p>
+	 * @return number of events discarded
+	 */
+	synchronized long getDroppedCount() {
+		return dropped;
+	}
+
+	@Override
+	public void run() {
+		for (;;) {
+			final ReusableEvent	event;
+
+			synchronized (this) {
+				while (head == tail) {
+					if (stopped) {
+						return;
+					}
+					else {
+						waiting = true;
+						try {
+							wait();
+						} catch (InterruptedException e) {
+							return;
+						} finally {
+							waiting = false;
+						}
+					}
+				}
+				event = slots[(int)head & mask];
+				delivering = true;
+			}
+			try {
+				listener.serialEvent(event);
+			} catch (RuntimeException exc) {
+				// listener failure must not stop dispatching
+			} finally {
+				synchronized (this) {
+					delivering = false;
+					head++;
+				}
+			}
+		}
+	}
+
+	private static class ReusableEvent extends SerialPortEvent {
+		private static final long serialVersionUID = 1L;
+
+		ReusableEvent(final SerialPort port) {
+			super(port, 0, false, false);
+		}
+
+		void set(final int eventType, final boolean oldValue, final boolean newValue, final int count, final long timestamp) {
+			setEvent(eventType, oldValue, newValue, count, timestamp);
+		}
+
+		void coalesce(final boolean newValue, final int count) {
+			setEvent(getEventType(), getOldValue(), newValue, getCount() + count, getTimestamp());
+		}
+	}
+}
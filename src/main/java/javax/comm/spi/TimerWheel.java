@@ -0,0 +1,337 @@
+package javax.comm.spi;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>Hashed timer wheel. Timer wheel serves timeouts of any number of ports by one daemon thread. Timeouts are placed into the bucket
+ * of the wheel by their deadline, so both arming and cancelling a timeout take constant time, whatever number of timeouts is armed.
+ * Deadlines are rounded up to the tick of the wheel, default tick is {@value #DEFAULT_TICK_MICROS} microseconds. Wheel thread sleeps
+ * without ticking while no timeout is armed.</p>
+ *
+ * <p>The shared wheel (see {@linkplain #getDefault()}) serves receive timeouts of the {@linkplain javax.comm.AsyncCommChannel} reads, windows
+ * of the write coalescing (see {@linkplain AbstractSerialPort#enableWriteCoalescing(int)}) and lock file wait timeouts of the port open.
+ * Blocking reads of the drivers of this library wait for their receive timeout and threshold by the timed park of the calling thread on the
+ * receive ring (see {@linkplain DirectByteRing#awaitData(int, long, java.util.function.BooleanSupplier)}), so they need no timer at all.
+ * Drivers serving their timeouts by a timer thread can use the wheel instead of it.</p>
+ *
+ * <p>Tasks of the expired timeouts are executed by the wheel thread, so they must be short and must never block. Long tasks should be
+ * passed to any executor. Inter-character timeout can be implemented by cancelling the armed timeout and scheduling the new one on every
+ * character received.</p>
+ *
+ * @since 0.0.1
+ */
+public final class TimerWheel {
+	/**
+	 * <p>Default tick of the wheel in microseconds</p>
+	 */
+	public static final int		DEFAULT_TICK_MICROS = 100;
+
+	/**
+	 * <p>Default number of buckets of the wheel</p>
+	 */
+	public static final int		DEFAULT_WHEEL_SIZE = 4096;
+
+	private final long			tickNanos;
+	private final int			mask;
+	private final Bucket[]		wheel;
+	private final ConcurrentLinkedQueue<Timeout>	armed = new ConcurrentLinkedQueue<>();
+	private final ConcurrentLinkedQueue<Timeout>	cancelled = new ConcurrentLinkedQueue<>();
+	private final Thread		worker;
+	private final long			startTime;
+	private volatile boolean	idle = false;
+	private volatile boolean	shutdown = false;
+	private long				tick = 0;
+	private int					count = 0;
+
+	/**
+	 * <p>Constructor of the class. Starts daemon thread of the wheel.</p>
+	 * @param tickMicros tick of the wheel in microseconds. Must be positive
+	 * @param wheelSize minimal number of buckets of the wheel. Will be rounded up to the power of two
+	 * @param threadName name of the wheel thread. Can't be null or empty
+	 * @throws IllegalArgumentException if any argument is invalid
+	 */
+	public TimerWheel(final int tickMicros, final int wheelSize, final String threadName) throws IllegalArgumentException {
+		if (tickMicros <= 0) {
+			throw new IllegalArgumentException("Tick ["+tickMicros+"] must be positive");
+		}
+		else if (wheelSize <= 0 || wheelSize > 1 << 24) {
+			throw new IllegalArgumentException("Wheel size ["+wheelSize+"] out of range 1.."+(1 << 24));
+		}
+		else if (threadName == null || threadName.isEmpty()) {
+			throw new IllegalArgumentException("Thread name can't be null or empty");
+		}
+		else {
+			int	size = 1;
+
+			while (size < wheelSize) {
+				size <<= 1;
+			}
+			this.tickNanos = TimeUnit.MICROSECONDS.toNanos(tickMicros);
+			this.mask = size - 1;
+			this.wheel = new Bucket[size];
+			for (int index = 0; index < size; index++) {
+				wheel[index] = new Bucket();
+			}
+			this.startTime = System.nanoTime();
+			this.worker = new Thread(this::run, threadName);
+			this.worker.setDaemon(true);
+			this.worker.start();
+		}
+	}
+
+	/**
+	 * <p>Gets timer wheel shared by all the ports of the JVM</p>
+	 * @return shared timer wheel. Can't be null
+	 */
+	public static TimerWheel getDefault() {
+		return DefaultHolder.INSTANCE;
+	}
+
+	/**
+	 * <p>Gets tick of the wheel</p>
+	 * @return tick in nanoseconds
+	 */
+	public long getTickNanos() {
+		return tickNanos;
+	}
+
+	/**
+	 * <p>Arms timeout. Task will be executed by the wheel thread not earlier than the given delay expires.</p>
+	 * @param task task to execute. Can't be null
+	 * @param delay delay. Negative or zero delay expires on the next tick
+	 * @param unit delay unit. Can't be null
+	 * @return timeout armed. Can't be null
+	 * @throws IllegalStateException if wheel is shut down
+	 */
+	public Timeout schedule(final Runnable task, final long delay, final TimeUnit unit) throws IllegalStateException {
+		if (task == null) {
+			throw new NullPointerException("Task can't be null");
+		}
+		else if (unit == null) {
+			throw new NullPointerException("Time unit can't be null");
+		}
+		else if (shutdown) {
+			throw new IllegalStateException("Timer wheel is shut down");
+		}
+		else {
+			final Timeout	timeout = new Timeout(this, task, System.nanoTime() + Math.max(0, unit.toNanos(delay)));
+
+			armed.add(timeout);
+			if (idle) {
+				LockSupport.unpark(worker);
+			}
+			return timeout;
+		}
+	}
+
+	/**
+	 * <p>Stops wheel thread. Timeouts armed will never expire. Shared wheel can't be shut down.</p>
+	 * @throws IllegalStateException on attempt to shut down shared wheel
+	 */
+	public void shutdown() throws IllegalStateException {
+		if (this == DefaultHolder.INSTANCE) {
+			throw new IllegalStateException("Shared timer wheel can't be shut down");
+		}
+		else {
+			shutdown = true;
+			LockSupport.unpark(worker);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "TimerWheel [tickNanos=" + tickNanos + ", wheelSize=" + wheel.length + ", thread=" + worker.getName() + "]";
+	}
+
+	private void run() {
+		while (!shutdown) {
+			final long	now = System.nanoTime();
+
+			transferArmed();
+			transferCancelled();
+			while (startTime + (tick + 1) * tickNanos - now <= 0) {
+				expire(wheel[(int)(tick & mask)]);
+				tick++;
+			}
+			if (count == 0) {
+				idle = true;
+				if (armed.isEmpty()) {
+					LockSupport.park(this);
+				}
+				idle = false;
+				tick = Math.max(tick, (System.nanoTime() - startTime) / tickNanos);	// all the buckets are empty, so skip idle ticks
+			}
+			else {
+				final long	delay = startTime + (tick + 1) * tickNanos - System.nanoTime();
+
+				if (delay > 0) {
+					LockSupport.parkNanos(this, delay);
+				}
+			}
+		}
+	}
+
+	private void transferArmed() {
+		Timeout	timeout;
+
+		while ((timeout = armed.poll()) != null) {
+			if (timeout.state == Timeout.ARMED) {
+				final long	ticks = Math.max(tick, (timeout.deadline - startTime + tickNanos - 1) / tickNanos - 1);	// bucket expires at the end of the tick
+
+				timeout.rounds = (ticks - tick) >> Long.numberOfTrailingZeros(wheel.length);
+				wheel[(int)(ticks & mask)].add(timeout);
+				count++;
+			}
+		}
+	}
+
+	private void transferCancelled() {
+		Timeout	timeout;
+
+		while ((timeout = cancelled.poll()) != null) {
+			if (timeout.bucket != null) {
+				timeout.bucket.remove(timeout);
+				count--;
+			}
+		}
+	}
+
+	private void expire(final Bucket bucket) {
+		Timeout	timeout = bucket.head;
+
+		while (timeout != null) {
+			final Timeout	next = timeout.next;
+
+			if (timeout.state != Timeout.ARMED) {
+				bucket.remove(timeout);
+				count--;
+			}
+			else if (timeout.rounds <= 0) {
+				bucket.remove(timeout);
+				count--;
+				if (Timeout.STATE.compareAndSet(timeout, Timeout.ARMED, Timeout.EXPIRED)) {
+					try {
+						timeout.task.run();
+					} catch (RuntimeException exc) {
+						// keep the shared thread alive, failure belongs to the task only
+					}
+				}
+			}
+			else {
+				timeout.rounds--;
+			}
+			timeout = next;
+		}
+	}
+
+	/**
+	 * <p>Timeout armed in the timer wheel</p>
+	 */
+	public static final class Timeout {
+		private static final int		ARMED = 0;
+		private static final int		CANCELLED = 1;
+		private static final int		EXPIRED = 2;
+		private static final VarHandle	STATE;
+
+		static {
+			try {
+				STATE = MethodHandles.lookup().findVarHandle(Timeout.class, "state", int.class);
+			} catch (ReflectiveOperationException exc) {
+				throw new ExceptionInInitializerError(exc);
+			}
+		}
+
+		private final TimerWheel	owner;
+		private final Runnable		task;
+		private final long			deadline;
+		private volatile int		state = ARMED;
+		private long				rounds;		// fields below are accessed by the wheel thread only
+		private Bucket				bucket;
+		private Timeout				prev, next;
+
+		private Timeout(final TimerWheel owner, final Runnable task, final long deadline) {
+			this.owner = owner;
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * <p>Cancels timeout</p>
+		 * @return true if timeout was cancelled, false if it is already expired or cancelled
+		 */
+		public boolean cancel() {
+			if (STATE.compareAndSet(this, ARMED, CANCELLED)) {
+				owner.cancelled.add(this);
+				return true;
+			}
+			else {
+				return false;
+			}
+		}
+
+		/**
+		 * <p>Is timeout cancelled</p>
+		 * @return true if cancelled
+		 */
+		public boolean isCancelled() {
+			return state == CANCELLED;
+		}
+
+		/**
+		 * <p>Is timeout expired</p>
+		 * @return true if expired and its task was executed or is executing now
+		 */
+		public boolean isExpired() {
+			return state == EXPIRED;
+		}
+
+		/**
+		 * <p>Gets deadline of the timeout</p>
+		 * @return deadline by {@linkplain System#nanoTime()}
+		 */
+		public long getDeadline() {
+			return deadline;
+		}
+
+		@Override
+		public String toString() {
+			return "Timeout [deadline=" + deadline + ", state=" + (state == ARMED ? "armed" : (state == CANCELLED ? "cancelled" : "expired")) + "]";
+		}
+	}
+
+	private static final class Bucket {		// intrusive doubly-linked list of the timeouts
+		private Timeout	head;
+
+		void add(final Timeout timeout) {
+			timeout.bucket = this;
+			timeout.prev = null;
+			timeout.next = head;
+			if (head != null) {
+				head.prev = timeout;
+			}
+			head = timeout;
+		}
+
+		void remove(final Timeout timeout) {
+			if (timeout.prev != null) {
+				timeout.prev.next = timeout.next;
+			}
+			else {
+				head = timeout.next;
+			}
+			if (timeout.next != null) {
+				timeout.next.prev = timeout.prev;
+			}
+			timeout.bucket = null;
+			timeout.prev = timeout.next = null;
+		}
+	}
+
+	private static class DefaultHolder {
+		private static final TimerWheel	INSTANCE = new TimerWheel(DEFAULT_TICK_MICROS, DEFAULT_WHEEL_SIZE, "CommPortTimerWheel");
+	}
+}
@@ -0,0 +1,184 @@
+package javax.comm.spi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>Write coalescer of the port. Small writes are copied to the direct buffer and sent to the driver by one
+ * {@linkplain AbstractSerialPort#writeOutput(ByteBuffer)} call, when the buffer is full or when time window since the first byte
+ * collected expires. Window expiration is served by the shared {@linkplain TimerWheel#getDefault() timer wheel}. Timer flush never
+ * blocks the wheel thread: it sends no more than the port accepts without blocking (see {@linkplain javax.comm.SerialPort#getOutputReadyCount()}),
+ * by slices of {@value #TIMER_SLICE_MS} ms of the line time at most, and leaves the rest to the next window. Writers hold the coalescer lock
+ * while they block in the driver, so the timer only tries the lock and waits for the next window when it is busy. I/O errors of the timer flush
+ * are thrown to the next caller. Data not sent because of the error are kept and are sent by the next write or flush.</p>
+ */
+final class WriteCoalescer {
+	private static final int	TIMER_SLICE_MS = 10;
+
+	private final AbstractSerialPort	port;
+	private final ByteBuffer	buffer;
+	private final long			window;
+	private final Runnable		timerFlush = this::timerFlush;
+	private final ReentrantLock	lock = new ReentrantLock();
+	private boolean				scheduled = false;
+	private IOException			pendingError = null;
+	private volatile int		collected = 0;
+
+	WriteCoalescer(final AbstractSerialPort port, final int bufferSize, final long windowNanos) {
+		this.port = port;
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		this.window = windowNanos;
+	}
+
+	/**
+	 * <p>Writes data through the coalescer</p>
+	 * @param src data to write
+	 * @return number of bytes written. Always equals to the src remaining
+	 * @throws IOException on any I/O errors
+	 */
+	int write(final ByteBuffer src) throws IOException {
+		final int	total = src.remaining();
+
+		lock.lock();
+		try {
+			throwPendingError();
+			if (src.remaining() >= buffer.capacity()) {	// nothing to coalesce with, send collected data and the write itself immediately
+				flushBuffer();
+				while (src.hasRemaining()) {
+					port.writeOutput(src);
+				}
+			}
+			while (src.hasRemaining()) {
+				if (src.remaining() <= buffer.remaining()) {
+					buffer.put(src);
+					collected = buffer.position();
+				}
+				else {
+					final int	limit = src.limit();
+
+					src.limit(src.position() + buffer.remaining());
+					buffer.put(src);
+					src.limit(limit);
+					collected = buffer.position();
+					flushBuffer();
+				}
+			}
+			if (!buffer.hasRemaining()) {
+				flushBuffer();
+			}
+			else if (buffer.position() > 0 && !scheduled) {
+				scheduled = true;
+				TimerWheel.getDefault().schedule(timerFlush, window, TimeUnit.NANOSECONDS);
+			}
+		} finally {
+			lock.unlock();
+		}
+		return total;
+	}
+
+	/**
+	 * <p>Writes a sequence of buffers through the coalescer atomically</p>
+	 * @param srcs buffers to write
+	 * @param offset offset of the first buffer in the array
+	 * @param length number of buffers to write
+	 * @return number of bytes written
+	 * @throws IOException on any I/O errors
+	 */
+	long write(final ByteBuffer[] srcs, final int offset, final int length) throws IOException {
+		long	total = 0;
+
+		lock.lock();
+		try {
+			for (int index = offset; index < offset + length; index++) {
+				total += write(srcs[index]);
+			}
+		} finally {
+			lock.unlock();
+		}
+		return total;
+	}
+
+	/**
+	 * <p>Sends collected data to the driver</p>
+	 * @throws IOException on any I/O errors
+	 */
+	void flush() throws IOException {
+		lock.lock();
+		try {
+			throwPendingError();
+			flushBuffer();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * <p>Gets number of bytes collected, but not sent to the driver yet. Can be called without synchronization.</p>
+	 * @return number of bytes collected
+	 */
+	int getCollected() {
+		return collected;
+	}
+
+	private void flushBuffer() throws IOException {
+		if (buffer.position() > 0) {
+			buffer.flip();
+			try {
+				while (buffer.hasRemaining()) {
+					port.writeOutput(buffer);
+				}
+			} finally {	// data not sent are kept
+				buffer.compact();
+				collected = buffer.position();
+			}
+		}
+	}
+
+	private void timerFlush() {
+		if (!lock.tryLock()) {	// writer blocked in the driver holds the lock, try again in the next window
+			TimerWheel.getDefault().schedule(timerFlush, window, TimeUnit.NANOSECONDS);
+		}
+		else {
+			try {
+				scheduled = false;
+				if (!port.isClosed() && buffer.position() > 0 && pendingError == null) {
+					collected = 0;	// data handed to the driver are not collected anymore, so the driver doesn't subtract them from the ready count
+					final int	slice = Math.min(Math.min(buffer.position(), port.getCoalescerReadyCount()), Math.max(1, port.getBaudRate() / 10 * TIMER_SLICE_MS / 1000));
+
+					if (slice > 0) {
+						buffer.flip();
+						final int	limit = buffer.limit();
+
+						buffer.limit(slice);
+						try {
+							port.writeOutput(buffer);
+						} catch (IOException exc) {
+							pendingError = exc;
+						} finally {
+							buffer.limit(limit);
+							buffer.compact();
+						}
+					}
+					collected = buffer.position();
+					if (buffer.position() > 0 && pendingError == null) {	// the rest waits for the output space
+						scheduled = true;
+						TimerWheel.getDefault().schedule(timerFlush, window, TimeUnit.NANOSECONDS);
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private void throwPendingError() throws IOException {
+		if (pendingError != null) {
+			final IOException	exc = pendingError;
+
+			pendingError = null;
+			throw exc;
+		}
+	}
+}
@@ -0,0 +1,8 @@
+/**
+ * <p>This package contains helper classes for the {@linkplain javax.comm.CommDriver} writers. Application-level programs should
+ * not use classes from this package directly.</p>
+ *  
+ * @author Alexander Chernomyrdin aka chav1961
+ * @since 0.0.1
+ */
+package javax.comm.spi;
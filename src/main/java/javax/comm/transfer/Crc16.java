@@ -0,0 +1,49 @@
+package javax.comm.transfer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Table-driven CRC-16/XMODEM (polynomial 0x1021, initial value 0, no reflection), used by XMODEM, YMODEM and ZMODEM.</p>
+ */
+final class Crc16 {
+	private static final int[]	TABLE = new int[256];
+
+	static {
+		for (int index = 0; index < TABLE.length; index++) {
+			int	crc = index << 8;
+
+			for (int bit = 0; bit < 8; bit++) {
+				crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+			}
+			TABLE[index] = crc & 0xFFFF;
+		}
+	}
+
+	private Crc16() {
+	}
+
+	/**
+	 * <p>Updates CRC with one byte</p>
+	 * @param crc current CRC
+	 * @param value byte to add
+	 * @return CRC updated
+	 */
+	static int update(final int crc, final int value) {
+		return ((crc << 8) ^ TABLE[((crc >> 8) ^ value) & 0xFF]) & 0xFFFF;
+	}
+
+	/**
+	 * <p>Updates CRC with buffer content. Buffer position is not changed</p>
+	 * @param crc current CRC
+	 * @param buffer buffer to add. Can't be null
+	 * @param from absolute index of the first byte to add
+	 * @param to absolute index after the last byte to add
+	 * @return CRC updated
+	 */
+	static int update(int crc, final ByteBuffer buffer, final int from, final int to) {
+		for (int index = from; index < to; index++) {
+			crc = ((crc << 8) ^ TABLE[((crc >> 8) ^ buffer.get(index)) & 0xFF]) & 0xFFFF;
+		}
+		return crc;
+	}
+}
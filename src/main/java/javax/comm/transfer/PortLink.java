@@ -0,0 +1,192 @@
+package javax.comm.transfer;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.CommChannel;
+import javax.comm.SerialPort;
+import javax.comm.UnsupportedCommOperationException;
+
+/**
+ * <p>Byte-level link of the file transfer protocols to the serial port. Link reads port by its channel with the short receive timeout
+ * into the reused direct buffer and keeps output in the other one, so neither reading single bytes nor sending packets makes any call
+ * to the port per byte. Receive timeout and threshold of the port are changed for the link life and are restored on close.</p>
+ */
+final class PortLink implements Closeable {
+	static final int		TIMEOUT = -1;
+	static final int		CAN = 0x18;
+
+	private static final int	POLL_INTERVAL = 100;
+	private static final int	INPUT_SIZE = 4096;
+	private static final int	CANCEL_LENGTH = 8;
+	private static final int	BS = 0x08;
+
+	private final SerialPort	port;
+	private final CommChannel	channel;
+	private final InputStream	is;
+	private final ByteBuffer	in = ByteBuffer.allocateDirect(INPUT_SIZE);
+	private final ByteBuffer	out;
+	private final boolean		timeoutEnabled;
+	private final int			timeout;
+	private final boolean		thresholdEnabled;
+	private final int			threshold;
+
+	PortLink(final SerialPort port, final int outputSize) throws IOException {
+		this.port = port;
+		this.channel = port.getChannel();
+		this.is = port.getInputStream();
+		this.out = ByteBuffer.allocateDirect(outputSize);
+		this.timeoutEnabled = port.isReceiveTimeoutEnabled();
+		this.timeout = port.getReceiveTimeout();
+		this.thresholdEnabled = port.isReceiveThresholdEnabled();
+		this.threshold = port.getReceiveThreshold();
+		this.in.limit(0);
+		try {
+			port.disableReceiveThreshold();
+			port.enableReceiveTimeout(POLL_INTERVAL);
+		} catch (UnsupportedCommOperationException exc) {
+			close();
+			throw new TransferException("Port ["+port.getName()+"] doesn't support receive timeout: "+exc.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * <p>Reads one byte</p>
+	 * @param timeout timeout in milliseconds
+	 * @return byte read (0..255) or {@linkplain #TIMEOUT}
+	 * @throws IOException on any I/O errors
+	 */
+	int read(final long timeout) throws IOException {
+		if (!in.hasRemaining()) {
+			final long	deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+			int			read;
+
+			in.clear();
+			while ((read = channel.read(in)) == 0 && System.nanoTime() - deadline < 0) {
+				// receive timeout of the port is short, repeat until deadline
+			}
+			in.flip();
+			if (read < 0) {
+				throw new EOFException("Port ["+port.getName()+"] is closed");
+			}
+			else if (!in.hasRemaining()) {
+				return TIMEOUT;
+			}
+		}
+		return in.get() & 0xFF;
+	}
+
+	/**
+	 * <p>Is any input available without blocking</p>
+	 * @return true if input is available
+	 * @throws IOException on any I/O errors
+	 */
+	boolean hasInput() throws IOException {
+		return in.hasRemaining() || is.available() > 0;
+	}
+
+	/**
+	 * <p>Discards input until the line is silent for the poll interval</p>
+	 * @throws IOException on any I/O errors
+	 */
+	void purge() throws IOException {
+		in.limit(0);
+		while (read(POLL_INTERVAL) != TIMEOUT) {
+			in.limit(0);
+		}
+	}
+
+	/**
+	 * <p>Discards input received without waiting for more</p>
+	 * @throws IOException on any I/O errors
+	 */
+	void discard() throws IOException {
+		in.limit(0);
+		while (is.available() > 0 && read(0) != TIMEOUT) {
+			in.limit(0);
+		}
+	}
+
+	/**
+	 * <p>Gets output buffer. Content of the buffer is sent by the {@linkplain #flush()}</p>
+	 * @return output buffer. Can't be null
+	 */
+	ByteBuffer output() {
+		return out;
+	}
+
+	/**
+	 * <p>Puts byte to the output buffer, flushing the buffer when it is full</p>
+	 * @param value byte to put
+	 * @throws IOException on any I/O errors
+	 */
+	void put(final int value) throws IOException {
+		if (!out.hasRemaining()) {
+			flush();
+		}
+		out.put((byte)value);
+	}
+
+	/**
+	 * <p>Sends content of the output buffer and clears it</p>
+	 * @throws IOException on any I/O errors
+	 */
+	void flush() throws IOException {
+		out.flip();
+		write(out);
+		out.clear();
+	}
+
+	/**
+	 * <p>Sends content of the buffer</p>
+	 * @param src buffer to send. Can't be null
+	 * @throws IOException on any I/O errors
+	 */
+	void write(final ByteBuffer src) throws IOException {
+		while (src.hasRemaining()) {
+			channel.write(src);
+		}
+	}
+
+	/**
+	 * <p>Sends cancel sequence (eight CAN followed by eight backspaces) to abort the transfer. Errors are ignored.</p>
+	 */
+	void cancel() {
+		try {
+			out.clear();
+			for (int index = 0; index < CANCEL_LENGTH; index++) {
+				out.put((byte)CAN);
+			}
+			for (int index = 0; index < CANCEL_LENGTH; index++) {
+				out.put((byte)BS);
+			}
+			flush();
+		} catch (IOException exc) {
+			// port is broken, nothing to cancel
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			if (timeoutEnabled) {
+				port.enableReceiveTimeout(timeout);
+			}
+			else {
+				port.disableReceiveTimeout();
+			}
+			if (thresholdEnabled) {
+				port.enableReceiveThreshold(threshold);
+			}
+			else {
+				port.disableReceiveThreshold();
+			}
+		} catch (UnsupportedCommOperationException | IllegalStateException exc) {
+			// port settings were accepted before, or port is closed
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package javax.comm.transfer;
+
+import java.io.IOException;
+
+/**
+ * <p>Thrown when file transfer fails because of protocol errors: transfer is cancelled by the peer, retry limit is exceeded or the peer
+ * violates the protocol.</p>
+ *
+ * @since 0.0.1
+ */
+public class TransferException extends IOException {
+	private static final long serialVersionUID = 6120446297185117702L;
+
+	/**
+	 * <p>Constructor of the class</p>
+	 * @param message A detailed message explaining the reason for the Exception.
+	 */
+	public TransferException(final String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,208 @@
+package javax.comm.transfer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>File to send by the file transfer protocols. File content is taken from the file, from the {@linkplain FileChannel} or from the
+ * {@linkplain ByteBuffer} (for example, from the {@linkplain java.nio.MappedByteBuffer memory-mapped file}) block by block by
+ * positional reads, so the file is never loaded whole, and transfer can be resumed from any position. File opened by the path is
+ * opened for the transfer only, channels and buffers passed are neither closed nor moved.</p>
+ *
+ * @since 0.0.1
+ */
+public final class TransferFile {
+	private final String		name;
+	private final long			size;
+	private final long			lastModified;
+	private final Path			path;
+	private final FileChannel	channel;
+	private final ByteBuffer	content;
+
+	private TransferFile(final String name, final long size, final long lastModified, final Path path, final FileChannel channel, final ByteBuffer content) {
+		this.name = name;
+		this.size = size;
+		this.lastModified = lastModified;
+		this.path = path;
+		this.channel = channel;
+		this.content = content;
+	}
+
+	/**
+	 * <p>Creates file to send by the file path. File name is the name of the path</p>
+	 * @param path path to the file. Can't be null
+	 * @return file to send. Can't be null
+	 * @throws IOException if the file is not accessible
+	 * @throws IllegalArgumentException if path is null or is not a regular file
+	 */
+	public static TransferFile of(final Path path) throws IOException, IllegalArgumentException {
+		if (path == null) {
+			throw new IllegalArgumentException("Path can't be null");
+		}
+		else if (!Files.isRegularFile(path)) {
+			throw new IllegalArgumentException("Path ["+path+"] is not a regular file");
+		}
+		else {
+			return new TransferFile(path.getFileName().toString(), Files.size(path), Files.getLastModifiedTime(path).toMillis(), path, null, null);
+		}
+	}
+
+	/**
+	 * <p>Creates file to send from the file channel. Whole channel content is sent</p>
+	 * @param name file name to send. Can't be null or empty
+	 * @param channel channel to read content from. Can't be null
+	 * @return file to send. Can't be null
+	 * @throws IOException if channel size is not available
+	 * @throws IllegalArgumentException if any argument is invalid
+	 */
+	public static TransferFile of(final String name, final FileChannel channel) throws IOException, IllegalArgumentException {
+		if (channel == null) {
+			throw new IllegalArgumentException("Channel can't be null");
+		}
+		else {
+			return new TransferFile(checkName(name), channel.size(), 0, null, channel, null);
+		}
+	}
+
+	/**
+	 * <p>Creates file to send from the buffer. Content between buffer position and buffer limit is sent</p>
+	 * @param name file name to send. Can't be null or empty
+	 * @param content buffer with the file content. Can't be null
+	 * @return file to send. Can't be null
+	 * @throws IllegalArgumentException if any argument is invalid
+	 */
+	public static TransferFile of(final String name, final ByteBuffer content) throws IllegalArgumentException {
+		if (content == null) {
+			throw new IllegalArgumentException("Content can't be null");
+		}
+		else {
+			return new TransferFile(checkName(name), content.remaining(), 0, null, null, content.slice());
+		}
+	}
+
+	/**
+	 * <p>Gets file name</p>
+	 * @return file name. Can't be null or empty
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * <p>Gets file size</p>
+	 * @return file size
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * <p>Gets last modification time of the file</p>
+	 * @return last modification time in milliseconds since epoch. 0 if unknown
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	@Override
+	public String toString() {
+		return "TransferFile [name=" + name + ", size=" + size + ", lastModified=" + lastModified + "]";
+	}
+
+	/**
+	 * <p>Opens file content for reading</p>
+	 * @return content reader. Can't be null
+	 * @throws IOException on any I/O errors
+	 */
+	Reader open() throws IOException {
+		if (path != null) {
+			return new Reader(FileChannel.open(path, StandardOpenOption.READ), null, true);
+		}
+		else {
+			return new Reader(channel, content == null ? null : content.duplicate(), false);
+		}
+	}
+
+	/**
+	 * <p>Resolves file name received from the peer in the target directory. Only the last component of the name is used, so the peer
+	 * can't write outside the directory</p>
+	 * @param directory target directory. Can't be null
+	 * @param name name received. Can't be null
+	 * @return path resolved. Can't be null
+	 * @throws TransferException if name is empty or invalid
+	 */
+	static Path resolve(final Path directory, final String name) throws TransferException {
+		final String	normalized = name.replace('\\', '/');
+		final String	last = normalized.substring(normalized.lastIndexOf('/') + 1);
+
+		if (last.isEmpty() || ".".equals(last) || "..".equals(last) || last.indexOf(':') >= 0) {
+			throw new TransferException("Invalid file name ["+name+"] received");
+		}
+		else {
+			return directory.resolve(last);
+		}
+	}
+
+	private static String checkName(final String name) throws IllegalArgumentException {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("File name can't be null or empty");
+		}
+		else {
+			return name;
+		}
+	}
+
+	/**
+	 * <p>Positional reader of the file content</p>
+	 */
+	static final class Reader implements Closeable {
+		private final FileChannel	channel;
+		private final ByteBuffer	content;
+		private final boolean		owned;
+
+		private Reader(final FileChannel channel, final ByteBuffer content, final boolean owned) {
+			this.channel = channel;
+			this.content = content;
+			this.owned = owned;
+		}
+
+		/**
+		 * <p>Reads file content from the given position until the buffer is full or end of file is reached</p>
+		 * @param dst buffer to read to. Can't be null
+		 * @param position file position to read from
+		 * @return number of bytes read. 0 at the end of file
+		 * @throws IOException on any I/O errors
+		 */
+		int read(final ByteBuffer dst, final long position) throws IOException {
+			if (content != null) {
+				final int	length = (int)Math.max(0, Math.min(dst.remaining(), content.capacity() - position));
+
+				if (length > 0) {
+					content.limit((int)position + length).position((int)position);
+					dst.put(content);
+				}
+				return length;
+			}
+			else {
+				int	total = 0, read;
+
+				while (dst.hasRemaining() && (read = channel.read(dst, position + total)) > 0) {
+					total += read;
+				}
+				return total;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (owned) {
+				channel.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package javax.comm.transfer;
+
+/**
+ * <p>This interface describes listener of the file transfer progress. All the methods are called by the transferring thread, so they
+ * should return quickly. All the methods have empty default implementations.</p>
+ *
+ * @since 0.0.1
+ */
+public interface TransferListener {
+	/**
+	 * <p>Is called when file transfer starts</p>
+	 * @param name file name. Can't be null
+	 * @param size file size. Negative if size is unknown
+	 * @param offset offset the transfer starts from. Is greater than 0 when transfer is resumed
+	 */
+	default void fileStarted(final String name, final long size, final long offset) {
+	}
+
+	/**
+	 * <p>Is called when file data block is transferred</p>
+	 * @param name file name. Can't be null
+	 * @param position number of bytes transferred
+	 * @param size file size. Negative if size is unknown
+	 */
+	default void progress(final String name, final long position, final long size) {
+	}
+
+	/**
+	 * <p>Is called when file transfer completes</p>
+	 * @param name file name. Can't be null
+	 * @param size number of bytes of the file
+	 */
+	default void fileCompleted(final String name, final long size) {
+	}
+}
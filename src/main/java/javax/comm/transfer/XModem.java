@@ -0,0 +1,115 @@
+package javax.comm.transfer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Constants of the XMODEM family protocols. Block is:</p>
+ * <ul>
+ * <li>SOH (128-byte block) or STX (1024-byte block)</li>
+ * <li>block number modulo 256 and its complement</li>
+ * <li>data, padded with CPMEOF (data blocks) or zeros (YMODEM header block)</li>
+ * <li>CRC-16 (two bytes, high byte first) or arithmetic checksum (one byte)</li>
+ * </ul>
+ * <p>YMODEM header block number 0 contains file name terminated by zero and decimal file size optionally followed by space and
+ * octal modification time in seconds. Header block with empty name ends the batch.</p>
+ */
+final class XModem {
+	static final int	SOH = 0x01;
+	static final int	STX = 0x02;
+	static final int	EOT = 0x04;
+	static final int	ACK = 0x06;
+	static final int	NAK = 0x15;
+	static final int	CAN = PortLink.CAN;
+	static final int	CRC = 'C';
+	static final int	STREAM = 'G';
+	static final int	CPMEOF = 0x1A;
+
+	static final int	SHORT_BLOCK = 128;
+	static final int	LONG_BLOCK = 1024;
+	static final int	HEADER_SIZE = 3;
+	static final int	MAX_PACKET_SIZE = HEADER_SIZE + LONG_BLOCK + 2;
+
+	static final int	MAX_RETRIES = 10;
+	static final long	START_TIMEOUT = 60_000;
+	static final long	START_INTERVAL = 3_000;
+	static final long	BLOCK_TIMEOUT = 10_000;
+	static final long	CHAR_TIMEOUT = 1_000;
+
+	private XModem() {
+	}
+
+	/**
+	 * <p>Fills YMODEM header data</p>
+	 * @param block buffer to fill. Content is put from the buffer position
+	 * @param file file to describe. Null fills the empty header ending the batch
+	 */
+	static void putFileInfo(final ByteBuffer block, final TransferFile file) {
+		if (file != null) {
+			block.put(file.getName().getBytes(StandardCharsets.UTF_8)).put((byte)0);
+			block.put(String.valueOf(file.getSize()).getBytes(StandardCharsets.US_ASCII));
+			if (file.getLastModified() > 0) {
+				block.put((" "+Long.toOctalString(file.getLastModified() / 1000)).getBytes(StandardCharsets.US_ASCII));
+			}
+		}
+	}
+
+	/**
+	 * <p>Gets length of the YMODEM header data of the file</p>
+	 * @param file file to describe. Can't be null
+	 * @return data length
+	 */
+	static int getFileInfoLength(final TransferFile file) {
+		return file.getName().getBytes(StandardCharsets.UTF_8).length + 40;
+	}
+
+	/**
+	 * <p>Extracts file name from the YMODEM or ZMODEM header data</p>
+	 * @param data header data. Can't be null
+	 * @return file name. Empty name ends the batch
+	 */
+	static String getFileName(final byte[] data) {
+		return new String(data, 0, nameLength(data), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * <p>Extracts numeric fields (size, modification time and so on) from the YMODEM or ZMODEM header data</p>
+	 * @param data header data. Can't be null
+	 * @return fields separated by spaces. Can be empty
+	 */
+	static String[] getFileFields(final byte[] data) {
+		final int	start = nameLength(data) + 1;
+		int			end = start;
+
+		while (end < data.length && data[end] != 0) {
+			end++;
+		}
+		final String	fields = start < end ? new String(data, start, end - start, StandardCharsets.US_ASCII).trim() : "";
+
+		return fields.isEmpty() ? new String[0] : fields.split("\\s+");
+	}
+
+	/**
+	 * <p>Parses numeric field of the header data</p>
+	 * @param fields fields of the header data (see {@linkplain #getFileFields(byte[])}). Can't be null
+	 * @param index field index
+	 * @param radix field radix
+	 * @return field value or -1 if field is missing or invalid
+	 */
+	static long parseField(final String[] fields, final int index, final int radix) {
+		try {
+			return index < fields.length ? Long.parseLong(fields[index], radix) : -1;
+		} catch (NumberFormatException exc) {
+			return -1;
+		}
+	}
+
+	private static int nameLength(final byte[] data) {
+		int	length = 0;
+
+		while (length < data.length && data[length] != 0) {
+			length++;
+		}
+		return length;
+	}
+}
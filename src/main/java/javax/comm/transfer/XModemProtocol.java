@@ -0,0 +1,60 @@
+package javax.comm.transfer;
+
+/**
+ * <p>Protocols of the XMODEM family, supported by the {@linkplain XModemSender} and {@linkplain XModemReceiver}.</p>
+ *
+ * @since 0.0.1
+ */
+public enum XModemProtocol {
+	/**
+	 * <p>XMODEM with 128-byte blocks. Sender supports both CRC-16 and checksum receivers, receiver asks for CRC-16 and falls back to checksum</p>
+	 */
+	XMODEM(128, false, false),
+	/**
+	 * <p>XMODEM with 1024-byte blocks</p>
+	 */
+	XMODEM_1K(1024, false, false),
+	/**
+	 * <p>YMODEM batch transfer with file name and size in the header block and 1024-byte blocks</p>
+	 */
+	YMODEM(1024, true, false),
+	/**
+	 * <p>YMODEM-g streaming batch transfer. Blocks are not acknowledged, so transfer runs at the line rate, but any error aborts it.
+	 * Requires error-free link, for example with hardware flow control</p>
+	 */
+	YMODEM_G(1024, true, true);
+
+	private final int		blockSize;
+	private final boolean	batch;
+	private final boolean	streaming;
+
+	private XModemProtocol(final int blockSize, final boolean batch, final boolean streaming) {
+		this.blockSize = blockSize;
+		this.batch = batch;
+		this.streaming = streaming;
+	}
+
+	/**
+	 * <p>Gets data block size</p>
+	 * @return maximal data block size
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * <p>Does protocol transfer files in batches with their names and sizes</p>
+	 * @return true for batch protocol
+	 */
+	public boolean isBatch() {
+		return batch;
+	}
+
+	/**
+	 * <p>Does protocol stream blocks without acknowledgements</p>
+	 * @return true for streaming protocol
+	 */
+	public boolean isStreaming() {
+		return streaming;
+	}
+}
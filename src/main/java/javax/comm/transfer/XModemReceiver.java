@@ -0,0 +1,299 @@
+package javax.comm.transfer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.comm.SerialPort;
+
+/**
+ * <p>Receiver of the XMODEM family protocols (see {@linkplain XModemProtocol}).</p>
+ *
+ * <p>Every block is received into the reused direct packet buffer, checked by the table-driven CRC-16 and written to the target
+ * {@linkplain FileChannel} by the positional write, so the file is never buffered whole. XMODEM receiver asks for CRC-16 and falls back
+ * to the checksum, if the sender doesn't answer. XMODEM doesn't pass file size, so the last block padding is written to the file.
+ * YMODEM receiver writes files with names received to the target directory and truncates them to the size received.
+ * {@linkplain XModemProtocol#YMODEM_G} receiver asks for the streaming and aborts the transfer on any error.</p>
+ *
+ * <p>This class is not thread-safe. Nobody else must read or write the port while transfer is in progress.</p>
+ *
+ * @see XModemSender
+ * @since 0.0.1
+ */
+public class XModemReceiver {
+	private static final TransferListener	NO_LISTENER = new TransferListener() {};
+	private static final int	ERROR = -1;
+	private static final int	END = -2;
+	private static final int	DAMAGED = -3;
+	private static final int	START_FALLBACK = 3;
+
+	private final SerialPort		port;
+	private final XModemProtocol	protocol;
+	private final ByteBuffer		packet = ByteBuffer.allocateDirect(XModem.MAX_PACKET_SIZE);
+	private boolean					crc = true;
+
+	/**
+	 * <p>Constructor of the class</p>
+	 * @param port port to receive files from. Can't be null
+	 * @param protocol protocol to use. Can't be null
+	 * @throws IllegalArgumentException if any argument is null
+	 */
+	public XModemReceiver(final SerialPort port, final XModemProtocol protocol) throws IllegalArgumentException {
+		if (port == null) {
+			throw new IllegalArgumentException("Port can't be null");
+		}
+		else if (protocol == null) {
+			throw new IllegalArgumentException("Protocol can't be null");
+		}
+		else {
+			this.port = port;
+			this.protocol = protocol;
+		}
+	}
+
+	/**
+	 * <p>Receives file by XMODEM protocols</p>
+	 * @param target channel to write file content to. Content is written from the position 0. Can't be null
+	 * @param listener transfer progress listener. Can be null
+	 * @return number of bytes received
+	 * @throws IOException on any I/O errors
+	 * @throws TransferException if transfer is cancelled by sender or failed
+	 * @throws IllegalArgumentException if target is null
+	 * @throws IllegalStateException if protocol is batch protocol
+	 */
+	public long receive(final FileChannel target, final TransferListener listener) throws IOException, IllegalArgumentException, IllegalStateException {
+		if (target == null) {
+			throw new IllegalArgumentException("Target channel can't be null");
+		}
+		else if (protocol.isBatch()) {
+			throw new IllegalStateException("Protocol ["+protocol+"] receives files to the directory");
+		}
+		else {
+			try(final PortLink	link = new PortLink(port, 16)) {
+				try {
+					crc = true;
+					return receiveContent(link, target, -1, "", listener == null ? NO_LISTENER : listener);
+				} catch (IOException exc) {
+					link.cancel();
+					throw exc;
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Receives batch of files by YMODEM protocols. Existing files are overwritten</p>
+	 * @param directory directory to write files to. Can't be null
+	 * @param listener transfer progress listener. Can be null
+	 * @return paths of the files received. Can't be null
+	 * @throws IOException on any I/O errors
+	 * @throws TransferException if transfer is cancelled by sender or failed
+	 * @throws IllegalArgumentException if directory is null or is not a directory
+	 * @throws IllegalStateException if protocol is not batch protocol
+	 */
+	public List<Path> receive(final Path directory, final TransferListener listener) throws IOException, IllegalArgumentException, IllegalStateException {
+		if (directory == null || !Files.isDirectory(directory)) {
+			throw new IllegalArgumentException("Directory ["+directory+"] is null or is not a directory");
+		}
+		else if (!protocol.isBatch()) {
+			throw new IllegalStateException("Protocol ["+protocol+"] receives file to the channel");
+		}
+		else {
+			final TransferListener	l = listener == null ? NO_LISTENER : listener;
+			final List<Path>		result = new ArrayList<>();
+
+			try(final PortLink	link = new PortLink(port, 16)) {
+				try {
+					crc = true;
+					for (;;) {
+						final byte[]	info = receiveHeader(link);
+						final String	name = XModem.getFileName(info);
+
+						if (name.isEmpty()) {
+							return result;
+						}
+						else {
+							final String[]	fields = XModem.getFileFields(info);
+							final long		size = XModem.parseField(fields, 0, 10), modified = XModem.parseField(fields, 1, 8);
+							final Path		path = TransferFile.resolve(directory, name);
+
+							try(final FileChannel	target = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+								receiveContent(link, target, size, name, l);
+							}
+							if (modified > 0) {
+								Files.setLastModifiedTime(path, FileTime.fromMillis(modified * 1000));
+							}
+							result.add(path);
+						}
+					}
+				} catch (IOException exc) {
+					link.cancel();
+					throw exc;
+				}
+			}
+		}
+	}
+
+	private byte[] receiveHeader(final PortLink link) throws IOException {
+		final int	start = protocol.isStreaming() ? XModem.STREAM : XModem.CRC;
+		int			request = start;
+
+		for (int errors = 0; errors <= XModem.MAX_RETRIES; errors++) {
+			link.put(request);
+			link.flush();
+
+			final int	length = readBlock(link, XModem.START_INTERVAL);
+
+			if (length >= 0 && packet.get(1) == 0) {
+				final byte[]	info = new byte[length];
+
+				packet.position(XModem.HEADER_SIZE);
+				packet.get(info);
+				link.put(XModem.ACK);
+				link.flush();
+				return info;
+			}
+			else if (length == END) {		// end of the previous file is repeated
+				link.put(XModem.ACK);
+				link.flush();
+				request = start;
+			}
+			else {
+				link.purge();
+				request = length == DAMAGED ? XModem.NAK : start;		// sender waits for acknowledgement of the damaged header
+			}
+		}
+		throw new TransferException("Sender didn't start transfer");
+	}
+
+	private long receiveContent(final PortLink link, final FileChannel target, final long size, final String name, final TransferListener listener) throws IOException {
+		final boolean	streaming = protocol.isStreaming();
+		int				start = streaming ? XModem.STREAM : XModem.CRC, expected = 1, errors = 0;
+		boolean			started = false, endRequested = false;
+		long			position = 0;
+
+		listener.fileStarted(name, size, 0);
+		link.put(start);
+		link.flush();
+		for (;;) {
+			final int	length = readBlock(link, started ? XModem.BLOCK_TIMEOUT : XModem.START_INTERVAL);
+
+			if (length == END) {
+				if (protocol.isBatch() && !streaming && !endRequested) {
+					endRequested = true;		// YMODEM confirms end of file by the second EOT
+					link.put(XModem.NAK);
+				}
+				else {
+					link.put(XModem.ACK);
+					link.flush();
+					listener.fileCompleted(name, position);
+					return position;
+				}
+			}
+			else if (length >= 0) {
+				final int	seq = packet.get(1) & 0xFF;
+
+				if (seq == expected) {
+					final int	count = size < 0 ? length : (int)Math.max(0, Math.min(length, size - position));
+
+					packet.limit(XModem.HEADER_SIZE + count).position(XModem.HEADER_SIZE);
+					while (packet.hasRemaining()) {
+						target.write(packet, position + packet.position() - XModem.HEADER_SIZE);
+					}
+					position += count;
+					expected = (expected + 1) & 0xFF;
+					errors = 0;
+					started = true;
+					if (!streaming) {
+						link.put(XModem.ACK);
+					}
+					listener.progress(name, position, size);
+				}
+				else if (seq == ((expected - 1) & 0xFF) && !streaming) {
+					link.put(XModem.ACK);		// our acknowledgement was lost
+				}
+				else {
+					throw new TransferException("Block sequence lost: block ["+seq+"] received, block ["+expected+"] expected");
+				}
+			}
+			else if (streaming) {
+				throw new TransferException("Transfer error in the streaming mode");
+			}
+			else if (++errors > XModem.MAX_RETRIES) {
+				throw new TransferException("Retry limit exceeded");
+			}
+			else {
+				link.purge();
+				if (started || length == DAMAGED) {		// sender has started, so it waits for acknowledgement, not for the start request
+					link.put(XModem.NAK);
+				}
+				else {
+					if (!protocol.isBatch() && crc && errors >= START_FALLBACK) {
+						crc = false;		// sender doesn't support CRC, ask for checksum
+						start = XModem.NAK;
+					}
+					link.put(start);
+				}
+			}
+			link.flush();
+		}
+	}
+
+	private int readBlock(final PortLink link, final long timeout) throws IOException {
+		int		c, cans = 0, garbage = 0, length;
+
+		for (;;) {
+			switch (c = link.read(timeout)) {
+				case XModem.SOH	: length = XModem.SHORT_BLOCK; break;
+				case XModem.STX	: length = XModem.LONG_BLOCK; break;
+				case XModem.EOT	: return END;
+				case PortLink.TIMEOUT	: return ERROR;
+				case XModem.CAN	:
+					if (++cans >= 2) {
+						throw new TransferException("Transfer cancelled by sender");
+					}
+					continue;
+				default :
+					if (++garbage > XModem.LONG_BLOCK) {
+						return ERROR;
+					}
+					cans = 0;
+					continue;
+			}
+			break;
+		}
+		final int	end = XModem.HEADER_SIZE + length, total = end + (crc ? 2 : 1);
+
+		packet.clear().put((byte)c);
+		for (int index = 1; index < total; index++) {
+			if ((c = link.read(XModem.CHAR_TIMEOUT)) == PortLink.TIMEOUT) {
+				return DAMAGED;
+			}
+			else {
+				packet.put((byte)c);
+			}
+		}
+		if (((packet.get(1) ^ packet.get(2)) & 0xFF) != 0xFF) {
+			return DAMAGED;
+		}
+		else if (crc) {
+			final int	value = Crc16.update(0, packet, XModem.HEADER_SIZE, end);
+
+			return value == (((packet.get(end) & 0xFF) << 8) | (packet.get(end + 1) & 0xFF)) ? length : DAMAGED;
+		}
+		else {
+			int		sum = 0;
+
+			for (int index = XModem.HEADER_SIZE; index < end; index++) {
+				sum += packet.get(index);
+			}
+			return (byte)sum == packet.get(end) ? length : DAMAGED;
+		}
+	}
+}
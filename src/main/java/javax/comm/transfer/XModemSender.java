@@ -0,0 +1,264 @@
+package javax.comm.transfer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+import javax.comm.SerialPort;
+
+/**
+ * <p>Sender of the XMODEM family protocols (see {@linkplain XModemProtocol}).</p>
+ *
+ * <p>Every data block is read from the file directly into the reused direct packet buffer, checked by the table-driven CRC-16 and sent
+ * by one write, so the file is never buffered whole. Sender waits for the receiver up to one minute, retransmits block up to ten times
+ * and cancels the transfer by the CAN sequence on failure. With {@linkplain XModemProtocol#YMODEM_G} sender streams blocks without
+ * waiting for acknowledgements, if the receiver asks for the streaming, and falls back to {@linkplain XModemProtocol#YMODEM} otherwise.</p>
+ *
+ * <p>This class is not thread-safe. Nobody else must read or write the port while transfer is in progress.</p>
+ *
+ * @see XModemReceiver
+ * @since 0.0.1
+ */
+public class XModemSender {
+	private static final TransferListener	NO_LISTENER = new TransferListener() {};
+
+	private final SerialPort		port;
+	private final XModemProtocol	protocol;
+	private final ByteBuffer		packet = ByteBuffer.allocateDirect(XModem.MAX_PACKET_SIZE);
+
+	/**
+	 * <p>Constructor of the class</p>
+	 * @param port port to send files to. Can't be null
+	 * @param protocol protocol to use. Can't be null
+	 * @throws IllegalArgumentException if any argument is null
+	 */
+	public XModemSender(final SerialPort port, final XModemProtocol protocol) throws IllegalArgumentException {
+		if (port == null) {
+			throw new IllegalArgumentException("Port can't be null");
+		}
+		else if (protocol == null) {
+			throw new IllegalArgumentException("Protocol can't be null");
+		}
+		else {
+			this.port = port;
+			this.protocol = protocol;
+		}
+	}
+
+	/**
+	 * <p>Sends file</p>
+	 * @param file file to send. Can't be null
+	 * @param listener transfer progress listener. Can be null
+	 * @throws IOException on any I/O errors
+	 * @throws TransferException if transfer is cancelled by receiver or failed
+	 * @throws IllegalArgumentException if file is null
+	 */
+	public void send(final TransferFile file, final TransferListener listener) throws IOException, IllegalArgumentException {
+		if (file == null) {
+			throw new IllegalArgumentException("File can't be null");
+		}
+		else {
+			send(Collections.singletonList(file), listener);
+		}
+	}
+
+	/**
+	 * <p>Sends batch of files. XMODEM protocols can send only one file</p>
+	 * @param files files to send. Can't be null or empty and can't contain nulls
+	 * @param listener transfer progress listener. Can be null
+	 * @throws IOException on any I/O errors
+	 * @throws TransferException if transfer is cancelled by receiver or failed
+	 * @throws IllegalArgumentException if files list is invalid
+	 */
+	public void send(final List<TransferFile> files, final TransferListener listener) throws IOException, IllegalArgumentException {
+		if (files == null || files.isEmpty()) {
+			throw new IllegalArgumentException("Files list can't be null or empty");
+		}
+		else if (!protocol.isBatch() && files.size() != 1) {
+			throw new IllegalArgumentException("Protocol ["+protocol+"] can send only one file");
+		}
+		else {
+			for (TransferFile file : files) {
+				if (file == null) {
+					throw new IllegalArgumentException("Files list can't contain nulls");
+				}
+				else if (XModem.getFileInfoLength(file) > XModem.LONG_BLOCK) {
+					throw new IllegalArgumentException("File name ["+file.getName()+"] is too long");
+				}
+			}
+			final TransferListener	l = listener == null ? NO_LISTENER : listener;
+
+			try(final PortLink	link = new PortLink(port, 16)) {
+				try {
+					if (protocol.isBatch()) {
+						for (TransferFile file : files) {
+							sendHeader(link, file);
+							sendContent(link, file, l);
+						}
+						sendHeader(link, null);
+					}
+					else {
+						sendContent(link, files.get(0), l);
+					}
+				} catch (IOException exc) {
+					link.cancel();
+					throw exc;
+				}
+			}
+		}
+	}
+
+	private void sendHeader(final PortLink link, final TransferFile file) throws IOException {
+		final int	blockSize = file != null && XModem.getFileInfoLength(file) > XModem.SHORT_BLOCK ? XModem.LONG_BLOCK : XModem.SHORT_BLOCK;
+
+		awaitStart(link);
+		packet.clear().position(XModem.HEADER_SIZE).limit(XModem.HEADER_SIZE + blockSize);
+		XModem.putFileInfo(packet, file);
+		while (packet.hasRemaining()) {
+			packet.put((byte)0);
+		}
+		finishBlock(0, blockSize, true);
+		sendBlock(link, false);			// header is acknowledged even in the streaming mode
+	}
+
+	private void sendContent(final PortLink link, final TransferFile file, final TransferListener listener) throws IOException {
+		final int		start = awaitStart(link);
+		final boolean	crc = start != XModem.NAK, streaming = start == XModem.STREAM;
+		final String	name = file.getName();
+		final long		size = file.getSize();
+
+		try(final TransferFile.Reader	reader = file.open()) {
+			long	position = 0;
+			int		seq = 1, read;
+
+			listener.fileStarted(name, size, 0);
+			for (;;) {
+				final int	blockSize = protocol.getBlockSize() == XModem.LONG_BLOCK && size - position > XModem.SHORT_BLOCK ? XModem.LONG_BLOCK : XModem.SHORT_BLOCK;
+
+				packet.clear().position(XModem.HEADER_SIZE).limit(XModem.HEADER_SIZE + blockSize);
+				if ((read = reader.read(packet, position)) == 0) {
+					break;
+				}
+				else {
+					while (packet.hasRemaining()) {
+						packet.put((byte)XModem.CPMEOF);
+					}
+					finishBlock(seq++, blockSize, crc);
+					sendBlock(link, streaming);
+					position += read;
+					listener.progress(name, position, size);
+				}
+			}
+			sendEot(link);
+			listener.fileCompleted(name, position);
+		}
+	}
+
+	private int awaitStart(final PortLink link) throws IOException {
+		final long	deadline = System.currentTimeMillis() + XModem.START_TIMEOUT;
+		int			cans = 0;
+
+		while (System.currentTimeMillis() < deadline) {
+			final int	c = link.read(XModem.START_INTERVAL);
+
+			switch (c) {
+				case XModem.CRC		:
+					return c;
+				case XModem.STREAM	:
+					if (protocol.isStreaming()) {
+						return c;
+					}
+					break;
+				case XModem.NAK		:
+					if (!protocol.isBatch()) {
+						return c;
+					}
+					break;
+				case XModem.CAN		:
+					if (++cans >= 2) {
+						throw new TransferException("Transfer cancelled by receiver");
+					}
+					continue;
+				default :
+			}
+			cans = 0;
+		}
+		throw new TransferException("Receiver didn't start transfer");
+	}
+
+	private void finishBlock(final int seq, final int blockSize, final boolean crc) {
+		final int	end = XModem.HEADER_SIZE + blockSize;
+
+		packet.put(0, (byte)(blockSize == XModem.LONG_BLOCK ? XModem.STX : XModem.SOH)).put(1, (byte)seq).put(2, (byte)~seq);
+		if (crc) {
+			final int	value = Crc16.update(0, packet, XModem.HEADER_SIZE, end);
+
+			packet.limit(end + 2).put(end, (byte)(value >> 8)).put(end + 1, (byte)value);
+		}
+		else {
+			int		sum = 0;
+
+			for (int index = XModem.HEADER_SIZE; index < end; index++) {
+				sum += packet.get(index);
+			}
+			packet.limit(end + 1).put(end, (byte)sum);
+		}
+	}
+
+	private void sendBlock(final PortLink link, final boolean streaming) throws IOException {
+		for (int retry = 0; retry < XModem.MAX_RETRIES; retry++) {
+			packet.position(0);
+			link.write(packet);
+			if (streaming) {
+				checkCancel(link);
+				return;
+			}
+			else if (awaitAck(link)) {
+				return;
+			}
+		}
+		throw new TransferException("Retry limit exceeded");
+	}
+
+	private void sendEot(final PortLink link) throws IOException {
+		for (int retry = 0; retry < XModem.MAX_RETRIES; retry++) {
+			link.put(XModem.EOT);
+			link.flush();
+			if (awaitAck(link)) {
+				return;
+			}
+		}
+		throw new TransferException("End of file is not acknowledged");
+	}
+
+	private static boolean awaitAck(final PortLink link) throws IOException {
+		int		cans = 0;
+
+		for (;;) {
+			final int	c = link.read(XModem.BLOCK_TIMEOUT);
+
+			switch (c) {
+				case XModem.ACK		:
+					return true;
+				case XModem.NAK : case PortLink.TIMEOUT :
+					return false;
+				case XModem.CAN		:
+					if (++cans >= 2) {
+						throw new TransferException("Transfer cancelled by receiver");
+					}
+					break;
+				default :
+					cans = 0;		// garbage or repeated start request
+			}
+		}
+	}
+
+	private static void checkCancel(final PortLink link) throws IOException {
+		while (link.hasInput()) {
+			if (link.read(0) == XModem.CAN && link.read(XModem.CHAR_TIMEOUT) == XModem.CAN) {
+				throw new TransferException("Transfer cancelled by receiver");
+			}
+		}
+	}
+}
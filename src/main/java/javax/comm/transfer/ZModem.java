@@ -0,0 +1,499 @@
+package javax.comm.transfer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * <p>Frame codec of the ZMODEM protocol. Header is:</p>
+ * <ul>
+ * <li>ZPAD ZPAD ZDLE ZHEX, frame type, four header bytes and CRC-16 as hexadecimal digits, CR LF and XON (hex header)</li>
+ * <li>ZPAD ZDLE ZBIN or ZBIN32, frame type, four header bytes and CRC-16 or CRC-32, escaped by ZDLE (binary header)</li>
+ * </ul>
+ * <p>Header bytes are position (little-endian) or flags (ZF0 is the last byte). Data subpackets follow ZFILE, ZSINIT and ZDATA binary
+ * headers and are terminated by ZDLE and frame end type (ZCRCE, ZCRCG, ZCRCQ or ZCRCW) followed by CRC of the same size as the preceding
+ * header. Data and CRC are escaped by ZDLE. CRC-16 is sent high byte first, CRC-32 is sent low byte first. Five CAN in a row cancel
+ * the transfer.</p>
+ */
+final class ZModem {
+	static final int	ZPAD = '*';
+	static final int	ZDLE = PortLink.CAN;
+	static final int	ZDLEE = ZDLE ^ 0x40;
+	static final int	ZBIN = 'A';
+	static final int	ZHEX = 'B';
+	static final int	ZBIN32 = 'C';
+
+	static final int	ZRQINIT = 0;
+	static final int	ZRINIT = 1;
+	static final int	ZSINIT = 2;
+	static final int	ZACK = 3;
+	static final int	ZFILE = 4;
+	static final int	ZSKIP = 5;
+	static final int	ZNAK = 6;
+	static final int	ZABORT = 7;
+	static final int	ZFIN = 8;
+	static final int	ZRPOS = 9;
+	static final int	ZDATA = 10;
+	static final int	ZEOF = 11;
+	static final int	ZFERR = 12;
+	static final int	ZCRC = 13;
+	static final int	ZCHALLENGE = 14;
+	static final int	ZCOMPL = 15;
+	static final int	ZCAN = 16;
+	static final int	ZFREECNT = 17;
+	static final int	ZCOMMAND = 18;
+
+	static final int	ZCRCE = 'h';
+	static final int	ZCRCG = 'i';
+	static final int	ZCRCQ = 'j';
+	static final int	ZCRCW = 'k';
+	static final int	ZRUB0 = 'l';
+	static final int	ZRUB1 = 'm';
+
+	static final int	CANFDX = 0x01;
+	static final int	CANOVIO = 0x02;
+	static final int	CANFC32 = 0x20;
+	static final int	ZCBIN = 1;
+	static final int	ZCRESUM = 3;
+
+	static final int	NONE = -2;
+	static final int	ERROR = -3;
+	static final int	TIMEOUT = PortLink.TIMEOUT;
+
+	static final int	SUBPACKET_SIZE = 1024;
+	static final int	MAX_SUBPACKET_SIZE = 8192;
+	static final int	MAX_RETRIES = 10;
+	static final long	HEADER_TIMEOUT = 10_000;
+	static final long	CHAR_TIMEOUT = 1_000;
+
+	private static final int		XON = 0x11;
+	private static final int		XOFF = 0x13;
+	private static final int		FRAME_END = 0x100;
+	private static final int		CANCEL_LENGTH = 5;
+	private static final byte[]		HEX = "0123456789abcdef".getBytes();
+	private static final boolean[]	ESCAPED = new boolean[256];
+
+	static {
+		for (int value : new int[] {ZDLE, 0x10, XON, XOFF, 0x90, 0x91, 0x93}) {
+			ESCAPED[value] = true;
+		}
+	}
+
+	private final PortLink	link;
+	private final CRC32		crc32 = new CRC32();
+	private final byte[]	header = new byte[5];
+	private boolean			crc32Data = false;
+	private boolean			sendCrc32 = false;
+	private int				lastSent = 0;
+
+	ZModem(final PortLink link) {
+		this.link = link;
+	}
+
+	/**
+	 * <p>Sets CRC used by the binary headers and data subpackets sent</p>
+	 * @param crc32 true to use CRC-32, false to use CRC-16
+	 */
+	void setSendCrc32(final boolean crc32) {
+		this.sendCrc32 = crc32;
+	}
+
+	/**
+	 * <p>Gets header value of the last header received</p>
+	 * @return header bytes as little-endian number (position)
+	 */
+	long getValue() {
+		return (header[1] & 0xFFL) | ((header[2] & 0xFFL) << 8) | ((header[3] & 0xFFL) << 16) | ((header[4] & 0xFFL) << 24);
+	}
+
+	/**
+	 * <p>Gets ZF0 flags of the last header received</p>
+	 * @return ZF0 flags
+	 */
+	int getFlags() {
+		return header[4] & 0xFF;
+	}
+
+	/**
+	 * <p>Sends hex header and flushes output</p>
+	 * @param type frame type
+	 * @param value header value (position or flags)
+	 * @throws IOException on any I/O errors
+	 */
+	void sendHexHeader(final int type, final long value) throws IOException {
+		fillHeader(type, value);
+		link.put(ZPAD);
+		link.put(ZPAD);
+		link.put(ZDLE);
+		link.put(ZHEX);
+		int		crc = 0;
+
+		for (byte item : header) {
+			putHex(item & 0xFF);
+			crc = Crc16.update(crc, item & 0xFF);
+		}
+		putHex(crc >> 8);
+		putHex(crc & 0xFF);
+		link.put('\r');
+		link.put('\n' | 0x80);
+		if (type != ZFIN && type != ZACK) {
+			link.put(XON);
+		}
+		link.flush();
+	}
+
+	/**
+	 * <p>Puts binary header to the output. Output is not flushed</p>
+	 * @param type frame type
+	 * @param value header value (position or flags)
+	 * @throws IOException on any I/O errors
+	 */
+	void sendBinaryHeader(final int type, final long value) throws IOException {
+		fillHeader(type, value);
+		link.put(ZPAD);
+		link.put(ZDLE);
+		link.put(sendCrc32 ? ZBIN32 : ZBIN);
+		for (byte item : header) {
+			putEscaped(item & 0xFF);
+		}
+		if (sendCrc32) {
+			crc32.reset();
+			crc32.update(header, 0, header.length);
+			putCrc32((int)crc32.getValue());
+		}
+		else {
+			int		crc = 0;
+
+			for (byte item : header) {
+				crc = Crc16.update(crc, item & 0xFF);
+			}
+			putCrc16(crc);
+		}
+	}
+
+	/**
+	 * <p>Puts data subpacket to the output. Output is not flushed</p>
+	 * @param data data to send, between buffer position and limit. Buffer position is not changed. Can't be null
+	 * @param frameEnd frame end type (ZCRCE, ZCRCG, ZCRCQ or ZCRCW)
+	 * @throws IOException on any I/O errors
+	 */
+	void sendData(final ByteBuffer data, final int frameEnd) throws IOException {
+		final int	from = data.position(), to = data.limit();
+
+		for (int index = from; index < to; index++) {
+			putEscaped(data.get(index) & 0xFF);
+		}
+		link.put(ZDLE);
+		link.put(frameEnd);
+		if (sendCrc32) {
+			crc32.reset();
+			crc32.update(data);
+			data.position(from);
+			crc32.update(frameEnd);
+			putCrc32((int)crc32.getValue());
+		}
+		else {
+			putCrc16(Crc16.update(Crc16.update(0, data, from, to), frameEnd));
+		}
+		lastSent = 0;
+	}
+
+	/**
+	 * <p>Waits for the header</p>
+	 * @param timeout timeout in milliseconds
+	 * @return frame type, {@linkplain #TIMEOUT} or {@linkplain #ERROR} if the header is damaged
+	 * @throws IOException on any I/O errors
+	 * @throws TransferException if transfer is cancelled by the peer
+	 */
+	int receiveHeader(final long timeout) throws IOException {
+		final long	deadline = System.currentTimeMillis() + timeout;
+		int			cans = 0;
+
+		for (;;) {
+			final long	rest = deadline - System.currentTimeMillis();
+			final int	c = rest > 0 ? link.read(rest) : TIMEOUT;
+
+			if (c == TIMEOUT) {
+				return TIMEOUT;
+			}
+			else if (c == ZPAD) {
+				final int	type = readHeaderBody();
+
+				if (type != NONE) {
+					return type;
+				}
+			}
+			else if (c == PortLink.CAN && ++cans >= CANCEL_LENGTH) {
+				throw new TransferException("Transfer cancelled by peer");
+			}
+			else if (c != PortLink.CAN) {
+				cans = 0;
+			}
+		}
+	}
+
+	/**
+	 * <p>Reads the header, if any input is available, without waiting for it</p>
+	 * @return frame type, {@linkplain #NONE} if no header is available or {@linkplain #ERROR} if the header is damaged
+	 * @throws IOException on any I/O errors
+	 * @throws TransferException if transfer is cancelled by the peer
+	 */
+	int pollHeader() throws IOException {
+		int		cans = 0;
+
+		while (link.hasInput()) {
+			final int	c = link.read(0);
+
+			if (c == ZPAD) {
+				final int	type = readHeaderBody();
+
+				if (type != NONE) {
+					return type;
+				}
+			}
+			else if (c == PortLink.CAN && ++cans >= CANCEL_LENGTH) {
+				throw new TransferException("Transfer cancelled by peer");
+			}
+			else if (c != PortLink.CAN) {
+				cans = 0;
+			}
+		}
+		return NONE;
+	}
+
+	/**
+	 * <p>Receives data subpacket</p>
+	 * @param dst buffer to receive data to. Buffer is cleared, and data are placed between buffer position and limit. Can't be null
+	 * @return frame end type (ZCRCE, ZCRCG, ZCRCQ or ZCRCW), {@linkplain #TIMEOUT} or {@linkplain #ERROR} if the subpacket is damaged
+	 * or longer than the buffer
+	 * @throws IOException on any I/O errors
+	 * @throws TransferException if transfer is cancelled by the peer
+	 */
+	int receiveData(final ByteBuffer dst) throws IOException {
+		dst.clear();
+		for (;;) {
+			final int	c = readEscaped();
+
+			if (c < 0) {
+				return c;
+			}
+			else if ((c & FRAME_END) != 0) {
+				final int	frameEnd = c & 0xFF;
+
+				dst.flip();
+				if (crc32Data) {
+					crc32.reset();
+					crc32.update(dst);
+					dst.position(0);
+					crc32.update(frameEnd);
+					return readCrc32() == (int)crc32.getValue() ? frameEnd : ERROR;
+				}
+				else {
+					return readCrc16() == Crc16.update(Crc16.update(0, dst, 0, dst.limit()), frameEnd) ? frameEnd : ERROR;
+				}
+			}
+			else if (!dst.hasRemaining()) {
+				return ERROR;
+			}
+			else {
+				dst.put((byte)c);
+			}
+		}
+	}
+
+	private int readHeaderBody() throws IOException {
+		int		c;
+
+		while ((c = link.read(CHAR_TIMEOUT)) == ZPAD) {
+			// skip padding
+		}
+		if (c != ZDLE) {
+			return c == TIMEOUT ? TIMEOUT : NONE;	// ZPAD in the data stream
+		}
+		else {
+			switch (link.read(CHAR_TIMEOUT)) {
+				case ZBIN	: return readBinaryHeader(false);
+				case ZBIN32	: return readBinaryHeader(true);
+				case ZHEX	: return readHexHeader();
+				case TIMEOUT: return TIMEOUT;
+				default		: return NONE;
+			}
+		}
+	}
+
+	private int readBinaryHeader(final boolean crc32Header) throws IOException {
+		for (int index = 0; index < header.length; index++) {
+			final int	c = readEscaped();
+
+			if (c < 0 || (c & FRAME_END) != 0) {
+				return c < 0 ? c : ERROR;
+			}
+			else {
+				header[index] = (byte)c;
+			}
+		}
+		if (crc32Header) {
+			crc32.reset();
+			crc32.update(header, 0, header.length);
+			if (readCrc32() != (int)crc32.getValue()) {
+				return ERROR;
+			}
+		}
+		else {
+			int		crc = 0;
+
+			for (byte item : header) {
+				crc = Crc16.update(crc, item & 0xFF);
+			}
+			if (readCrc16() != crc) {
+				return ERROR;
+			}
+		}
+		crc32Data = crc32Header;
+		return header[0] & 0xFF;
+	}
+
+	private int readHexHeader() throws IOException {
+		int		crc = 0;
+
+		for (int index = 0; index < header.length; index++) {
+			final int	c = readHex();
+
+			if (c < 0) {
+				return c;
+			}
+			else {
+				header[index] = (byte)c;
+				crc = Crc16.update(crc, c);
+			}
+		}
+		final int	high = readHex(), low = readHex();
+
+		if (high < 0 || low < 0 || ((high << 8) | low) != crc) {
+			return ERROR;
+		}
+		else {
+			final int	c = link.read(CHAR_TIMEOUT);
+
+			if ((c & 0x7F) == '\r') {
+				link.read(CHAR_TIMEOUT);		// LF, XON is skipped by the next header scan
+			}
+			crc32Data = false;
+			return header[0] & 0xFF;
+		}
+	}
+
+	private int readHex() throws IOException {
+		final int	high = hexDigit(link.read(CHAR_TIMEOUT)), low = hexDigit(link.read(CHAR_TIMEOUT));
+
+		return high < 0 || low < 0 ? ERROR : (high << 4) | low;
+	}
+
+	private static int hexDigit(final int c) {
+		if (c >= '0' && c <= '9') {
+			return c - '0';
+		}
+		else if (c >= 'a' && c <= 'f') {
+			return c - 'a' + 10;
+		}
+		else if (c >= 'A' && c <= 'F') {
+			return c - 'A' + 10;
+		}
+		else {
+			return -1;
+		}
+	}
+
+	private int readCrc16() throws IOException {
+		final int	high = readEscaped(), low = readEscaped();
+
+		return high < 0 || low < 0 || ((high | low) & FRAME_END) != 0 ? -1 : (high << 8) | low;
+	}
+
+	private int readCrc32() throws IOException {
+		int		value = 0;
+
+		for (int index = 0; index < 4; index++) {
+			final int	c = readEscaped();
+
+			if (c < 0 || (c & FRAME_END) != 0) {
+				return ~(int)crc32.getValue();		// never matches
+			}
+			else {
+				value |= c << (8 * index);
+			}
+		}
+		return value;
+	}
+
+	private int readEscaped() throws IOException {
+		for (;;) {
+			int		c = link.read(CHAR_TIMEOUT);
+
+			if (c == TIMEOUT) {
+				return TIMEOUT;
+			}
+			else if (c == ZDLE) {
+				int		cans = 1;
+
+				while ((c = link.read(CHAR_TIMEOUT)) == PortLink.CAN || c != TIMEOUT && ((c & 0x7F) == XON || (c & 0x7F) == XOFF)) {
+					if (c == PortLink.CAN && ++cans >= CANCEL_LENGTH) {
+						throw new TransferException("Transfer cancelled by peer");
+					}
+				}
+				switch (c) {
+					case TIMEOUT	: return TIMEOUT;
+					case ZCRCE : case ZCRCG : case ZCRCQ : case ZCRCW :
+						return cans == 1 ? c | FRAME_END : ERROR;
+					case ZRUB0		: return 0x7F;
+					case ZRUB1		: return 0xFF;
+					default :
+						if (cans == 1 && (c & 0x60) == 0x40) {
+							return c ^ 0x40;
+						}
+						else {
+							return ERROR;
+						}
+				}
+			}
+			else if ((c & 0x7F) != XON && (c & 0x7F) != XOFF) {
+				return c;
+			}
+		}
+	}
+
+	private void fillHeader(final int type, final long value) {
+		header[0] = (byte)type;
+		header[1] = (byte)value;
+		header[2] = (byte)(value >> 8);
+		header[3] = (byte)(value >> 16);
+		header[4] = (byte)(value >> 24);
+	}
+
+	private void putHex(final int value) throws IOException {
+		link.put(HEX[(value >> 4) & 0x0F]);
+		link.put(HEX[value & 0x0F]);
+	}
+
+	private void putCrc16(final int crc) throws IOException {
+		putEscaped((crc >> 8) & 0xFF);
+		putEscaped(crc & 0xFF);
+	}
+
+	private void putCrc32(final int crc) throws IOException {
+		for (int index = 0; index < 4; index++) {
+			putEscaped((crc >> (8 * index)) & 0xFF);
+		}
+	}
+
+	private void putEscaped(final int value) throws IOException {
+		if (ESCAPED[value] || (value & 0x7F) == '\r' && (lastSent & 0x7F) == '@') {
+			link.put(ZDLE);
+			link.put(value ^ 0x40);
+		}
+		else {
+			link.put(value);
+		}
+		lastSent = value;
+	}
+}
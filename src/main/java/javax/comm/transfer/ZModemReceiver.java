@@ -0,0 +1,284 @@
+package javax.comm.transfer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.comm.SerialPort;
+
+/**
+ * <p>Receiver of the ZMODEM protocol.</p>
+ *
+ * <p>Receiver announces full duplex streaming with overlapped I/O and CRC-32, so the sender streams data without stops and waits only for
+ * acknowledgements it asks for. Damaged subpackets are reported by ZRPOS with the position of the last data written, and the sender
+ * restarts from it. Every subpacket is received into the reused direct buffer and written to the file by the positional write, so the
+ * file is never buffered whole.</p>
+ *
+ * <p>Files are written to the target directory with the names received (only the last component of the name is used). With resume on,
+ * or when the sender asks for it (ZCRESUM), the existing file is continued from its length, and the file already complete is skipped.
+ * Otherwise existing files are overwritten.</p>
+ *
+ * <p>This class is not thread-safe. Nobody else must read or write the port while transfer is in progress.</p>
+ *
+ * @see ZModemSender
+ * @since 0.0.1
+ */
+public class ZModemReceiver {
+	private static final TransferListener	NO_LISTENER = new TransferListener() {};
+	private static final int	RECEIVER_FLAGS = ZModem.CANFDX | ZModem.CANOVIO | ZModem.CANFC32;
+
+	private final SerialPort	port;
+	private final boolean		resume;
+	private final ByteBuffer	data = ByteBuffer.allocateDirect(ZModem.MAX_SUBPACKET_SIZE);
+
+	/**
+	 * <p>Constructor of the class. Resume is off</p>
+	 * @param port port to receive files from. Can't be null
+	 * @throws IllegalArgumentException if port is null
+	 */
+	public ZModemReceiver(final SerialPort port) throws IllegalArgumentException {
+		this(port, false);
+	}
+
+	/**
+	 * <p>Constructor of the class</p>
+	 * @param port port to receive files from. Can't be null
+	 * @param resume continue existing files
+	 * @throws IllegalArgumentException if port is null
+	 */
+	public ZModemReceiver(final SerialPort port, final boolean resume) throws IllegalArgumentException {
+		if (port == null) {
+			throw new IllegalArgumentException("Port can't be null");
+		}
+		else {
+			this.port = port;
+			this.resume = resume;
+		}
+	}
+
+	/**
+	 * <p>Receives batch of files</p>
+	 * @param directory directory to write files to. Can't be null
+	 * @param listener transfer progress listener. Can be null
+	 * @return paths of the files received, including files skipped as complete. Can't be null
+	 * @throws IOException on any I/O errors
+	 * @throws TransferException if transfer is cancelled by sender or failed
+	 * @throws IllegalArgumentException if directory is null or is not a directory
+	 */
+	public List<Path> receive(final Path directory, final TransferListener listener) throws IOException, IllegalArgumentException {
+		if (directory == null || !Files.isDirectory(directory)) {
+			throw new IllegalArgumentException("Directory ["+directory+"] is null or is not a directory");
+		}
+		else {
+			try(final PortLink	link = new PortLink(port, 64)) {
+				final ZModem	zm = new ZModem(link);
+
+				try {
+					return new Session(link, zm, directory, listener == null ? NO_LISTENER : listener).run();
+				} catch (IOException exc) {
+					link.cancel();
+					throw exc;
+				}
+			}
+		}
+	}
+
+	private class Session {
+		private final PortLink			link;
+		private final ZModem			zm;
+		private final Path				directory;
+		private final TransferListener	listener;
+		private final List<Path>		result = new ArrayList<>();
+		private FileChannel				target = null;
+		private Path					path;
+		private String					name;
+		private long					size;
+		private long					modified;
+		private long					position;
+		private int						errors = 0;
+
+		private Session(final PortLink link, final ZModem zm, final Path directory, final TransferListener listener) {
+			this.link = link;
+			this.zm = zm;
+			this.directory = directory;
+			this.listener = listener;
+		}
+
+		private List<Path> run() throws IOException {
+			try {
+				zm.sendHexHeader(ZModem.ZRINIT, (long)RECEIVER_FLAGS << 24);
+				for (;;) {
+					final int	type = zm.receiveHeader(ZModem.HEADER_TIMEOUT);
+
+					switch (type) {
+						case ZModem.TIMEOUT : case ZModem.ERROR :
+							countError();
+							requestData();
+							break;
+						case ZModem.ZRQINIT	:
+							if (target == null) {
+								zm.sendHexHeader(ZModem.ZRINIT, (long)RECEIVER_FLAGS << 24);
+							}
+							break;
+						case ZModem.ZSINIT	:
+							if (zm.receiveData(data) < 0) {
+								zm.sendHexHeader(ZModem.ZNAK, 0);
+							}
+							else {
+								zm.sendHexHeader(ZModem.ZACK, 0);
+							}
+							break;
+						case ZModem.ZFILE	:
+							receiveFileInfo();
+							break;
+						case ZModem.ZDATA	:
+							receiveFileData();
+							break;
+						case ZModem.ZEOF	:
+							if (target == null) {
+								zm.sendHexHeader(ZModem.ZRINIT, (long)RECEIVER_FLAGS << 24);
+							}
+							else if (zm.getValue() == position) {
+								completeFile();
+								zm.sendHexHeader(ZModem.ZRINIT, (long)RECEIVER_FLAGS << 24);
+							}
+							else {
+								requestData();
+							}
+							break;
+						case ZModem.ZFIN	:
+							zm.sendHexHeader(ZModem.ZFIN, 0);
+							link.read(ZModem.CHAR_TIMEOUT);		// "OO"
+							link.read(ZModem.CHAR_TIMEOUT);
+							return result;
+						case ZModem.ZCHALLENGE	:
+							zm.sendHexHeader(ZModem.ZACK, zm.getValue());
+							break;
+						case ZModem.ZFREECNT	:
+							zm.sendHexHeader(ZModem.ZACK, 0);
+							break;
+						case ZModem.ZCAN : case ZModem.ZABORT :
+							throw new TransferException("Transfer cancelled by sender");
+						case ZModem.ZCOMMAND	:
+							throw new TransferException("Remote commands are not supported");
+						default :
+					}
+				}
+			} finally {
+				if (target != null) {
+					target.close();
+				}
+			}
+		}
+
+		private void receiveFileInfo() throws IOException {
+			final boolean	resumeRequested = resume || zm.getFlags() == ZModem.ZCRESUM;
+
+			if (zm.receiveData(data) < 0) {
+				zm.sendHexHeader(ZModem.ZNAK, 0);
+			}
+			else if (target != null) {
+				zm.sendHexHeader(ZModem.ZRPOS, position);		// repeated offer of the current file
+			}
+			else {
+				final byte[]	info = new byte[data.remaining()];
+
+				data.get(info);
+
+				final String[]	fields = XModem.getFileFields(info);
+
+				name = XModem.getFileName(info);
+				size = XModem.parseField(fields, 0, 10);
+				modified = XModem.parseField(fields, 1, 8);
+				path = TransferFile.resolve(directory, name);
+
+				final long	existing = resumeRequested && Files.exists(path) ? Files.size(path) : 0;
+
+				if (resumeRequested && size >= 0 && Files.exists(path) && existing >= size) {
+					listener.fileCompleted(name, existing);
+					result.add(path);
+					zm.sendHexHeader(ZModem.ZSKIP, 0);
+				}
+				else {
+					target = resumeRequested
+							? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)
+							: FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+					position = existing;
+					listener.fileStarted(name, size, position);
+					zm.sendHexHeader(ZModem.ZRPOS, position);
+				}
+			}
+		}
+
+		private void receiveFileData() throws IOException {
+			if (target == null) {
+				zm.sendHexHeader(ZModem.ZNAK, 0);
+			}
+			else if (zm.getValue() != position) {
+				requestData();
+			}
+			else {
+				for (;;) {
+					final int	frameEnd = zm.receiveData(data);
+
+					if (frameEnd < 0) {
+						countError();
+						requestData();
+						return;
+					}
+					else {
+						while (data.hasRemaining()) {
+							position += target.write(data, position);
+						}
+						errors = 0;
+						listener.progress(name, position, size);
+						switch (frameEnd) {
+							case ZModem.ZCRCQ	:
+								zm.sendHexHeader(ZModem.ZACK, position);
+								break;
+							case ZModem.ZCRCW	:
+								zm.sendHexHeader(ZModem.ZACK, position);
+								return;
+							case ZModem.ZCRCE	:
+								return;
+							default :
+						}
+					}
+				}
+			}
+		}
+
+		private void countError() throws TransferException {
+			if (++errors > ZModem.MAX_RETRIES) {
+				throw new TransferException("Retry limit exceeded");
+			}
+		}
+
+		private void requestData() throws IOException {
+			link.discard();
+			if (target == null) {
+				zm.sendHexHeader(ZModem.ZRINIT, (long)RECEIVER_FLAGS << 24);
+			}
+			else {
+				zm.sendHexHeader(ZModem.ZRPOS, position);
+			}
+		}
+
+		private void completeFile() throws IOException {
+			target.truncate(position);
+			target.close();
+			target = null;
+			if (modified > 0) {
+				Files.setLastModifiedTime(path, FileTime.fromMillis(modified * 1000));
+			}
+			listener.fileCompleted(name, position);
+			result.add(path);
+		}
+	}
+}
@@ -0,0 +1,416 @@
+package javax.comm.transfer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import javax.comm.SerialPort;
+
+/**
+ * <p>Sender of the ZMODEM protocol.</p>
+ *
+ * <p>File data are streamed to the receiver without waiting for acknowledgements. Data subpackets ask the receiver for acknowledgement
+ * (ZCRCQ) every quarter of the window, and sender pauses when the amount of data not acknowledged reaches the window size, so the
+ * line is always busy while the receiver keeps up, and the data to resend after the error is bounded by the window. Window size 0 turns
+ * the window off. Receivers with limited buffer or without overlapped I/O get ZCRCW subpackets at their buffer boundaries. Errors
+ * reported by the receiver (ZRPOS) restart transfer from the position requested. Subpacket size is halved on every error and is doubled
+ * on every acknowledgement, so the noisy line loses less data per error. With resume on, sender asks the receiver to continue
+ * the existing file (ZCRESUM), and the receiver decides the position to start from.</p>
+ *
+ * <p>Every subpacket is read from the file directly into the reused direct buffer by the positional read, so the file is never buffered
+ * whole. Headers use CRC-32, if the receiver supports it, and CRC-16 otherwise.</p>
+ *
+ * <p>This class is not thread-safe. Nobody else must read or write the port while transfer is in progress.</p>
+ *
+ * @see ZModemReceiver
+ * @since 0.0.1
+ */
+public class ZModemSender {
+	/**
+	 * <p>Default window size</p>
+	 */
+	public static final int		DEFAULT_WINDOW_SIZE = 16384;
+
+	private static final TransferListener	NO_LISTENER = new TransferListener() {};
+	private static final int	OUTPUT_SIZE = 8192;
+	private static final int	MIN_BLOCK_SIZE = 64;
+	private static final byte[]	RZ_COMMAND = "rz\r".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[]	OVER_AND_OUT = "OO".getBytes(StandardCharsets.US_ASCII);
+
+	private final SerialPort	port;
+	private final int			windowSize;
+	private final boolean		resume;
+	private final ByteBuffer	block = ByteBuffer.allocateDirect(ZModem.SUBPACKET_SIZE);
+	private final ByteBuffer	info = ByteBuffer.allocateDirect(ZModem.SUBPACKET_SIZE);
+	private int					receiverBuffer;
+	private int					blockSize = ZModem.SUBPACKET_SIZE;
+
+	/**
+	 * <p>Constructor of the class. Default window size is used, resume is off</p>
+	 * @param port port to send files to. Can't be null
+	 * @throws IllegalArgumentException if port is null
+	 */
+	public ZModemSender(final SerialPort port) throws IllegalArgumentException {
+		this(port, DEFAULT_WINDOW_SIZE, false);
+	}
+
+	/**
+	 * <p>Constructor of the class</p>
+	 * @param port port to send files to. Can't be null
+	 * @param windowSize maximal size of the data not acknowledged. 0 turns the window off
+	 * @param resume ask receiver to continue existing files
+	 * @throws IllegalArgumentException if port is null or window size is negative or less than subpacket size
+	 */
+	public ZModemSender(final SerialPort port, final int windowSize, final boolean resume) throws IllegalArgumentException {
+		if (port == null) {
+			throw new IllegalArgumentException("Port can't be null");
+		}
+		else if (windowSize < 0 || windowSize > 0 && windowSize < ZModem.SUBPACKET_SIZE) {
+			throw new IllegalArgumentException("Window size ["+windowSize+"] must be 0 or not less than "+ZModem.SUBPACKET_SIZE);
+		}
+		else {
+			this.port = port;
+			this.windowSize = windowSize;
+			this.resume = resume;
+		}
+	}
+
+	/**
+	 * <p>Sends file</p>
+	 * @param file file to send. Can't be null
+	 * @param listener transfer progress listener. Can be null
+	 * @return true if the file was accepted, false if the receiver skipped it
+	 * @throws IOException on any I/O errors
+	 * @throws TransferException if transfer is cancelled by receiver or failed
+	 * @throws IllegalArgumentException if file is null
+	 */
+	public boolean send(final TransferFile file, final TransferListener listener) throws IOException, IllegalArgumentException {
+		if (file == null) {
+			throw new IllegalArgumentException("File can't be null");
+		}
+		else {
+			return send(Collections.singletonList(file), listener) == 1;
+		}
+	}
+
+	/**
+	 * <p>Sends batch of files</p>
+	 * @param files files to send. Can't be null or empty and can't contain nulls
+	 * @param listener transfer progress listener. Can be null
+	 * @return number of files accepted by the receiver. Files skipped by the receiver are not counted
+	 * @throws IOException on any I/O errors
+	 * @throws TransferException if transfer is cancelled by receiver or failed
+	 * @throws IllegalArgumentException if files list is invalid
+	 */
+	public int send(final List<TransferFile> files, final TransferListener listener) throws IOException, IllegalArgumentException {
+		if (files == null || files.isEmpty()) {
+			throw new IllegalArgumentException("Files list can't be null or empty");
+		}
+		else {
+			long	totalLeft = 0;
+
+			for (TransferFile file : files) {
+				if (file == null) {
+					throw new IllegalArgumentException("Files list can't contain nulls");
+				}
+				else if (XModem.getFileInfoLength(file) > ZModem.SUBPACKET_SIZE) {
+					throw new IllegalArgumentException("File name ["+file.getName()+"] is too long");
+				}
+				else {
+					totalLeft += file.getSize();
+				}
+			}
+			final TransferListener	l = listener == null ? NO_LISTENER : listener;
+
+			try(final PortLink	link = new PortLink(port, OUTPUT_SIZE)) {
+				final ZModem	zm = new ZModem(link);
+
+				try {
+					int		accepted = 0, filesLeft = files.size();
+
+					awaitReceiver(link, zm);
+					for (TransferFile file : files) {
+						if (sendFile(link, zm, file, filesLeft--, totalLeft, l)) {
+							accepted++;
+						}
+						totalLeft -= file.getSize();
+					}
+					finish(link, zm);
+					return accepted;
+				} catch (IOException exc) {
+					link.cancel();
+					throw exc;
+				}
+			}
+		}
+	}
+
+	private void awaitReceiver(final PortLink link, final ZModem zm) throws IOException {
+		link.write(ByteBuffer.wrap(RZ_COMMAND));
+		for (int retry = 0; retry < ZModem.MAX_RETRIES; retry++) {
+			zm.sendHexHeader(ZModem.ZRQINIT, 0);
+			for (;;) {
+				final int	type = zm.receiveHeader(ZModem.HEADER_TIMEOUT);
+
+				if (type == ZModem.ZRINIT) {
+					final int	flags = zm.getFlags();
+
+					zm.setSendCrc32((flags & ZModem.CANFC32) != 0);
+					receiverBuffer = (int)(zm.getValue() & 0xFFFF);
+					if (receiverBuffer == 0 && (flags & ZModem.CANOVIO) == 0) {
+						receiverBuffer = ZModem.SUBPACKET_SIZE;		// receiver can't receive while writing
+					}
+					return;
+				}
+				else if (type == ZModem.ZCHALLENGE) {
+					zm.sendHexHeader(ZModem.ZACK, zm.getValue());
+				}
+				else if (type == ZModem.ZCAN || type == ZModem.ZABORT) {
+					throw new TransferException("Transfer cancelled by receiver");
+				}
+				else if (type == ZModem.TIMEOUT || type == ZModem.ZNAK) {
+					break;
+				}
+			}
+		}
+		throw new TransferException("Receiver didn't start transfer");
+	}
+
+	private boolean sendFile(final PortLink link, final ZModem zm, final TransferFile file, final int filesLeft, final long totalLeft, final TransferListener listener) throws IOException {
+		try(final TransferFile.Reader	reader = file.open()) {
+			final long	start = offerFile(link, zm, file, filesLeft, totalLeft);
+
+			if (start < 0) {
+				return false;
+			}
+			else {
+				final String	name = file.getName();
+				final long		size = file.getSize();
+				long			position = start, restart = start;
+
+				listener.fileStarted(name, size, start);
+				for (int retry = 0; retry < ZModem.MAX_RETRIES; retry++) {
+					if ((position = streamData(link, zm, reader, name, size, position, listener)) < 0) {
+						return false;
+					}
+					zm.sendBinaryHeader(ZModem.ZEOF, size);
+					link.flush();
+					for (;;) {
+						final int	type = zm.receiveHeader(ZModem.HEADER_TIMEOUT);
+
+						if (type == ZModem.ZRINIT) {
+							listener.fileCompleted(name, size);
+							return true;
+						}
+						else if (type == ZModem.ZSKIP) {
+							return false;
+						}
+						else if (type == ZModem.ZRPOS) {
+							if (zm.getValue() > restart) {
+								retry = -1;		// progress made, count retries again
+							}
+							restart = position = zm.getValue();
+							blockSize = Math.max(MIN_BLOCK_SIZE, blockSize / 2);
+							break;
+						}
+						else if (type == ZModem.ZCAN || type == ZModem.ZABORT || type == ZModem.ZFERR) {
+							throw new TransferException("Transfer cancelled by receiver");
+						}
+						else if (type == ZModem.TIMEOUT) {
+							break;
+						}
+					}
+				}
+				throw new TransferException("End of file ["+name+"] is not acknowledged");
+			}
+		}
+	}
+
+	private long offerFile(final PortLink link, final ZModem zm, final TransferFile file, final int filesLeft, final long totalLeft) throws IOException {
+		info.clear();
+		XModem.putFileInfo(info, file);
+		if (file.getLastModified() <= 0) {
+			info.put((byte)' ').put((byte)'0');
+		}
+		info.put((" 0 0 "+filesLeft+" "+totalLeft).getBytes(StandardCharsets.US_ASCII)).put((byte)0).flip();
+
+		boolean	initSeen = false;
+
+		for (int retry = 0; retry < ZModem.MAX_RETRIES; retry++) {
+			zm.sendBinaryHeader(ZModem.ZFILE, (long)(resume ? ZModem.ZCRESUM : ZModem.ZCBIN) << 24);
+			zm.sendData(info, ZModem.ZCRCW);
+			link.flush();
+			for (;;) {
+				final int	type = zm.receiveHeader(initSeen ? ZModem.CHAR_TIMEOUT : ZModem.HEADER_TIMEOUT);
+
+				if (type == ZModem.ZRPOS) {
+					return Math.min(zm.getValue(), file.getSize());
+				}
+				else if (type == ZModem.ZSKIP) {
+					return -1;
+				}
+				else if (type == ZModem.ZCRC) {
+					zm.sendHexHeader(ZModem.ZCRC, 0);		// file CRC is not calculated, receiver must not rely on it
+				}
+				else if (type == ZModem.ZCAN || type == ZModem.ZABORT || type == ZModem.ZFERR) {
+					throw new TransferException("Transfer cancelled by receiver");
+				}
+				else if (type == ZModem.ZRINIT && !initSeen) {
+					initSeen = true;		// receiver answers both its start and ZRQINIT, so the answer to the offer can follow
+				}
+				else if (type == ZModem.TIMEOUT || type == ZModem.ZNAK || type == ZModem.ZRINIT) {
+					initSeen = false;
+					break;
+				}
+			}
+		}
+		throw new TransferException("File ["+file.getName()+"] is not accepted by receiver");
+	}
+
+	private long streamData(final PortLink link, final ZModem zm, final TransferFile.Reader reader, final String name, final long size, final long from, final TransferListener listener) throws IOException {
+		final int	ackInterval = windowSize > 0 ? windowSize / 4 : 0;
+		long		position = from, acked = from, lastQuery = from, segment = from;
+		int			timeouts = 0;
+
+		if (position >= size) {
+			return position;
+		}
+		zm.sendBinaryHeader(ZModem.ZDATA, position);
+		for (;;) {
+			int		type = zm.pollHeader();
+
+			if (type == ZModem.NONE && windowSize > 0 && position - acked >= windowSize) {
+				link.flush();
+				if ((type = zm.receiveHeader(ZModem.HEADER_TIMEOUT)) == ZModem.TIMEOUT) {
+					if (++timeouts > ZModem.MAX_RETRIES) {
+						throw new TransferException("Data are not acknowledged by receiver");
+					}
+					else {							// resend from the last position acknowledged
+						zm.sendData(block.clear().limit(0), ZModem.ZCRCE);
+						position = acked;
+						zm.sendBinaryHeader(ZModem.ZDATA, position);
+						lastQuery = segment = position;
+						continue;
+					}
+				}
+			}
+			switch (type) {
+				case ZModem.ZACK	:
+					acked = Math.max(acked, Math.min(zm.getValue(), position));
+					blockSize = Math.min(ZModem.SUBPACKET_SIZE, blockSize * 2);
+					timeouts = 0;
+					continue;
+				case ZModem.ZRPOS	:
+					blockSize = Math.max(MIN_BLOCK_SIZE, blockSize / 2);
+					zm.sendData(block.clear().limit(0), ZModem.ZCRCE);
+					position = acked = Math.min(zm.getValue(), size);
+					lastQuery = segment = position;
+					if (position >= size) {
+						return position;
+					}
+					zm.sendBinaryHeader(ZModem.ZDATA, position);
+					continue;
+				case ZModem.ZSKIP	:
+					return -1;
+				case ZModem.ZCAN : case ZModem.ZABORT : case ZModem.ZFERR :
+					throw new TransferException("Transfer cancelled by receiver");
+				default :
+			}
+			if (windowSize > 0 && position - acked >= windowSize) {
+				continue;		// wait for acknowledgement
+			}
+			block.clear().limit((int)Math.min(blockSize, size - position));
+			final int	read = reader.read(block, position);
+
+			if (read == 0) {
+				throw new TransferException("File ["+name+"] is shorter than its size");
+			}
+			block.flip();
+			position += read;
+
+			final int	frameEnd;
+
+			if (position >= size) {
+				frameEnd = ZModem.ZCRCE;
+			}
+			else if (receiverBuffer > 0 && position - segment >= receiverBuffer) {
+				frameEnd = ZModem.ZCRCW;
+			}
+			else if (ackInterval > 0 && position - lastQuery >= ackInterval) {
+				frameEnd = ZModem.ZCRCQ;
+				lastQuery = position;
+			}
+			else {
+				frameEnd = ZModem.ZCRCG;
+			}
+			zm.sendData(block, frameEnd);
+			listener.progress(name, position, size);
+			if (frameEnd == ZModem.ZCRCE) {
+				link.flush();
+				return position;
+			}
+			else if (frameEnd == ZModem.ZCRCW) {
+				link.flush();
+				if ((position = awaitSegmentAck(zm, segment, position)) < 0) {
+					return -1;
+				}
+				else if (position > segment) {
+					timeouts = 0;
+				}
+				else if (++timeouts > ZModem.MAX_RETRIES) {		// segment is resent without any progress
+					throw new TransferException("Data are not acknowledged by receiver");
+				}
+				segment = lastQuery = acked = position;
+				if (position >= size) {
+					return position;
+				}
+				zm.sendBinaryHeader(ZModem.ZDATA, position);
+			}
+			else if (frameEnd == ZModem.ZCRCQ) {
+				link.flush();
+			}
+		}
+	}
+
+	private long awaitSegmentAck(final ZModem zm, final long segment, final long position) throws IOException {
+		for (int retry = 0; retry < ZModem.MAX_RETRIES; retry++) {
+			final int	type = zm.receiveHeader(ZModem.HEADER_TIMEOUT);
+
+			if (type == ZModem.ZACK) {
+				return position;
+			}
+			else if (type == ZModem.ZRPOS) {
+				return zm.getValue();
+			}
+			else if (type == ZModem.TIMEOUT) {
+				return segment;		// resend the segment
+			}
+			else if (type == ZModem.ZSKIP) {
+				return -1;
+			}
+			else if (type == ZModem.ZCAN || type == ZModem.ZABORT || type == ZModem.ZFERR) {
+				throw new TransferException("Transfer cancelled by receiver");
+			}
+		}
+		throw new TransferException("Data are not acknowledged by receiver");
+	}
+
+	private static void finish(final PortLink link, final ZModem zm) throws IOException {
+		for (int retry = 0; retry < ZModem.MAX_RETRIES; retry++) {
+			zm.sendHexHeader(ZModem.ZFIN, 0);
+
+			final int	type = zm.receiveHeader(ZModem.HEADER_TIMEOUT);
+
+			if (type == ZModem.ZFIN) {
+				link.write(ByteBuffer.wrap(OVER_AND_OUT));
+				return;
+			}
+			else if (type == ZModem.ZCAN || type == ZModem.ZABORT) {
+				throw new TransferException("Transfer cancelled by receiver");
+			}
+		}
+		throw new TransferException("End of session is not acknowledged");
+	}
+}
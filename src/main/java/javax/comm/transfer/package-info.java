@@ -0,0 +1,11 @@
+/**
+ * <p>This package contains file transfer protocols over the serial port. {@linkplain javax.comm.transfer.XModemSender} and
+ * {@linkplain javax.comm.transfer.XModemReceiver} implement XMODEM, XMODEM-1K, YMODEM and streaming YMODEM-g protocols,
+ * {@linkplain javax.comm.transfer.ZModemSender} and {@linkplain javax.comm.transfer.ZModemReceiver} implement streaming ZMODEM with
+ * windowed acknowledgements and resume of the interrupted transfers. Files are streamed from and to the {@linkplain java.nio.channels.FileChannel}
+ * or memory-mapped buffer block by block through the reused direct buffers, so files are never buffered whole and transfer doesn't
+ * allocate memory per block. CRC-16 is table-driven, CRC-32 uses {@linkplain java.util.zip.CRC32}.</p>
+ *
+ * @since 0.0.1
+ */
+package javax.comm.transfer;
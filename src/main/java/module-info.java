@@ -1,4 +1,12 @@
 module javax.comm {
+	requires java.management;
+	requires static jdk.jfr;
 	exports javax.comm;
+	exports javax.comm.spi;
+	exports javax.comm.loopback;
+	exports javax.comm.framing;
+	exports javax.comm.capture;
+	exports javax.comm.transfer;
 	uses javax.comm.CommDriver;
+	provides javax.comm.CommDriver with javax.comm.linux.LinuxCommDriver, javax.comm.loopback.LoopbackCommDriver, javax.comm.capture.ReplayCommDriver;
 }
@@ -0,0 +1,108 @@
+package javax.comm;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.loopback.LoopbackPair;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncCommChannelTest {
+	private LoopbackPair	pair;
+
+	@Before
+	public void prepare() throws Exception {
+		pair = LoopbackPair.open(false, 1024);
+	}
+
+	@After
+	public void release() {
+		if (pair != null) {
+			pair.close();
+		}
+	}
+
+	@Test
+	public void writeLargerThanRingTest() throws Exception {
+		final ByteBuffer					src = ByteBuffer.allocate(4096);
+
+		while (src.hasRemaining()) {
+			src.put((byte)src.position());
+		}
+		src.flip();
+		final CompletableFuture<Integer>	write = pair.a.getAsyncChannel().write(src);
+		final byte[]						received = new byte[4096];
+		final InputStream					is = pair.b.getInputStream();
+		int									total = 0;
+
+		Thread.sleep(50);
+		Assert.assertFalse(write.isDone());		// peer ring is full
+		while (total < received.length) {
+			total += is.read(received, total, Math.min(100, received.length - total));	// read slowly to free the ring by parts
+		}
+		Assert.assertEquals(4096, write.get(2, TimeUnit.SECONDS).intValue());
+		for (int index = 0; index < received.length; index++) {
+			Assert.assertEquals((byte)index, received[index]);
+		}
+	}
+
+	@Test
+	public void blockedPortDoesntStallOthersTest() throws Exception {
+		pair.a.setFlowControlMode(SerialPort.FLOWCONTROL_RTSCTS_OUT);
+		pair.b.setRTS(false);
+
+		final CompletableFuture<Integer>	blocked = pair.a.getAsyncChannel().write(ByteBuffer.wrap(new byte[] {1, 2, 3}));
+
+		try (final LoopbackPair	other = LoopbackPair.open()) {
+			final ByteBuffer	dst = ByteBuffer.allocate(2);
+			final CompletableFuture<Integer>	read = other.b.getAsyncChannel().read(dst);
+
+			Assert.assertEquals(2, other.a.getAsyncChannel().write(ByteBuffer.wrap(new byte[] {4, 5})).get(2, TimeUnit.SECONDS).intValue());
+			Assert.assertEquals(2, read.get(2, TimeUnit.SECONDS).intValue());
+			Assert.assertArrayEquals(new byte[] {4, 5}, dst.array());
+		}
+		Assert.assertFalse(blocked.isDone());
+		Assert.assertEquals(0, pair.b.getInputStream().available());
+
+		pair.b.setRTS(true);
+		Assert.assertEquals(3, blocked.get(2, TimeUnit.SECONDS).intValue());
+		Assert.assertEquals(3, pair.b.getInputStream().available());
+	}
+
+	@Test
+	public void readTimeoutTest() throws Exception {
+		pair.b.enableReceiveTimeout(100);
+
+		final ByteBuffer	dst = ByteBuffer.allocate(4);
+		final long			start = System.nanoTime();
+
+		Assert.assertEquals(0, pair.b.getAsyncChannel().read(dst).get(2, TimeUnit.SECONDS).intValue());
+		Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+
+		pair.b.enableReceiveThreshold(3);
+		final CompletableFuture<Integer>	read = pair.b.getAsyncChannel().read(dst);
+
+		pair.a.getOutputStream().write(new byte[] {1, 2, 3});
+		Assert.assertEquals(3, read.get(2, TimeUnit.SECONDS).intValue());
+	}
+
+	@Test
+	public void closeCompletesPendingTest() throws Exception {
+		final CompletableFuture<Integer>	read = pair.b.getAsyncChannel().read(ByteBuffer.allocate(4));
+
+		pair.b.close();
+		try {
+			read.get(2, TimeUnit.SECONDS);
+			Assert.fail("Mandatory exception was not detected (port is closed)");
+		} catch (ExecutionException exc) {
+			Assert.assertTrue(exc.getCause() instanceof AsynchronousCloseException);
+		}
+	}
+}
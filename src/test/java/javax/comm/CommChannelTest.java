@@ -0,0 +1,125 @@
+package javax.comm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+
+import javax.comm.loopback.LoopbackPair;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommChannelTest {
+	private LoopbackPair	pair;
+
+	@Before
+	public void prepare() throws Exception {
+		pair = LoopbackPair.open();
+	}
+
+	@After
+	public void release() {
+		if (pair != null) {
+			pair.close();
+		}
+	}
+
+	@Test
+	public void directBufferTransferTest() throws IOException {
+		final CommChannel	out = pair.a.getChannel(), in = pair.b.getChannel();
+		final ByteBuffer	src = ByteBuffer.allocateDirect(256), dst = ByteBuffer.allocateDirect(256);
+
+		Assert.assertSame(out, pair.a.getChannel());
+		for (int index = 0; index < src.capacity(); index++) {
+			src.put((byte)index);
+		}
+		src.flip();
+		Assert.assertEquals(256, out.write(src));
+		Assert.assertFalse(src.hasRemaining());
+
+		readFully(in, dst);
+		for (int index = 0; index < dst.capacity(); index++) {
+			Assert.assertEquals((byte)index, dst.get(index));
+		}
+	}
+
+	@Test
+	public void scatterGatherTest() throws IOException {
+		final CommChannel	out = pair.a.getChannel(), in = pair.b.getChannel();
+		final ByteBuffer[]	srcs = {ByteBuffer.wrap(new byte[] {1, 2}), ByteBuffer.allocateDirect(3).put(new byte[] {3, 4, 5}).flip(), ByteBuffer.allocate(0)};
+
+		Assert.assertEquals(5, out.write(srcs));
+
+		final ByteBuffer	first = ByteBuffer.allocate(3), second = ByteBuffer.allocateDirect(2);
+		long				total = 0;
+
+		while (total < 5) {
+			total += in.read(new ByteBuffer[] {first, second});
+		}
+		Assert.assertArrayEquals(new byte[] {1, 2, 3}, first.array());
+		Assert.assertEquals(4, second.get(0));
+		Assert.assertEquals(5, second.get(1));
+
+		try {
+			out.write(srcs, 2, 2);
+			Assert.fail("Mandatory exception was not detected (out of range)");
+		} catch (IndexOutOfBoundsException exc) {
+		}
+	}
+
+	@Test
+	public void streamChannelTest() throws IOException {
+		final StreamCommChannel	out = new StreamCommChannel(pair.a), in = new StreamCommChannel(pair.b);
+		final ByteBuffer		src = ByteBuffer.allocateDirect(5000);	// larger than the internal buffer
+
+		while (src.hasRemaining()) {
+			src.put((byte)src.position());
+		}
+		src.flip();
+		Assert.assertEquals(5000, out.write(src));
+
+		final ByteBuffer	dst = ByteBuffer.allocateDirect(5000);
+
+		readFully(in, dst);
+		Assert.assertEquals((byte)4999, dst.get(4999));
+
+		in.close();
+		Assert.assertFalse(isOwned(pair.nameB));
+		try {
+			in.read(ByteBuffer.allocate(1));
+			Assert.fail("Mandatory exception was not detected (channel is closed)");
+		} catch (ClosedChannelException exc) {
+		}
+	}
+
+	@Test
+	public void closeTest() throws IOException {
+		final CommChannel	channel = pair.a.getChannel();
+
+		Assert.assertTrue(channel.isOpen());
+		channel.close();
+		Assert.assertFalse(channel.isOpen());
+		Assert.assertFalse(isOwned(pair.nameA));
+		try {
+			channel.write(ByteBuffer.allocate(1));
+			Assert.fail("Mandatory exception was not detected (channel is closed)");
+		} catch (ClosedChannelException exc) {
+		}
+	}
+
+	private static boolean isOwned(final String name) throws IOException {
+		try {
+			return CommPortIdentifier.getPortIdentifier(name).isCurrentlyOwned();
+		} catch (NoSuchPortException exc) {
+			throw new IOException(exc);
+		}
+	}
+
+	private static void readFully(final CommChannel channel, final ByteBuffer dst) throws IOException {
+		while (dst.hasRemaining()) {
+			Assert.assertTrue(channel.read(dst) >= 0);
+		}
+	}
+}
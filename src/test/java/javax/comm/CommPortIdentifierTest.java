@@ -0,0 +1,211 @@
+package javax.comm;
+
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.loopback.LoopbackCommDriver;
+import javax.comm.loopback.LoopbackPair;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CommPortIdentifierTest {
+	@Test(timeout = 20000)
+	public void discoveryTest() throws Exception {
+		final Map<String, Long>	startupTimes;
+
+		Assert.assertTrue(CommPortIdentifier.getPortIdentifiers() != null);	// waits for all the drivers
+		startupTimes = CommPortIdentifier.getDriverStartupTimes();
+		Assert.assertTrue(startupTimes.toString(), startupTimes.containsKey(LoopbackCommDriver.class.getName()));
+		for (Long time : startupTimes.values()) {
+			Assert.assertTrue(time >= 0);
+		}
+		try {
+			CommPortIdentifier.getPortIdentifier("NO_SUCH_PORT");
+			Assert.fail("Mandatory exception was not detected (unknown port)");
+		} catch (NoSuchPortException exc) {
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void registryChangesTest() throws Exception {
+		final BlockingQueue<String>		changes = new ArrayBlockingQueue<>(16);
+		final CommPortRegistryListener	listener = (type, cpi)->{
+											if (cpi.getName().startsWith("TEST")) {	// ignore hot-plug changes of real devices
+												changes.add(type+":"+cpi.getName());
+											}
+										};
+
+		CommPortIdentifier.addPortRegistryListener(listener);
+		try {
+			final String[]	names = LoopbackPair.create(false, -1);
+
+			Assert.assertEquals(CommPortRegistryListener.PORT_ADDED+":"+names[0], changes.poll(2, TimeUnit.SECONDS));
+			Assert.assertEquals(CommPortRegistryListener.PORT_ADDED+":"+names[1], changes.poll(2, TimeUnit.SECONDS));
+			Assert.assertEquals(names[0], CommPortIdentifier.getPortIdentifier(names[0]).getName());
+			Assert.assertEquals(CommPortIdentifier.PORT_SERIAL, CommPortIdentifier.getPortIdentifier(names[0]).getPortType());
+			Assert.assertTrue(Collections.list(CommPortIdentifier.getPortIdentifiers()).contains(CommPortIdentifier.getPortIdentifier(names[1])));
+
+			Assert.assertTrue(CommPortIdentifier.removePortName(names[0]));
+			Assert.assertFalse(CommPortIdentifier.removePortName(names[0]));
+			Assert.assertEquals(CommPortRegistryListener.PORT_REMOVED+":"+names[0], changes.poll(2, TimeUnit.SECONDS));
+			try {
+				CommPortIdentifier.getPortIdentifier(names[0]);
+				Assert.fail("Mandatory exception was not detected (port was removed)");
+			} catch (NoSuchPortException exc) {
+			}
+		} finally {
+			CommPortIdentifier.removePortRegistryListener(listener);
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void reRegistrationTest() throws Exception {
+		final String[]				names = LoopbackPair.create(false, -1);
+		final CommPortIdentifier	cpi = CommPortIdentifier.getPortIdentifier(names[0]);
+		final BlockingQueue<Integer>	ownership = new ArrayBlockingQueue<>(16);
+
+		cpi.addPortOwnershipListener(ownership::add);
+		final CommPort	port = cpi.open("first", 1000);
+
+		try {
+			CommPortIdentifier.addPortName(names[0], CommPortIdentifier.PORT_SERIAL, new FailingDriver());
+			Assert.assertSame(cpi, CommPortIdentifier.getPortIdentifier(names[0]));
+			Assert.assertEquals("first", cpi.getCurrentOwner());
+		} finally {
+			port.close();
+		}
+		Assert.assertEquals(CommPortOwnershipListener.PORT_OWNED, ownership.poll(2, TimeUnit.SECONDS).intValue());
+		Assert.assertEquals(CommPortOwnershipListener.PORT_UNOWNED, ownership.poll(2, TimeUnit.SECONDS).intValue());
+		try {
+			cpi.open("second", 100);	// the new driver is used on the next open
+			Assert.fail("Mandatory exception was not detected (driver can't open the port)");
+		} catch (PortInUseException exc) {
+			Assert.assertTrue(exc.getCause() instanceof IllegalStateException);
+		}
+		Assert.assertFalse(cpi.isCurrentlyOwned());
+	}
+
+	@Test(timeout = 20000)
+	public void ownershipContentionTest() throws Exception {
+		final String[]				names = LoopbackPair.create(false, -1);
+		final CommPortIdentifier	cpi = CommPortIdentifier.getPortIdentifier(names[0]);
+		final BlockingQueue<Integer>	owner = new ArrayBlockingQueue<>(16), other = new ArrayBlockingQueue<>(16);
+		final CommPort[]			first = new CommPort[1];
+
+		cpi.addPortOwnershipListener((type)->{
+			owner.add(type);
+			if (type == CommPortOwnershipListener.PORT_OWNERSHIP_REQUESTED) {	// owner is willing to give up the port
+				first[0].close();
+			}
+		});
+		cpi.addPortOwnershipListener(other::add);
+		first[0] = cpi.open("first", 1000);
+		final CommPort	second = cpi.open("second", 1000);
+
+		try {
+			Assert.assertEquals("second", cpi.getCurrentOwner());
+			Assert.assertEquals(Arrays.asList(CommPortOwnershipListener.PORT_OWNED, CommPortOwnershipListener.PORT_OWNERSHIP_REQUESTED
+								, CommPortOwnershipListener.PORT_UNOWNED, CommPortOwnershipListener.PORT_OWNED), new ArrayList<>(owner));
+			// port is closed inside the request callback of the first listener, so the second one is notified about it before the request
+			Assert.assertEquals(Arrays.asList(CommPortOwnershipListener.PORT_OWNED, CommPortOwnershipListener.PORT_UNOWNED
+								, CommPortOwnershipListener.PORT_OWNERSHIP_REQUESTED, CommPortOwnershipListener.PORT_OWNED), new ArrayList<>(other));
+			other.clear();
+		} finally {
+			second.close();
+		}
+		Assert.assertEquals(CommPortOwnershipListener.PORT_UNOWNED, other.poll(2, TimeUnit.SECONDS).intValue());
+		Assert.assertFalse(cpi.isCurrentlyOwned());
+	}
+
+	@Test(timeout = 20000)
+	public void ownerKeepsPortTest() throws Exception {
+		final String[]				names = LoopbackPair.create(false, -1);
+		final CommPortIdentifier	cpi = CommPortIdentifier.getPortIdentifier(names[0]);
+		final BlockingQueue<Integer>	ownership = new ArrayBlockingQueue<>(16);
+
+		Assert.assertEquals("<unknown>", cpi.getCurrentOwner());	// not owned
+
+		final CommPort				port = cpi.open("first", 1000);
+
+		cpi.addPortOwnershipListener(ownership::add);
+		try {
+			cpi.open("second", 200);
+			Assert.fail("Mandatory exception was not detected (owner doesn't give up the port)");
+		} catch (PortInUseException exc) {
+			Assert.assertEquals("first", exc.currentOwner);
+		}
+		Assert.assertEquals(CommPortOwnershipListener.PORT_OWNERSHIP_REQUESTED, ownership.poll(2, TimeUnit.SECONDS).intValue());
+		Assert.assertEquals("first", cpi.getCurrentOwner());
+
+		final Thread	closer = new Thread(()->{
+							try {
+								Thread.sleep(200);
+							} catch (InterruptedException exc) {
+							}
+							port.close();
+						});
+
+		closer.start();
+		final CommPort	second = cpi.open("second", 5000);	// waits for release by the owner
+
+		try {
+			Assert.assertEquals("second", cpi.getCurrentOwner());
+		} finally {
+			second.close();
+			closer.join();
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void lockFileLockedByThisApplicationTest() throws Exception {
+		final Path		dir = Files.createTempDirectory("javaxcomm");
+		final Path		device = Files.createFile(dir.resolve("ttyTEST0"));
+		final String	oldLockDir = System.getProperty(CommPortIdentifier.LOCK_DIR_PROPERTY);
+
+		System.setProperty(CommPortIdentifier.LOCK_DIR_PROPERTY, dir.toString());
+		try (final FileChannel	fc = FileChannel.open(dir.resolve("LCK..ttyTEST0"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			 final FileLock		lock = fc.lock()) {
+			CommPortIdentifier.addPortName(device.toString(), CommPortIdentifier.PORT_SERIAL, new FailingDriver());
+			try {
+				CommPortIdentifier.getPortIdentifier(device.toString()).open("test", 0);
+				Assert.fail("Mandatory exception was not detected (lock file is locked)");
+			} catch (PortInUseException exc) {
+				Assert.assertTrue(exc.getMessage(), exc.getMessage().contains("already locked by this application"));
+			}
+			Assert.assertFalse(CommPortIdentifier.getPortIdentifier(device.toString()).isCurrentlyOwned());
+		} finally {
+			CommPortIdentifier.removePortName(device.toString());
+			if (oldLockDir == null) {
+				System.clearProperty(CommPortIdentifier.LOCK_DIR_PROPERTY);
+			}
+			else {
+				System.setProperty(CommPortIdentifier.LOCK_DIR_PROPERTY, oldLockDir);
+			}
+			Files.deleteIfExists(dir.resolve("LCK..ttyTEST0"));
+			Files.deleteIfExists(device);
+			Files.deleteIfExists(dir);
+		}
+	}
+
+	private static class FailingDriver implements CommDriver {
+		@Override
+		public CommPort getCommPort(final String portName, final int portType) {
+			throw new IllegalStateException("Device ["+portName+"] is not ready");
+		}
+
+		@Override
+		public void initialize() {
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package javax.comm;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.comm.loopback.LoopbackPair;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommPortMetricsTest {
+	private CommPortMetricsRegistry	oldRegistry;
+	private boolean					oldEnabled;
+
+	@Before
+	public void prepare() {
+		oldRegistry = CommPortIdentifier.getMetricsRegistry();
+		oldEnabled = CommPortIdentifier.isMetricsEnabled();
+	}
+
+	@After
+	public void release() {
+		CommPortIdentifier.setMetricsEnabled(oldEnabled);
+		CommPortIdentifier.setMetricsRegistry(oldRegistry);
+	}
+
+	@Test
+	public void histogramTest() {
+		final LatencyHistogram	histogram = new LatencyHistogram();
+
+		Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+		for (int value = 1; value <= 1000; value++) {
+			histogram.record(value);
+		}
+		histogram.record(-5);	// recorded as 0
+		Assert.assertEquals(1001, histogram.getCount());
+		Assert.assertEquals(500500, histogram.getTotal());
+		Assert.assertEquals(1000, histogram.getMax());
+		Assert.assertEquals(1000, histogram.getValueAtPercentile(100));
+
+		final long	median = histogram.getValueAtPercentile(50);
+
+		Assert.assertTrue(String.valueOf(median), median >= 500 && median <= 500 + 500 / LatencyHistogram.SUB_BUCKETS);
+		try {
+			histogram.getValueAtPercentile(101);
+			Assert.fail("Mandatory exception was not detected (percentile out of range)");
+		} catch (IllegalArgumentException exc) {
+		}
+		histogram.reset();
+		Assert.assertEquals(0, histogram.getCount());
+		Assert.assertEquals(0, histogram.getMax());
+	}
+
+	@Test(timeout = 10000)
+	public void portMetricsTest() throws Exception {
+		final Set<String>	registered = ConcurrentHashMap.newKeySet();
+
+		CommPortIdentifier.setMetricsRegistry(new CommPortMetricsRegistry() {
+			@Override
+			public void register(final CommPortMetrics metrics) {
+				registered.add(metrics.getPortName());
+			}
+
+			@Override
+			public void unregister(final CommPortMetrics metrics) {
+				registered.remove(metrics.getPortName());
+			}
+		});
+		CommPortIdentifier.setMetricsEnabled(true);
+
+		try (final LoopbackPair	pair = LoopbackPair.open()) {
+			final CommPortMetrics	out = CommPortIdentifier.getPortIdentifier(pair.nameA).getMetrics();
+			final CommPortMetrics	in = CommPortIdentifier.getPortIdentifier(pair.nameB).getMetrics();
+			final InputStream		is = pair.b.getInputStream();
+
+			Assert.assertTrue(registered.contains(pair.nameA));
+			Assert.assertTrue(registered.contains(pair.nameB));
+			Assert.assertTrue(out.isOpened());
+
+			pair.a.getOutputStream().write(new byte[10]);
+			Assert.assertEquals(10, is.readNBytes(10).length);
+			Assert.assertEquals(10, out.getBytesWritten());
+			Assert.assertEquals(1, out.getWriteCount());
+			Assert.assertEquals(1, out.getWriteLatency().getCount());
+			Assert.assertEquals(10, in.getBytesRead());
+			Assert.assertTrue(in.getReadCount() >= 1);
+			Assert.assertEquals(in.getReadCount(), in.getReadLatency().getCount());
+
+			pair.b.addEventListener((event)->{});
+			pair.b.notifyOnBreakInterrupt(true);
+			pair.a.sendBreak(1);
+			while (in.getBreakInterrupts() == 0) {
+				Thread.sleep(10);
+			}
+			in.reset();
+			Assert.assertEquals(0, in.getBytesRead());
+			Assert.assertEquals(0, in.getBreakInterrupts());
+
+			pair.a.close();
+			Assert.assertFalse(out.isOpened());
+		}
+		CommPortIdentifier.setMetricsEnabled(false);
+		Assert.assertTrue(registered.toString(), registered.isEmpty());
+	}
+
+	@Test(timeout = 10000)
+	public void jmxTest() throws Exception {
+		final MBeanServer	server = ManagementFactory.getPlatformMBeanServer();
+
+		CommPortIdentifier.setMetricsRegistry(new JmxMetricsRegistry());
+		CommPortIdentifier.setMetricsEnabled(true);
+
+		try (final LoopbackPair	pair = LoopbackPair.open()) {
+			final ObjectName	name = new ObjectName(JmxMetricsRegistry.DOMAIN + ":type=CommPort,name=" + ObjectName.quote(pair.nameA));
+
+			Assert.assertTrue(server.isRegistered(name));
+			pair.a.getOutputStream().write(new byte[3]);
+			Assert.assertEquals(3L, server.getAttribute(name, "BytesWritten"));
+			Assert.assertEquals(pair.nameA, server.getAttribute(name, "PortName"));
+			Assert.assertEquals(Boolean.TRUE, server.getAttribute(name, "Opened"));
+
+			CommPortIdentifier.setMetricsEnabled(false);
+			Assert.assertFalse(server.isRegistered(name));
+		}
+	}
+}
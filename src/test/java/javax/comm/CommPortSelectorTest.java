@@ -0,0 +1,106 @@
+package javax.comm;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.loopback.LoopbackPair;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommPortSelectorTest {
+	private LoopbackPair		pair;
+	private CommPortSelector	selector;
+
+	@Before
+	public void prepare() throws Exception {
+		pair = LoopbackPair.open(false, 1024);
+		selector = new CommPortSelector();
+	}
+
+	@After
+	public void release() {
+		if (selector != null) {
+			selector.close();
+		}
+		if (pair != null) {
+			pair.close();
+		}
+	}
+
+	@Test
+	public void readReadinessTest() throws Exception {
+		final CommPortSelectionKey	key = selector.register(pair.b, CommPortSelector.OP_READ);
+
+		Assert.assertEquals(0, selector.selectNow());
+		pair.a.getOutputStream().write(new byte[] {1, 2});
+		Assert.assertEquals(1, selector.select(1000));
+		Assert.assertTrue(selector.selectedKeys().contains(key));
+		Assert.assertTrue(key.isReadable());
+		selector.selectedKeys().clear();
+
+		Assert.assertEquals(1, selector.selectNow());	// level-triggered while data are not read
+		selector.selectedKeys().clear();
+		pair.b.getInputStream().read(new byte[2]);
+		Assert.assertEquals(0, selector.selectNow());
+	}
+
+	@Test
+	public void writeReadinessAfterPeerReadTest() throws Exception {
+		pair.a.getOutputStream().write(new byte[1024]);		// fill peer receive ring
+
+		final CommPortSelectionKey	key = selector.register(pair.a, CommPortSelector.OP_WRITE);
+
+		Assert.assertEquals(0, selector.select(100));
+		final CompletableFuture<Integer>	selection = CompletableFuture.supplyAsync(selector::select);
+
+		Thread.sleep(50);
+		Assert.assertFalse(selection.isDone());
+		Assert.assertEquals(16, pair.b.getInputStream().read(new byte[16]));
+		Assert.assertEquals(1, selection.get(2, TimeUnit.SECONDS).intValue());
+		Assert.assertTrue(key.isWritable());
+	}
+
+	@Test
+	public void writeReadinessAfterCTSTest() throws Exception {
+		pair.a.setFlowControlMode(SerialPort.FLOWCONTROL_RTSCTS_OUT);
+
+		final CommPortSelectionKey	key = selector.register(pair.a, CommPortSelector.OP_WRITE | CommPortSelector.OP_MODEM);
+
+		Assert.assertEquals(1, selector.selectNow());
+		Assert.assertTrue(key.isWritable());
+		selector.selectedKeys().clear();
+
+		pair.b.setRTS(false);
+		Assert.assertEquals(1, selector.select(1000));		// CTS change only
+		Assert.assertTrue(key.isModemChanged());
+		Assert.assertFalse(key.isWritable());
+		selector.selectedKeys().clear();
+
+		final CompletableFuture<Integer>	selection = CompletableFuture.supplyAsync(selector::select);
+
+		Thread.sleep(50);
+		Assert.assertFalse(selection.isDone());
+		pair.b.setRTS(true);
+		Assert.assertEquals(1, selection.get(2, TimeUnit.SECONDS).intValue());
+		Assert.assertTrue(key.isWritable());
+	}
+
+	@Test
+	public void wakeupAndCancelTest() throws Exception {
+		final CommPortSelectionKey	key = selector.register(pair.b, CommPortSelector.OP_READ);
+		final CompletableFuture<Integer>	selection = CompletableFuture.supplyAsync(selector::select);
+
+		Thread.sleep(50);
+		selector.wakeup();
+		Assert.assertEquals(0, selection.get(2, TimeUnit.SECONDS).intValue());
+
+		key.cancel();
+		Assert.assertFalse(key.isValid());
+		Assert.assertFalse(selector.keys().contains(key));
+		pair.a.getOutputStream().write(1);
+		Assert.assertEquals(0, selector.selectNow());
+	}
+}
@@ -0,0 +1,103 @@
+package javax.comm;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.loopback.LoopbackPair;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LowLatencyTest {
+	private boolean			oldEnabled;
+	private LoopbackPair	pair;
+	private CommPortMetrics	metrics;
+
+	@Before
+	public void prepare() throws Exception {
+		oldEnabled = CommPortIdentifier.isMetricsEnabled();
+		CommPortIdentifier.setMetricsEnabled(true);
+		pair = LoopbackPair.open();
+		metrics = CommPortIdentifier.getPortIdentifier(pair.nameB).getMetrics();
+	}
+
+	@After
+	public void release() {
+		if (pair != null) {
+			pair.close();
+		}
+		CommPortIdentifier.setMetricsEnabled(oldEnabled);
+	}
+
+	@Test
+	public void modeTest() throws Exception {
+		Assert.assertFalse(pair.b.isLowLatencyEnabled());
+		Assert.assertEquals(0, pair.b.getLowLatencySpinBudget());
+
+		pair.b.enableLowLatency(100);
+		Assert.assertTrue(pair.b.isLowLatencyEnabled());
+		Assert.assertEquals(100, pair.b.getLowLatencySpinBudget());
+
+		pair.b.disableLowLatency();
+		Assert.assertFalse(pair.b.isLowLatencyEnabled());
+		Assert.assertEquals(0, pair.b.getLowLatencySpinBudget());
+
+		try {
+			pair.b.enableLowLatency(-1);
+			Assert.fail("Mandatory exception was not detected (negative spin budget)");
+		} catch (UnsupportedCommOperationException exc) {
+		}
+		pair.b.close();
+		try {
+			pair.b.enableLowLatency(100);
+			Assert.fail("Mandatory exception was not detected (port is closed)");
+		} catch (IllegalStateException exc) {
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void spinHitTest() throws Exception {
+		Assume.assumeTrue("Spinning is skipped on the single-processor machine", Runtime.getRuntime().availableProcessors() > 1);
+
+		pair.b.enableLowLatency((int)TimeUnit.SECONDS.toMicros(2));	// data arrives long before the budget is exhausted
+		final CompletableFuture<Integer>	read = CompletableFuture.supplyAsync(()->{
+												try {
+													return pair.b.getInputStream().read();
+												} catch (Exception exc) {
+													throw new IllegalStateException(exc);
+												}
+											});
+
+		Thread.sleep(20);
+		pair.a.getOutputStream().write(42);
+		Assert.assertEquals(42, read.get(2, TimeUnit.SECONDS).intValue());
+		Assert.assertEquals(1, metrics.getSpinHits());
+		Assert.assertEquals(0, metrics.getSpinMisses());
+		Assert.assertTrue(metrics.getSpinTime() >= TimeUnit.MILLISECONDS.toNanos(10));
+	}
+
+	@Test(timeout = 10000)
+	public void spinMissTest() throws Exception {
+		Assume.assumeTrue("Spinning is skipped on the single-processor machine", Runtime.getRuntime().availableProcessors() > 1);
+
+		pair.b.enableLowLatency(1000);
+		pair.b.enableReceiveTimeout(50);
+		Assert.assertEquals(0, pair.b.readTimestamped(ByteBuffer.allocate(1), new ReceiveTimestamp()));	// spin exhausted, then timed out
+		Assert.assertEquals(0, metrics.getSpinHits());
+		Assert.assertEquals(1, metrics.getSpinMisses());
+		Assert.assertTrue(metrics.getSpinTime() >= TimeUnit.MICROSECONDS.toNanos(1000));
+
+		pair.a.getOutputStream().write(1);
+		Assert.assertEquals(1, pair.b.readTimestamped(ByteBuffer.allocate(1), new ReceiveTimestamp()));	// data ready, no spin at all
+		Assert.assertEquals(0, metrics.getSpinHits());
+		Assert.assertEquals(1, metrics.getSpinMisses());
+
+		pair.b.disableLowLatency();
+		Assert.assertEquals(0, pair.b.readTimestamped(ByteBuffer.allocate(1), new ReceiveTimestamp()));	// no spin when the mode is off
+		Assert.assertEquals(1, metrics.getSpinMisses());
+	}
+}
@@ -0,0 +1,49 @@
+package javax.comm;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PortLockFileTest {
+	@Test(timeout = 20000)
+	public void acquireReleaseTest() throws Exception {
+		final Path		dir = Files.createTempDirectory("javaxcomm");
+		final Path		device = Files.createFile(dir.resolve("ttyTEST1"));
+		final Path		lock = dir.resolve(PortLockFile.LOCK_FILE_PREFIX + "ttyTEST1");
+		final String	oldLockDir = System.getProperty(CommPortIdentifier.LOCK_DIR_PROPERTY);
+
+		System.setProperty(CommPortIdentifier.LOCK_DIR_PROPERTY, dir.toString());
+		try {
+			final PortLockFile	first = PortLockFile.forPort(device.toString());
+
+			Assert.assertNotNull(first);
+			Assert.assertTrue(first.acquire(0));
+			Assert.assertEquals(ProcessHandle.current().pid(), Long.parseLong(new String(Files.readAllBytes(lock), StandardCharsets.US_ASCII).trim()));
+			Assert.assertNull(PortLockFile.getForeignOwner(device.toString()));	// owned by this process
+
+			first.release();
+			Assert.assertFalse(Files.exists(lock));		// removed on release
+
+			Files.write(lock, "garbage".getBytes(StandardCharsets.US_ASCII));	// stale file is reused
+			final PortLockFile	second = PortLockFile.forPort(device.toString());
+
+			Assert.assertTrue(second.acquire(0));
+			Assert.assertEquals(ProcessHandle.current().pid(), Long.parseLong(new String(Files.readAllBytes(lock), StandardCharsets.US_ASCII).trim()));
+			second.release();
+			Assert.assertFalse(Files.exists(lock));
+		} finally {
+			if (oldLockDir == null) {
+				System.clearProperty(CommPortIdentifier.LOCK_DIR_PROPERTY);
+			}
+			else {
+				System.setProperty(CommPortIdentifier.LOCK_DIR_PROPERTY, oldLockDir);
+			}
+			Files.deleteIfExists(lock);
+			Files.deleteIfExists(device);
+			Files.deleteIfExists(dir);
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package javax.comm;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.loopback.LoopbackPair;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReceiveTimestampTest {
+	private LoopbackPair	pair;
+
+	@Before
+	public void prepare() throws Exception {
+		pair = LoopbackPair.open();
+	}
+
+	@After
+	public void release() {
+		if (pair != null) {
+			pair.close();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void arrivalTimeTest() throws Exception {
+		final ReceiveTimestamp	timestamp = new ReceiveTimestamp();
+		final ByteBuffer		buffer = ByteBuffer.allocate(3);
+		final long				beforeFirst = System.nanoTime();
+
+		pair.a.getOutputStream().write("abc".getBytes(StandardCharsets.US_ASCII));
+		final long	afterFirst = System.nanoTime();
+
+		Thread.sleep(50);
+		final long	beforeSecond = System.nanoTime();
+
+		pair.a.getOutputStream().write("def".getBytes(StandardCharsets.US_ASCII));
+		final long	afterSecond = System.nanoTime();
+
+		Thread.sleep(50);
+		Assert.assertEquals(3, pair.b.readTimestamped(buffer, timestamp));
+		Assert.assertEquals("abc", new String(buffer.array(), StandardCharsets.US_ASCII));
+		Assert.assertTrue(timestamp.toString(), timestamp.getArrivalTime() >= beforeFirst && timestamp.getArrivalTime() <= afterFirst);
+		Assert.assertTrue(timestamp.getReadTime() >= afterSecond);
+		Assert.assertTrue(timestamp.getLatency() >= TimeUnit.MILLISECONDS.toNanos(90));	// waited for both sleeps
+
+		buffer.clear();
+		Assert.assertEquals(3, pair.b.readTimestamped(buffer, timestamp));	// the next read gets the time of the next chunk
+		Assert.assertEquals("def", new String(buffer.array(), StandardCharsets.US_ASCII));
+		Assert.assertTrue(timestamp.toString(), timestamp.getArrivalTime() >= beforeSecond && timestamp.getArrivalTime() <= afterSecond);
+
+		buffer.clear().limit(0);
+		Assert.assertEquals(0, pair.b.readTimestamped(buffer, timestamp));	// nothing to read into
+	}
+
+	@Test(timeout = 10000)
+	public void partialReadTest() throws Exception {
+		final ReceiveTimestamp	timestamp = new ReceiveTimestamp();
+		final ByteBuffer		buffer = ByteBuffer.allocate(2);
+
+		pair.a.getOutputStream().write("abcd".getBytes(StandardCharsets.US_ASCII));
+		Thread.sleep(20);
+		Assert.assertEquals(2, pair.b.readTimestamped(buffer, timestamp));
+		final long	arrival = timestamp.getArrivalTime();
+
+		buffer.clear();
+		Assert.assertEquals(2, pair.b.readTimestamped(buffer, timestamp));	// rest of the same chunk arrived at the same time
+		Assert.assertEquals(arrival, timestamp.getArrivalTime());
+	}
+
+	@Test(timeout = 10000)
+	public void eventTimestampTest() throws Exception {
+		final BlockingQueue<SerialPortEvent>	events = new ArrayBlockingQueue<>(16);
+		final ReceiveTimestamp	timestamp = new ReceiveTimestamp();
+
+		pair.b.addEventListener(events::add);
+		pair.b.notifyOnDataAvailable(true);
+		pair.a.getOutputStream().write('x');
+
+		final SerialPortEvent	event = events.poll(2, TimeUnit.SECONDS);
+
+		Assert.assertNotNull(event);
+		Assert.assertEquals(SerialPortEvent.DATA_AVAILABLE, event.getEventType());
+		Assert.assertEquals(1, pair.b.readTimestamped(ByteBuffer.allocate(1), timestamp));
+		Assert.assertEquals(event.getTimestamp(), timestamp.getArrivalTime());	// event and data share the arrival time
+	}
+
+	@Test
+	public void nullsTest() throws Exception {
+		try {
+			pair.b.readTimestamped(null, new ReceiveTimestamp());
+			Assert.fail("Mandatory exception was not detected (null buffer)");
+		} catch (NullPointerException exc) {
+		}
+		try {
+			pair.b.readTimestamped(ByteBuffer.allocate(1), null);
+			Assert.fail("Mandatory exception was not detected (null holder)");
+		} catch (NullPointerException exc) {
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package javax.comm;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.loopback.LoopbackPair;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SerialConfigTest {
+	private static final SerialConfig	FAST = SerialConfig.DEFAULT.withSerialPortParams(115200, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE)
+												.withBufferSizes(8192, 8192).withModemLines(false, false);
+	private static final SerialConfig	SLOW = SerialConfig.DEFAULT.withModemLines(true, true);
+
+	@Test(timeout = 10000)
+	public void applyTest() throws Exception {
+		try (final LoopbackPair	pair = LoopbackPair.open()) {
+			pair.a.applyConfig(FAST);
+			Assert.assertEquals(FAST, SerialConfig.of(pair.a));
+			Assert.assertFalse(pair.b.isDSR());		// lines are wired to the peer
+			Assert.assertFalse(pair.b.isCD());
+			Assert.assertFalse(pair.b.isCTS());
+			Assert.assertEquals(FAST, CommPortIdentifier.getPortIdentifier(pair.nameA).getLastSerialConfig());
+
+			pair.a.applyConfig(SLOW);
+			Assert.assertEquals(SLOW, SerialConfig.of(pair.a));
+			Assert.assertTrue(pair.b.isDSR());
+			Assert.assertTrue(pair.b.isCTS());
+
+			try {
+				pair.a.applyConfig(null);
+				Assert.fail("Mandatory exception was not detected (null config)");
+			} catch (NullPointerException exc) {
+			}
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void restoreOnReopenTest() throws Exception {
+		final String[]	names = LoopbackPair.create(false, -1);
+		final SerialPort	peer = LoopbackPair.openPort(names[1]);
+
+		try {
+			SerialPort	port = LoopbackPair.openPort(names[0]);
+
+			port.applyConfig(FAST);
+			port.close();
+			port = LoopbackPair.openPort(names[0]);		// the last config is restored on open
+			try {
+				Assert.assertEquals(FAST, SerialConfig.of(port));
+				Assert.assertFalse(peer.isCTS());
+			} finally {
+				port.close();
+			}
+		} finally {
+			peer.close();
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void concurrentApplyTest() throws Exception {
+		try (final LoopbackPair	pair = LoopbackPair.open()) {
+			final CompletableFuture<?>[]	appliers = new CompletableFuture<?>[4];
+
+			for (int index = 0; index < appliers.length; index++) {	// both ends at once, each end by two threads with different configs
+				final SerialPort	port = index % 2 == 0 ? pair.a : pair.b;
+				final SerialConfig	config = index < 2 ? FAST : SLOW;
+
+				appliers[index] = CompletableFuture.runAsync(()->{
+									try {
+										for (int pass = 0; pass < 2000; pass++) {
+											port.applyConfig(config);
+										}
+									} catch (UnsupportedCommOperationException exc) {
+										throw new IllegalStateException(exc);
+									}
+								});
+			}
+			CompletableFuture.allOf(appliers).get(20, TimeUnit.SECONDS);
+
+			for (SerialPort port : new SerialPort[] {pair.a, pair.b}) {	// lines are never left from the other config
+				final SerialConfig	config = SerialConfig.of(port);
+
+				Assert.assertTrue(config.toString(), config.equals(FAST) || config.equals(SLOW));
+			}
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package javax.comm;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.loopback.LoopbackPair;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SerialPortEventSubscriptionTest {
+	private LoopbackPair	pair;
+
+	@Before
+	public void prepare() throws Exception {
+		pair = LoopbackPair.open();
+	}
+
+	@After
+	public void release() {
+		if (pair != null) {
+			pair.close();
+		}
+	}
+
+	@Test
+	public void eventMaskTest() {
+		Assert.assertEquals((1 << SerialPortEvent.CTS) | (1 << SerialPortEvent.BI), SerialPortEventSubscription.eventMask(SerialPortEvent.CTS, SerialPortEvent.BI));
+		try {
+			SerialPortEventSubscription.eventMask(0);
+			Assert.fail("Mandatory exception was not detected (unknown event type)");
+		} catch (IllegalArgumentException exc) {
+		}
+		try {
+			pair.a.subscribe((e)->{}, 0);
+			Assert.fail("Mandatory exception was not detected (empty event mask)");
+		} catch (IllegalArgumentException exc) {
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void independentListenersTest() throws Exception {
+		final BlockingQueue<SerialPortEvent>	lines = new ArrayBlockingQueue<>(16), data = new ArrayBlockingQueue<>(16);
+		final CountDownLatch	blocked = new CountDownLatch(1);
+		final SerialPortEventSubscription	slow = pair.b.subscribe((e)->{
+												try {
+													blocked.await();
+												} catch (InterruptedException exc) {
+												}
+											}, SerialPortEventSubscription.ALL_EVENTS);
+		final SerialPortEventSubscription	lineSubscription = pair.b.subscribe(lines::add, SerialPortEventSubscription.eventMask(SerialPortEvent.CTS));
+
+		pair.b.subscribe(data::add, SerialPortEventSubscription.eventMask(SerialPortEvent.DATA_AVAILABLE));
+		pair.a.setRTS(false);		// notifyOnCTS is not required for subscriptions
+		pair.a.getOutputStream().write(1);
+
+		final SerialPortEvent	cts = lines.poll(2, TimeUnit.SECONDS), available = data.poll(2, TimeUnit.SECONDS);
+
+		Assert.assertNotNull("Slow listener delays other subscriptions", cts);
+		Assert.assertEquals(SerialPortEvent.CTS, cts.getEventType());
+		Assert.assertFalse(cts.getNewValue());
+		Assert.assertNotNull(available);
+		Assert.assertEquals(SerialPortEvent.DATA_AVAILABLE, available.getEventType());
+		Assert.assertTrue(data.isEmpty() && lines.isEmpty());
+
+		lineSubscription.close();
+		Assert.assertFalse(lineSubscription.isActive());
+		pair.a.setRTS(true);
+		Assert.assertNull(lines.poll(100, TimeUnit.MILLISECONDS));
+		blocked.countDown();
+		Assert.assertTrue(slow.isActive());
+	}
+
+	@Test(timeout = 10000)
+	public void orderAndExecutorTest() throws Exception {
+		final ExecutorService	executor = Executors.newSingleThreadExecutor();
+		final List<String>		received = new CopyOnWriteArrayList<>();
+
+		try {
+			pair.b.subscribe((e)->received.add(Thread.currentThread().getName()+":"+e.getNewValue()), SerialPortEventSubscription.eventMask(SerialPortEvent.CTS), (r)->executor.execute(()->{
+				Thread.currentThread().setName("custom");
+				r.run();
+			}));
+			for (int index = 0; index < 10; index++) {
+				pair.a.setRTS(index % 2 != 0);
+			}
+			while (received.size() < 10) {
+				Thread.sleep(5);
+			}
+			for (int index = 0; index < 10; index++) {
+				Assert.assertEquals("custom:"+(index % 2 != 0), received.get(index));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void closePortDeactivatesTest() throws Exception {
+		final SerialPortEventSubscription	subscription = pair.b.subscribe((e)->{}, SerialPortEventSubscription.ALL_EVENTS);
+
+		Assert.assertTrue(subscription.isActive());
+		Assert.assertSame(pair.b, subscription.getPort());
+		pair.b.close();
+		Assert.assertFalse(subscription.isActive());
+	}
+}
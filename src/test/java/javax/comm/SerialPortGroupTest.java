@@ -0,0 +1,187 @@
+package javax.comm;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.loopback.LoopbackPair;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SerialPortGroupTest {
+	private LoopbackPair	first;
+	private LoopbackPair	second;
+
+	@Before
+	public void prepare() throws Exception {
+		first = LoopbackPair.open();
+		second = LoopbackPair.open();
+	}
+
+	@After
+	public void release() {
+		if (first != null) {
+			first.close();
+		}
+		if (second != null) {
+			second.close();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void mergeTest() throws Exception {
+		try (final SerialPortGroup	group = new SerialPortGroup(16, 64)) {
+			Assert.assertEquals(0, group.add(first.b));
+			Assert.assertEquals(1, group.add(second.b));
+			Assert.assertEquals(2, group.getPorts().size());
+			Assert.assertNull(group.poll());
+
+			final String[]	expected = {"a1", "b1", "a2", "b2"};
+			long			lastTime = 0, lastSequence = -1;
+
+			for (int index = 0; index < expected.length; index++) {
+				(index % 2 == 0 ? first.a : second.a).getOutputStream().write(expected[index].getBytes(StandardCharsets.US_ASCII));
+				Thread.sleep(20);
+			}
+			for (int index = 0; index < expected.length; index++) {	// frames come in arrival order from both ports
+				final SerialPortGroup.Frame	frame = group.poll(2, TimeUnit.SECONDS);
+
+				Assert.assertNotNull(frame);
+				Assert.assertEquals(expected[index], decode(frame.getData()));
+				Assert.assertEquals(index % 2, frame.getPortIndex());
+				Assert.assertSame(index % 2 == 0 ? first.b : second.b, frame.getPort());
+				Assert.assertTrue(index == 0 || frame.getArrivalTime() - lastTime >= 0);
+				Assert.assertTrue(frame.getSequence() > lastSequence);
+				lastTime = frame.getArrivalTime();
+				lastSequence = frame.getSequence();
+			}
+			Assert.assertNull(group.poll(50, TimeUnit.MILLISECONDS));
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void fullQueueTest() throws Exception {
+		try (final SerialPortGroup	group = new SerialPortGroup(2, 4)) {
+			final ByteArrayOutputStream	received = new ByteArrayOutputStream();
+			final byte[]				data = new byte[64];
+
+			for (int index = 0; index < data.length; index++) {
+				data[index] = (byte)index;
+			}
+			group.add(first.b);
+			first.a.getOutputStream().write(data);
+			while (group.size() < 2) {
+				Thread.sleep(10);
+			}
+			Thread.sleep(50);
+			Assert.assertEquals(2, group.size());		// queue is full, the rest remains in the port
+			Assert.assertTrue(first.b.getInputStream().available() > 0);
+
+			while (received.size() < data.length) {
+				final SerialPortGroup.Frame	frame = group.poll(2, TimeUnit.SECONDS);
+
+				Assert.assertNotNull(frame);
+				Assert.assertTrue(frame.getData().remaining() <= 4);
+				while (frame.getData().hasRemaining()) {
+					received.write(frame.getData().get());
+				}
+			}
+			Assert.assertArrayEquals(data, received.toByteArray());	// nothing lost or reordered
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void membershipTest() throws Exception {
+		final String[]				names = LoopbackPair.create(false, -1);
+		final CommPortIdentifier	id = CommPortIdentifier.getPortIdentifier(names[1]);
+		final SerialPort			peer = LoopbackPair.openPort(names[0]);
+
+		try {
+			final SerialPortGroup	group = new SerialPortGroup(4, 16);
+			final SerialPort		owned = group.open(id, "group", 1000);
+
+			Assert.assertEquals("group", id.getCurrentOwner());
+			group.add(first.b);
+			try {
+				group.add(first.b);
+				Assert.fail("Mandatory exception was not detected (port is already a member)");
+			} catch (IllegalArgumentException exc) {
+			}
+			try {
+				group.add(null);
+				Assert.fail("Mandatory exception was not detected (null port)");
+			} catch (IllegalArgumentException exc) {
+			}
+
+			Assert.assertTrue(group.remove(first.b));
+			Assert.assertFalse(group.remove(first.b));
+			Assert.assertTrue(CommPortIdentifier.getPortIdentifier(first.nameB).isCurrentlyOwned());		// port of the caller remains open
+
+			peer.getOutputStream().write('x');
+			Assert.assertEquals("x", decode(group.poll(2, TimeUnit.SECONDS).getData()));
+			Assert.assertSame(owned, group.getPorts().get(0));
+
+			group.close();
+			Assert.assertFalse(group.isOpen());
+			Assert.assertFalse(id.isCurrentlyOwned());		// port owned by the group is closed with it
+			Assert.assertNull(group.take());
+			try {
+				group.add(second.b);
+				Assert.fail("Mandatory exception was not detected (group is closed)");
+			} catch (IllegalStateException exc) {
+			}
+		} finally {
+			peer.close();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void closedMemberTest() throws Exception {
+		try (final SerialPortGroup	group = new SerialPortGroup(4, 16)) {
+			group.add(first.b);
+			group.add(second.b);
+			first.b.close();				// closed port is excluded from the group
+			second.a.getOutputStream().write('y');
+			Assert.assertEquals("y", decode(group.poll(2, TimeUnit.SECONDS).getData()));
+			while (group.getPorts().size() != 1) {
+				Thread.sleep(10);
+			}
+			Assert.assertSame(second.b, group.getPorts().get(0));
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void thresholdMemberTest() throws Exception {
+		try (final SerialPortGroup	group = new SerialPortGroup(4, 16)) {
+			first.b.enableReceiveThreshold(100);	// reads are limited by the data available and don't wait for the threshold
+			group.add(first.b);
+			group.add(second.b);
+			first.a.getOutputStream().write('x');
+			Assert.assertEquals("x", decode(group.poll(2, TimeUnit.SECONDS).getData()));
+			second.a.getOutputStream().write('y');
+			Assert.assertEquals("y", decode(group.poll(2, TimeUnit.SECONDS).getData()));
+		}
+	}
+
+	@Test
+	public void argumentsTest() {
+		try {
+			new SerialPortGroup(0, 16);
+			Assert.fail("Mandatory exception was not detected (queue capacity is not positive)");
+		} catch (IllegalArgumentException exc) {
+		}
+		try {
+			new SerialPortGroup(16, 0);
+			Assert.fail("Mandatory exception was not detected (frame size is not positive)");
+		} catch (IllegalArgumentException exc) {
+		}
+	}
+
+	private static String decode(final ByteBuffer data) {
+		return StandardCharsets.US_ASCII.decode(data).toString();
+	}
+}
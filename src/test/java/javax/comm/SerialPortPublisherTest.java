@@ -0,0 +1,120 @@
+package javax.comm;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.loopback.LoopbackPair;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SerialPortPublisherTest {
+	private LoopbackPair	pair;
+
+	@Before
+	public void prepare() throws Exception {
+		pair = LoopbackPair.open();
+	}
+
+	@After
+	public void release() {
+		if (pair != null) {
+			pair.close();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void demandThrottlesSenderTest() throws Exception {
+		final SerialPortPublisher	publisher = pair.b.getInputPublisher(null);
+		final QueueSubscriber		subscriber = new QueueSubscriber();
+
+		pair.b.setFlowControlMode(SerialPort.FLOWCONTROL_RTSCTS_IN);
+		pair.a.setFlowControlMode(SerialPort.FLOWCONTROL_RTSCTS_OUT);
+		publisher.subscribe(subscriber);
+		subscriber.subscription.request(1);
+
+		pair.a.getOutputStream().write("abc".getBytes(StandardCharsets.US_ASCII));
+		Assert.assertEquals("abc", subscriber.take());
+
+		while (!publisher.isThrottled()) {		// no demand, so the sender is stopped by RTS/CTS
+			Thread.sleep(10);
+		}
+		Assert.assertFalse(pair.b.isRTS());
+		Assert.assertFalse(pair.a.isCTS());
+
+		final CompletableFuture<Void>	write = CompletableFuture.runAsync(()->{
+											try {
+												pair.a.getOutputStream().write('d');
+											} catch (Exception exc) {
+												throw new IllegalStateException(exc);
+											}
+										});
+
+		Assert.assertNull(subscriber.items.poll(200, TimeUnit.MILLISECONDS));
+		subscriber.subscription.request(1);
+		Assert.assertEquals("d", subscriber.take());
+		write.get(2, TimeUnit.SECONDS);
+
+		subscriber.subscription.cancel();
+		while (pair.b.isRTS() != true) {		// cancel releases the sender
+			Thread.sleep(10);
+		}
+		Assert.assertTrue(pair.a.isCTS());
+	}
+
+	@Test(timeout = 10000)
+	public void singleSubscriberTest() throws Exception {
+		final SerialPortPublisher	publisher = pair.b.getInputPublisher(null);
+		final QueueSubscriber		first = new QueueSubscriber(), second = new QueueSubscriber();
+
+		publisher.subscribe(first);
+		publisher.subscribe(second);
+		Assert.assertTrue(second.error.get(2, TimeUnit.SECONDS) instanceof IllegalStateException);
+
+		first.subscription.request(Long.MAX_VALUE);
+		pair.a.getOutputStream().write("xy".getBytes(StandardCharsets.US_ASCII));
+		Assert.assertEquals("xy", first.take());
+		pair.b.close();
+		Assert.assertNull(first.error.get(2, TimeUnit.SECONDS));	// completed on close
+	}
+
+	private static class QueueSubscriber implements Flow.Subscriber<ByteBuffer> {
+		final BlockingQueue<ByteBuffer>			items = new ArrayBlockingQueue<>(16);
+		final CompletableFuture<Throwable>		error = new CompletableFuture<>();
+		volatile Flow.Subscription				subscription;
+
+		@Override
+		public void onSubscribe(final Flow.Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(final ByteBuffer item) {
+			items.add(item);
+		}
+
+		@Override
+		public void onError(final Throwable throwable) {
+			error.complete(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+			error.complete(null);
+		}
+
+		String take() throws InterruptedException {
+			final ByteBuffer	item = items.poll(2, TimeUnit.SECONDS);
+
+			Assert.assertNotNull(item);
+			return StandardCharsets.US_ASCII.decode(item).toString();
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package javax.comm.capture;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.comm.CommPortIdentifier;
+import javax.comm.SerialPort;
+import javax.comm.SerialPortEvent;
+import javax.comm.loopback.LoopbackPair;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CaptureReplayTest {
+	private static final AtomicInteger	UNIQUE = new AtomicInteger();
+
+	private Path	file;
+
+	@Before
+	public void prepare() throws Exception {
+		file = Files.createTempFile("javaxcomm", ".cap");
+	}
+
+	@After
+	public void release() throws Exception {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void writerReaderTest() throws Exception {
+		final byte[]	chunk = new byte[1000];
+
+		try (final CaptureWriter	writer = new CaptureWriter(file, "COM1", 4096)) {	// small chunks make the writer remap many times
+			for (int index = 0; index < 100; index++) {
+				chunk[0] = (byte)index;
+				writer.input(ByteBuffer.wrap(chunk), 0, chunk.length);
+			}
+			writer.output(ByteBuffer.wrap(new byte[] {9, 8, 7}), 1, 2);
+			writer.event(SerialPortEvent.CTS, true, false, 0);
+			Assert.assertFalse(writer.isFailed());
+		}
+
+		try (final CaptureReader	reader = new CaptureReader(file)) {
+			long	last = 0;
+
+			Assert.assertEquals("COM1", reader.getPortName());
+			for (int index = 0; index < 100; index++) {
+				Assert.assertTrue(reader.next());
+				Assert.assertEquals(CaptureReader.RECORD_INPUT, reader.getRecordType());
+				Assert.assertEquals(chunk.length, reader.getData().remaining());
+				Assert.assertEquals((byte)index, reader.getData().get(0));
+				Assert.assertTrue(reader.getTimestamp() >= last);
+				last = reader.getTimestamp();
+			}
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(CaptureReader.RECORD_OUTPUT, reader.getRecordType());
+			Assert.assertEquals(8, reader.getData().get(0));
+			Assert.assertEquals(7, reader.getData().get(1));
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(CaptureReader.RECORD_EVENT, reader.getRecordType());
+			Assert.assertEquals(SerialPortEvent.CTS, reader.getEventType());
+			Assert.assertTrue(reader.getOldValue());
+			Assert.assertFalse(reader.getNewValue());
+			Assert.assertFalse(reader.next());
+		}
+		try {
+			new CaptureWriter(file, "COM1", 100);
+			Assert.fail("Mandatory exception was not detected (chunk is too small)");
+		} catch (IllegalArgumentException exc) {
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void captureAndReplayTest() throws Exception {
+		final String	replayName = "REPLAY" + UNIQUE.incrementAndGet();
+
+		try (final LoopbackPair	pair = LoopbackPair.open()) {
+			pair.b.startCapture(file);
+			Assert.assertTrue(pair.b.isCapturing());
+			pair.a.getOutputStream().write("hello".getBytes(StandardCharsets.US_ASCII));
+			Assert.assertEquals("hello", new String(pair.b.getInputStream().readNBytes(5), StandardCharsets.US_ASCII));
+			pair.a.setRTS(false);			// CTS event is captured without listener
+			pair.b.getOutputStream().write('x');
+			pair.a.getOutputStream().write("world".getBytes(StandardCharsets.US_ASCII));
+			Assert.assertEquals("world", new String(pair.b.getInputStream().readNBytes(5), StandardCharsets.US_ASCII));
+			pair.b.stopCapture();
+			Assert.assertFalse(pair.b.isCapturing());
+		}
+
+		try (final CaptureReader	reader = new CaptureReader(file)) {
+			final StringBuilder	sb = new StringBuilder();
+
+			while (reader.next()) {
+				switch (reader.getRecordType()) {
+					case CaptureReader.RECORD_INPUT		:
+						sb.append(StandardCharsets.US_ASCII.decode(reader.getData()));
+						break;
+					case CaptureReader.RECORD_OUTPUT	:
+						sb.append('>').append(StandardCharsets.US_ASCII.decode(reader.getData()));
+						break;
+					case CaptureReader.RECORD_EVENT		:
+						sb.append('[').append(reader.getEventType()).append(':').append(reader.getNewValue()).append(']');
+						break;
+				}
+			}
+			// capture starts with the snapshot of the input lines
+			Assert.assertEquals("["+SerialPortEvent.CTS+":true]["+SerialPortEvent.DSR+":true]["+SerialPortEvent.RI+":false]["+SerialPortEvent.CD+":true]"
+								+ "hello["+SerialPortEvent.CTS+":false]>xworld", sb.toString());
+		}
+
+		new ReplayCommDriver().addPort(replayName, file, 0);
+		for (int pass = 0; pass < 2; pass++) {	// every open replays capture from the beginning
+			final SerialPort	port = (SerialPort)CommPortIdentifier.getPortIdentifier(replayName).open("test", 1000);
+
+			try {
+				Assert.assertEquals("helloworld", new String(port.getInputStream().readAllBytes(), StandardCharsets.US_ASCII));	// written 'x' is skipped
+				Assert.assertFalse(port.isCTS());	// line change captured between the reads is replayed
+			} finally {
+				port.close();
+			}
+		}
+	}
+}
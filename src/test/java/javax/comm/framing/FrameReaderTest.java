@@ -0,0 +1,130 @@
+package javax.comm.framing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.loopback.LoopbackPair;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FrameReaderTest {
+	private LoopbackPair	pair;
+
+	@Before
+	public void prepare() throws Exception {
+		pair = LoopbackPair.open();
+	}
+
+	@After
+	public void release() {
+		if (pair != null) {
+			pair.close();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void delimiterTest() throws IOException {
+		final FrameReader	reader = new FrameReader(pair.b, new DelimiterFrameDecoder(true, (byte)'\r', (byte)'\n'), 64);
+
+		send("abc\r");
+		send("\ndef\r\n");
+		Assert.assertEquals("abc", toString(reader.read()));
+		Assert.assertEquals("def", toString(reader.read()));
+
+		final FrameReader	keeping = new FrameReader(pair.b, new DelimiterFrameDecoder(false, (byte)';'), 64);
+
+		send("x;y;");
+		Assert.assertEquals("x;", toString(keeping.read()));
+		Assert.assertEquals("y;", toString(keeping.read()));
+	}
+
+	@Test(timeout = 10000)
+	public void cobsTest() throws IOException {
+		final FrameReader	reader = new FrameReader(pair.b, new CobsFrameDecoder(), 64);
+
+		pair.a.getOutputStream().write(new byte[] {0x02, 0x11, 0x02, 0x22, 0x00, 0x01, 0x00, 0x03, 'a', 'b', 0x00});
+		Assert.assertArrayEquals(new byte[] {0x11, 0x00, 0x22}, toBytes(reader.read()));
+		Assert.assertEquals("ab", toString(reader.read()));		// empty frame is skipped
+	}
+
+	@Test(timeout = 10000)
+	public void slipTest() throws IOException {
+		final FrameReader	reader = new FrameReader(pair.b, new SlipFrameDecoder(), 64);
+
+		pair.a.getOutputStream().write(new byte[] {SlipFrameDecoder.END, SlipFrameDecoder.END, 0x01, SlipFrameDecoder.ESC, SlipFrameDecoder.ESC_END,
+												0x02, SlipFrameDecoder.ESC, SlipFrameDecoder.ESC_ESC, SlipFrameDecoder.END});
+		Assert.assertArrayEquals(new byte[] {0x01, SlipFrameDecoder.END, 0x02, SlipFrameDecoder.ESC}, toBytes(reader.read()));
+	}
+
+	@Test(timeout = 10000)
+	public void lengthPrefixedTest() throws IOException {
+		final FrameReader	reader = new FrameReader(pair.b, new LengthPrefixedFrameDecoder(2, ByteOrder.BIG_ENDIAN), 64);
+
+		pair.a.getOutputStream().write(new byte[] {0, 3, 'a', 'b'});
+		pair.a.getOutputStream().write(new byte[] {'c', 0, 2, 'd', 'e'});
+		Assert.assertEquals("abc", toString(reader.read()));
+		Assert.assertEquals("de", toString(reader.read()));
+
+		final FrameReader	withHeader = new FrameReader(pair.b, new LengthPrefixedFrameDecoder(1, 1, ByteOrder.LITTLE_ENDIAN, 1, false), 64);
+
+		pair.a.getOutputStream().write(new byte[] {0x7E, 2, 'x', 'y', (byte)0xCC});		// address, length, content, checksum
+		Assert.assertArrayEquals(new byte[] {0x7E, 2, 'x', 'y', (byte)0xCC}, toBytes(withHeader.read()));
+	}
+
+	@Test(timeout = 10000)
+	public void gapTest() throws Exception {
+		final FrameReader	reader = new FrameReader(pair.b, new GapFrameDecoder(20, TimeUnit.MILLISECONDS), 64);
+
+		send("12");
+		final Thread	sender = new Thread(()->{
+							try {
+								Thread.sleep(100);
+								send("34");
+							} catch (IOException | InterruptedException exc) {
+							}
+						});
+		sender.start();
+		Assert.assertEquals("12", toString(reader.read()));
+		Assert.assertEquals("34", toString(reader.read()));
+		sender.join();
+	}
+
+	@Test(timeout = 10000)
+	public void timeoutAndOverflowTest() throws Exception {
+		final FrameReader	reader = new FrameReader(pair.b, new DelimiterFrameDecoder(true, (byte)'\n'), 8);
+
+		pair.b.enableReceiveTimeout(50);
+		Assert.assertNull(reader.read());
+
+		send("0123456789");
+		try {
+			reader.read();
+			Assert.fail("Mandatory exception was not detected (frame is longer than storage)");
+		} catch (IOException exc) {
+		}
+		send("ok\n");
+		Assert.assertEquals("89ok", toString(reader.read()));	// tail of the long frame was not received yet on discard
+	}
+
+	private void send(final String content) throws IOException {
+		pair.a.getOutputStream().write(content.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static byte[] toBytes(final ByteBuffer frame) {
+		Assert.assertNotNull("Frame was not read", frame);
+		final byte[]	result = new byte[frame.remaining()];
+
+		frame.duplicate().get(result);
+		return result;
+	}
+
+	private static String toString(final ByteBuffer frame) {
+		return new String(toBytes(frame), StandardCharsets.US_ASCII);
+	}
+}
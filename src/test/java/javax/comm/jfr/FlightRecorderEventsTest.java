@@ -0,0 +1,67 @@
+package javax.comm.jfr;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import javax.comm.SerialPort;
+import javax.comm.loopback.LoopbackPair;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class FlightRecorderEventsTest {
+	@Test(timeout = 30000)
+	public void portEventsTest() throws Exception {
+		Assume.assumeTrue("JDK Flight Recorder is not available", FlightRecorderEvents.AVAILABLE);
+
+		final Path					dump = Files.createTempFile("javaxcomm", ".jfr");
+		final List<RecordedEvent>	events = new ArrayList<>();
+		final String				nameA, nameB;
+
+		try (final Recording	recording = new Recording()) {
+			for (String name : new String[] {"javax.comm.PortOpen", "javax.comm.PortConfiguration", "javax.comm.PortRead", "javax.comm.PortWrite", "javax.comm.SerialPortEvent"}) {
+				recording.enable(name).withThreshold(Duration.ZERO);
+			}
+			recording.start();
+			try (final LoopbackPair	pair = LoopbackPair.open()) {
+				nameA = pair.nameA;
+				nameB = pair.nameB;
+				pair.a.setSerialPortParams(19200, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
+				pair.a.getOutputStream().write(new byte[5]);
+				Assert.assertEquals(5, pair.b.getInputStream().readNBytes(5).length);
+				pair.b.addEventListener((event)->{});
+				pair.b.notifyOnCTS(true);
+				pair.a.setRTS(false);
+			}
+			recording.stop();
+			recording.dump(dump);
+			events.addAll(RecordingFile.readAllEvents(dump));
+		} finally {
+			Files.deleteIfExists(dump);
+		}
+
+		Assert.assertTrue(has(events, "javax.comm.PortOpen", nameA, (e)->"test".equals(e.getString("owner")) && e.getBoolean("succeeded")));
+		Assert.assertTrue(has(events, "javax.comm.PortConfiguration", nameA, (e)->"setSerialPortParams".equals(e.getString("operation")) && e.getInt("baudRate") == 19200));
+		Assert.assertTrue(has(events, "javax.comm.PortWrite", nameA, (e)->e.getLong("bytes") == 5));
+		Assert.assertTrue(has(events, "javax.comm.PortRead", nameB, (e)->e.getLong("bytes") > 0));
+		Assert.assertTrue(has(events, "javax.comm.SerialPortEvent", nameB, (e)->"CTS".equals(e.getString("eventType")) && !e.getBoolean("newValue")));
+	}
+
+	private static boolean has(final List<RecordedEvent> events, final String type, final String portName, final Predicate<RecordedEvent> check) {
+		for (RecordedEvent event : events) {
+			if (event.getEventType().getName().equals(type) && portName.equals(event.getString("portName")) && check.test(event)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,331 @@
+package javax.comm.linux;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import javax.comm.SerialConfig;
+import javax.comm.SerialPort;
+import javax.comm.SerialPortEvent;
+import javax.comm.UnsupportedCommOperationException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LinuxSerialPortTest {
+	private static final int	TIMEOUT = 5000;
+
+	private PtyPair			pair;
+	private LinuxSerialPort	port;
+	private LinuxSerialPort	peer;
+
+	@Before
+	public void prepare() throws Exception {
+		Assume.assumeTrue("Native calls are not available: "+LibC.getUnavailableReason(), LibC.isAvailable());
+		pair = PtyPair.open();
+		port = new LinuxSerialPort(pair.first, pair.first, null);
+		peer = new LinuxSerialPort(pair.second, pair.second, null);
+		port.enableReceiveTimeout(TIMEOUT);		// broken transfer fails the test instead of hanging it
+		peer.enableReceiveTimeout(TIMEOUT);
+	}
+
+	@After
+	public void release() throws IOException {
+		if (port != null) {
+			port.close();
+		}
+		if (peer != null) {
+			peer.close();
+		}
+		if (pair != null) {
+			pair.close();
+		}
+	}
+
+	@Test(timeout = 4 * TIMEOUT)
+	public void serialParametersTest() throws Exception {	// pseudo-terminals accept 8 data bits without parity only
+		port.setSerialPortParams(19200, SerialPort.DATABITS_8, SerialPort.STOPBITS_2, SerialPort.PARITY_NONE);
+		Assert.assertEquals(19200, port.getBaudRate());
+		Assert.assertEquals(SerialPort.DATABITS_8, port.getDataBits());
+		Assert.assertEquals(SerialPort.STOPBITS_2, port.getStopBits());
+		Assert.assertEquals(SerialPort.PARITY_NONE, port.getParity());
+
+		final String	settings = stty(pair.first);
+
+		Assert.assertTrue(settings, settings.contains("speed 19200 baud"));
+		Assert.assertTrue(settings, hasFlag(settings, "cstopb"));
+		Assert.assertTrue(settings, hasFlag(settings, "-parenb"));
+		Assert.assertTrue(settings, hasFlag(settings, "-icanon"));
+
+		port.setFlowControlMode(SerialPort.FLOWCONTROL_XONXOFF_IN | SerialPort.FLOWCONTROL_XONXOFF_OUT);
+		Assert.assertEquals(SerialPort.FLOWCONTROL_XONXOFF_IN | SerialPort.FLOWCONTROL_XONXOFF_OUT, port.getFlowControlMode());
+		Assert.assertTrue(hasFlag(stty(pair.first), "ixoff"));
+		Assert.assertTrue(hasFlag(stty(pair.first), "ixon"));
+
+		try {
+			port.setSerialPortParams(9600, SerialPort.DATABITS_8, SerialPort.STOPBITS_1_5, SerialPort.PARITY_NONE);
+			Assert.fail("Mandatory exception was not detected (1.5 stop bits are not supported by termios)");
+		} catch (UnsupportedCommOperationException exc) {
+		}
+		try {
+			port.setSerialPortParams(9600, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_EVEN);
+			Assert.fail("Mandatory exception was not detected (pseudo-terminals replace parity silently, read back must see it)");
+		} catch (UnsupportedCommOperationException exc) {
+		}
+		Assert.assertEquals(19200, port.getBaudRate());
+		Assert.assertEquals(SerialPort.STOPBITS_2, port.getStopBits());
+		Assert.assertEquals(SerialPort.PARITY_NONE, port.getParity());
+		Assert.assertTrue(stty(pair.first).contains("speed 19200 baud"));
+	}
+
+	@Test(timeout = 4 * TIMEOUT)
+	public void dataTransferTest() throws Exception {
+		final byte[]	data = "hello, pty".getBytes(StandardCharsets.US_ASCII);
+
+		peer.getOutputStream().write(data);
+		peer.getOutputStream().flush();
+		Assert.assertArrayEquals(data, readFully(port.getInputStream(), data.length));
+	}
+
+	@Test(timeout = 4 * TIMEOUT)
+	public void receiveTimeoutTest() throws Exception {
+		final byte[]	buffer = new byte[16];
+
+		port.enableReceiveTimeout(200);
+		Assert.assertTrue(port.isReceiveTimeoutEnabled());
+
+		final long	start = System.nanoTime();
+
+		Assert.assertEquals(0, port.getInputStream().read(buffer));
+		Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(190));
+
+		peer.getOutputStream().write(1);
+		Assert.assertEquals(1, port.getInputStream().read(buffer));
+	}
+
+	@Test(timeout = 4 * TIMEOUT)
+	public void receiveThresholdTest() throws Exception {
+		final byte[]	buffer = new byte[16];
+
+		port.enableReceiveThreshold(4);
+		port.enableReceiveTimeout(2000);
+		peer.getOutputStream().write(new byte[] {1, 2});
+		new Thread(()->{
+			try {
+				Thread.sleep(100);
+				peer.getOutputStream().write(new byte[] {3, 4});
+			} catch (IOException | InterruptedException exc) {
+			}
+		}).start();
+		Assert.assertEquals(4, readAtLeast(port.getInputStream(), buffer, 4));
+		Assert.assertArrayEquals(new byte[] {1, 2, 3, 4}, java.util.Arrays.copyOf(buffer, 4));
+	}
+
+	@Test(timeout = 4 * TIMEOUT)
+	public void dataAvailableEventTest() throws Exception {
+		final BlockingQueue<SerialPortEvent>	events = new LinkedBlockingQueue<>();
+
+		port.addEventListener(events::offer);
+		port.notifyOnDataAvailable(true);
+		peer.getOutputStream().write(new byte[] {1, 2, 3});
+
+		final SerialPortEvent	event = events.poll(2, TimeUnit.SECONDS);
+
+		Assert.assertNotNull(event);
+		Assert.assertEquals(SerialPortEvent.DATA_AVAILABLE, event.getEventType());
+		Assert.assertTrue(event.getCount() > 0);
+	}
+
+	@Test(timeout = 4 * TIMEOUT)
+	public void closeUnblocksReadTest() throws Exception {
+		final AtomicInteger	result = new AtomicInteger(Integer.MIN_VALUE);
+		final Thread		reader = new Thread(()->{
+								try {
+									result.set(port.getInputStream().read());
+								} catch (IOException | IllegalStateException exc) {
+									result.set(-2);
+								}
+							});
+
+		reader.start();
+		awaitCondition(()->reader.getState() == Thread.State.TIMED_WAITING || reader.getState() == Thread.State.WAITING);
+		port.close();
+		reader.join(2000);
+		Assert.assertFalse(reader.isAlive());
+		Assert.assertEquals(-1, result.get());
+	}
+
+	@Test(timeout = 4 * TIMEOUT)
+	public void unsupportedOperationsTest() throws Exception {
+		Assert.assertTrue(port.isDTR());
+		Assert.assertTrue(port.isRTS());
+		port.setDTR(false);		// pseudo-terminals have no modem lines, the state is kept
+		port.setRTS(false);
+		port.sendBreak(10);
+		Assert.assertTrue(port.isDTR());
+		Assert.assertTrue(port.isRTS());
+		Assert.assertFalse(port.isCTS());
+		Assert.assertFalse(port.isDSR());
+		Assert.assertFalse(port.isCD());
+		Assert.assertFalse(port.isRI());
+		final SerialConfig	config = SerialConfig.of(port);
+
+		try {
+			port.applyConfig(config.withSerialPortParams(19200, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE).withModemLines(false, true));
+			Assert.fail("Mandatory exception was not detected (DTR can't be changed)");
+		} catch (UnsupportedCommOperationException exc) {
+		}
+		Assert.assertEquals(config, SerialConfig.of(port));	// rejected config is not applied
+		port.applyConfig(config.withModemLines(true, true));
+		try {
+			port.awaitModemStatusChange(port.getModemStatus(), SerialPort.MODEM_CTS, 10);
+			Assert.fail("Mandatory exception was not detected (modem lines can't be watched)");
+		} catch (UnsupportedCommOperationException exc) {
+		}
+		Assert.assertEquals(SerialPort.MODEM_DTR | SerialPort.MODEM_RTS, port.getModemStatus());
+	}
+
+	@Test(timeout = 4 * TIMEOUT)
+	public void asyncWriteTest() throws Exception {
+		final BlockingQueue<SerialPortEvent>	events = new LinkedBlockingQueue<>();
+		final byte[]		content = new byte[65536];
+
+		for (int index = 0; index < content.length; index++) {
+			content[index] = (byte)index;
+		}
+		port.addEventListener(events::offer);
+		port.notifyOnOutputEmpty(true);
+
+		final CompletableFuture<Integer>	write = port.getAsyncChannel().write(ByteBuffer.wrap(content));
+
+		Assert.assertArrayEquals(content, readFully(peer.getInputStream(), content.length));
+		Assert.assertEquals(content.length, write.get(5, TimeUnit.SECONDS).intValue());
+
+		final SerialPortEvent	event = events.poll(2, TimeUnit.SECONDS);
+
+		Assert.assertNotNull(event);
+		Assert.assertEquals(SerialPortEvent.OUTPUT_BUFFER_EMPTY, event.getEventType());
+	}
+
+	@Test(timeout = 4 * TIMEOUT)
+	public void closeSendsPendingDataTest() throws Exception {
+		port.getOutputStream().write("bye".getBytes(StandardCharsets.US_ASCII));
+		port.close();
+		Assert.assertEquals("bye", new String(readFully(peer.getInputStream(), 3), StandardCharsets.US_ASCII));
+	}
+
+	@Test(timeout = 4 * TIMEOUT)
+	public void closeSendsBlockedDataTest() throws Exception {	// more data than the device buffers can hold
+		final byte[]	content = new byte[262144];
+
+		for (int index = 0; index < content.length; index++) {
+			content[index] = (byte)(index * 31);
+		}
+		port.setSerialPortParams(4000000, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
+		port.setOutputBufferSize(content.length);
+		port.getOutputStream().write(content);
+
+		final CompletableFuture<byte[]>	received = CompletableFuture.supplyAsync(()->{
+													try {
+														return readFully(peer.getInputStream(), content.length);
+													} catch (IOException exc) {
+														throw new IllegalStateException(exc);
+													}
+												});
+		port.close();
+		Assert.assertArrayEquals(content, received.get(TIMEOUT, TimeUnit.MILLISECONDS));
+	}
+
+	@Test(timeout = 4 * TIMEOUT)
+	public void throttleInputTest() throws Exception {	// the poller stops reading the device, so data wait in the kernel buffer
+		port.throttleInput(true);
+		peer.getOutputStream().write("abc".getBytes(StandardCharsets.US_ASCII));
+		peer.getOutputStream().flush();
+		awaitCondition(()->port.queuedInput() == 3);
+		Assert.assertEquals(0, port.getInputStream().available());
+
+		port.throttleInput(false);
+		Assert.assertEquals("abc", new String(readFully(port.getInputStream(), 3), StandardCharsets.US_ASCII));
+		Assert.assertEquals(0, port.queuedInput());
+	}
+
+	@Test(timeout = 4 * TIMEOUT)
+	public void inputBufferSizeTest() throws Exception {	// the rest of data waits in the kernel buffer
+		final byte[]	data = new byte[100];
+
+		for (int index = 0; index < data.length; index++) {
+			data[index] = (byte)index;
+		}
+		port.setInputBufferSize(16);
+		Assert.assertEquals(16, port.getInputBufferSize());
+		peer.getOutputStream().write(data);
+		peer.getOutputStream().flush();
+		awaitCondition(()->port.queuedInput() == data.length - 16);
+		Assert.assertEquals(16, port.getInputStream().available());
+
+		port.setInputBufferSize(8192);
+		awaitCondition(()->available(port) == data.length);
+		Assert.assertEquals(0, port.queuedInput());
+		Assert.assertArrayEquals(data, readFully(port.getInputStream(), data.length));
+	}
+
+	private static String stty(final String device) throws IOException, InterruptedException {
+		final Process	process = new ProcessBuilder("stty", "-F", device, "-a").redirectErrorStream(true).start();
+		final ByteArrayOutputStream	baos = new ByteArrayOutputStream();
+
+		try(final InputStream	is = process.getInputStream()) {
+			is.transferTo(baos);
+		}
+		process.waitFor();
+		return baos.toString(StandardCharsets.US_ASCII);
+	}
+
+	private static boolean hasFlag(final String settings, final String flag) {
+		return (" "+settings.replace('\n', ' ').replace(';', ' ')+" ").contains(" "+flag+" ");
+	}
+
+	private static byte[] readFully(final InputStream is, final int length) throws IOException {
+		final byte[]	result = new byte[length];
+
+		Assert.assertEquals(length, readAtLeast(is, result, length));
+		return result;
+	}
+
+	private static int readAtLeast(final InputStream is, final byte[] buffer, final int length) throws IOException {	// reads end by the receive timeout
+		final long	deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT);
+		int			total = 0, read;
+
+		while (total < length && System.nanoTime() < deadline && (read = is.read(buffer, total, buffer.length - total)) >= 0) {
+			total += read;
+		}
+		return total;
+	}
+
+	private static int available(final SerialPort port) {
+		try {
+			return port.getInputStream().available();
+		} catch (IOException exc) {
+			return -1;
+		}
+	}
+
+	private static void awaitCondition(final BooleanSupplier condition) throws InterruptedException {
+		final long	deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT);
+
+		while (!condition.getAsBoolean()) {
+			Assert.assertTrue("Condition is not met in "+TIMEOUT+" msec", System.nanoTime() < deadline);
+			Thread.sleep(5);
+		}
+	}
+}
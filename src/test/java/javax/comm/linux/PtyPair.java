@@ -0,0 +1,100 @@
+package javax.comm.linux;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assume;
+
+/**
+ * <p>Pair of the connected pseudo-terminals. Both pseudo-terminals are made by <b>openpty</b> in the <b>python3</b> helper process,
+ * which keeps their slave sides open in the raw mode and relays data between their master sides, like a null-modem cable.
+ * Slave sides are available by the symbolic links in the temporary directory. Tests using the pair are skipped when <b>python3</b>
+ * is not available.</p>
+ */
+final class PtyPair implements Closeable {
+	private static final long	STARTUP_TIMEOUT = TimeUnit.SECONDS.toNanos(5);
+	private static final String	RELAY = String.join("\n"
+			, "import os, select, sys, tty"
+			, "def write_all(fd, data):"
+			, "    while data:"
+			, "        data = data[os.write(fd, data):]"
+			, "m1, s1 = os.openpty()"
+			, "m2, s2 = os.openpty()"
+			, "tty.setraw(s1)"
+			, "tty.setraw(s2)"
+			, "os.symlink(os.ttyname(s1), os.path.join(sys.argv[1], 'ttyA'))"
+			, "os.symlink(os.ttyname(s2), os.path.join(sys.argv[1], 'ttyB'))"
+			, "peers = {m1: m2, m2: m1}"
+			, "while True:"
+			, "    ready = select.select([m1, m2, sys.stdin], [], [])[0]"
+			, "    if sys.stdin in ready and not os.read(sys.stdin.fileno(), 1):"
+			, "        break"
+			, "    for fd in ready:"
+			, "        if fd in peers:"
+			, "            write_all(peers[fd], os.read(fd, 65536))"
+			);
+
+	final String			first;
+	final String			second;
+	private final Path		directory;
+	private final Process	process;
+
+	private PtyPair(final Path directory, final Process process) {
+		this.directory = directory;
+		this.process = process;
+		this.first = directory.resolve("ttyA").toString();
+		this.second = directory.resolve("ttyB").toString();
+	}
+
+	/**
+	 * <p>Starts the relay process and waits for both pseudo-terminals. Skips the test if <b>python3</b> is not available.</p>
+	 * @return pair started. Can't be null
+	 * @throws IOException on any I/O errors
+	 * @throws InterruptedException if interrupted
+	 */
+	static PtyPair open() throws IOException, InterruptedException {
+		Assume.assumeTrue("Linux is required", System.getProperty("os.name", "").toLowerCase().startsWith("linux"));
+		final Path	directory = Files.createTempDirectory("pty");
+		final Process	process;
+
+		try {	// relay exits when its stdin is closed, so it doesn't outlive the tests
+			process = new ProcessBuilder("python3", "-c", RELAY, directory.toString())
+							.redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+		} catch (IOException exc) {
+			Files.delete(directory);
+			Assume.assumeNoException("python3 is not available", exc);
+			throw exc;
+		}
+		final PtyPair	pair = new PtyPair(directory, process);
+		final long		deadline = System.nanoTime() + STARTUP_TIMEOUT;
+
+		while (!(new File(pair.first).exists() && new File(pair.second).exists())) {
+			if (!process.isAlive() || System.nanoTime() > deadline) {
+				pair.close();
+				throw new IOException("Relay process didn't create pseudo-terminals");
+			}
+			else {
+				Thread.sleep(10);
+			}
+		}
+		return pair;
+	}
+
+	@Override
+	public void close() throws IOException {
+		process.getOutputStream().close();
+		process.destroy();
+		try {
+			process.waitFor(5, TimeUnit.SECONDS);
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+		}
+		Files.deleteIfExists(directory.resolve("ttyA"));
+		Files.deleteIfExists(directory.resolve("ttyB"));
+		Files.deleteIfExists(directory);
+	}
+}
@@ -0,0 +1,99 @@
+package javax.comm.loopback;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.comm.CommPortIdentifier;
+import javax.comm.PortInUseException;
+import javax.comm.SerialPort;
+
+/**
+ * <p>Pair of the opened loopback ports for tests. Every pair gets unique names, so tests don't depend on each other.</p>
+ */
+public class LoopbackPair implements AutoCloseable {
+	private static final LoopbackCommDriver	DRIVER = new LoopbackCommDriver();
+	private static final AtomicInteger		UNIQUE = new AtomicInteger();
+
+	public final String		nameA;
+	public final String		nameB;
+	public final SerialPort	a;
+	public final SerialPort	b;
+
+	private LoopbackPair(final String nameA, final String nameB, final SerialPort a, final SerialPort b) {
+		this.nameA = nameA;
+		this.nameB = nameB;
+		this.a = a;
+		this.b = b;
+	}
+
+	/**
+	 * <p>Creates not paced pair with the default buffer size and opens both ports</p>
+	 * @return pair opened
+	 * @throws Exception on any errors
+	 */
+	public static LoopbackPair open() throws Exception {
+		return open(false, -1);
+	}
+
+	/**
+	 * <p>Creates pair and opens both ports</p>
+	 * @param paced pace throughput to the bit rate
+	 * @param bufferSize receive buffer size of every port. Negative means default size
+	 * @return pair opened
+	 * @throws Exception on any errors
+	 */
+	public static LoopbackPair open(final boolean paced, final int bufferSize) throws Exception {
+		final String[]	names = create(paced, bufferSize);
+
+		return new LoopbackPair(names[0], names[1], openPort(names[0]), openPort(names[1]));
+	}
+
+	/**
+	 * <p>Creates pair without opening ports</p>
+	 * @param paced pace throughput to the bit rate
+	 * @param bufferSize receive buffer size of every port. Negative means default size
+	 * @return names of the ports created
+	 */
+	public static String[] create(final boolean paced, final int bufferSize) {
+		final int		index = UNIQUE.incrementAndGet();
+		final String	nameA = "TEST"+index+"A", nameB = "TEST"+index+"B";
+
+		synchronized (DRIVER) {
+			final String	oldSize = System.getProperty(LoopbackCommDriver.BUFFER_SIZE_PROPERTY);
+
+			try {
+				if (bufferSize > 0) {
+					System.setProperty(LoopbackCommDriver.BUFFER_SIZE_PROPERTY, String.valueOf(bufferSize));
+				}
+				DRIVER.createPair(nameA, nameB, paced);
+			} finally {
+				if (oldSize == null) {
+					System.clearProperty(LoopbackCommDriver.BUFFER_SIZE_PROPERTY);
+				}
+				else {
+					System.setProperty(LoopbackCommDriver.BUFFER_SIZE_PROPERTY, oldSize);
+				}
+			}
+		}
+		return new String[] {nameA, nameB};
+	}
+
+	/**
+	 * <p>Opens the port by name</p>
+	 * @param name port name
+	 * @return port opened
+	 * @throws Exception on any errors
+	 */
+	public static SerialPort openPort(final String name) throws Exception {
+		try {
+			return (SerialPort)CommPortIdentifier.getPortIdentifier(name).open("test", 1000);
+		} catch (PortInUseException exc) {
+			throw new IllegalStateException(exc.getMessage(), exc);
+		}
+	}
+
+	@Override
+	public void close() {
+		a.close();
+		b.close();
+	}
+}
@@ -0,0 +1,221 @@
+package javax.comm.loopback;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.SerialPort;
+import javax.comm.SerialPortEvent;
+import javax.comm.UnsupportedCommOperationException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LoopbackSerialPortTest {
+	private LoopbackPair	pair;
+
+	@Before
+	public void prepare() throws Exception {
+		pair = LoopbackPair.open();
+	}
+
+	@After
+	public void release() {
+		if (pair != null) {
+			pair.close();
+		}
+	}
+
+	@Test
+	public void dataTransferTest() throws IOException {
+		final byte[]	content = "hello, loopback".getBytes(StandardCharsets.US_ASCII);
+
+		pair.a.getOutputStream().write(content);
+		Assert.assertArrayEquals(content, readFully(pair.b.getInputStream(), content.length));
+
+		pair.b.getOutputStream().write(content, 0, 5);
+		Assert.assertArrayEquals("hello".getBytes(StandardCharsets.US_ASCII), readFully(pair.a.getInputStream(), 5));
+		Assert.assertEquals(0, pair.a.getInputStream().available());
+	}
+
+	@Test
+	public void nullModemLinesTest() {
+		Assert.assertTrue(pair.a.isDTR());
+		Assert.assertTrue(pair.a.isRTS());
+		Assert.assertTrue(pair.b.isCTS());
+		Assert.assertTrue(pair.b.isDSR());
+		Assert.assertTrue(pair.b.isCD());
+
+		pair.a.setRTS(false);
+		Assert.assertFalse(pair.b.isCTS());
+		Assert.assertTrue(pair.b.isDSR());
+
+		pair.a.setDTR(false);
+		Assert.assertFalse(pair.b.isDSR());
+		Assert.assertFalse(pair.b.isCD());
+		Assert.assertFalse(pair.b.isRI());
+
+		pair.a.close();
+		try {
+			pair.a.setRTS(true);
+			Assert.fail("Mandatory exception was not detected (port is closed)");
+		} catch (IllegalStateException exc) {
+		}
+	}
+
+	@Test
+	public void lineEventsTest() throws Exception {
+		final BlockingQueue<SerialPortEvent>	events = new ArrayBlockingQueue<>(16);
+
+		pair.b.addEventListener(events::add);
+		pair.b.notifyOnCTS(true);
+		pair.b.notifyOnBreakInterrupt(true);
+
+		pair.a.setRTS(false);
+		assertEvent(events.poll(2, TimeUnit.SECONDS), SerialPortEvent.CTS, true, false);
+		pair.a.setRTS(true);
+		assertEvent(events.poll(2, TimeUnit.SECONDS), SerialPortEvent.CTS, false, true);
+		pair.a.sendBreak(0);
+		assertEvent(events.poll(2, TimeUnit.SECONDS), SerialPortEvent.BI, false, true);
+	}
+
+	@Test
+	public void receiveTimeoutTest() throws Exception {
+		final byte[]	buffer = new byte[4];
+
+		pair.b.enableReceiveTimeout(100);
+		final long	start = System.nanoTime();
+
+		Assert.assertEquals(0, pair.b.getInputStream().read(buffer, 0, buffer.length));
+		Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+
+		pair.b.enableReceiveThreshold(3);
+		pair.a.getOutputStream().write(new byte[] {1, 2});
+		CompletableFuture.runAsync(()->{
+			try {
+				Thread.sleep(30);
+				pair.a.getOutputStream().write(3);
+			} catch (IOException | InterruptedException exc) {
+			}
+		});
+		Assert.assertEquals(3, pair.b.getInputStream().read(buffer, 0, buffer.length));
+	}
+
+	@Test
+	public void pacedThroughputTest() throws Exception {
+		try (final LoopbackPair	paced = LoopbackPair.open(true, -1)) {
+			paced.a.setSerialPortParams(9600, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
+			final long	start = System.nanoTime();
+
+			paced.a.getOutputStream().write(new byte[192]);		// 192 characters * 10 bits at 9600 baud take 200 ms
+			paced.a.getOutputStream().flush();
+			Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(180));
+			Assert.assertEquals(192, readFully(paced.b.getInputStream(), 192).length);
+		}
+	}
+
+	@Test
+	public void hardwareFlowControlTest() throws Exception {
+		pair.a.setFlowControlMode(SerialPort.FLOWCONTROL_RTSCTS_OUT);
+		pair.b.setRTS(false);
+
+		final CompletableFuture<Void>	writer = CompletableFuture.runAsync(()->{
+												try {
+													pair.a.getOutputStream().write(42);
+												} catch (IOException exc) {
+													throw new IllegalStateException(exc);
+												}
+											});
+		Thread.sleep(100);
+		Assert.assertFalse(writer.isDone());
+		Assert.assertEquals(0, pair.b.getInputStream().available());
+
+		pair.b.setRTS(true);
+		writer.get(2, TimeUnit.SECONDS);
+		Assert.assertEquals(42, pair.b.getInputStream().read());
+
+		try {
+			pair.a.setFlowControlMode(SerialPort.FLOWCONTROL_XONXOFF_IN);
+			Assert.fail("Mandatory exception was not detected (XON/XOFF is not supported)");
+		} catch (UnsupportedCommOperationException exc) {
+		}
+	}
+
+	@Test
+	public void reopenTest() throws Exception {
+		pair.a.getOutputStream().write(new byte[] {1, 2, 3});
+		pair.b.close();
+		Assert.assertFalse(pair.a.isCTS());
+
+		final SerialPort	reopened = LoopbackPair.openPort(pair.nameB);
+
+		try {
+			Assert.assertTrue(pair.a.isCTS());
+			Assert.assertEquals(0, reopened.getInputStream().available());	// stale data are discarded on open
+		} finally {
+			reopened.close();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void inputBufferSizeTest() throws Exception {
+		try (final LoopbackPair	small = LoopbackPair.open(false, 1024)) {
+			final byte[]	content = new byte[3000];
+
+			for (int index = 0; index < content.length; index++) {
+				content[index] = (byte)index;
+			}
+			small.b.getOutputStream().write(new byte[] {1, 2, 3});
+			small.a.setInputBufferSize(4096);
+			Assert.assertEquals(4096, small.a.getInputBufferSize());
+			Assert.assertEquals(3, small.a.getInputStream().available());	// data stored survive the resize
+			Assert.assertArrayEquals(new byte[] {1, 2, 3}, readFully(small.a.getInputStream(), 3));
+
+			small.b.getOutputStream().write(content);	// doesn't fit the old ring, so the writer would block
+			Assert.assertEquals(content.length, small.a.getInputStream().available());
+
+			small.a.setInputBufferSize(16);		// ring never drops data stored, and is shrunk when they are read
+			Assert.assertEquals(16, small.a.getInputBufferSize());
+			Assert.assertEquals(content.length, small.a.getInputStream().available());
+			Assert.assertArrayEquals(content, readFully(small.a.getInputStream(), content.length));
+
+			final CompletableFuture<Void>	writer = CompletableFuture.runAsync(()->{
+													try {
+														small.b.getOutputStream().write(content, 0, 32);
+													} catch (IOException exc) {
+														throw new IllegalStateException(exc);
+													}
+												});
+			Thread.sleep(100);
+			Assert.assertFalse(writer.isDone());
+			Assert.assertEquals(16, small.a.getInputStream().available());
+			Assert.assertArrayEquals(Arrays.copyOf(content, 32), readFully(small.a.getInputStream(), 32));
+			writer.get(2, TimeUnit.SECONDS);
+		}
+	}
+
+	static void assertEvent(final SerialPortEvent event, final int type, final boolean oldValue, final boolean newValue) {
+		Assert.assertNotNull("Event was not fired", event);
+		Assert.assertEquals(type, event.getEventType());
+		Assert.assertEquals(oldValue, event.getOldValue());
+		Assert.assertEquals(newValue, event.getNewValue());
+	}
+
+	static byte[] readFully(final InputStream is, final int size) throws IOException {
+		final byte[]	result = new byte[size];
+		int				total = 0, len;
+
+		while (total < size && (len = is.read(result, total, size - total)) >= 0) {
+			total += len;
+		}
+		Assert.assertEquals(size, total);
+		return result;
+	}
+}
@@ -0,0 +1,50 @@
+package javax.comm.spi;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ArrivalMarksTest {
+	@Test
+	public void consumeTest() {
+		final ArrivalMarks	marks = new ArrivalMarks(4);
+
+		marks.mark(3, 100);
+		marks.mark(2, 200);
+		Assert.assertEquals(100, marks.consume(2));
+		Assert.assertEquals(100, marks.consume(2));		// last byte of the first mark and first byte of the second one
+		Assert.assertEquals(200, marks.consume(1));
+		Assert.assertEquals(ArrivalMarks.UNKNOWN, marks.consume(1));
+	}
+
+	@Test
+	public void overflowTest() {
+		final ArrivalMarks	marks = new ArrivalMarks(3);	// rounded up to 4
+
+		for (int index = 0; index < 6; index++) {
+			marks.mark(1, 100 * (index + 1));
+		}
+		Assert.assertEquals(100, marks.consume(1));
+		Assert.assertEquals(200, marks.consume(1));
+		Assert.assertEquals(300, marks.consume(1));
+		Assert.assertEquals(400, marks.consume(1));		// the newest mark was extended by the overflowed data
+		Assert.assertEquals(400, marks.consume(2));
+		Assert.assertEquals(ArrivalMarks.UNKNOWN, marks.consume(1));
+		marks.mark(1, 600);								// late mark of the data read beyond the marks
+		marks.mark(1, 700);
+		Assert.assertEquals(700, marks.consume(1));
+	}
+
+	@Test
+	public void lateMarkTest() {
+		final ArrivalMarks	marks = new ArrivalMarks(4);
+
+		Assert.assertEquals(ArrivalMarks.UNKNOWN, marks.consume(2));	// data read before their mark
+		marks.mark(2, 100);
+		marks.mark(1, 200);
+		Assert.assertEquals(200, marks.consume(1));		// late mark doesn't move to the data received later
+		Assert.assertEquals(ArrivalMarks.UNKNOWN, marks.consume(1));
+		marks.mark(2, 400);								// counted against the byte read, the rest is marked
+		Assert.assertEquals(400, marks.consume(1));
+		Assert.assertEquals(ArrivalMarks.UNKNOWN, marks.consume(1));
+	}
+}
@@ -0,0 +1,164 @@
+package javax.comm.spi;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.comm.loopback.LoopbackPair;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DirectByteRingTest {
+	@Test
+	public void basicTest() {
+		final DirectByteRing	ring = new DirectByteRing(5);
+		final ByteBuffer		dst = ByteBuffer.allocate(8);
+
+		Assert.assertEquals(8, ring.capacity());
+		Assert.assertEquals(0, ring.available());
+		Assert.assertEquals(8, ring.free());
+
+		Assert.assertEquals(6, ring.write(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5, 6})));
+		Assert.assertEquals(2, ring.skip(2));
+		Assert.assertEquals(4, ring.write(ByteBuffer.wrap(new byte[] {7, 8, 9, 10, 11})));	// wraps around and is truncated
+		Assert.assertEquals(8, ring.available());
+		Assert.assertEquals(8, ring.getHighWaterMark());
+
+		Assert.assertEquals(8, ring.read(dst));
+		Assert.assertArrayEquals(new byte[] {3, 4, 5, 6, 7, 8, 9, 10}, dst.array());
+		Assert.assertEquals(10, ring.getTotalWritten());
+		Assert.assertEquals(10, ring.getTotalRead());
+		Assert.assertEquals(8, ring.resetHighWaterMark());
+		Assert.assertEquals(0, ring.getHighWaterMark());
+
+		ring.write(ByteBuffer.wrap(new byte[] {1, 2, 3}));
+		ring.clear();
+		Assert.assertEquals(0, ring.available());
+
+		try {
+			new DirectByteRing(0);
+			Assert.fail("Mandatory exception was not detected (capacity is not positive)");
+		} catch (IllegalArgumentException exc) {
+		}
+		try {
+			new DirectByteRing(DirectByteRing.MAX_CAPACITY + 1);
+			Assert.fail("Mandatory exception was not detected (capacity is too large)");
+		} catch (IllegalArgumentException exc) {
+		}
+	}
+
+	@Test
+	public void resizeTest() {
+		final DirectByteRing	ring = new DirectByteRing(8);
+		final ByteBuffer		dst = ByteBuffer.allocate(6);
+
+		ring.write(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5, 6}));
+		ring.skip(4);
+		ring.write(ByteBuffer.wrap(new byte[] {7, 8, 9, 10}));		// wraps around
+		Assert.assertSame(ring, ring.resize(5));
+
+		final DirectByteRing	larger = ring.resize(20);
+
+		Assert.assertEquals(32, larger.capacity());
+		Assert.assertEquals(0, ring.available());
+		Assert.assertEquals(6, larger.available());
+		Assert.assertEquals(6, larger.getHighWaterMark());
+		Assert.assertEquals(6, larger.getTotalWritten());
+
+		final DirectByteRing	smaller = larger.resize(2);	// never less than the data stored
+
+		Assert.assertEquals(8, smaller.capacity());
+		Assert.assertEquals(6, smaller.read(dst));
+		Assert.assertArrayEquals(new byte[] {5, 6, 7, 8, 9, 10}, dst.array());
+		Assert.assertEquals(1, smaller.resize(1).capacity());
+
+		try {
+			ring.resize(0);
+			Assert.fail("Mandatory exception was not detected (capacity is not positive)");
+		} catch (IllegalArgumentException exc) {
+		}
+	}
+
+	@Test
+	public void awaitTimeoutTest() {
+		final DirectByteRing	ring = new DirectByteRing(4);
+
+		Assert.assertFalse(ring.awaitData(1, 1_000_000, ()->false));
+		Assert.assertFalse(ring.awaitData(1, -1, ()->true));		// cancelled
+		ring.write(ByteBuffer.wrap(new byte[4]));
+		Assert.assertTrue(ring.awaitData(4, 0, ()->false));
+		Assert.assertFalse(ring.awaitSpace(1, 1_000_000, ()->false));
+		Assert.assertFalse(ring.spinForData(5, 1_000_000));
+		Assert.assertTrue(ring.spinForData(4, 0));
+	}
+
+	@Test(timeout = 20000)
+	public void blockingPingPongTest() throws Exception {
+		// the tiny ring makes both sides park on almost every byte, so any lost wakeup hangs the test
+		final DirectByteRing			ring = new DirectByteRing(2);
+		final int						total = 999_999;	// multiple of the write size
+		final AtomicReference<Throwable>	error = new AtomicReference<>();
+		final Thread					producer = new Thread(()->{
+											final ByteBuffer	src = ByteBuffer.allocate(3);
+
+											try {
+												for (int index = 0; index < total; index += 3) {
+													src.clear();
+													src.put((byte)index).put((byte)(index + 1)).put((byte)(index + 2)).flip();
+													while (src.hasRemaining()) {
+														if (!ring.awaitSpace(1, -1, ()->false)) {
+															throw new IllegalStateException("Interrupted");
+														}
+														ring.write(src);
+													}
+												}
+											} catch (Throwable exc) {
+												error.set(exc);
+											}
+										});
+
+		producer.start();
+		final ByteBuffer	dst = ByteBuffer.allocate(1);
+		int					received = 0;
+
+		while (received < total && error.get() == null) {
+			Assert.assertTrue(ring.awaitData(1, -1, ()->false));
+			dst.clear();
+			Assert.assertEquals(1, ring.read(dst));
+			Assert.assertEquals((byte)received, dst.get(0));
+			received++;
+		}
+		producer.join();
+		Assert.assertNull(error.get());
+		Assert.assertEquals(0, ring.available());
+	}
+
+	@Test(timeout = 20000)
+	public void loopbackBackpressureTest() throws Exception {
+		// writer parks in awaitSpace of the tiny peer ring and must be woken by every read
+		try (final LoopbackPair	pair = LoopbackPair.open(false, 4)) {
+			final OutputStream					os = pair.a.getOutputStream();
+			final InputStream					is = pair.b.getInputStream();
+			final int							total = 200_000;
+			final AtomicReference<Throwable>	error = new AtomicReference<>();
+			final Thread						writer = new Thread(()->{
+													try {
+														for (int index = 0; index < total; index++) {
+															os.write(index);
+														}
+													} catch (Throwable exc) {
+														error.set(exc);
+													}
+												});
+
+			writer.start();
+			for (int index = 0; index < total; index++) {
+				Assert.assertEquals(index & 0xFF, is.read());
+			}
+			writer.join();
+			Assert.assertNull(error.get());
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package javax.comm.spi;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.SerialPortEvent;
+import javax.comm.SerialPortEventListener;
+import javax.comm.loopback.LoopbackPair;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EventRingTest {
+	private LoopbackPair	pair;
+
+	@Before
+	public void prepare() throws Exception {
+		pair = LoopbackPair.open();
+	}
+
+	@After
+	public void release() {
+		if (pair != null) {
+			pair.close();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void coalescingTest() throws Exception {
+		final BlockingListener	listener = new BlockingListener();
+		final EventRing			ring = new EventRing(pair.a, listener, 8, "test");
+
+		try {
+			Assert.assertTrue(ring.publish(SerialPortEvent.DATA_AVAILABLE, false, true, 1, 1));
+			listener.started.await();		// the first event is being delivered and can't be changed any more
+			Assert.assertTrue(ring.publish(SerialPortEvent.DATA_AVAILABLE, false, true, 2, 2));
+			Assert.assertTrue(ring.publish(SerialPortEvent.DATA_AVAILABLE, false, true, 3, 3));
+			Assert.assertTrue(ring.publish(SerialPortEvent.CTS, false, true, 0, 4));
+			Assert.assertTrue(ring.publish(SerialPortEvent.CTS, true, false, 0, 5));		// line events are never merged
+			listener.proceed.countDown();
+
+			listener.awaitEvents(4);
+			Assert.assertEquals("1:1@1 1:5@2 3:0@4 3:0@5", String.join(" ", listener.received));
+			Assert.assertEquals(0, ring.getDroppedCount());
+		} finally {
+			ring.stop();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void overflowTest() throws Exception {
+		final BlockingListener	listener = new BlockingListener();
+		final EventRing			ring = new EventRing(pair.a, listener, 2, "test");
+
+		try {
+			Assert.assertTrue(ring.publish(SerialPortEvent.CTS, false, true, 0, 1));
+			listener.started.await();
+			Assert.assertTrue(ring.publish(SerialPortEvent.DSR, false, true, 0, 2));
+			Assert.assertFalse(ring.publish(SerialPortEvent.CD, false, true, 0, 3));
+			Assert.assertFalse(ring.publish(SerialPortEvent.RI, false, true, 0, 4));
+			Assert.assertEquals(2, ring.getDroppedCount());
+			listener.proceed.countDown();
+
+			listener.awaitEvents(2);
+			Assert.assertEquals("3:0@1 4:0@2", String.join(" ", listener.received));
+		} finally {
+			ring.stop();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void portCoalescingTest() throws Exception {
+		final BlockingListener	listener = new BlockingListener();
+
+		pair.b.setEventCoalescing(true);
+		Assert.assertTrue(pair.b.isEventCoalescing());
+		pair.b.addEventListener(listener);
+		pair.b.notifyOnDataAvailable(true);
+
+		pair.a.getOutputStream().write(1);
+		listener.started.await();
+		for (int index = 0; index < 10; index++) {
+			pair.a.getOutputStream().write(new byte[] {2, 3});
+		}
+		listener.proceed.countDown();
+		listener.awaitEvents(2);
+		Thread.sleep(50);
+		Assert.assertEquals(2, listener.received.size());
+		Assert.assertEquals(20, Integer.parseInt(listener.received.get(1).split("[:@]")[1]));
+		Assert.assertEquals(0, ((AbstractSerialPort)pair.b).getDroppedEventCount());
+	}
+
+	private static class BlockingListener implements SerialPortEventListener {
+		final CountDownLatch	started = new CountDownLatch(1);
+		final CountDownLatch	proceed = new CountDownLatch(1);
+		final List<String>		received = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void serialEvent(final SerialPortEvent event) {
+			received.add(event.getEventType()+":"+event.getCount()+"@"+event.getTimestamp());	// event object is reused, copy it
+			started.countDown();
+			try {
+				proceed.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException exc) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		void awaitEvents(final int count) throws InterruptedException {
+			while (received.size() < count) {
+				Thread.sleep(5);
+			}
+		}
+	}
+}
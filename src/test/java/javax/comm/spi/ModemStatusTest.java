@@ -0,0 +1,105 @@
+package javax.comm.spi;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.comm.SerialPort;
+import javax.comm.loopback.LoopbackPair;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ModemStatusTest {
+	private static final int	ALL_LINES = SerialPort.MODEM_DTR | SerialPort.MODEM_RTS | SerialPort.MODEM_CTS | SerialPort.MODEM_DSR | SerialPort.MODEM_CD;
+
+	private LoopbackPair	pair;
+
+	@Before
+	public void prepare() throws Exception {
+		pair = LoopbackPair.open();
+	}
+
+	@After
+	public void release() {
+		if (pair != null) {
+			pair.close();
+		}
+	}
+
+	@Test
+	public void snapshotTest() {
+		Assert.assertEquals(ALL_LINES, pair.a.getModemStatus());
+
+		pair.b.setRTS(false);
+		Assert.assertEquals(ALL_LINES & ~SerialPort.MODEM_CTS, pair.a.getModemStatus());
+		Assert.assertEquals(ALL_LINES & ~SerialPort.MODEM_RTS, pair.b.getModemStatus());
+		Assert.assertFalse(pair.a.isCTS());
+
+		pair.b.setDTR(false);
+		Assert.assertEquals(SerialPort.MODEM_DTR | SerialPort.MODEM_RTS, pair.a.getModemStatus());
+		Assert.assertFalse(pair.a.isDSR());
+		Assert.assertFalse(pair.a.isCD());
+	}
+
+	@Test(timeout = 10000)
+	public void awaitChangeTest() throws Exception {
+		final int	status = pair.a.getModemStatus();
+		final CompletableFuture<Integer>	change = CompletableFuture.supplyAsync(()->{
+												try {
+													return pair.a.awaitModemStatusChange(status, SerialPort.MODEM_CTS, 0);
+												} catch (Exception exc) {
+													throw new IllegalStateException(exc);
+												}
+											});
+
+		Thread.sleep(100);
+		Assert.assertFalse(change.isDone());
+		pair.b.setDTR(false);		// lines outside the mask don't wake the waiter
+		Thread.sleep(100);
+		Assert.assertFalse(change.isDone());
+		pair.b.setRTS(false);
+		Assert.assertEquals(SerialPort.MODEM_DTR | SerialPort.MODEM_RTS, change.get(2, TimeUnit.SECONDS).intValue());
+	}
+
+	@Test(timeout = 10000)
+	public void changeBeforeWaitIsNotLostTest() throws Exception {
+		final int	status = pair.a.getModemStatus();
+
+		pair.b.setRTS(false);
+		Assert.assertEquals(0, pair.a.awaitModemStatusChange(status, SerialPort.MODEM_CTS, 0) & SerialPort.MODEM_CTS);
+	}
+
+	@Test(timeout = 10000)
+	public void timeoutAndCloseTest() throws Exception {
+		final int	status = pair.a.getModemStatus();
+		final long	start = System.nanoTime();
+
+		Assert.assertEquals(status, pair.a.awaitModemStatusChange(status, SerialPort.MODEM_CTS | SerialPort.MODEM_DSR, 100));
+		Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+
+		final CompletableFuture<Integer>	change = CompletableFuture.supplyAsync(()->{
+												try {
+													return pair.a.awaitModemStatusChange(status, SerialPort.MODEM_RI, 0);
+												} catch (Exception exc) {
+													throw new IllegalStateException(exc);
+												}
+											});
+
+		Thread.sleep(100);
+		pair.a.close();				// close wakes the waiter up
+		Assert.assertEquals(0, change.get(2, TimeUnit.SECONDS).intValue() & SerialPort.MODEM_RI);
+
+		try {
+			pair.b.awaitModemStatusChange(0, 0, 0);
+			Assert.fail("Mandatory exception was not detected (mask is 0)");
+		} catch (IllegalArgumentException exc) {
+		}
+		try {
+			pair.b.awaitModemStatusChange(0, SerialPort.MODEM_CTS, -1);
+			Assert.fail("Mandatory exception was not detected (negative timeout)");
+		} catch (IllegalArgumentException exc) {
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package javax.comm.spi;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimerWheelTest {
+	private TimerWheel	wheel;
+
+	@Before
+	public void prepare() {
+		wheel = new TimerWheel(100, 16, "TestTimerWheel");	// 1.6 ms per round, so most of the timeouts wait for many rounds
+	}
+
+	@After
+	public void release() {
+		wheel.shutdown();
+	}
+
+	@Test(timeout = 10000)
+	public void expirationTest() throws Exception {
+		final CountDownLatch		latch = new CountDownLatch(1);
+		final long					start = System.nanoTime();
+		final TimerWheel.Timeout	timeout = wheel.schedule(latch::countDown, 20, TimeUnit.MILLISECONDS);
+
+		Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+		Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+		Assert.assertTrue(timeout.isExpired());
+		Assert.assertFalse(timeout.isCancelled());
+		Assert.assertFalse(timeout.cancel());		// already expired
+	}
+
+	@Test(timeout = 10000)
+	public void cancelTest() throws Exception {
+		final AtomicInteger			fired = new AtomicInteger();
+		final CountDownLatch		latch = new CountDownLatch(1);
+		final TimerWheel.Timeout	timeout = wheel.schedule(fired::incrementAndGet, 10, TimeUnit.MILLISECONDS);
+
+		Assert.assertTrue(timeout.cancel());
+		Assert.assertTrue(timeout.isCancelled());
+		Assert.assertFalse(timeout.cancel());
+		wheel.schedule(latch::countDown, 30, TimeUnit.MILLISECONDS);
+		Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));	// later timeout is expired, so cancelled one would be expired too
+		Assert.assertEquals(0, fired.get());
+		Assert.assertFalse(timeout.isExpired());
+	}
+
+	@Test(timeout = 20000)
+	public void manyTimeoutsTest() throws Exception {
+		final int					total = 10000;
+		final AtomicInteger			fired = new AtomicInteger();
+		final TimerWheel.Timeout[]	timeouts = new TimerWheel.Timeout[total];
+		int							cancelled = 0;
+
+		for (int index = 0; index < total; index++) {
+			timeouts[index] = wheel.schedule(fired::incrementAndGet, 50 + index % 50, TimeUnit.MILLISECONDS);
+		}
+		for (int index = 1; index < total; index += 2) {
+			if (timeouts[index].cancel()) {		// can be already expired on slow machine
+				cancelled++;
+			}
+		}
+		final CountDownLatch	latch = new CountDownLatch(1);
+
+		wheel.schedule(latch::countDown, 150, TimeUnit.MILLISECONDS);
+		Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+		Assert.assertEquals(total - cancelled, fired.get());
+		for (int index = 0; index < total; index++) {
+			Assert.assertTrue(timeouts[index].isExpired() != timeouts[index].isCancelled());
+		}
+	}
+
+	@Test
+	public void shutdownTest() {
+		final TimerWheel	other = new TimerWheel(TimerWheel.DEFAULT_TICK_MICROS, TimerWheel.DEFAULT_WHEEL_SIZE, "OtherTimerWheel");
+
+		other.shutdown();
+		try {
+			other.schedule(()->{}, 1, TimeUnit.MILLISECONDS);
+			Assert.fail("Mandatory exception was not detected (wheel is shut down)");
+		} catch (IllegalStateException exc) {
+		}
+		try {
+			TimerWheel.getDefault().shutdown();
+			Assert.fail("Mandatory exception was not detected (shared wheel can't be shut down)");
+		} catch (IllegalStateException exc) {
+		}
+		try {
+			new TimerWheel(0, 16, "BadWheel");
+			Assert.fail("Mandatory exception was not detected (tick is not positive)");
+		} catch (IllegalArgumentException exc) {
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package javax.comm.spi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.comm.SerialPortEvent;
+import javax.comm.UnsupportedCommOperationException;
+import javax.comm.loopback.LoopbackPair;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WriteCoalescingTest {
+	private LoopbackPair	pair;
+
+	@Before
+	public void prepare() throws Exception {
+		pair = LoopbackPair.open();
+	}
+
+	@After
+	public void release() {
+		if (pair != null) {
+			pair.close();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void flushTest() throws Exception {
+		final OutputStream	os = pair.a.getOutputStream();
+		final InputStream	is = pair.b.getInputStream();
+
+		pair.a.enableWriteCoalescing(10_000_000);	// window never expires in the test
+		Assert.assertTrue(pair.a.isWriteCoalescingEnabled());
+		Assert.assertEquals(10_000_000, pair.a.getWriteCoalescingWindow());
+
+		os.write(1);
+		os.write(new byte[] {2, 3});
+		Assert.assertEquals(3, ((AbstractSerialPort)pair.a).getCoalescedOutputCount());
+		Assert.assertEquals(0, is.available());
+
+		os.flush();
+		Assert.assertEquals(0, ((AbstractSerialPort)pair.a).getCoalescedOutputCount());
+		Assert.assertEquals(3, is.available());
+		Assert.assertArrayEquals(new byte[] {1, 2, 3}, is.readNBytes(3));
+
+		os.write(4);
+		pair.a.disableWriteCoalescing();	// collected data are sent on disable
+		Assert.assertFalse(pair.a.isWriteCoalescingEnabled());
+		Assert.assertEquals(0, pair.a.getWriteCoalescingWindow());
+		Assert.assertEquals(4, is.read());
+	}
+
+	@Test(timeout = 10000)
+	public void windowAndOverflowTest() throws Exception {
+		final OutputStream	os = pair.a.getOutputStream();
+		final InputStream	is = pair.b.getInputStream();
+		final byte[]		large = new byte[pair.a.getOutputBufferSize() + 1];
+
+		pair.a.enableWriteCoalescing(1000);
+		os.write(1);
+		Assert.assertEquals(1, is.read());		// window expires
+
+		pair.a.enableWriteCoalescing(10_000_000);
+		os.write(2);
+		os.write(large);						// collected byte is sent before the large write
+		Assert.assertEquals(2, is.read());
+		Assert.assertEquals(large.length, is.readNBytes(large.length).length);
+
+		os.write(3);
+		pair.a.setDTR(false);					// line changes send collected data first
+		Assert.assertEquals(3, is.read());
+		os.write(4);
+		pair.a.close();
+		Assert.assertEquals(4, is.read());
+	}
+
+	@Test(timeout = 10000)
+	public void timerFlushDoesNotBlockTest() throws Exception {
+		try (final LoopbackPair	small = LoopbackPair.open(false, 16)) {
+			final OutputStream	os = small.a.getOutputStream();
+			final InputStream	is = small.b.getInputStream();
+			final byte[]		content = new byte[40];
+
+			for (int index = 0; index < content.length; index++) {
+				content[index] = (byte)index;
+			}
+			small.a.enableWriteCoalescing(1000);
+			os.write(content);
+			Thread.sleep(100);							// timer sends what the peer ring accepts and keeps the rest
+			Assert.assertEquals(16, is.available());
+			Assert.assertEquals(24, ((AbstractSerialPort)small.a).getCoalescedOutputCount());
+
+			os.write(content, 0, 1);					// coalescer is not held by the timer
+			Assert.assertArrayEquals(content, is.readNBytes(content.length));
+			Assert.assertEquals(0, is.read());
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void blockedWriterDoesNotStallTimerTest() throws Exception {
+		try (final LoopbackPair	small = LoopbackPair.open(false, 16)) {
+			final OutputStream				os = small.a.getOutputStream();
+			final InputStream				is = small.b.getInputStream();
+			final byte[]					content = new byte[small.a.getOutputBufferSize() + 100];
+			final CountDownLatch			ticked = new CountDownLatch(1);
+			final CompletableFuture<Void>	writer;
+
+			small.a.enableWriteCoalescing(200_000);
+			os.write(1);								// arms the window expiring while the writer is blocked
+			writer = CompletableFuture.runAsync(()->{	// blocks in the driver holding the coalescer
+						try {
+							os.write(content);
+						} catch (IOException exc) {
+							throw new IllegalStateException(exc);
+						}
+					});
+			Thread.sleep(300);
+			Assert.assertFalse(writer.isDone());
+			TimerWheel.getDefault().schedule(ticked::countDown, 1, TimeUnit.MILLISECONDS);
+			Assert.assertTrue(ticked.await(2, TimeUnit.SECONDS));
+
+			Assert.assertEquals(1, is.read());
+			Assert.assertEquals(content.length, is.readNBytes(content.length).length);
+			writer.get(2, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void gatheringWriteTest() throws Exception {
+		final AtomicInteger	events = new AtomicInteger();
+		final AtomicInteger	bytes = new AtomicInteger();
+
+		pair.a.addEventListener((event)->{
+			if (event.getEventType() == SerialPortEvent.OUTPUT_BUFFER_EMPTY) {
+				bytes.addAndGet(event.getCount());
+				events.incrementAndGet();
+			}
+		});
+		pair.a.notifyOnOutputEmpty(true);
+		Assert.assertEquals(6, pair.a.getChannel().write(new ByteBuffer[] {ByteBuffer.wrap(new byte[] {1, 2}), ByteBuffer.allocateDirect(4)}));
+
+		final long	deadline = System.currentTimeMillis() + 2000;
+
+		while (bytes.get() < 6 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(6, bytes.get());
+		Assert.assertEquals(1, events.get());	// all the buffers are sent by one operation
+	}
+
+	@Test
+	public void illegalWindowTest() throws Exception {
+		try {
+			pair.a.enableWriteCoalescing(0);
+			Assert.fail("Mandatory exception was not detected (window is not positive)");
+		} catch (UnsupportedCommOperationException exc) {
+		}
+		Assert.assertFalse(pair.a.isWriteCoalescingEnabled());
+	}
+}
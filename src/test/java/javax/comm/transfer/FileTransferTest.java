@@ -0,0 +1,314 @@
+package javax.comm.transfer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.comm.SerialPort;
+import javax.comm.UnsupportedCommOperationException;
+import javax.comm.loopback.LoopbackPair;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileTransferTest {
+	private static final long	MODIFIED = 1577836800000L;	// 2020-01-01, whole seconds
+
+	private LoopbackPair	senderSide;
+	private LoopbackPair	receiverSide;
+	private Path			directory;
+
+	@Before
+	public void prepare() throws Exception {
+		senderSide = LoopbackPair.open();
+		receiverSide = LoopbackPair.open();
+		directory = Files.createTempDirectory("javaxcomm");
+	}
+
+	@After
+	public void release() throws Exception {
+		if (senderSide != null) {
+			senderSide.close();
+		}
+		if (receiverSide != null) {
+			receiverSide.close();
+		}
+		try (final Stream<Path>	paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach((p)->p.toFile().delete());
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void checksumFallbackTest() throws Exception {
+		final byte[]	content = content(256);
+		final Path		target = directory.resolve("xmodem.bin");
+
+		try (final CorruptingProxy	proxy = new CorruptingProxy(senderSide.b, receiverSide.a, XModem.CRC)) {	// sender never sees CRC requests
+			final CompletableFuture<Void>	send = sendAsync(()->new XModemSender(senderSide.a, XModemProtocol.XMODEM).send(TransferFile.of("xmodem.bin", ByteBuffer.wrap(content)), null));
+
+			try (final FileChannel	channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+				Assert.assertEquals(content.length, new XModemReceiver(receiverSide.b, XModemProtocol.XMODEM).receive(channel, null));
+			}
+			send.get(10, TimeUnit.SECONDS);
+			Assert.assertArrayEquals(content, Files.readAllBytes(target));
+			Assert.assertEquals(2 * (XModem.HEADER_SIZE + XModem.SHORT_BLOCK + 1) + 1, proxy.getForwarded());	// two blocks with one-byte checksum and EOT
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void ymodemBatchRetransmitTest() throws Exception {
+		final byte[]				first = content(3000), second = content(200);
+		final Path					source = Files.createDirectory(directory.resolve("source")).resolve("first.bin");
+		final Map<String, Long>		announced = new ConcurrentHashMap<>();
+		final TransferListener		listener = new TransferListener() {
+										@Override
+										public void fileStarted(final String name, final long size, final long offset) {
+											announced.put(name, size);
+										}
+									};
+
+		Files.write(source, first);
+		Files.setLastModifiedTime(source, FileTime.fromMillis(MODIFIED));
+		// damages the first header block (133 bytes), then the first and the second 1K-blocks of the first file, counting retransmissions
+		try (final CorruptingProxy	proxy = new CorruptingProxy(senderSide.b, receiverSide.a, -1, 50, 600, 2700)) {
+			final CompletableFuture<Void>	send = sendAsync(()->new XModemSender(senderSide.a, XModemProtocol.YMODEM).send(Arrays.asList(TransferFile.of(source), TransferFile.of("second.txt", ByteBuffer.wrap(second))), null));
+			final List<Path>				received = new XModemReceiver(receiverSide.b, XModemProtocol.YMODEM).receive(directory, listener);
+
+			send.get(10, TimeUnit.SECONDS);
+			Assert.assertEquals(Arrays.asList(directory.resolve("first.bin"), directory.resolve("second.txt")), received);
+			Assert.assertArrayEquals(first, Files.readAllBytes(received.get(0)));		// truncated to the size from the header
+			Assert.assertArrayEquals(second, Files.readAllBytes(received.get(1)));
+			Assert.assertEquals(MODIFIED, Files.getLastModifiedTime(received.get(0)).toMillis());
+			Assert.assertEquals(Long.valueOf(first.length), announced.get("first.bin"));
+			Assert.assertEquals(Long.valueOf(second.length), announced.get("second.txt"));
+			Assert.assertEquals(3 + 2, proxy.count(XModem.NAK));		// three damaged blocks and the second EOT request of every file
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void zmodemRetransmitTest() throws Exception {
+		final byte[]	content = content(20000);
+
+		try (final CorruptingProxy	proxy = new CorruptingProxy(senderSide.b, receiverSide.a, -1, 5000)) {
+			final CompletableFuture<Void>	send = sendAsync(()->Assert.assertTrue(new ZModemSender(senderSide.a).send(TransferFile.of("zmodem.bin", ByteBuffer.wrap(content)), null)));
+			final List<Path>				received = new ZModemReceiver(receiverSide.b).receive(directory, null);
+
+			send.get(10, TimeUnit.SECONDS);
+			Assert.assertEquals(1, received.size());
+			Assert.assertArrayEquals(content, Files.readAllBytes(received.get(0)));
+
+			final List<Long>	positions = proxy.getZrposPositions();
+
+			Assert.assertEquals(Long.valueOf(0), positions.get(0));			// file accepted from the beginning
+			Assert.assertTrue(positions.toString(), positions.stream().anyMatch((p)->p > 0 && p < content.length));	// restart after the damaged subpacket
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void zmodemResumeTest() throws Exception {
+		final byte[]				content = content(20000);
+		final int					partial = 7000;
+		final Set<Long>				senderOffsets = ConcurrentHashMap.newKeySet(), receiverOffsets = ConcurrentHashMap.newKeySet();
+
+		Files.write(directory.resolve("resume.bin"), Arrays.copyOf(content, partial));	// interrupted transfer left the head of the file
+		try (final CorruptingProxy	proxy = new CorruptingProxy(senderSide.b, receiverSide.a, -1)) {
+			final CompletableFuture<Void>	send = sendAsync(()->Assert.assertTrue(new ZModemSender(senderSide.a, ZModemSender.DEFAULT_WINDOW_SIZE, true).send(TransferFile.of("resume.bin", ByteBuffer.wrap(content)), offsets(senderOffsets))));
+			final List<Path>				received = new ZModemReceiver(receiverSide.b).receive(directory, offsets(receiverOffsets));
+
+			send.get(10, TimeUnit.SECONDS);
+			Assert.assertArrayEquals(content, Files.readAllBytes(received.get(0)));
+			Assert.assertEquals(Set.of((long)partial), senderOffsets);
+			Assert.assertEquals(Set.of((long)partial), receiverOffsets);
+			Assert.assertEquals(Long.valueOf(partial), proxy.getZrposPositions().get(0));
+			Assert.assertTrue(String.valueOf(proxy.getForwarded()), proxy.getForwarded() < content.length - partial + 2000);	// the head is not sent again
+		}
+
+		final CompletableFuture<Void>	again = sendAsync(()->Assert.assertFalse(new ZModemSender(senderSide.a, ZModemSender.DEFAULT_WINDOW_SIZE, true).send(TransferFile.of("resume.bin", ByteBuffer.wrap(content)), null)));
+
+		try (final CorruptingProxy	proxy = new CorruptingProxy(senderSide.b, receiverSide.a, -1)) {
+			Assert.assertEquals(1, new ZModemReceiver(receiverSide.b, true).receive(directory, null).size());	// complete file is skipped
+			again.get(10, TimeUnit.SECONDS);
+		}
+		Assert.assertArrayEquals(content, Files.readAllBytes(directory.resolve("resume.bin")));
+	}
+
+	@Test
+	public void argumentsTest() throws Exception {
+		try {
+			new XModemSender(null, XModemProtocol.XMODEM);
+			Assert.fail("Mandatory exception was not detected (null port)");
+		} catch (IllegalArgumentException exc) {
+		}
+		try {
+			new XModemSender(senderSide.a, XModemProtocol.XMODEM).send(Arrays.asList(TransferFile.of("a", ByteBuffer.allocate(1)), TransferFile.of("b", ByteBuffer.allocate(1))), null);
+			Assert.fail("Mandatory exception was not detected (XMODEM sends one file only)");
+		} catch (IllegalArgumentException exc) {
+		}
+		try {
+			new XModemReceiver(receiverSide.b, XModemProtocol.YMODEM).receive((FileChannel)null, null);
+			Assert.fail("Mandatory exception was not detected (null channel)");
+		} catch (IllegalArgumentException exc) {
+		}
+		try {
+			new ZModemReceiver(receiverSide.b).receive(directory.resolve("missing"), null);
+			Assert.fail("Mandatory exception was not detected (not a directory)");
+		} catch (IllegalArgumentException exc) {
+		}
+	}
+
+	private static byte[] content(final int size) {
+		final byte[]	result = new byte[size];
+
+		new Random(size).nextBytes(result);
+		return result;
+	}
+
+	private static TransferListener offsets(final Set<Long> offsets) {
+		return new TransferListener() {
+			@Override
+			public void fileStarted(final String name, final long size, final long offset) {
+				offsets.add(offset);
+			}
+		};
+	}
+
+	private static CompletableFuture<Void> sendAsync(final Transfer transfer) {
+		return CompletableFuture.runAsync(()->{
+			try {
+				transfer.run();
+			} catch (IOException exc) {
+				throw new IllegalStateException(exc);
+			}
+		});
+	}
+
+	@FunctionalInterface
+	private interface Transfer {
+		void run() throws IOException;
+	}
+
+	/**
+	 * <p>Forwards sender output to the receiver with some bytes corrupted, and receiver output back to the sender, optionally dropping
+	 * one byte value. Receiver output is recorded.</p>
+	 */
+	private static class CorruptingProxy implements AutoCloseable {
+		private final Set<Integer>				corrupted = ConcurrentHashMap.newKeySet();
+		private final ByteArrayOutputStream		answers = new ByteArrayOutputStream();
+		private final List<Thread>				threads = new ArrayList<>();
+		private final int						dropped;
+		private volatile boolean				closed = false;
+		private volatile int					forwarded = 0;
+
+		CorruptingProxy(final SerialPort toSender, final SerialPort toReceiver, final int dropped, final int... corruptedOffsets) throws IOException, UnsupportedCommOperationException {
+			this.dropped = dropped;
+			for (int offset : corruptedOffsets) {
+				corrupted.add(offset);
+			}
+			toSender.enableReceiveTimeout(50);
+			toReceiver.enableReceiveTimeout(50);
+			start(toSender.getInputStream(), toReceiver.getOutputStream(), true);
+			start(toReceiver.getInputStream(), toSender.getOutputStream(), false);
+		}
+
+		int getForwarded() {
+			return forwarded;
+		}
+
+		int count(final int value) {
+			int	result = 0;
+
+			for (byte item : answers()) {
+				if ((item & 0xFF) == value) {
+					result++;
+				}
+			}
+			return result;
+		}
+
+		List<Long> getZrposPositions() {
+			final String		text = new String(answers(), StandardCharsets.ISO_8859_1);
+			final String		prefix = "**" + (char)ZModem.ZDLE + (char)ZModem.ZHEX + String.format("%02x", ZModem.ZRPOS);
+			final List<Long>	result = new ArrayList<>();
+			int					from = 0;
+
+			while ((from = text.indexOf(prefix, from)) >= 0) {
+				long	position = 0;
+
+				from += prefix.length();
+				for (int index = 0; index < 4; index++, from += 2) {
+					position |= Long.parseLong(text.substring(from, from + 2), 16) << (8 * index);
+				}
+				result.add(position);
+			}
+			return result;
+		}
+
+		@Override
+		public void close() throws InterruptedException {
+			closed = true;
+			for (Thread thread : threads) {
+				thread.join(2000);
+			}
+		}
+
+		private byte[] answers() {
+			synchronized (answers) {
+				return answers.toByteArray();
+			}
+		}
+
+		private void start(final InputStream is, final OutputStream os, final boolean forward) {
+			final Thread	thread = new Thread(()->{
+								final byte[]	buffer = new byte[4096];
+								int				read, length;
+
+								try {
+									while (!closed && (read = is.read(buffer)) >= 0) {
+										length = 0;
+										for (int index = 0; index < read; index++) {
+											if (forward) {
+												buffer[length++] = (byte)(corrupted.contains(forwarded++) ? buffer[index] ^ 0x55 : buffer[index]);
+											}
+											else if ((buffer[index] & 0xFF) != dropped) {
+												buffer[length++] = buffer[index];
+											}
+										}
+										if (!forward) {
+											synchronized (answers) {
+												answers.write(buffer, 0, length);
+											}
+										}
+										os.write(buffer, 0, length);
+									}
+								} catch (IOException | IllegalStateException exc) {
+									// port closed
+								}
+							}, "CorruptingProxy");
+
+			thread.setDaemon(true);
+			thread.start();
+			threads.add(thread);
+		}
+	}
+}